@@ -0,0 +1,65 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import data.Data;
+import data.DatasetGenerator;
+import data.Distribution;
+
+/**
+ * Stato comune dei benchmark: un training set generato in memoria (vedi DatasetGenerator), parametrizzato
+ * per numero di esempi, numero di attributi (metà continui e metà discreti),
+ * cardinalità degli attributi discreti e distribuzione dei valori.
+ * Le classi di benchmark estendono questo stato e preparano i propri dati in prepare().
+ */
+@State(Scope.Benchmark)
+public class DatasetState {
+	/**
+	 * Seme del generatore, fisso perché le misure siano confrontabili tra esecuzioni diverse.
+	 */
+	public static final long SEED = 42;
+	
+	@Param({"10000", "100000"})
+	public int rows;
+	
+	@Param({"8"})
+	public int attributes;
+	
+	@Param({"4", "32"})
+	public int cardinality;
+	
+	@Param({"UNIFORM", "GAUSSIAN", "SKEWED"})
+	public Distribution distribution;
+	
+	/**
+	 * Generatore del dataset.
+	 */
+	protected DatasetGenerator generator;
+	
+	/**
+	 * Training set costruito dal dataset generato.
+	 */
+	protected Data data;
+	
+	/**
+	 * Genera il dataset e il relativo training set, quindi invoca prepare().
+	 * @throws Exception
+	 */
+	@Setup(Level.Trial)
+	public void createDataset() throws Exception {
+		generator = new DatasetGenerator(rows, (attributes + 1) / 2, attributes / 2, cardinality, DatasetGenerator.DEFAULT_NOISE, distribution, SEED);
+		data = new Data(generator);
+		prepare();
+	}
+	
+	/**
+	 * Prepara i dati specifici di un benchmark a partire da data (non fa nulla per default).
+	 * @throws Exception
+	 */
+	protected void prepare() throws Exception {
+	}
+}
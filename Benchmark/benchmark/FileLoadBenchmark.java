@@ -0,0 +1,90 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import database.BinaryTableFile;
+import database.ColumnarTable;
+import database.DelimitedTableFile;
+import database.EmptySetException;
+import database.TableFile;
+
+/**
+ * Lettura del dataset da file mappati in memoria: file CSV (DelimitedTableFile) e file binario per colonne
+ * (BinaryTableFile), sequenziale o in parallelo sul pool comune.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileLoadBenchmark extends DatasetState {
+	@Param({"false", "true"})
+	public boolean parallel;
+	
+	/**
+	 * File temporanei del dataset in formato CSV e binario.
+	 */
+	private File delimited;
+	private File binary;
+	
+	@Override
+	protected void prepare() throws IOException {
+		ColumnarTable table = generator.read();
+		delimited = File.createTempFile("benchmark", ".csv");
+		binary = File.createTempFile("benchmark", ".rtc");
+		
+		String[] columnNames = table.getColumnNames();
+		try(Writer out = Files.newBufferedWriter(delimited.toPath(), StandardCharsets.UTF_8)) {
+			out.write(String.join(",", columnNames));
+			out.write('\n');
+			for(int i = 0; i < table.getNumberOfRows(); i++) {
+				for(int j = 0; j < columnNames.length; j++) {
+					if(j > 0)
+						out.write(',');
+					if(table.getNumericColumn(j) != null)
+						out.write(Double.toString(table.getNumericColumn(j)[i]));
+					else
+						out.write(table.getDictionary(j)[table.getCodedColumn(j)[i]]);
+				}
+				out.write('\n');
+			}
+		}
+		BinaryTableFile.write(table, binary.toPath());
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteFiles() {
+		delimited.delete();
+		binary.delete();
+	}
+	
+	@Benchmark
+	public ColumnarTable loadDelimited() throws IOException, EmptySetException {
+		return new DelimitedTableFile(delimited.toPath(), TableFile.DEFAULT_DELIMITER, parallel ? ForkJoinPool.commonPool() : null).getColumns();
+	}
+	
+	@Benchmark
+	public ColumnarTable loadBinary() throws IOException, EmptySetException {
+		return new BinaryTableFile(binary.toPath(), parallel ? ForkJoinPool.commonPool() : null).getColumns();
+	}
+}
@@ -0,0 +1,46 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.Data;
+import data.TrainingDataException;
+import database.ColumnarTable;
+
+/**
+ * Acquisizione di una tabella già letta in memoria in un training set (Data): costruzione degli attributi,
+ * dei domini discreti e traduzione dei codici.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestionBenchmark extends DatasetState {
+	/**
+	 * Tabella da acquisire, rigenerata prima di ogni invocazione perché Data ne modifica i codici.
+	 */
+	private ColumnarTable table;
+	
+	@Setup(Level.Invocation)
+	public void copyTable() {
+		table = generator.read();
+	}
+	
+	@Benchmark
+	public Data ingest() throws TrainingDataException {
+		return new Data(table);
+	}
+}
@@ -0,0 +1,47 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tree.LearningMode;
+import tree.LearningOptions;
+import tree.RegressionTree;
+
+/**
+ * Apprendimento completo di un albero di regressione, per ciascuna modalità di apprendimento (sequenziale).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LearningBenchmark extends DatasetState {
+	@Param({"SORTING", "PRESORTED", "HISTOGRAM", "LEVEL_WISE"})
+	public LearningMode mode;
+	
+	/**
+	 * Opzioni di apprendimento, senza pool per l'apprendimento parallelo.
+	 */
+	private LearningOptions options;
+	
+	@Override
+	protected void prepare() {
+		options = new LearningOptions(mode);
+	}
+	
+	@Benchmark
+	public RegressionTree learn() {
+		return new RegressionTree(data, options);
+	}
+}
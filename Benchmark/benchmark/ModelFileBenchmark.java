@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tree.LearningMode;
+import tree.LearningOptions;
+import tree.RegressionTree;
+
+/**
+ * Salvataggio e caricamento di un albero appreso, sia come oggetto serializzato (.dmp) sia nel formato
+ * binario dei file di modello (.rtm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelFileBenchmark extends DatasetState {
+	/**
+	 * Albero appreso dal dataset.
+	 */
+	private RegressionTree tree;
+	
+	/**
+	 * File temporanei dell'albero serializzato e del file di modello.
+	 */
+	private File serialized;
+	private File model;
+	
+	@Override
+	protected void prepare() throws IOException {
+		tree = new RegressionTree(data, new LearningOptions(LearningMode.PRESORTED));
+		serialized = File.createTempFile("benchmark", ".dmp");
+		model = File.createTempFile("benchmark", ".rtm");
+		tree.salva(serialized.getPath());
+		tree.salvaModello(model.getPath());
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteFiles() {
+		serialized.delete();
+		model.delete();
+	}
+	
+	@Benchmark
+	public void save() throws IOException {
+		tree.salva(serialized.getPath());
+	}
+	
+	@Benchmark
+	public RegressionTree load() throws IOException, ClassNotFoundException {
+		return RegressionTree.carica(serialized.getPath());
+	}
+	
+	@Benchmark
+	public void saveModel() throws IOException {
+		tree.salvaModello(model.getPath());
+	}
+	
+	@Benchmark
+	public RegressionTree loadModel() throws IOException {
+		return RegressionTree.caricaModello(model.getPath());
+	}
+}
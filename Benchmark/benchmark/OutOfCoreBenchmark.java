@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.SpilledData;
+import tree.LearningMode;
+import tree.LearningOptions;
+import tree.RegressionTree;
+
+/**
+ * Apprendimento per livelli da un training set memorizzato su disco (SpilledData), confrontato con l'apprendimento
+ * in memoria della modalità HISTOGRAM, che produce lo stesso albero; sequenziale o in parallelo sul pool comune.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutOfCoreBenchmark extends DatasetState {
+	@Param({"false", "true"})
+	public boolean parallel;
+	
+	/**
+	 * Directory temporanea delle colonne e dei file dell'apprendimento.
+	 */
+	private Path directory;
+	
+	/**
+	 * Training set memorizzato su disco.
+	 */
+	private SpilledData spilled;
+	
+	/**
+	 * Opzioni di apprendimento della modalità HISTOGRAM.
+	 */
+	private LearningOptions options;
+	
+	@Override
+	protected void prepare() throws Exception {
+		directory = Files.createTempDirectory("benchmark");
+		spilled = new SpilledData(generator, directory);
+		options = new LearningOptions(LearningMode.HISTOGRAM, LearningOptions.DEFAULT_NUMBER_OF_BINS, parallel ? ForkJoinPool.commonPool() : null);
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteFiles() throws IOException {
+		spilled.close();
+		Files.deleteIfExists(directory);
+	}
+	
+	@Benchmark
+	public RegressionTree learnOutOfCore() throws IOException {
+		return new RegressionTree(spilled, options);
+	}
+	
+	@Benchmark
+	public RegressionTree learnInMemory() {
+		return new RegressionTree(data, options);
+	}
+}
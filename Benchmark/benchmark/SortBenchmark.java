@@ -0,0 +1,66 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.Attribute;
+import data.DataView;
+
+/**
+ * Ordinamento degli esempi rispetto a un attributo: merge sort stabile (attributi continui) e counting sort
+ * (attributi discreti) usati dalle viste ordinate, e quicksort di DataView.sort().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SortBenchmark extends DatasetState {
+	/**
+	 * Primo attributo continuo (c0) e primo attributo discreto (d1) del dataset.
+	 */
+	private Attribute continuous;
+	private Attribute discrete;
+	
+	@Override
+	protected void prepare() {
+		continuous = data.getExplanatoryAttribute(0);
+		discrete = data.getExplanatoryAttribute(1);
+	}
+	
+	@Benchmark
+	public DataView mergeSortContinuous() {
+		return new DataView(data, continuous);
+	}
+	
+	@Benchmark
+	public DataView countingSortDiscrete() {
+		return new DataView(data, discrete);
+	}
+	
+	@Benchmark
+	public DataView quickSortContinuous() {
+		DataView view = new DataView(data);
+		view.sort(continuous, 0, view.getNumberOfExamples() - 1);
+		
+		return view;
+	}
+	
+	@Benchmark
+	public DataView quickSortDiscrete() {
+		DataView view = new DataView(data);
+		view.sort(discrete, 0, view.getNumberOfExamples() - 1);
+		
+		return view;
+	}
+}
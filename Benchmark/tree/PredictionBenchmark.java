@@ -0,0 +1,86 @@
+package tree;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import benchmark.DatasetState;
+import server.UnknownValueException;
+
+/**
+ * Predizione con la forma compilata di un albero appreso dal dataset: predizione batch di tutti gli esempi
+ * del training set e predizione interattiva, in cui ogni passo produce le informazioni dei test del nodo
+ * (come il dialogo con il client) e segue un ramo scelto in modo pseudo-casuale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PredictionBenchmark extends DatasetState {
+	/**
+	 * Numero di predizioni interattive per invocazione.
+	 */
+	private static final int DIALOGUES = 100;
+	
+	/**
+	 * Forma compilata dell'albero appreso.
+	 */
+	private CompiledTree tree;
+	
+	/**
+	 * Esempi del training set codificati per la predizione (vedi CompiledTree.encode()).
+	 */
+	private double[][] examples;
+	
+	/**
+	 * Generatore delle scelte della predizione interattiva.
+	 */
+	private Random answers;
+	
+	@Override
+	protected void prepare() throws UnknownValueException {
+		tree = new RegressionTree(data, new LearningOptions(LearningMode.PRESORTED)).getCompiledTree();
+		examples = new double[data.getNumberOfExamples()][];
+		Object[] example = new Object[data.getNumberOfExplanatoryAttributes()];
+		for(int i = 0; i < examples.length; i++) {
+			for(int j = 0; j < example.length; j++)
+				example[j] = data.getExplanatoryValue(i, j);
+			examples[i] = tree.encode(example);
+		}
+		answers = new Random(SEED);
+	}
+	
+	@Benchmark
+	public double batchPrediction() throws UnknownValueException {
+		double sum = 0;
+		for(double[] example : examples)
+			sum += tree.predict(example);
+		
+		return sum;
+	}
+	
+	@Benchmark
+	public void interactivePrediction(Blackhole blackhole) throws UnknownValueException {
+		for(int d = 0; d < DIALOGUES; d++) {
+			int node = 0;
+			String query;
+			while((query = tree.getQuery(node)) != null) {
+				blackhole.consume(query);
+				node = tree.getChild(node, answers.nextInt(tree.getNumberOfChildren(node)));
+			}
+			blackhole.consume(tree.getLeafValue(node));
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package tree;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import benchmark.DatasetState;
+import data.ContinuousAttribute;
+import data.DataView;
+import data.DiscreteAttribute;
+
+/**
+ * Valutazione degli split candidati della radice rispetto a un attributo continuo e a un attributo discreto,
+ * a partire da viste già ordinate (come in PresortedOrdering). Il benchmark appartiene al package tree per
+ * poter istanziare direttamente i nodi di split.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SplitBenchmark extends DatasetState {
+	/**
+	 * Primo attributo continuo (c0) e primo attributo discreto (d1) del dataset.
+	 */
+	private ContinuousAttribute continuous;
+	private DiscreteAttribute discrete;
+	
+	/**
+	 * Viste ordinate rispetto a continuous e a discrete.
+	 */
+	private DataView continuousView;
+	private DataView discreteView;
+	
+	/**
+	 * Statistiche dei valori di classe di tutti gli esempi.
+	 */
+	private NodeStatistics statistics;
+	
+	@Override
+	protected void prepare() {
+		continuous = (ContinuousAttribute) data.getExplanatoryAttribute(0);
+		discrete = (DiscreteAttribute) data.getExplanatoryAttribute(1);
+		continuousView = new DataView(data, continuous);
+		discreteView = new DataView(data, discrete);
+		statistics = NodeStatistics.of(continuousView, 0, data.getNumberOfExamples() - 1);
+	}
+	
+	@Benchmark
+	public SplitNode continuousSplit() {
+		return new ContinuousNode(continuousView, 0, data.getNumberOfExamples() - 1, continuous, statistics);
+	}
+	
+	@Benchmark
+	public SplitNode discreteSplit() {
+		return new DiscreteNode(discreteView, 0, data.getNumberOfExamples() - 1, discrete, statistics);
+	}
+	
+	@Benchmark
+	public NodeStatistics nodeStatistics() {
+		return NodeStatistics.of(continuousView, 0, data.getNumberOfExamples() - 1);
+	}
+}
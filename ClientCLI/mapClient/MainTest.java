@@ -1,9 +1,6 @@
 package mapClient;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
 
 import utility.Keyboard;
 
@@ -11,26 +8,24 @@ import utility.Keyboard;
 public class MainTest {
 	
 	public static void main(String[] args){
+		// "object" come primo argomento seleziona il protocollo originale invece di quello binario
+		boolean binary = !(args.length > 0 && args[0].equals("object"));
 		args = new String[2];
 		args[0] = "localhost";
 		args[1] = "8080";
 		
-		Socket socket = null;
-		ObjectOutputStream out = null;
-		ObjectInputStream in = null;
+		ServerConnection connection = null;
 		try {
-			socket = new Socket(args[0], new Integer(args[1]).intValue());
-			System.out.println(socket);		
-			out = new ObjectOutputStream(socket.getOutputStream());
-			in = new ObjectInputStream(socket.getInputStream());// stream con richieste del client
+			connection = new ServerConnection(args[0], new Integer(args[1]).intValue(), binary);
+			System.out.println("Connected to " + args[0] + ":" + args[1] + (connection.isBinary() ? " (binary protocol)" : ""));
 			
 		}  catch (IOException e) {
 			System.out.println(e.toString());
 			return;
 		}
-
 		
-
+		
+		
 		
 		String answer = "";
 		int decision = 0;
@@ -52,60 +47,74 @@ public class MainTest {
 			if(decision == 1){
 				System.out.println("Starting data acquisition phase!");
 				
-				out.writeObject(0);
-				out.writeObject(tableName);
+				connection.writeCommand(0);
+				connection.writeString(tableName);
 				
-				answer = in.readObject().toString();
+				answer = connection.readObject().toString();
 				if(!answer.equals("OK")){
 					System.out.println(answer);
 					return;
 				}
 				
 				System.out.println("Starting learning phase!");
-				out.writeObject(1);	
+				connection.writeCommand(1);	
 			}
 			else{
-				out.writeObject(2);
-				out.writeObject(tableName);
+				connection.writeCommand(2);
+				connection.writeString(tableName);
 			}
 			
-
-			answer = in.readObject().toString();
+			
+			answer = connection.readObject().toString();
 			if(!answer.equals("OK")){
 				System.out.println(answer);
 				return;
 			}
 			
 			/*--- Implementazione della stampa delle regole ---*/
-			out.writeObject(4);
-			
-			String rules = in.readObject().toString();
-			System.out.println(rules);
+			if(connection.isBinary()){
+				// Le regole arrivano in blocchi, stampati man mano che vengono ricevuti
+				connection.writeCommand(8);
+				
+				answer = connection.readObject().toString();
+				while(answer.equals("CHUNK")){
+					System.out.print(connection.readObject());
+					answer = connection.readObject().toString();
+				}
+				System.out.println();
+			}
+			else{
+				// Un server che non conosce il protocollo binario non conosce nemmeno l'istruzione 8: le regole arrivano in un'unica stringa
+				connection.writeCommand(4);
+				System.out.println(connection.readObject());
+				answer = connection.readObject().toString();
+			}
 			
-			answer = in.readObject().toString();
-			if(!answer.equals("OK"))
+			if(!answer.equals("OK")){
+				System.out.println(answer);
 				return;
+			}
 			/*--- ---*/
 			
 			char risp = 'y';
 			
 			do{
-				out.writeObject(3);
+				connection.writeCommand(3);
 				
 				System.out.println("Starting prediction phase!");
 				
-				answer = in.readObject().toString();
+				answer = connection.readObject().toString();
 				while(answer.equals("QUERY")){
 					// Formualting query, reading answer
-					answer = in.readObject().toString();
+					answer = connection.readObject().toString();
 					System.out.print(answer);
 					int path = Keyboard.readInt();
-					out.writeObject(path);
-					answer = in.readObject().toString();
+					connection.writeInt(path);
+					answer = connection.readObject().toString();
 				}
 			
 				if(answer.equals("OK")){ // Reading prediction
-					answer = in.readObject().toString();
+					answer = connection.readObject().toString();
 					System.out.println("Predicted class:" + answer);
 				}
 				else //Printing error message
@@ -123,10 +132,8 @@ public class MainTest {
 		}
 		finally {
 			try {
-				out.writeObject(6);
-				in.close();
-				out.close();
-				socket.close();
+				connection.writeCommand(6);
+				connection.close();
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
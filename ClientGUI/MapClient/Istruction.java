@@ -1,155 +1,168 @@
 package MapClient;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 
 import javafx.scene.control.TextArea;
 
 
 /**
- * Questa classe raccoglie le richieste che  possibile fare al server attraverso gli elementi della GUI. Ogni richiesta al server
- *  seguita da una riposta da parte del server che indica se la richiesta  andata a buon fine, in questo caso invier un "OK",
- * oppure se non  andata a buon fine. Nell'ultimo caso la stringa inviata dal server descriver l'eccezione. 
+ * Questa classe raccoglie le richieste che è possibile fare al server attraverso gli elementi della GUI. Ogni richiesta al server
+ * è seguita da una riposta da parte del server che indica se la richiesta è andata a buon fine, in questo caso invierà un "OK",
+ * oppure se non è andata a buon fine. Nell'ultimo caso la stringa inviata dal server descriverà l'eccezione. 
  */
 class Istruction {
 	
 	/**
 	 * Lancia la fase di acquisizione della tabella TableName.
-	 * @param in Stream per ricevere messaggi da parte del server.
-	 * @param out Stream per inviare istruzioni al server.
+	 * @param connection Connessione con il server.
 	 * @param tableName Nome della tabella da acquisire da database. 
 	 * @return Messaggio da parte del server dove comunica l'eventuale successo o fallimento dell'acquisizione della tabella.
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
-	static String acquisitionPhase(ObjectInputStream in, ObjectOutputStream out, String tableName) throws IOException, ClassNotFoundException {
-		out.writeObject(0);
-		out.writeObject(tableName);	
+	static String acquisitionPhase(ServerConnection connection, String tableName) throws IOException, ClassNotFoundException {
+		connection.writeCommand(0);
+		connection.writeString(tableName);	
 		
-		return in.readObject().toString();
+		return connection.readObject().toString();
 	}
 	
 	/**
 	 * Lancia la fase di apprendimento dell'albero da dati acquisiti in una acquisitionPhase precedente.
-	 * @param in Stream per ricevere messaggi da parte del server.
-	 * @param out Stream per inviare istruzioni al server.
+	 * @param connection Connessione con il server.
 	 * @return Messaggio da parte del server che comunica l'eventuale successo o fallimento dell'apprendimento della tabella acquisita. 
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
-	static String learningPhase(ObjectInputStream in, ObjectOutputStream out) throws IOException, ClassNotFoundException {
-		out.writeObject(1);	
+	static String learningPhase(ServerConnection connection) throws IOException, ClassNotFoundException {
+		connection.writeCommand(1);	
 		
-		return in.readObject().toString();
+		return connection.readObject().toString();
 	}
 	
 	/**
 	 * Lancia la fase di caricamento dell'albero di regressione da file.
-	 * @param in Stream per ricevere messaggi da parte del server.
-	 * @param out Stream per inviare istruzioni al server.
+	 * @param connection Connessione con il server.
 	 * @param tableName Percorso del file dove risiede l'albero di regressione da caricare.
 	 * @return Messaggio da parte del server che comunica l'eventuale successo o fallimento del caricamento dell'albero da file.
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
-	static String loadTreeFromData(ObjectInputStream in, ObjectOutputStream out, String tableName) throws IOException, ClassNotFoundException{
-		out.writeObject(2);
-		out.writeObject(tableName);
+	static String loadTreeFromData(ServerConnection connection, String tableName) throws IOException, ClassNotFoundException{
+		connection.writeCommand(2);
+		connection.writeString(tableName);
 		
-		return in.readObject().toString();
+		return connection.readObject().toString();
 	}
 	
 	/**
-	 * Restituisce un Messaggio da parte del server che comunica l'eventuale successo o fallimento e le regole di un albero appreso in una fase precedente.
-	 * @param in Stream per ricevere messaggi da parte del server.
-	 * @param out Stream per inviare istruzioni al server.
-	 * @return Messaggio da parte del server che comunica l'eventuale successo o fallimento della restituzione delle regole e le regole dell'albero.
+	 * Richiede al server le regole e le informazioni relative alla struttura di un albero appreso in una fase precedente.
+	 * Le due istruzioni vengono inviate insieme, senza attendere la prima risposta prima di inviare la seconda istruzione,
+	 * e il testo arriva in blocchi (vedi readChunks()). Un server che non conosce il protocollo binario non conosce nemmeno
+	 * le istruzioni 8 e 9: in tal caso vengono inviate le istruzioni 4 e 5, a cui il server risponde con un'unica stringa.
+	 * @param connection Connessione con il server.
+	 * @param rules Destinazione delle regole dell'albero.
+	 * @param structure Destinazione della struttura dell'albero.
+	 * @return Array di 2 stringhe: i messaggi da parte del server che comunicano l'eventuale successo o fallimento
+	 * della restituzione delle regole e della struttura dell'albero.
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
-	static String[] getRules(ObjectInputStream in, ObjectOutputStream out) throws IOException, ClassNotFoundException{
-		out.writeObject(4);
-		String[] rules = new String[2];
-		rules[0] = in.readObject().toString();
-		rules[1] = in.readObject().toString();
-				
-		return rules;
+	static String[] getRulesAndStructure(ServerConnection connection, StringBuilder rules, StringBuilder structure) throws IOException, ClassNotFoundException{
+		boolean chunked = connection.isBinary();
+		connection.writeCommand(chunked ? 8 : 4);
+		connection.writeCommand(chunked ? 9 : 5);
+		String[] answers = new String[2];
+		answers[0] = chunked ? readChunks(connection, rules) : readText(connection, rules);
+		answers[1] = chunked ? readChunks(connection, structure) : readText(connection, structure);
+		
+		return answers;
 	}
 	
 	/**
-	 * Restituisce un Messaggio da parte del server che comunica l'eventuale successo o fallimento e informazioni
-	 * relative alla strutture di un albero appreso in una fase precedente.
-	 * @param in Stream per ricevere messaggi da parte del server.
-	 * @param out Stream per inviare istruzioni al server.
-	 * @return Messaggio da parte del server che comunica l'eventuale successo o fallimento della restituzione della struttura e la struttura dell'albero.
+	 * Legge i blocchi di testo inviati dal server (ciascuno preceduto da "CHUNK") e li accoda a text.
+	 * @param connection Connessione con il server.
+	 * @param text Destinazione del testo ricevuto.
+	 * @return Messaggio da parte del server che segue i blocchi ("OK" o la descrizione dell'errore).
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
-	static String[] getTreeStructure(ObjectInputStream in, ObjectOutputStream out) throws IOException, ClassNotFoundException{
-		out.writeObject(5);
-		String[] structure = new String[2];
-		structure[0] = in.readObject().toString();
-		structure[1] = in.readObject().toString();
+	private static String readChunks(ServerConnection connection, StringBuilder text) throws IOException, ClassNotFoundException{
+		String answer = connection.readObject().toString();
+		while(answer.equals("CHUNK")) {
+			text.append(connection.readObject().toString());
+			answer = connection.readObject().toString();
+		}
 		
+		return answer;
+	}
+	
+	/**
+	 * Legge il testo inviato dal server in un'unica stringa (istruzioni 4 e 5) e lo accoda a text.
+	 * @param connection Connessione con il server.
+	 * @param text Destinazione del testo ricevuto.
+	 * @return Messaggio da parte del server che segue il testo ("OK" o la descrizione dell'errore).
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private static String readText(ServerConnection connection, StringBuilder text) throws IOException, ClassNotFoundException{
+		text.append(connection.readObject().toString());
 		
-		return structure;
+		return connection.readObject().toString();
 	}
 	
 	/**
 	 * Lancia la fase di predizione e stampa le opzioni di scelta.
-	 * @param in Stream per ricevere messaggi da parte del server.
-	 * @param out Stream per inviare istruzioni al server.
+	 * @param connection Connessione con il server.
 	 * @param textAreaPrediction Campo dove stampare le opzioni di scelta.
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
-	static void predictionPhase(ObjectInputStream in, ObjectOutputStream out, TextArea textAreaPrediction) throws IOException, ClassNotFoundException {
+	static void predictionPhase(ServerConnection connection, TextArea textAreaPrediction) throws IOException, ClassNotFoundException {
 		Main.setElementVisibilityOnPrediction();
 		
 		textAreaPrediction.setText("Starting prediction phase! ('e' to exit)\n");
-		out.writeObject(3);
+		connection.writeCommand(3);
 		
-		String answer = in.readObject().toString();
+		String answer = connection.readObject().toString();
 		if(answer.equals("QUERY")) {
 			// Formualting query, reading answer
-			answer = in.readObject().toString();
+			answer = connection.readObject().toString();
 			textAreaPrediction.appendText(answer + "\n");	
 		}
 	}
 	
 	/**
 	 * In base alla scelta dell'utente stampa le opzioni relative a quella scelta.
-	 * Nel caso in cui l'utente inserisca "e" come valore il risultato sar uscire dalla fase di predizione.
-	 * @param in Stream per ricevere messaggi da parte del server.
-	 * @param out Stream per inviare istruzioni al server.
+	 * Nel caso in cui l'utente inserisca "e" come valore il risultato sarà uscire dalla fase di predizione.
+	 * @param connection Connessione con il server.
 	 * @param textAreaPrediction Campo dove stampare le opzioni di scelta.
 	 * @param pathFieldValue Valore che indica la scelta dell'utente.
 	 */
-	static void predictionPhase(ObjectInputStream in, ObjectOutputStream out, TextArea textAreaPrediction, String pathFieldValue){
+	static void predictionPhase(ServerConnection connection, TextArea textAreaPrediction, String pathFieldValue){
 		int path;
 		try {
 			
 			if(pathFieldValue.equals("e"))
-				out.writeObject(-1);
+				connection.writeInt(-1);
 			else {
 			    try {
 					path = Integer.valueOf(pathFieldValue);
-					out.writeObject(path);
+					connection.writeInt(path);
 			    } catch (NumberFormatException nfe) {
 			    	textAreaPrediction.appendText("The value should be numeric!\n");
 			    	return;
 			    }    
 			}
 			
-			String answer = in.readObject().toString();
+			String answer = connection.readObject().toString();
 			if(answer.equals("QUERY")) {
-				answer = in.readObject().toString();
+				answer = connection.readObject().toString();
 				textAreaPrediction.appendText(answer + "\n");
 			}
 			else if(answer.equals("OK")){ 
 				// Reading prediction
-				answer = in.readObject().toString();
+				answer = connection.readObject().toString();
 				textAreaPrediction.appendText("Predicted class: " + answer);
 				
 				Main.setElementVisibilityOutPrediction();
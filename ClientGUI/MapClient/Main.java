@@ -1,9 +1,6 @@
 package MapClient;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
 import javafx.application.Application;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -40,6 +37,11 @@ public class Main extends Application{
 	 */
 	private static int PORT;
 	
+	/**
+	 * Indica se proporre al server il protocollo binario (= true) o usare quello originale (= false).
+	 */
+	private static boolean BINARY_PROTOCOL = true;
+	
 	/**
 	 * Larghezza della finestra.
 	 * */
@@ -54,9 +56,10 @@ public class Main extends Application{
 	 * */
 	private int choice = 0;
 	
-	private Socket socket;
-	private ObjectOutputStream out;
-	private ObjectInputStream in;
+	/**
+	 * Connessione con il server.
+	 */
+	private ServerConnection connection;
 	
 	/**
 	 * Finestra dove vengono mostrate gli elementi della GUI.
@@ -93,10 +96,13 @@ public class Main extends Application{
 	
 	/**
 	 * Inizializza la socket con indirizzo ip e porta per mettersi in cumunicazione con il server e si occupa di lanciare l'interfaccia grafica.
+	 * Il terzo argomento, se vale "object", seleziona il protocollo originale.
 	 * */
 	public static void main(String[] args){
 		IP = args[0];
 		PORT = Integer.valueOf(args[1]);
+		if(args.length > 2 && args[2].equals("object"))
+			BINARY_PROTOCOL = false;
 		launch(args);
 	}
 	
@@ -127,12 +133,10 @@ public class Main extends Application{
 			public void handle(WindowEvent event) {
 				try {
 					if(onPrediction)
-						out.writeObject(-1);
+						connection.writeInt(-1);
 					
-					out.writeObject(6);
-					in.close();
-					out.close();
-					socket.close();
+					connection.writeCommand(6);
+					connection.close();
 				} catch (IOException e) {
 					sendAlert(e.toString());
 				}
@@ -143,16 +147,13 @@ public class Main extends Application{
 	}
 	
 	/**
-	 * Inizializza la connessione con il server.
+	 * Inizializza la connessione con il server, proponendo il protocollo binario.
 	 * @param ip Indirizzo IP del server.
 	 * @param port Porta su cui il client e il server comunicano.
 	 * @throws IOException
 	 */
 	private void initializeConnection(String ip, int port) throws IOException {
-		socket = new Socket(ip, port);
-		
-		out = new ObjectOutputStream(socket.getOutputStream());
-		in = new ObjectInputStream(socket.getInputStream());// stream con richieste del client
+		connection = new ServerConnection(ip, port, BINARY_PROTOCOL);
 	}
 	
 	/**
@@ -244,7 +245,7 @@ public class Main extends Application{
 		repeat.setOnMouseClicked(e -> {
 			repeat.setVisible(false);
 			try {
-				Istruction.predictionPhase(in, out, textAreaPrediction);
+				Istruction.predictionPhase(connection, textAreaPrediction);
 			} catch (ClassNotFoundException | IOException e1) {
 				this.sendAlert(e1.toString());
 			}
@@ -254,7 +255,7 @@ public class Main extends Application{
 		setPath.setOnAction(new EventHandler<ActionEvent>() {
 		    @Override 
 		    public void handle(ActionEvent e) {
-		    	Istruction.predictionPhase(in, out, textAreaPrediction, pathField.getText());
+		    	Istruction.predictionPhase(connection, textAreaPrediction, pathField.getText());
 		    }
 		});
 		
@@ -280,7 +281,7 @@ public class Main extends Application{
 		String answer = null;
 		try {
 			if(decision == 1) {
-				answer = Istruction.acquisitionPhase(in, out, tableName);
+				answer = Istruction.acquisitionPhase(connection, tableName);
 				if(!answer.equals("OK")) {
 					showRules.setVisible(false);
 					showStructure.setVisible(false);
@@ -288,10 +289,10 @@ public class Main extends Application{
 					return;
 				}
 				
-				answer = Istruction.learningPhase(in, out);
+				answer = Istruction.learningPhase(connection);
 			}
 			else if(decision == 2)
-				answer = Istruction.loadTreeFromData(in, out, tableName);
+				answer = Istruction.loadTreeFromData(connection, tableName);
 				
 			if(!answer.equals("OK")) {
 				showRules.setVisible(false);
@@ -303,25 +304,25 @@ public class Main extends Application{
 			showRules.setVisible(true);
 			showStructure.setVisible(true);
 			
-			String[] temp = new String[2];
-			temp = Istruction.getRules(in, out);
-			answer = temp[1];
+			StringBuilder rulesText = new StringBuilder();
+			StringBuilder structureText = new StringBuilder();
+			String[] temp = Istruction.getRulesAndStructure(connection, rulesText, structureText);
+			answer = temp[0];
 			if(!answer.equals("OK")) {
 				textAreaRules.setText(answer);
 				return;
 			}
-			rules = temp[0];
+			rules = rulesText.toString();
 			textAreaRules.setText(rules);
 			
-			temp = Istruction.getTreeStructure(in, out);
 			answer = temp[1];
 			if(!answer.equals("OK")) {
 				textAreaRules.setText(answer);
 				return;
 			}
-			structure = temp[0];			
+			structure = structureText.toString();			
 			
-			Istruction.predictionPhase(in, out, textAreaPrediction);
+			Istruction.predictionPhase(connection, textAreaPrediction);
 		}
 		catch(IOException | ClassNotFoundException e){
 			showRules.setVisible(false);
@@ -331,7 +332,7 @@ public class Main extends Application{
 	}
 	
 	/**
-	 * Si occupa di settare la visibilit delle componenti della GUI all'interno della finestra
+	 * Si occupa di settare la visibilità delle componenti della GUI all'interno della finestra
 	 * durante la predictionPhase.
 	 */
 	static void setElementVisibilityOnPrediction() {
@@ -342,7 +343,7 @@ public class Main extends Application{
 	}
 	
 	/**
-	 * Si occupa di settare la visibilit delle componenti della GUI all'interno della finestra
+	 * Si occupa di settare la visibilità delle componenti della GUI all'interno della finestra
 	 * fuori dalla predictionPhase.
 	 */
 	static void setElementVisibilityOutPrediction(){
@@ -0,0 +1,211 @@
+package MapClient;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Modella la connessione con il server. I messaggi possono essere scambiati con il protocollo binario a frame
+ * (numero magico MAGIC, quindi frame composti da lunghezza, tipo, identificativo della richiesta e contenuto)
+ * o con il protocollo originale basato su ObjectInputStream e ObjectOutputStream, usato anche quando il server
+ * non riconosce il protocollo binario.
+ * Con il protocollo binario le istruzioni vengono inviate solo quando si legge una risposta, per cui più
+ * istruzioni consecutive raggiungono il server insieme e le risposte arrivano nell'ordine delle istruzioni.
+ * Il formato dei frame è definito da server.BinaryProtocol: MAGIC, i tipi dei frame e HEADER_SIZE ne sono copie
+ * (il client non dipende dalle classi del server) e ogni modifica va riportata anche in ClientCLI/mapClient/ServerConnection.java.
+ */
+class ServerConnection {
+	/**
+	 * Numero magico che seleziona il protocollo binario ("RTP1"), come server.BinaryProtocol.MAGIC.
+	 */
+	private static final int MAGIC = 0x52545031;
+	
+	/**
+	 * Tipi dei frame del protocollo binario: istruzione, stringa, intero, double, array di double, fine della risposta
+	 * (vedi server.BinaryProtocol).
+	 */
+	private static final byte COMMAND = 'C', STRING = 'S', INT = 'I', DOUBLE = 'D', DOUBLES = 'A', END = 'E';
+	
+	/**
+	 * Dimensione dell'intestazione di un frame dopo la lunghezza (tipo e identificativo), come in server.BinaryProtocol.
+	 */
+	private static final int HEADER_SIZE = 1 + Integer.BYTES;
+	
+	/**
+	 * Socket della connessione.
+	 */
+	private Socket socket;
+	
+	/**
+	 * Stream del protocollo originale (null con il protocollo binario).
+	 */
+	private ObjectOutputStream out;
+	private ObjectInputStream in;
+	
+	/**
+	 * Stream dei frame del protocollo binario (null con il protocollo originale).
+	 */
+	private DataOutputStream frameOut;
+	private DataInputStream frameIn;
+	
+	/**
+	 * Identificativo dell'ultima richiesta inviata.
+	 */
+	private int lastRequestId;
+	
+	/**
+	 * Costruttore di classe. Apre la connessione con il server e sceglie il protocollo.
+	 * @param ip Indirizzo IP del server.
+	 * @param port Porta su cui il server è in ascolto.
+	 * @param binary true per proporre il protocollo binario, false per usare quello originale.
+	 * @throws IOException
+	 */
+	ServerConnection(String ip, int port, boolean binary) throws IOException {
+		socket = new Socket(ip, port);
+		if(binary) {
+			frameOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			frameIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			frameOut.writeInt(MAGIC);
+			frameOut.flush();
+			if(frameIn.readInt() == MAGIC)
+				return;
+			
+			// Il server usa solo il protocollo originale: la connessione viene riaperta
+			socket.close();
+			socket = new Socket(ip, port);
+			frameOut = null;
+			frameIn = null;
+		}
+		
+		out = new ObjectOutputStream(socket.getOutputStream());
+		in = new ObjectInputStream(socket.getInputStream());
+	}
+	
+	/**
+	 * Verifica se la connessione usa il protocollo binario.
+	 * @return true con il protocollo binario, false con quello originale.
+	 */
+	boolean isBinary() {
+		return frameOut != null;
+	}
+	
+	/**
+	 * Scrive l'intestazione di un frame del protocollo binario.
+	 * @param length Dimensione del contenuto.
+	 * @param type Tipo del frame.
+	 * @throws IOException
+	 */
+	private void writeHeader(int length, byte type) throws IOException {
+		frameOut.writeInt(HEADER_SIZE + length);
+		frameOut.writeByte(type);
+		frameOut.writeInt(lastRequestId);
+	}
+	
+	/**
+	 * Invia un'istruzione al server, aprendo una nuova richiesta.
+	 * @param command Istruzione da inviare.
+	 * @throws IOException
+	 */
+	void writeCommand(int command) throws IOException {
+		lastRequestId++;
+		if(isBinary()) {
+			writeHeader(Integer.BYTES, COMMAND);
+			frameOut.writeInt(command);
+		}
+		else
+			out.writeObject(command);
+	}
+	
+	/**
+	 * Invia una stringa al server come parametro dell'ultima richiesta.
+	 * @param message Stringa da inviare.
+	 * @throws IOException
+	 */
+	void writeString(String message) throws IOException {
+		if(isBinary()) {
+			byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+			writeHeader(Integer.BYTES + bytes.length, STRING);
+			frameOut.writeInt(bytes.length);
+			frameOut.write(bytes);
+		}
+		else
+			out.writeObject(message);
+	}
+	
+	/**
+	 * Invia un intero al server come parametro dell'ultima richiesta.
+	 * @param value Intero da inviare.
+	 * @throws IOException
+	 */
+	void writeInt(int value) throws IOException {
+		if(isBinary()) {
+			writeHeader(Integer.BYTES, INT);
+			frameOut.writeInt(value);
+		}
+		else
+			out.writeObject(value);
+	}
+	
+	/**
+	 * Legge il prossimo messaggio del server, dopo aver inviato le istruzioni in attesa.
+	 * @return Messaggio ricevuto (String, Double o double[]).
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	Object readObject() throws IOException, ClassNotFoundException {
+		if(!isBinary()) {
+			out.flush();
+			return in.readObject();
+		}
+		
+		frameOut.flush();
+		while(true) {
+			int length = frameIn.readInt();
+			byte type = frameIn.readByte();
+			int requestId = frameIn.readInt();
+			switch(type) {
+			case STRING:
+				byte[] bytes = new byte[frameIn.readInt()];
+				frameIn.readFully(bytes);
+				return new String(bytes, StandardCharsets.UTF_8);
+				
+			case DOUBLE:
+				return frameIn.readDouble();
+				
+			case DOUBLES:
+				double[] values = new double[frameIn.readInt()];
+				for(int i = 0; i < values.length; i++)
+					values[i] = frameIn.readDouble();
+				return values;
+				
+			default:
+				// Fine di una risposta o frame non previsto: il contenuto viene ignorato
+				frameIn.skipNBytes(length - HEADER_SIZE);
+				if(type != END)
+					System.out.println("Frame '" + (char) type + "' della richiesta " + requestId + " ignorato");
+			}
+		}
+	}
+	
+	/**
+	 * Chiude gli stream e il socket della connessione.
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		if(isBinary()) {
+			frameOut.close();
+			frameIn.close();
+		}
+		else {
+			out.close();
+			in.close();
+		}
+		socket.close();
+	}
+}
@@ -1,14 +1,15 @@
 package data;
 
 import java.io.Serializable;
-import java.sql.DatabaseMetaData;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.*;
-import database.*;
+import database.ColumnarTable;
+import database.TableData;
 
 /**
- * Modella l'insieme di esempi di training a partire da una tabella presente nel database contenente i dati di addestramento.
+ * Modella l'insieme di esempi di training a partire da una sorgente (vedi TableSource) contenente i dati di addestramento:
+ * una tabella del database, un file o un dataset generato.
+ * Una volta costruito il training set non viene più modificato: gli ordinamenti richiesti dall'apprendimento
+ * avvengono su viste (DataView) definite da permutazioni degli esempi.
  */
 public class Data implements Serializable {
 	/**
@@ -17,95 +18,185 @@ public class Data implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
 	/**
-	 * Contiene il TrainingSet. E' una lista di Example in cui ogni elemento rappresenta una riga della tabella.
+	 * Valori degli attributi continui memorizzati per colonna: continuousValues[j][i] è il valore
+	 * dell'attributo j per l'esempio i (null se l'attributo j è discreto).
 	 */
-	private List<Example> data = new ArrayList<Example>();
+	private double[][] continuousValues;
 	
 	/**
-	 * Numero di elementi di data (Numero di righe della tabella).
+	 * Codici dei valori degli attributi discreti memorizzati per colonna: discreteValues[j][i] è il codice
+	 * (rispetto al dizionario del DiscreteAttribute) del valore dell'attributo j per l'esempio i (null se l'attributo j è continuo).
+	 */
+	private int[][] discreteValues;
+	
+	/**
+	 * Valori dell'attributo di classe, uno per ciascun esempio.
+	 */
+	private double[] classValues;
+	
+	/**
+	 * Numero di esempi del training set (Numero di righe della tabella).
 	 */
 	private final int numberOfExamples;
 	
 	/*
 	 * Lista degli attributi indipendenti.
 	 */
-	private List<Attribute> explanatorySet = new LinkedList<Attribute>();
+	private List<Attribute> explanatorySet = new ArrayList<Attribute>();
 	
 	/**
-	 * Oggetto per modellare l'attributo di classe. L'attributo di classe  numerico.
+	 * Oggetto per modellare l'attributo di classe. L'attributo di classe è numerico.
 	 */
 	private ContinuousAttribute classAttribute;
 	
 	/**
-	 * Costruttore di classe. Si occupa di stabilire la connessione con la base di dati
-	 * e di acquisire explanatorySet, classAttribute e numberOfExamples.
+	 * Costruttore di classe. Acquisisce la tabella tableName del database prelevando TableData.DEFAULT_FETCH_SIZE righe alla volta.
 	 * @param tableName Nome della tabella da acquisire.
-	 * @throws TrainingDataException Viene lanciata questo tipo di eccezione nel caso in cui la tabella non rispetti alcuni parametri, in particolare:
-	 * la tabella denominata tableName non esiste all'interno del database, il numero di colonne  minore di 3, l'ultimo attributo (l'attributo di classe)
-	 * non  numerico.
+	 * @throws TrainingDataException Vedi Data(String, int).
 	 */
 	public Data(String tableName) throws TrainingDataException {
-		try {
-			DbAccess dbAccess = new DbAccess();
-			dbAccess.initConnection();
-			
-			/*--- Controlla che la tabella denominata tableName esista all'interno del database ---*/
-			DatabaseMetaData dbm = dbAccess.getConnection().getMetaData();
-			ResultSet tables = dbm.getTables(null, null, tableName, null);
-			if (!tables.next())
-				throw new TrainingDataException("La tabella denominata '" + tableName + "' non esiste");
-			/*---  ---*/
-			
-			TableSchema tableSchema = new TableSchema(dbAccess, tableName);
-			TableData tableData = new TableData(dbAccess);
-			int numberOfAttributes = tableSchema.getNumberOfAttributes();
-			
-			/*--- Controlla che la tabella abbia almeno 3 colonne ---*/
-			if(numberOfAttributes < 3)
-				throw new TrainingDataException("La tabella ha meno di 3 colonne");
-			/*---  ---*/
-			
-			/*--- Controlla che l'attributo corrispondente all'ultima colonna sia numerico ---*/
-			if(!tableSchema.getColumn(numberOfAttributes - 1).isNumber())
-				throw new TrainingDataException("L'attributo corrispondente all'ultima colonna non  numerico");
-			/*--- ---*/
-			
-			for(int i = 0; i < numberOfAttributes - 1; i++) {
-				if(tableSchema.getColumn(i).isNumber())
-					explanatorySet.add(new ContinuousAttribute(tableSchema.getColumn(i).getColumnName(), i));
-				else
-					explanatorySet.add(new DiscreteAttribute(tableSchema.getColumn(i).getColumnName(), i, tableData.getDistinctColumnValues(tableName, tableSchema.getColumn(i))));
+		this(tableName, TableData.DEFAULT_FETCH_SIZE);
+	}
+	
+	/**
+	 * Costruttore di classe. Acquisisce la tabella tableName del database (vedi JdbcTableSource).
+	 * @param tableName Nome della tabella da acquisire.
+	 * @param fetchSize Numero di righe da prelevare dal DBMS ad ogni accesso.
+	 * @throws TrainingDataException Viene lanciata questo tipo di eccezione nel caso in cui la tabella non rispetti alcuni parametri, in particolare:
+	 * la tabella denominata tableName non esiste all'interno del database, il numero di colonne è minore di 3, l'ultimo attributo (l'attributo di classe)
+	 * non è numerico.
+	 */
+	public Data(String tableName, int fetchSize) throws TrainingDataException {
+		this(new JdbcTableSource(tableName, fetchSize));
+	}
+	
+	/**
+	 * Costruttore di classe. Acquisisce explanatorySet, classAttribute e numberOfExamples dal contenuto di source,
+	 * letto direttamente nelle colonne del training set.
+	 * @param source Sorgente del training set (tabella del database, file o dataset generato).
+	 * @throws TrainingDataException Viene lanciata in caso di errori di lettura della sorgente, se le colonne sono meno di 3
+	 * o se l'ultima colonna non è numerica.
+	 */
+	public Data(TableSource source) throws TrainingDataException {
+		this(source.read());
+	}
+	
+	/**
+	 * Costruttore di classe per i training set già disponibili in memoria: acquisisce explanatorySet, classAttribute
+	 * e numberOfExamples da table. Le colonne numeriche di table diventano attributi continui, quelle di stringhe
+	 * attributi discreti; l'ultima colonna è l'attributo di classe. I codici delle colonne di stringhe vengono tradotti
+	 * sul posto, per cui table non va riusata.
+	 * @param table Contenuto del training set memorizzato per colonne.
+	 * @throws TrainingDataException Viene lanciata nel caso in cui le colonne siano meno di 3 o l'ultima colonna non sia numerica.
+	 */
+	public Data(ColumnarTable table) throws TrainingDataException {
+		String[] columnNames = table.getColumnNames();
+		if(columnNames.length < 3)
+			throw new TrainingDataException("La tabella ha meno di 3 colonne");
+		if(table.getNumericColumn(columnNames.length - 1) == null)
+			throw new TrainingDataException("L'attributo corrispondente all'ultima colonna non è numerico");
+		
+		numberOfExamples = table.getNumberOfRows();
+		storeTable(columnNames, table);
+	}
+	
+	/**
+	 * Acquisisce explanatorySet e classAttribute dallo schema di table (le colonne numeriche diventano attributi continui,
+	 * quelle di stringhe attributi discreti, l'ultima è l'attributo di classe), quindi ne memorizza le colonne.
+	 * @param columnNames Nomi delle colonne di table.
+	 * @param table Contenuto della tabella memorizzato per colonne.
+	 * @throws TrainingDataException Viene lanciata nel caso in cui una colonna discreta contenga valori nulli.
+	 */
+	private void storeTable(String[] columnNames, ColumnarTable table) throws TrainingDataException {
+		int numberOfAttributes = columnNames.length;
+		for(int i = 0; i < numberOfAttributes - 1; i++) {
+			if(table.getNumericColumn(i) != null)
+				explanatorySet.add(new ContinuousAttribute(columnNames[i], i));
+			else
+				explanatorySet.add(new DiscreteAttribute(columnNames[i], i, discreteDomain(table.getDictionary(i), columnNames[i])));
+		}
+		
+		classAttribute = new ContinuousAttribute(columnNames[numberOfAttributes - 1], numberOfAttributes - 1);
+		
+		storeColumns(table);
+	}
+	
+	/**
+	 * Costruisce l'insieme ordinato dei valori distinti di una colonna discreta a partire dal dizionario costruito durante la lettura.
+	 * @param dictionary Valori distinti della colonna.
+	 * @param columnName Nome della colonna.
+	 * @return Insieme dei valori distinti.
+	 * @throws TrainingDataException Viene lanciata nel caso in cui la colonna contenga valori nulli.
+	 */
+	static Set<Object> discreteDomain(String[] dictionary, String columnName) throws TrainingDataException {
+		Set<Object> values = new TreeSet<Object>();
+		for(String value : dictionary) {
+			if(value == null)
+				throw new TrainingDataException("La colonna " + columnName + " contiene valori nulli");
+			values.add(value);
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Acquisisce le colonne della tabella in continuousValues, discreteValues e classValues.
+	 * I codici delle colonne discrete, assegnati in ordine di lettura, vengono tradotti nei codici
+	 * (ordinati) del dizionario del relativo DiscreteAttribute.
+	 * @param table Contenuto della tabella memorizzato per colonne.
+	 * @throws TrainingDataException Viene lanciata nel caso in cui un valore discreto non appartenga al dominio dell'attributo.
+	 */
+	private void storeColumns(ColumnarTable table) throws TrainingDataException {
+		int numberOfAttributes = explanatorySet.size();
+		continuousValues = new double[numberOfAttributes][];
+		discreteValues = new int[numberOfAttributes][];
+		
+		for(Attribute attribute : explanatorySet) {
+			int j = attribute.getIndex();
+			if(attribute instanceof DiscreteAttribute) {
+				String[] dictionary = table.getDictionary(j);
+				int[] translation = new int[dictionary.length];
+				for(int code = 0; code < dictionary.length; code++) {
+					translation[code] = ((DiscreteAttribute) attribute).getCode(dictionary[code]);
+					if(translation[code] < 0)
+						throw new TrainingDataException("Il valore '" + dictionary[code] + "' non appartiene al dominio dell'attributo " + attribute);
+				}
+				
+				int[] codes = table.getCodedColumn(j);
+				for(int i = 0; i < numberOfExamples; i++)
+					codes[i] = translation[codes[i]];
+				discreteValues[j] = codes;
 			}
-			
-			classAttribute = new ContinuousAttribute(tableSchema.getColumn(numberOfAttributes - 1).getColumnName(), numberOfAttributes - 1);
-			
-			data = tableData.getTransazioni(tableName);
-			numberOfExamples = data.size();
-			
-			dbAccess.closeConnection();
-		} 
-		catch(DatabaseConnectionException e){
-			throw new TrainingDataException("Si  verificata un eccezione durante la connessione al databse");
-		} 
-		catch(SQLException e){
-			throw new TrainingDataException("Si  verificata una SQLException");
-		} 
-		catch(EmptySetException e){
-			throw new TrainingDataException("La tabella '" + tableName + "'  vuota");
-		}	
+			else
+				continuousValues[j] = table.getNumericColumn(j);
+		}
+		classValues = table.getNumericColumn(numberOfAttributes);
 	}
 	
 	/**
 	 * Restituisce il valore numberOfExamples
-	 * @return La cardinalit dell'insieme di esempi.
+	 * @return La cardinalità dell'insieme di esempi.
 	 */
 	public int getNumberOfExamples(){
 		return numberOfExamples;
 	}
 	
+	/**
+	 * Stima la memoria occupata dalle colonne del training set (8 byte per valore continuo o di classe,
+	 * 4 byte per codice discreto), esclusi i dizionari degli attributi discreti.
+	 * @return Numero stimato di byte occupati dal training set.
+	 */
+	public long getMemoryFootprint(){
+		long bytesPerExample = Double.BYTES;
+		for(int j = 0; j < explanatorySet.size(); j++)
+			bytesPerExample += discreteValues[j] != null ? Integer.BYTES : Double.BYTES;
+		
+		return bytesPerExample * numberOfExamples;
+	}
+	
 	/**
 	 * Restituisce la dimensione di explanatorySet.
-	 * @return Cardinalit degli attributi indipendenti.
+	 * @return Cardinalità degli attributi indipendenti.
 	 */
 	public int getNumberOfExplanatoryAttributes(){
 		return explanatorySet.size();
@@ -117,7 +208,16 @@ public class Data implements Serializable {
 	 * @return Valore dell'attributo di classe per l'esempio indicizzato in input.
 	 */
 	public Double getClassValue(int exampleIndex){
-		return (Double) (data.get(exampleIndex)).get(explanatorySet.size());
+		return classValues[exampleIndex];
+	}
+	
+	/**
+	 * Restituisce il valore dell'attributo di classe per l'esempio exampleIndex senza boxing.
+	 * @param exampleIndex Indice per uno specifico esempio.
+	 * @return Valore dell'attributo di classe per l'esempio indicizzato in input.
+	 */
+	public double getPrimitiveClassValue(int exampleIndex){
+		return classValues[exampleIndex];
 	}
 	
 	/**
@@ -127,7 +227,31 @@ public class Data implements Serializable {
 	 * @return Object associato all'attributo indipendente per l'esempio indicizzato in input.
 	 */
 	public Object getExplanatoryValue(int exampleIndex, int attributeIndex){
-		return (data.get(exampleIndex)).get(attributeIndex);
+		if(discreteValues[attributeIndex] != null)
+			return ((DiscreteAttribute) explanatorySet.get(attributeIndex)).getValue(discreteValues[attributeIndex][exampleIndex]);
+		
+		return continuousValues[attributeIndex][exampleIndex];
+	}
+	
+	/**
+	 * Restituisce il valore dell'attributo continuo indicizzato da attributeIndex per l'esempio exampleIndex.
+	 * @param exampleIndex Indice per uno specifico esempio.
+	 * @param attributeIndex Indice di un attributo continuo.
+	 * @return Valore dell'attributo continuo per l'esempio indicizzato in input.
+	 */
+	public double getContinuousValue(int exampleIndex, int attributeIndex){
+		return continuousValues[attributeIndex][exampleIndex];
+	}
+	
+	/**
+	 * Restituisce il codice del valore dell'attributo discreto indicizzato da attributeIndex per l'esempio exampleIndex.
+	 * I codici rispettano l'ordinamento dei valori discreti (vedi DiscreteAttribute.getCode()).
+	 * @param exampleIndex Indice per uno specifico esempio.
+	 * @param attributeIndex Indice di un attributo discreto.
+	 * @return Codice del valore dell'attributo discreto per l'esempio indicizzato in input.
+	 */
+	public int getDiscreteValueCode(int exampleIndex, int attributeIndex){
+		return discreteValues[attributeIndex][exampleIndex];
 	}
 	
 	/**
@@ -152,120 +276,15 @@ public class Data implements Serializable {
 	 * in un oggetto String che restituisce come risultato finale in forma di sequenza di testi.
 	 */
 	public String toString(){
-		String value="";
+		StringBuilder value = new StringBuilder();
 		
 		for(int i = 0; i < numberOfExamples; i++){
 			for(int j = 0; j < explanatorySet.size(); j++)
-				value += (data.get(i)).get(j) + ",";
+				value.append(getExplanatoryValue(i, j)).append(",");
 			
-			value += (data.get(i)).get(explanatorySet.size());
+			value.append(getClassValue(i));
 		}
 		
-		return value;
-	}
-
-	/**
-	 * Ordina il sottoinsieme di esempi compresi nell'intervallo [inf,sup] in data rispetto
-	 * all'Attribute attribute. Usa l'algoritmo quicksort per l'ordinamento usando come relazione d'ordine totale minore o uguale.
-	 * @param attribute Attributo in base al quale ordinare data.
-	 * @param inf Indice di inizio.
-	 * @param sup Indice di fine.
-	 */
-	public void sort(Attribute attribute, int inf, int sup){
-		if(sup >= inf){
-			int pos;
-			if(attribute instanceof DiscreteAttribute)
-				pos = partition((DiscreteAttribute) attribute, inf, sup);
-			else
-				pos = partition((ContinuousAttribute) attribute, inf, sup);
-
-			if ((pos - inf) < (sup - pos + 1)) {
-				sort(attribute, inf, pos - 1);
-				sort(attribute, pos + 1, sup);
-			}
-			else {
-				sort(attribute, pos + 1, sup);
-				sort(attribute, inf, pos - 1);
-			}
-		}
-	}
-	
-	/**
-	 * Partiziona il vettore rispetto al DiscreteAttribute attribute e restiutisce il punto di separazione.
-	 * @param attribute Attributo in base al quale ordinare data.
-	 * @param inf Indice in data.
-	 * @param sup Indice in data.
-	 * @return Indice in data, punto di separazione.
-	 */
-	private int partition(DiscreteAttribute attribute, int inf, int sup){
-		int i, j;
-		i = inf;
-		j = sup;
-		int	med = (inf + sup) / 2;
-		String x = (String) getExplanatoryValue(med, attribute.getIndex());
-		swap(inf, med);
-		
-		while(true){
-			while(i <= sup && ((String) getExplanatoryValue(i, attribute.getIndex())).compareTo(x) <= 0)
-				i++;
-
-			while(((String)getExplanatoryValue(j, attribute.getIndex())).compareTo(x) > 0)
-				j--;
-
-			if(i < j)
-				swap(i, j);
-			else
-				break;
-		}
-		swap(inf, j);
-		
-		return j;
-	}
-
-	/**
-	 * Partiziona il vettore rispetto al ContinuousAttribute attribute e restiutisce il punto di separazione
-	 * @param attribute Attributo in base al quale ordinare data.
-	 * @param inf Indice in data.
-	 * @param sup Indice in data.
-	 * @return Indice in data punto di separazione.
-	 */
-	private int partition(ContinuousAttribute attribute, int inf, int sup){
-		int i, j;
-		i = inf;
-		j = sup;
-		int	med = (inf + sup) / 2;
-		Double x = (Double) getExplanatoryValue(med, attribute.getIndex());
-		swap(inf, med);
-
-		while (true){
-			while(i <= sup && ((Double) getExplanatoryValue(i, attribute.getIndex())).compareTo(x) <= 0)
-				i++;
-
-			while(((Double) getExplanatoryValue(j, attribute.getIndex())).compareTo(x) > 0)
-				j--;
-
-			if(i < j)
-				swap(i, j);
-			else 
-				break;
-		}
-		swap(inf, j);
-		
-		return j;
-	}
-	
-	/**
-	 * Scambia l'esempio i con esempio j.
-	 * @param i Indice in data.
-	 * @param j Indice in data.
-	 */
-	private void swap(int i, int j){
-		Example temp;
-		
-		for(int k = 0; k < getNumberOfExplanatoryAttributes() + 1; k++){
-			temp = data.get(i);
-			data.set(i, data.get(j));
-			data.set(j, temp);
-		}
+		return value.toString();
 	}
 }
@@ -0,0 +1,307 @@
+package data;
+
+/**
+ * Modella una vista su un training set (Data) definita da una permutazione degli indici degli esempi.
+ * Ogni processo di apprendimento lavora su una propria vista: gli ordinamenti riorganizzano la permutazione
+ * e non gli esempi, per cui lo stesso oggetto Data può essere condiviso da più apprendimenti contemporanei.
+ */
+public class DataView {
+	/**
+	 * Training set su cui è definita la vista.
+	 */
+	private final Data data;
+	
+	/**
+	 * Permutazione degli esempi: rows[i] è l'indice in data dell'esempio che occupa la posizione i della vista.
+	 */
+	private final int[] rows;
+	
+	/**
+	 * Prima posizione coperta dalla vista: la posizione i corrisponde all'elemento rows[i - offset].
+	 * Vale 0 per le viste sull'intero training set.
+	 */
+	private final int offset;
+	
+	/**
+	 * Costruttore di classe. Inizializza la vista con la permutazione identica degli esempi di data.
+	 * @param data Training set su cui definire la vista.
+	 */
+	public DataView(Data data){
+		this.data = data;
+		offset = 0;
+		rows = new int[data.getNumberOfExamples()];
+		for(int i = 0; i < rows.length; i++)
+			rows[i] = i;
+	}
+	
+	/**
+	 * Costruttore di classe. Inizializza una copia delle posizioni [begin, end] della vista source, che mantengono
+	 * la stessa numerazione. La copia può essere ordinata senza modificare source, per cui più copie della stessa
+	 * vista possono essere elaborate contemporaneamente.
+	 * @param source Vista da copiare.
+	 * @param begin Prima posizione da copiare.
+	 * @param end Ultima posizione da copiare.
+	 */
+	public DataView(DataView source, int begin, int end){
+		data = source.data;
+		offset = begin;
+		rows = new int[end - begin + 1];
+		System.arraycopy(source.rows, begin - source.offset, rows, 0, rows.length);
+	}
+	
+	/**
+	 * Costruttore di classe. Inizializza la vista con gli esempi di data ordinati rispetto ad attribute.
+	 * L'ordinamento è stabile: esempi con lo stesso valore mantengono l'ordine del training set.
+	 * @param data Training set su cui definire la vista.
+	 * @param attribute Attributo in base al quale ordinare gli esempi.
+	 */
+	public DataView(Data data, Attribute attribute){
+		this(data);
+		if(attribute instanceof DiscreteAttribute)
+			countingSort((DiscreteAttribute) attribute);
+		else
+			mergeSort(attribute.getIndex(), 0, rows.length - 1, new int[rows.length]);
+	}
+	
+	/**
+	 * Restituisce il training set su cui è definita la vista.
+	 * @return Oggetto Data associato alla vista.
+	 */
+	public Data getData(){
+		return data;
+	}
+	
+	/**
+	 * Restituisce il numero di esempi della vista (per le copie parziali, il numero di posizioni copiate).
+	 * @return La cardinalità dell'insieme di esempi.
+	 */
+	public int getNumberOfExamples(){
+		return rows.length;
+	}
+	
+	/**
+	 * Restituisce il numero di attributi indipendenti.
+	 * @return Cardinalità degli attributi indipendenti.
+	 */
+	public int getNumberOfExplanatoryAttributes(){
+		return data.getNumberOfExplanatoryAttributes();
+	}
+	
+	/**
+	 * Restituisce l'attributo indipendente indicizzato da index.
+	 * @param index Indice per uno specifico attributo indipendente.
+	 * @return Attribute indicizzato da index.
+	 */
+	public Attribute getExplanatoryAttribute(int index){
+		return data.getExplanatoryAttribute(index);
+	}
+	
+	/**
+	 * Restituisce l'indice in data dell'esempio che occupa la posizione position della vista.
+	 * @param position Posizione nella vista.
+	 * @return Indice dell'esempio nel training set.
+	 */
+	public int getExampleIndex(int position){
+		return rows[position - offset];
+	}
+	
+	/**
+	 * Restituisce il valore dell'attributo di classe per l'esempio in posizione position.
+	 * @param position Posizione nella vista.
+	 * @return Valore dell'attributo di classe.
+	 */
+	public double getClassValue(int position){
+		return data.getPrimitiveClassValue(rows[position - offset]);
+	}
+	
+	/**
+	 * Restituisce il valore dell'attributo continuo indicizzato da attributeIndex per l'esempio in posizione position.
+	 * @param position Posizione nella vista.
+	 * @param attributeIndex Indice di un attributo continuo.
+	 * @return Valore dell'attributo continuo.
+	 */
+	public double getContinuousValue(int position, int attributeIndex){
+		return data.getContinuousValue(rows[position - offset], attributeIndex);
+	}
+	
+	/**
+	 * Restituisce il codice del valore dell'attributo discreto indicizzato da attributeIndex per l'esempio in posizione position.
+	 * @param position Posizione nella vista.
+	 * @param attributeIndex Indice di un attributo discreto.
+	 * @return Codice del valore dell'attributo discreto.
+	 */
+	public int getDiscreteValueCode(int position, int attributeIndex){
+		return data.getDiscreteValueCode(rows[position - offset], attributeIndex);
+	}
+	
+	/**
+	 * Ordina le posizioni della vista comprese nell'intervallo [inf,sup] rispetto all'Attribute attribute.
+	 * Usa l'algoritmo quicksort per l'ordinamento usando come relazione d'ordine totale minore o uguale.
+	 * Viene modificata solo la permutazione, il training set resta invariato.
+	 * La ricorsione avviene solo sulla parte più piccola, mentre la più grande viene ordinata dal ciclo: la profondità
+	 * resta logaritmica anche con molti valori ripetuti (per esempio attributi discreti con pochi valori).
+	 * @param attribute Attributo in base al quale ordinare la vista.
+	 * @param inf Indice di inizio.
+	 * @param sup Indice di fine.
+	 */
+	public void sort(Attribute attribute, int inf, int sup){
+		while(sup >= inf){
+			int pos;
+			if(attribute instanceof DiscreteAttribute)
+				pos = partition((DiscreteAttribute) attribute, inf, sup);
+			else
+				pos = partition((ContinuousAttribute) attribute, inf, sup);
+			
+			if ((pos - inf) < (sup - pos + 1)) {
+				sort(attribute, inf, pos - 1);
+				inf = pos + 1;
+			}
+			else {
+				sort(attribute, pos + 1, sup);
+				sup = pos - 1;
+			}
+		}
+	}
+	
+	/**
+	 * Ripartisce le posizioni [begin,end] della vista tra numberOfGroups gruppi contigui: gli esempi del gruppo 0
+	 * precedono quelli del gruppo 1 e così via. La ripartizione è stabile, per cui all'interno di ciascun gruppo
+	 * gli esempi mantengono l'ordine precedente.
+	 * @param begin Posizione iniziale nella vista.
+	 * @param end Posizione finale nella vista.
+	 * @param groupOfExample Gruppo di appartenenza di ciascun esempio, indicizzato per indice dell'esempio nel training set.
+	 * @param numberOfGroups Numero di gruppi.
+	 */
+	public final void partition(int begin, int end, int[] groupOfExample, int numberOfGroups){
+		int[] next = new int[numberOfGroups + 1];
+		for(int i = begin; i <= end; i++)
+			next[groupOfExample[rows[i - offset]] + 1]++;
+		
+		next[0] = begin;
+		for(int g = 1; g <= numberOfGroups; g++)
+			next[g] += next[g - 1];
+		
+		int[] buffer = new int[end - begin + 1];
+		for(int i = begin; i <= end; i++)
+			buffer[next[groupOfExample[rows[i - offset]]]++ - begin] = rows[i - offset];
+		
+		System.arraycopy(buffer, 0, rows, begin - offset, buffer.length);
+	}
+	
+	/**
+	 * Ordina l'intera vista rispetto ai codici del DiscreteAttribute attribute mediante counting sort.
+	 * @param attribute Attributo discreto in base al quale ordinare la vista.
+	 */
+	private void countingSort(DiscreteAttribute attribute){
+		int[] codes = new int[rows.length];
+		for(int i = 0; i < rows.length; i++)
+			codes[rows[i]] = data.getDiscreteValueCode(rows[i], attribute.getIndex());
+		
+		partition(0, rows.length - 1, codes, attribute.getNumberOfDistinctValues());
+	}
+	
+	/**
+	 * Ordina le posizioni [inf,sup] della vista rispetto all'attributo continuo attributeIndex mediante merge sort (stabile).
+	 * Usato solo su viste sull'intero training set (offset nullo).
+	 * @param attributeIndex Indice di un attributo continuo.
+	 * @param inf Indice di inizio.
+	 * @param sup Indice di fine.
+	 * @param buffer Array di appoggio della stessa dimensione della vista.
+	 */
+	private void mergeSort(int attributeIndex, int inf, int sup, int[] buffer){
+		if(sup <= inf)
+			return;
+		
+		int med = (inf + sup) >>> 1;
+		mergeSort(attributeIndex, inf, med, buffer);
+		mergeSort(attributeIndex, med + 1, sup, buffer);
+		
+		if(Double.compare(data.getContinuousValue(rows[med], attributeIndex), data.getContinuousValue(rows[med + 1], attributeIndex)) <= 0)
+			return;
+		
+		System.arraycopy(rows, inf, buffer, inf, sup - inf + 1);
+		int i = inf;
+		int j = med + 1;
+		for(int k = inf; k <= sup; k++) {
+			if(j > sup || (i <= med && Double.compare(data.getContinuousValue(buffer[i], attributeIndex), data.getContinuousValue(buffer[j], attributeIndex)) <= 0))
+				rows[k] = buffer[i++];
+			else
+				rows[k] = buffer[j++];
+		}
+	}
+	
+	/**
+	 * Partiziona la vista rispetto al DiscreteAttribute attribute e restiutisce il punto di separazione.
+	 * @param attribute Attributo in base al quale ordinare la vista.
+	 * @param inf Posizione nella vista.
+	 * @param sup Posizione nella vista.
+	 * @return Posizione nella vista, punto di separazione.
+	 */
+	private int partition(DiscreteAttribute attribute, int inf, int sup){
+		int i, j;
+		i = inf;
+		j = sup;
+		int	med = (inf + sup) / 2;
+		int x = getDiscreteValueCode(med, attribute.getIndex());
+		swap(inf, med);
+		
+		while(true){
+			while(i <= sup && getDiscreteValueCode(i, attribute.getIndex()) <= x)
+				i++;
+			
+			while(getDiscreteValueCode(j, attribute.getIndex()) > x)
+				j--;
+			
+			if(i < j)
+				swap(i, j);
+			else
+				break;
+		}
+		swap(inf, j);
+		
+		return j;
+	}
+	
+	/**
+	 * Partiziona la vista rispetto al ContinuousAttribute attribute e restiutisce il punto di separazione
+	 * @param attribute Attributo in base al quale ordinare la vista.
+	 * @param inf Posizione nella vista.
+	 * @param sup Posizione nella vista.
+	 * @return Posizione nella vista, punto di separazione.
+	 */
+	private int partition(ContinuousAttribute attribute, int inf, int sup){
+		int i, j;
+		i = inf;
+		j = sup;
+		int	med = (inf + sup) / 2;
+		double x = getContinuousValue(med, attribute.getIndex());
+		swap(inf, med);
+		
+		while (true){
+			while(i <= sup && Double.compare(getContinuousValue(i, attribute.getIndex()), x) <= 0)
+				i++;
+			
+			while(Double.compare(getContinuousValue(j, attribute.getIndex()), x) > 0)
+				j--;
+			
+			if(i < j)
+				swap(i, j);
+			else
+				break;
+		}
+		swap(inf, j);
+		
+		return j;
+	}
+	
+	/**
+	 * Scambia le posizioni i e j della permutazione.
+	 * @param i Posizione nella vista.
+	 * @param j Posizione nella vista.
+	 */
+	private void swap(int i, int j){
+		int temp = rows[i - offset];
+		rows[i - offset] = rows[j - offset];
+		rows[j - offset] = temp;
+	}
+}
@@ -0,0 +1,378 @@
+package data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import database.ColumnarTable;
+import database.EmptySetException;
+import database.SpilledTable;
+
+/**
+ * Genera in memoria un dataset di regressione riproducibile (a parità di parametri e di seme), senza accedere
+ * al database. Gli attributi indipendenti sono alternativamente continui (c0, c2, ...) e discreti (d1, d3, ...)
+ * finché ce ne sono di entrambi i tipi, quindi quelli rimanenti; l'attributo di classe y è una combinazione lineare
+ * degli attributi continui più un effetto per ciascun valore discreto e un rumore gaussiano.
+ * Il dataset viene generato alla prima lettura e mantenuto finché il generatore è in uso.
+ * <p>
+ * Come sorgente del server un dataset generato è identificato da un nome della forma
+ * synthetic:rows=100000,continuous=4,discrete=4,cardinality=8,noise=1.0,distribution=uniform,seed=42
+ * in cui ciascun parametro può essere omesso (vedi parse()).
+ */
+public class DatasetGenerator implements TableSource {
+	/**
+	 * Prefisso dei nomi dei dataset generati.
+	 */
+	public static final String PREFIX = "synthetic:";
+	
+	/**
+	 * Deviazione standard predefinita del rumore aggiunto all'attributo di classe.
+	 */
+	public static final double DEFAULT_NOISE = 1.0;
+	
+	/**
+	 * Numero massimo di righe di un dataset descritto da un nome (vedi parse()).
+	 */
+	public static final int MAX_ROWS = 100000000;
+	
+	/**
+	 * Numero massimo di attributi indipendenti (continui e discreti) di un dataset descritto da un nome.
+	 */
+	public static final int MAX_ATTRIBUTES = 1000;
+	
+	/**
+	 * Numero massimo di valori distinti di un attributo discreto di un dataset descritto da un nome.
+	 */
+	public static final int MAX_CARDINALITY = 1 << 16;
+	
+	/**
+	 * Numero di righe.
+	 */
+	private final int rows;
+	
+	/**
+	 * Numero di attributi continui.
+	 */
+	private final int continuousAttributes;
+	
+	/**
+	 * Numero di attributi discreti.
+	 */
+	private final int discreteAttributes;
+	
+	/**
+	 * Numero di valori distinti di ciascun attributo discreto.
+	 */
+	private final int cardinality;
+	
+	/**
+	 * Deviazione standard del rumore aggiunto all'attributo di classe.
+	 */
+	private final double noise;
+	
+	/**
+	 * Distribuzione dei valori degli attributi indipendenti.
+	 */
+	private final Distribution distribution;
+	
+	/**
+	 * Seme del generatore pseudo-casuale.
+	 */
+	private final long seed;
+	
+	/**
+	 * Nomi delle colonne (l'ultima è l'attributo di classe).
+	 */
+	private final String[] columnNames;
+	
+	/**
+	 * Valori delle colonne continue e dell'attributo di classe (null per le colonne discrete), generati alla prima lettura.
+	 */
+	private double[][] numericColumns;
+	
+	/**
+	 * Codici delle colonne discrete (null per le colonne continue), generati alla prima lettura.
+	 */
+	private int[][] codedColumns;
+	
+	/**
+	 * Dizionari delle colonne discrete (null per le colonne continue), generati alla prima lettura.
+	 */
+	private String[][] dictionaries;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param rows Numero di esempi.
+	 * @param continuousAttributes Numero di attributi continui.
+	 * @param discreteAttributes Numero di attributi discreti.
+	 * @param cardinality Numero di valori distinti di ciascun attributo discreto.
+	 * @param noise Deviazione standard del rumore aggiunto all'attributo di classe.
+	 * @param distribution Distribuzione dei valori degli attributi indipendenti.
+	 * @param seed Seme del generatore pseudo-casuale.
+	 */
+	public DatasetGenerator(int rows, int continuousAttributes, int discreteAttributes, int cardinality, double noise, Distribution distribution, long seed) {
+		if(rows < 1 || continuousAttributes < 0 || discreteAttributes < 0 || continuousAttributes + discreteAttributes < 2 || cardinality < 1)
+			throw new IllegalArgumentException("Servono almeno un esempio, due attributi e un valore per attributo discreto");
+		if(!(noise >= 0))
+			throw new IllegalArgumentException("Rumore non valido: " + noise);
+		
+		this.rows = rows;
+		this.continuousAttributes = continuousAttributes;
+		this.discreteAttributes = discreteAttributes;
+		this.cardinality = cardinality;
+		this.noise = noise;
+		this.distribution = distribution;
+		this.seed = seed;
+		
+		int attributes = continuousAttributes + discreteAttributes;
+		columnNames = new String[attributes + 1];
+		int continuous = 0;
+		for(int j = 0; j < attributes; j++)
+			if(isContinuous(j, continuous)) {
+				columnNames[j] = "c" + j;
+				continuous++;
+			}
+			else
+				columnNames[j] = "d" + j;
+		columnNames[attributes] = "y";
+	}
+	
+	/**
+	 * Costruisce il generatore descritto da name (vedi getName()). I parametri omessi assumono i valori
+	 * rows=10000, continuous=4, discrete=4, cardinality=8, noise=DEFAULT_NOISE, distribution=uniform, seed=42.
+	 * Poiché il nome può provenire da un client remoto, il dataset viene rifiutato prima di essere generato se supera
+	 * MAX_ROWS righe, MAX_ATTRIBUTES attributi o MAX_CARDINALITY valori per attributo discreto, oppure se la memoria
+	 * che occuperebbe (vedi getMemoryFootprint()) supera maxMemory.
+	 * @param name Nome del dataset, che inizia con PREFIX.
+	 * @param maxMemory Memoria massima, in byte, che il dataset può occupare.
+	 * @return Generatore del dataset.
+	 * @throws TrainingDataException Viene lanciata se name non descrive un dataset valido o ammesso.
+	 */
+	public static DatasetGenerator parse(String name, long maxMemory) throws TrainingDataException {
+		if(!name.startsWith(PREFIX))
+			throw new TrainingDataException("Il nome '" + name + "' non descrive un dataset generato");
+		
+		int rows = 10000;
+		int continuous = 4;
+		int discrete = 4;
+		int cardinality = 8;
+		double noise = DEFAULT_NOISE;
+		Distribution distribution = Distribution.UNIFORM;
+		long seed = 42;
+		
+		try {
+			String parameters = name.substring(PREFIX.length());
+			if(!parameters.isEmpty())
+				for(String parameter : parameters.split(",")) {
+					int separator = parameter.indexOf('=');
+					if(separator < 0)
+						throw new TrainingDataException("Parametro non valido: '" + parameter + "'");
+					
+					String key = parameter.substring(0, separator).trim();
+					String value = parameter.substring(separator + 1).trim();
+					switch(key) {
+					case "rows":
+						rows = Integer.parseInt(value);
+						break;
+					case "continuous":
+						continuous = Integer.parseInt(value);
+						break;
+					case "discrete":
+						discrete = Integer.parseInt(value);
+						break;
+					case "cardinality":
+						cardinality = Integer.parseInt(value);
+						break;
+					case "noise":
+						noise = Double.parseDouble(value);
+						break;
+					case "distribution":
+						distribution = Distribution.valueOf(value.toUpperCase());
+						break;
+					case "seed":
+						seed = Long.parseLong(value);
+						break;
+					default:
+						throw new TrainingDataException("Parametro sconosciuto: '" + key + "'");
+					}
+				}
+			
+			if(rows > MAX_ROWS || continuous > MAX_ATTRIBUTES || discrete > MAX_ATTRIBUTES || continuous + discrete > MAX_ATTRIBUTES || cardinality > MAX_CARDINALITY)
+				throw new TrainingDataException("Dataset '" + name + "' troppo grande: al più " + MAX_ROWS + " righe, "
+						+ MAX_ATTRIBUTES + " attributi e " + MAX_CARDINALITY + " valori per attributo discreto");
+			
+			DatasetGenerator generator = new DatasetGenerator(rows, continuous, discrete, cardinality, noise, distribution, seed);
+			if(generator.getMemoryFootprint() > maxMemory)
+				throw new TrainingDataException("Dataset '" + name + "' troppo grande: occuperebbe " + (generator.getMemoryFootprint() >> 20)
+						+ " MB su " + (maxMemory >> 20) + " MB disponibili");
+			
+			return generator;
+		} catch (IllegalArgumentException e) {
+			throw new TrainingDataException("Dataset '" + name + "' non valido: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Stima la memoria occupata dal training set generato, come Data.getMemoryFootprint(): 8 byte per valore
+	 * continuo (compreso l'attributo di classe) e 4 per valore discreto.
+	 * @return Memoria stimata, in byte.
+	 */
+	public long getMemoryFootprint() {
+		return (long) rows * (Double.BYTES * (continuousAttributes + 1L) + Integer.BYTES * (long) discreteAttributes);
+	}
+	
+	/**
+	 * Stabilisce se l'attributo in posizione j è continuo: le posizioni pari sono continue e le dispari discrete
+	 * finché ci sono attributi di entrambi i tipi.
+	 * @param j Posizione dell'attributo.
+	 * @param continuous Numero di attributi continui nelle posizioni precedenti a j.
+	 * @return true se l'attributo è continuo, false se è discreto.
+	 */
+	private boolean isContinuous(int j, int continuous) {
+		int discrete = j - continuous;
+		
+		return continuous < continuousAttributes && (j % 2 == 0 || discrete >= discreteAttributes);
+	}
+	
+	/**
+	 * Genera il dataset.
+	 */
+	private void generate() {
+		int attributes = columnNames.length - 1;
+		numericColumns = new double[attributes + 1][];
+		codedColumns = new int[attributes + 1][];
+		dictionaries = new String[attributes + 1][];
+		
+		Random random = new Random(seed);
+		double[] y = new double[rows];
+		for(int j = 0; j < attributes; j++) {
+			if(columnNames[j].charAt(0) == 'c') {
+				double weight = random.nextDouble() * 2 - 1;
+				double[] values = new double[rows];
+				for(int i = 0; i < rows; i++) {
+					values[i] = continuousValue(random, distribution);
+					y[i] += weight * values[i] / 100;
+				}
+				numericColumns[j] = values;
+			}
+			else {
+				double[] effect = new double[cardinality];
+				dictionaries[j] = new String[cardinality];
+				for(int code = 0; code < cardinality; code++) {
+					effect[code] = random.nextGaussian() * 5;
+					dictionaries[j][code] = "v" + code;
+				}
+				int[] codes = new int[rows];
+				for(int i = 0; i < rows; i++) {
+					codes[i] = discreteCode(random, distribution, cardinality);
+					y[i] += effect[codes[i]];
+				}
+				codedColumns[j] = codes;
+			}
+		}
+		
+		for(int i = 0; i < rows; i++)
+			y[i] += random.nextGaussian() * noise;
+		numericColumns[attributes] = y;
+	}
+	
+	/**
+	 * Estrae un valore continuo secondo distribution, arrotondato a tre cifre decimali (per cui i valori ripetuti
+	 * sono possibili, come nelle tabelle reali).
+	 * @param random Generatore pseudo-casuale.
+	 * @param distribution Distribuzione dei valori.
+	 * @return Valore estratto.
+	 */
+	private static double continuousValue(Random random, Distribution distribution) {
+		double value;
+		switch(distribution) {
+		case GAUSSIAN:
+			value = 500 + random.nextGaussian() * 150;
+			break;
+		case SKEWED:
+			value = -Math.log(1 - random.nextDouble()) * 100;
+			break;
+		default:
+			value = random.nextDouble() * 1000;
+		}
+		
+		return Math.round(value * 1000) / 1000.0;
+	}
+	
+	/**
+	 * Estrae il codice di un valore discreto secondo distribution.
+	 * @param random Generatore pseudo-casuale.
+	 * @param distribution Distribuzione dei valori.
+	 * @param cardinality Numero di valori distinti.
+	 * @return Codice estratto, in [0, cardinality).
+	 */
+	private static int discreteCode(Random random, Distribution distribution, int cardinality) {
+		switch(distribution) {
+		case GAUSSIAN:
+			int code = (int) Math.round((cardinality - 1) / 2.0 + random.nextGaussian() * cardinality / 6.0);
+			return Math.max(0, Math.min(cardinality - 1, code));
+		case SKEWED:
+			double u = random.nextDouble();
+			return (int) (u * u * u * cardinality);
+		default:
+			return random.nextInt(cardinality);
+		}
+	}
+	
+	/**
+	 * Restituisce i nomi delle colonne del dataset.
+	 * @return Nomi delle colonne (l'ultima è l'attributo di classe).
+	 */
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+	
+	/**
+	 * Restituisce il nome del dataset, da cui parse() ricostruisce un generatore equivalente.
+	 */
+	public String getName() {
+		return PREFIX + "rows=" + rows + ",continuous=" + continuousAttributes + ",discrete=" + discreteAttributes
+				+ ",cardinality=" + cardinality + ",noise=" + noise + ",distribution=" + distribution.name().toLowerCase() + ",seed=" + seed;
+	}
+	
+	/**
+	 * Restituisce il nome del dataset: il contenuto dipende solo dai parametri, per cui non cambia mai.
+	 */
+	public String getFingerprint() {
+		return getName();
+	}
+	
+	/**
+	 * Restituisce una nuova tabella con il contenuto del dataset, generandolo alla prima invocazione. Le colonne discrete
+	 * vengono copiate, perché Data(ColumnarTable) ne traduce i codici sul posto; le colonne numeriche sono condivise.
+	 */
+	public synchronized ColumnarTable read() {
+		if(numericColumns == null)
+			generate();
+		
+		int[][] codes = new int[codedColumns.length][];
+		for(int j = 0; j < codes.length; j++)
+			if(codedColumns[j] != null)
+				codes[j] = codedColumns[j].clone();
+		
+		return new ColumnarTable(columnNames, rows, numericColumns, codes, dictionaries);
+	}
+	
+	/**
+	 * Genera il dataset in memoria e ne memorizza le colonne su disco: serve a sperimentare l'apprendimento su disco
+	 * (vedi SpilledData) con dati riproducibili, non a generare dataset più grandi dello heap.
+	 */
+	public SpilledTable spill(Path directory) throws TrainingDataException {
+		try {
+			return SpilledTable.spill(read(), directory);
+		} catch (IOException e) {
+			throw new TrainingDataException("Errore nella scrittura del dataset " + getName() + ": " + e.getMessage());
+		} catch (EmptySetException e) {
+			throw new TrainingDataException("Il dataset " + getName() + " è vuoto");
+		}
+	}
+	
+	public String toString() {
+		return getName();
+	}
+}
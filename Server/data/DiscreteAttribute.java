@@ -1,5 +1,7 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
 
 /**
@@ -12,10 +14,20 @@ public class DiscreteAttribute extends Attribute implements Iterable<Object>{
 	private static final long serialVersionUID = 1L;
 	
 	/**
-	 * TreeSet di Object, uno per ciascun valore discreto che l'attributo pu assumere. 
+	 * TreeSet di Object, uno per ciascun valore discreto che l'attributo può assumere. 
 	 */
 	private Set<Object> values = new TreeSet<>();
 	
+	/**
+	 * Dizionario dei valori discreti: il codice di un valore è la sua posizione nell'ordinamento di values.
+	 */
+	private transient Object[] dictionary;
+	
+	/**
+	 * Associa a ciascun valore discreto il relativo codice nel dizionario.
+	 */
+	private transient Map<Object, Integer> codes;
+	
 	/**
 	 * Invoca il costruttore della super-classe e avvalora il TreeSet values con i valori discreti in input.
 	 * @param name Nome simbolico dell'attributo.
@@ -25,6 +37,28 @@ public class DiscreteAttribute extends Attribute implements Iterable<Object>{
 	public DiscreteAttribute(String name, int index, Set<Object> values){
 		super(name, index);
 		this.values = values;
+		buildDictionary();
+	}
+	
+	/**
+	 * Costruisce il dizionario dei valori discreti a partire da values.
+	 */
+	private void buildDictionary(){
+		dictionary = values.toArray();
+		codes = new HashMap<Object, Integer>(dictionary.length * 2);
+		for(int i = 0; i < dictionary.length; i++)
+			codes.put(dictionary[i], i);
+	}
+	
+	/**
+	 * Ricostruisce il dizionario dopo la deserializzazione dell'attributo.
+	 * @param in Stream da cui viene letto l'attributo.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		buildDictionary();
 	}
 	
 	/**
@@ -34,6 +68,26 @@ public class DiscreteAttribute extends Attribute implements Iterable<Object>{
 	public int getNumberOfDistinctValues(){
 		return values.size();
 	}
+	
+	/**
+	 * Restituisce il codice associato al valore discreto value.
+	 * @param value Valore discreto dell'attributo.
+	 * @return Codice del valore nel dizionario, -1 se il valore non appartiene al dominio dell'attributo.
+	 */
+	public int getCode(Object value){
+		Integer code = codes.get(value);
+		
+		return code == null ? -1 : code;
+	}
+	
+	/**
+	 * Restituisce il valore discreto associato al codice code.
+	 * @param code Codice di un valore nel dizionario.
+	 * @return Valore discreto corrispondente a code.
+	 */
+	public Object getValue(int code){
+		return dictionary[code];
+	}
 
 	@Override
 	public Iterator<Object> iterator(){
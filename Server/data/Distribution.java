@@ -0,0 +1,21 @@
+package data;
+
+/**
+ * Distribuzione dei valori degli attributi indipendenti dei dataset generati da DatasetGenerator.
+ */
+public enum Distribution {
+	/**
+	 * Valori continui uniformi in [0, 1000), codici discreti equiprobabili.
+	 */
+	UNIFORM,
+	
+	/**
+	 * Valori continui normali (media 500, deviazione standard 150), codici discreti concentrati attorno al valore centrale.
+	 */
+	GAUSSIAN,
+	
+	/**
+	 * Valori continui esponenziali (media 100), codici discreti con frequenza decrescente (pochi valori molto frequenti).
+	 */
+	SKEWED
+}
@@ -0,0 +1,98 @@
+package data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import database.ColumnarTable;
+import database.EmptySetException;
+import database.SpilledTable;
+import database.TableFile;
+
+/**
+ * Sorgente costituita da un file, di testo delimitato (vedi DelimitedTableFile) o binario per colonne
+ * (vedi BinaryTableFile), che permette di acquisire un training set senza un server MySQL. Il file viene mappato
+ * in memoria e letto in parallelo sul pool comune.
+ */
+public class FileTableSource implements TableSource {
+	/**
+	 * Percorso del file.
+	 */
+	private final Path file;
+	
+	/**
+	 * Delimitatore dei valori di una riga, se il file è di testo.
+	 */
+	private final char delimiter;
+	
+	/**
+	 * Costruttore di classe per i file con valori separati da TableFile.DEFAULT_DELIMITER.
+	 * @param file Percorso del file.
+	 */
+	public FileTableSource(Path file) {
+		this(file, TableFile.DEFAULT_DELIMITER);
+	}
+	
+	/**
+	 * Costruttore di classe.
+	 * @param file Percorso del file.
+	 * @param delimiter Delimitatore dei valori di una riga, se il file è di testo.
+	 */
+	public FileTableSource(Path file, char delimiter) {
+		this.file = file;
+		this.delimiter = delimiter;
+	}
+	
+	public String getName() {
+		return file.getFileName().toString();
+	}
+	
+	/**
+	 * Calcola l'impronta del file (vedi TableFile.getFingerprint()).
+	 */
+	public String getFingerprint() throws TrainingDataException {
+		try {
+			return TableFile.open(file, delimiter, ForkJoinPool.commonPool()).getFingerprint();
+		} catch (IOException e) {
+			throw new TrainingDataException("Il file '" + getName() + "' non è accessibile");
+		}
+	}
+	
+	/**
+	 * Legge il file; al termine vengono riportati il tempo di acquisizione e la memoria occupata.
+	 * @throws TrainingDataException Viene lanciata in caso di errori di lettura o se il file non contiene righe.
+	 */
+	public ColumnarTable read() throws TrainingDataException {
+		try {
+			ColumnarTable table = TableFile.open(file, delimiter, ForkJoinPool.commonPool()).getColumns();
+			System.out.println("File " + getName() + ": " + table);
+			
+			return table;
+		} catch (IOException e) {
+			throw new TrainingDataException("Errore nella lettura del file '" + getName() + "': " + e.getMessage());
+		} catch (EmptySetException e) {
+			throw new TrainingDataException("Il file '" + getName() + "' è vuoto");
+		}
+	}
+	
+	/**
+	 * Memorizza su disco le colonne del file (vedi TableFile.spillColumns()); al termine viene riportato lo spazio occupato.
+	 * @throws TrainingDataException Viene lanciata in caso di errori di lettura o scrittura o se il file non contiene righe.
+	 */
+	public SpilledTable spill(Path directory) throws TrainingDataException {
+		try {
+			SpilledTable table = TableFile.open(file, delimiter, ForkJoinPool.commonPool()).spillColumns(directory);
+			System.out.println("File " + getName() + ": " + table);
+			
+			return table;
+		} catch (IOException e) {
+			throw new TrainingDataException("Errore nella lettura del file '" + getName() + "': " + e.getMessage());
+		} catch (EmptySetException e) {
+			throw new TrainingDataException("Il file '" + getName() + "' è vuoto");
+		}
+	}
+	
+	public String toString() {
+		return "file " + file;
+	}
+}
@@ -0,0 +1,194 @@
+package data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import database.ColumnarTable;
+import database.DatabaseConnectionException;
+import database.DbAccess;
+import database.EmptySetException;
+import database.SpilledTable;
+import database.TableData;
+import database.TableSchema;
+
+/**
+ * Sorgente costituita da una tabella del database, acquisita tramite il pool di connessioni di DbAccess.
+ */
+public class JdbcTableSource implements TableSource {
+	/**
+	 * Nome della tabella nel database.
+	 */
+	private final String tableName;
+	
+	/**
+	 * Numero di righe da prelevare dal DBMS ad ogni accesso.
+	 */
+	private final int fetchSize;
+	
+	/**
+	 * Costruttore di classe. Le righe vengono prelevate TableData.DEFAULT_FETCH_SIZE alla volta.
+	 * @param tableName Nome della tabella nel database.
+	 */
+	public JdbcTableSource(String tableName) {
+		this(tableName, TableData.DEFAULT_FETCH_SIZE);
+	}
+	
+	/**
+	 * Costruttore di classe.
+	 * @param tableName Nome della tabella nel database.
+	 * @param fetchSize Numero di righe da prelevare dal DBMS ad ogni accesso.
+	 */
+	public JdbcTableSource(String tableName, int fetchSize) {
+		this.tableName = tableName;
+		this.fetchSize = fetchSize;
+	}
+	
+	public String getName() {
+		return tableName;
+	}
+	
+	/**
+	 * Controlla lo schema della tabella (vedi checkTable()), così che una tabella inesistente sia segnalata come tale,
+	 * e ne calcola l'impronta (vedi TableData.getFingerprint()).
+	 * @throws TrainingDataException Viene lanciata in caso di errori di connessione o di interrogazione del database,
+	 * se la tabella non esiste, se il numero di colonne è minore di 3 o se l'ultima colonna non è numerica.
+	 */
+	public String getFingerprint() throws TrainingDataException {
+		DbAccess dbAccess = new DbAccess();
+		try {
+			dbAccess.initConnection();
+			checkTable(dbAccess);
+			
+			return new TableData(dbAccess).getFingerprint(tableName);
+		}
+		catch(DatabaseConnectionException e){
+			throw new TrainingDataException("Si è verificata un eccezione durante la connessione al databse");
+		}
+		catch(SQLException e){
+			throw new TrainingDataException("Si è verificata una SQLException");
+		}
+		finally {
+			try {
+				dbAccess.closeConnection();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Stabilisce la connessione con la base di dati, controlla lo schema della tabella (vedi checkTable()) e ne legge
+	 * le tuple in streaming direttamente nelle colonne della tabella restituita; al termine vengono riportati il tempo
+	 * di acquisizione e la memoria occupata.
+	 * @throws TrainingDataException Viene lanciata in caso di errori di connessione o di interrogazione del database,
+	 * se la tabella non esiste o è vuota, se il numero di colonne è minore di 3 o se l'ultima colonna non è numerica.
+	 */
+	public ColumnarTable read() throws TrainingDataException {
+		DbAccess dbAccess = new DbAccess();
+		try {
+			dbAccess.initConnection();
+			checkTable(dbAccess);
+			
+			//un'unica scansione della tabella: i domini degli attributi discreti sono i dizionari costruiti durante la lettura
+			ColumnarTable table = new TableData(dbAccess).getColumns(tableName, fetchSize);
+			System.out.println("Tabella " + tableName + ": " + table);
+			System.out.println("Pool di connessioni: " + DbAccess.getPool());
+			
+			return table;
+		}
+		catch(DatabaseConnectionException e){
+			throw new TrainingDataException("Si è verificata un eccezione durante la connessione al databse");
+		}
+		catch(SQLException e){
+			throw new TrainingDataException("Si è verificata una SQLException");
+		}
+		catch(EmptySetException e){
+			throw new TrainingDataException("La tabella '" + tableName + "' è vuota");
+		}
+		finally {
+			//la connessione torna al pool anche in caso di errore
+			try {
+				dbAccess.closeConnection();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Stabilisce la connessione con la base di dati, controlla lo schema della tabella (vedi checkTable()) e ne scrive
+	 * le tuple, lette in streaming, nei file delle colonne (vedi TableData.spillColumns()); al termine viene riportato
+	 * lo spazio occupato.
+	 * @throws TrainingDataException Viene lanciata in caso di errori di connessione o di interrogazione del database,
+	 * di scrittura dei file, se la tabella non esiste o è vuota, se il numero di colonne è minore di 3 o se l'ultima colonna
+	 * non è numerica.
+	 */
+	public SpilledTable spill(Path directory) throws TrainingDataException {
+		DbAccess dbAccess = new DbAccess();
+		try {
+			dbAccess.initConnection();
+			checkTable(dbAccess);
+			
+			SpilledTable table = new TableData(dbAccess).spillColumns(tableName, fetchSize, directory);
+			System.out.println("Tabella " + tableName + ": " + table);
+			
+			return table;
+		}
+		catch(DatabaseConnectionException e){
+			throw new TrainingDataException("Si è verificata un eccezione durante la connessione al databse");
+		}
+		catch(SQLException e){
+			throw new TrainingDataException("Si è verificata una SQLException");
+		}
+		catch(EmptySetException e){
+			throw new TrainingDataException("La tabella '" + tableName + "' è vuota");
+		}
+		catch(IOException e){
+			throw new TrainingDataException("Errore nella scrittura delle colonne della tabella '" + tableName + "': " + e.getMessage());
+		}
+		finally {
+			try {
+				dbAccess.closeConnection();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Controlla che la tabella esista, che abbia almeno 3 colonne e che l'ultima colonna sia numerica.
+	 * @param dbAccess Accesso alla base di dati, con la connessione già stabilita.
+	 * @throws TrainingDataException Viene lanciata se uno dei controlli fallisce.
+	 * @throws SQLException
+	 */
+	private void checkTable(DbAccess dbAccess) throws TrainingDataException, SQLException {
+		/*--- Controlla che la tabella denominata tableName esista all'interno del database ---*/
+		DatabaseMetaData dbm = dbAccess.getConnection().getMetaData();
+		ResultSet tables = dbm.getTables(null, null, tableName, null);
+		boolean exists = tables.next();
+		tables.close();
+		if (!exists)
+			throw new TrainingDataException("La tabella denominata '" + tableName + "' non esiste");
+		/*---  ---*/
+		
+		TableSchema tableSchema = new TableSchema(dbAccess, tableName);
+		int numberOfAttributes = tableSchema.getNumberOfAttributes();
+		
+		/*--- Controlla che la tabella abbia almeno 3 colonne ---*/
+		if(numberOfAttributes < 3)
+			throw new TrainingDataException("La tabella ha meno di 3 colonne");
+		/*---  ---*/
+		
+		/*--- Controlla che l'attributo corrispondente all'ultima colonna sia numerico ---*/
+		if(!tableSchema.getColumn(numberOfAttributes - 1).isNumber())
+			throw new TrainingDataException("L'attributo corrispondente all'ultima colonna non è numerico");
+		/*--- ---*/
+	}
+	
+	public String toString() {
+		return "tabella " + tableName;
+	}
+}
@@ -0,0 +1,204 @@
+package data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import database.SpilledTable;
+
+/**
+ * Modella un insieme di esempi di training memorizzato su disco per colonne (vedi SpilledTable), da cui apprendere
+ * alberi di regressione per sorgenti più grandi dello heap (vedi RegressionTree(SpilledData, LearningOptions)).
+ * Gli attributi sono ricavati come in Data: le colonne numeriche diventano attributi continui, quelle di stringhe
+ * attributi discreti e l'ultima colonna è l'attributo di classe. Nello heap restano solo gli attributi e, per ciascun
+ * attributo discreto, la traduzione dai codici della colonna (in ordine di lettura) a quelli ordinati del DiscreteAttribute,
+ * applicata ai blocchi di esempi durante la lettura.
+ * <p>
+ * Gli esempi si leggono a blocchi di esempi consecutivi, anche da più thread contemporaneamente; al termine dell'uso
+ * il training set va chiuso per eliminare i file delle colonne.
+ */
+public class SpilledData implements Closeable {
+	/**
+	 * Colonne del training set memorizzate su disco.
+	 */
+	private final SpilledTable table;
+	
+	/**
+	 * Directory dei file temporanei dell'apprendimento.
+	 */
+	private final Path directory;
+	
+	/**
+	 * Lista degli attributi indipendenti.
+	 */
+	private final List<Attribute> explanatorySet = new ArrayList<Attribute>();
+	
+	/**
+	 * Attributo di classe.
+	 */
+	private final ContinuousAttribute classAttribute;
+	
+	/**
+	 * Per ciascun attributo discreto, codice nel DiscreteAttribute di ciascun codice della colonna (null per gli attributi continui).
+	 */
+	private final int[][] translations;
+	
+	/**
+	 * Costruttore di classe. Legge il contenuto di source memorizzandone le colonne nella directory directory.
+	 * @param source Sorgente del training set (tabella del database, file o dataset generato).
+	 * @param directory Directory in cui creare i file temporanei delle colonne e dell'apprendimento.
+	 * @throws TrainingDataException Viene lanciata in caso di errori di lettura della sorgente o di scrittura dei file,
+	 * se le colonne sono meno di 3, se l'ultima colonna non è numerica o se una colonna discreta contiene valori nulli.
+	 */
+	public SpilledData(TableSource source, Path directory) throws TrainingDataException {
+		this(source.spill(directory), directory);
+	}
+	
+	/**
+	 * Costruttore di classe per le colonne già memorizzate su disco. In caso di errore table viene chiusa.
+	 * @param table Contenuto del training set memorizzato su disco per colonne.
+	 * @param directory Directory in cui creare i file temporanei dell'apprendimento.
+	 * @throws TrainingDataException Viene lanciata se le colonne sono meno di 3, se l'ultima colonna non è numerica
+	 * o se una colonna discreta contiene valori nulli.
+	 */
+	public SpilledData(SpilledTable table, Path directory) throws TrainingDataException {
+		this.table = table;
+		this.directory = directory;
+		String[] columnNames = table.getColumnNames();
+		int numberOfAttributes = columnNames.length - 1;
+		translations = new int[Math.max(numberOfAttributes, 0)][];
+		
+		try {
+			if(columnNames.length < 3)
+				throw new TrainingDataException("La tabella ha meno di 3 colonne");
+			if(!table.isNumeric(numberOfAttributes))
+				throw new TrainingDataException("L'attributo corrispondente all'ultima colonna non è numerico");
+			
+			for(int i = 0; i < numberOfAttributes; i++) {
+				if(table.isNumeric(i)) {
+					explanatorySet.add(new ContinuousAttribute(columnNames[i], i));
+					continue;
+				}
+				
+				String[] dictionary = table.getDictionary(i);
+				DiscreteAttribute attribute = new DiscreteAttribute(columnNames[i], i, Data.discreteDomain(dictionary, columnNames[i]));
+				translations[i] = new int[dictionary.length];
+				for(int code = 0; code < dictionary.length; code++)
+					translations[i][code] = attribute.getCode(dictionary[code]);
+				explanatorySet.add(attribute);
+			}
+		} catch (TrainingDataException e) {
+			close();
+			throw e;
+		}
+		
+		classAttribute = new ContinuousAttribute(columnNames[numberOfAttributes], numberOfAttributes);
+	}
+	
+	/**
+	 * Restituisce il numero di esempi.
+	 * @return La cardinalità dell'insieme di esempi.
+	 */
+	public int getNumberOfExamples() {
+		return table.getNumberOfRows();
+	}
+	
+	/**
+	 * Restituisce il numero di attributi indipendenti.
+	 * @return Cardinalità degli attributi indipendenti.
+	 */
+	public int getNumberOfExplanatoryAttributes() {
+		return explanatorySet.size();
+	}
+	
+	/**
+	 * Restituisce l'attributo indipendente di indice index.
+	 * @param index Indice dell'attributo indipendente.
+	 * @return Attributo indipendente.
+	 */
+	public Attribute getExplanatoryAttribute(int index) {
+		return explanatorySet.get(index);
+	}
+	
+	/**
+	 * Restituisce l'attributo di classe.
+	 * @return Attributo di classe.
+	 */
+	public ContinuousAttribute getClassAttribute() {
+		return classAttribute;
+	}
+	
+	/**
+	 * Restituisce la directory dei file temporanei dell'apprendimento.
+	 * @return Directory su disco.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * Copia in values i valori dell'attributo continuo attributeIndex degli esempi [firstExample, firstExample + count).
+	 * @param attributeIndex Indice dell'attributo continuo.
+	 * @param firstExample Indice del primo esempio.
+	 * @param values Array in cui copiare i valori.
+	 * @param count Numero di esempi.
+	 */
+	public void readContinuousValues(int attributeIndex, int firstExample, double[] values, int count) {
+		table.getNumbers(attributeIndex, firstExample, values, count);
+	}
+	
+	/**
+	 * Copia in codes i codici (vedi DiscreteAttribute.getCode()) dei valori dell'attributo discreto attributeIndex
+	 * degli esempi [firstExample, firstExample + count).
+	 * @param attributeIndex Indice dell'attributo discreto.
+	 * @param firstExample Indice del primo esempio.
+	 * @param codes Array in cui copiare i codici.
+	 * @param count Numero di esempi.
+	 */
+	public void readDiscreteValueCodes(int attributeIndex, int firstExample, int[] codes, int count) {
+		table.getCodes(attributeIndex, firstExample, codes, count);
+		int[] translation = translations[attributeIndex];
+		for(int i = 0; i < count; i++)
+			codes[i] = translation[codes[i]];
+	}
+	
+	/**
+	 * Copia in values i valori di classe degli esempi [firstExample, firstExample + count).
+	 * @param firstExample Indice del primo esempio.
+	 * @param values Array in cui copiare i valori.
+	 * @param count Numero di esempi.
+	 */
+	public void readClassValues(int firstExample, double[] values, int count) {
+		table.getNumbers(explanatorySet.size(), firstExample, values, count);
+	}
+	
+	/**
+	 * Restituisce lo spazio occupato su disco dalle colonne del training set.
+	 * @return Numero di byte delle colonne.
+	 */
+	public long getDiskFootprint() {
+		return table.getDiskFootprint();
+	}
+	
+	/**
+	 * Elimina i file temporanei delle colonne (vedi SpilledTable.close()). Gli errori vengono solo riportati,
+	 * perché il training set non è comunque più utilizzabile. Il metodo è final perché viene invocato anche dal
+	 * costruttore, se la costruzione fallisce.
+	 */
+	public final void close() {
+		try {
+			table.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Restituisce una descrizione del training set (esempi, attributi e spazio su disco).
+	 */
+	public String toString() {
+		return getNumberOfExamples() + " esempi, " + explanatorySet.size() + " attributi indipendenti, " + (getDiskFootprint() >> 20) + " MB su disco";
+	}
+}
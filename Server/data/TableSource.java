@@ -0,0 +1,42 @@
+package data;
+
+import java.nio.file.Path;
+
+import database.ColumnarTable;
+import database.SpilledTable;
+
+/**
+ * Sorgente da cui acquisire il contenuto di un training set (vedi Data(TableSource) e SpilledData): una tabella del database
+ * (JdbcTableSource), un file delimitato (FileTableSource) o un dataset generato in memoria (DatasetGenerator).
+ */
+public interface TableSource {
+	/**
+	 * Restituisce il nome della sorgente, riportato nei messaggi.
+	 * @return Nome della sorgente.
+	 */
+	String getName();
+	
+	/**
+	 * Calcola un'impronta del contenuto della sorgente, se possibile senza leggerlo: due impronte uguali indicano
+	 * che il contenuto non è cambiato (vedi TrainingSetCache).
+	 * @return Impronta della sorgente.
+	 * @throws TrainingDataException Viene lanciata se la sorgente non è accessibile.
+	 */
+	String getFingerprint() throws TrainingDataException;
+	
+	/**
+	 * Legge il contenuto della sorgente. L'ultima colonna è l'attributo di classe.
+	 * @return Contenuto della sorgente memorizzato per colonne (una nuova tabella ad ogni invocazione).
+	 * @throws TrainingDataException Viene lanciata in caso di errori di lettura o se la sorgente è vuota.
+	 */
+	ColumnarTable read() throws TrainingDataException;
+	
+	/**
+	 * Legge il contenuto della sorgente memorizzandone le colonne su disco anziché nello heap (vedi SpilledData).
+	 * L'ultima colonna è l'attributo di classe.
+	 * @param directory Directory in cui creare i file temporanei delle colonne.
+	 * @return Contenuto della sorgente memorizzato su disco per colonne, da chiudere al termine dell'uso.
+	 * @throws TrainingDataException Viene lanciata in caso di errori di lettura o scrittura o se la sorgente è vuota.
+	 */
+	SpilledTable spill(Path directory) throws TrainingDataException;
+}
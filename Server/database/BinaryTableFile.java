@@ -0,0 +1,355 @@
+package database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Modella l'insieme di righe contenute in un file binario memorizzato per colonne, prodotto con write().
+ * Il formato (big-endian, come DataOutputStream) è: MAGIC, numero di colonne, numero di righe; per ciascuna colonna
+ * il nome, il tipo (NUMERIC o STRING) e, per le colonne di stringhe, il dizionario (numero di valori seguito dai valori);
+ * quindi i valori delle colonne, una dopo l'altra: un double per riga per le colonne numeriche, il codice (int)
+ * nel dizionario per quelle di stringhe. Le stringhe sono memorizzate come numero di byte (-1 per null) seguito
+ * dai byte UTF-8.
+ * <p>
+ * Ogni colonna viene mappata in memoria (FileChannel.map) e copiata in blocco nel relativo array, una colonna per compito.
+ * Per l'apprendimento su disco (vedi spillColumns()) le colonne vengono invece mappate sul posto, senza copiarle.
+ */
+public class BinaryTableFile extends TableFile {
+	/**
+	 * Numero con cui inizia il file ("RTC1").
+	 */
+	public static final int MAGIC = 0x52544331;
+	
+	/**
+	 * Tipo delle colonne numeriche.
+	 */
+	private static final byte NUMERIC = 'D';
+	
+	/**
+	 * Tipo delle colonne di stringhe.
+	 */
+	private static final byte STRING = 'S';
+	
+	/**
+	 * Dimensione massima, in byte, di una porzione di colonna mappata in una sola volta.
+	 */
+	private static final int SEGMENT_SIZE = 1 << 30;
+	
+	/**
+	 * Numero di codici verificati alla volta da spillColumns().
+	 */
+	private static final int VALIDATION_BLOCK_SIZE = 1 << 16;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param file Percorso del file.
+	 * @param pool Pool su cui leggere le colonne in parallelo (null per la lettura sequenziale).
+	 */
+	public BinaryTableFile(Path file, ForkJoinPool pool) {
+		super(file, pool);
+	}
+	
+	/**
+	 * Intestazione del file: schema, dizionari e posizione dei valori delle colonne.
+	 */
+	private static class Header {
+		/**
+		 * Nomi delle colonne.
+		 */
+		private String[] columnNames;
+		
+		/**
+		 * Dizionari delle colonne di stringhe (null per le colonne numeriche).
+		 */
+		private String[][] dictionaries;
+		
+		/**
+		 * Numero di righe.
+		 */
+		private int numberOfRows;
+		
+		/**
+		 * Posizione nel file di ciascuna colonna.
+		 */
+		private long[] columnPositions;
+		
+		/**
+		 * Numero di byte occupati dai valori delle colonne.
+		 */
+		private long dataSize;
+	}
+	
+	/**
+	 * Legge l'intestazione del file e ne mappa le colonne.
+	 * @throws IOException Viene lanciata in caso di errori di lettura o se il file non rispetta il formato.
+	 * @throws EmptySetException Viene lanciata se il file non contiene righe.
+	 */
+	public ColumnarTable getColumns() throws IOException, EmptySetException {
+		long start = System.nanoTime();
+		
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Header header = readHeader(channel);
+			String[] columnNames = header.columnNames;
+			String[][] dictionaries = header.dictionaries;
+			int numberOfColumns = columnNames.length;
+			int numberOfRows = header.numberOfRows;
+			
+			double[][] numericColumns = new double[numberOfColumns][];
+			int[][] codedColumns = new int[numberOfColumns][];
+			List<Runnable> tasks = new ArrayList<Runnable>(numberOfColumns);
+			for(int j = 0; j < numberOfColumns; j++) {
+				int column = j;
+				long columnStart = header.columnPositions[j];
+				if(dictionaries[j] == null) {
+					numericColumns[j] = new double[numberOfRows];
+					tasks.add(() -> readNumericColumn(channel, columnStart, numericColumns[column]));
+				}
+				else {
+					codedColumns[j] = new int[numberOfRows];
+					tasks.add(() -> readCodedColumn(channel, columnStart, codedColumns[column], dictionaries[column].length, columnNames[column]));
+				}
+			}
+			invokeAll(tasks);
+			
+			return new ColumnarTable(columnNames, numberOfRows, numericColumns, codedColumns, dictionaries, (System.nanoTime() - start) / 1000000, header.dataSize);
+		}
+	}
+	
+	/**
+	 * Mappa le colonne sul posto, senza copiarle: il file stesso è già memorizzato per colonne e non viene mai eliminato.
+	 * I codici delle colonne di stringhe vengono verificati con una scansione sequenziale.
+	 * @throws IOException Viene lanciata in caso di errori di lettura o se il file non rispetta il formato.
+	 * @throws EmptySetException Viene lanciata se il file non contiene righe.
+	 */
+	public SpilledTable spillColumns(Path directory) throws IOException, EmptySetException {
+		Header header;
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			header = readHeader(channel);
+		}
+		
+		Path[] columnFiles = new Path[header.columnNames.length];
+		Arrays.fill(columnFiles, file);
+		SpilledTable table = new SpilledTable(header.columnNames, header.numberOfRows, header.dictionaries, columnFiles, header.columnPositions, new Path[0]);
+		
+		int[] codes = new int[VALIDATION_BLOCK_SIZE];
+		for(int j = 0; j < header.columnNames.length; j++)
+			if(header.dictionaries[j] != null)
+				for(int row = 0; row < header.numberOfRows; row += codes.length) {
+					int rows = Math.min(codes.length, header.numberOfRows - row);
+					table.getCodes(j, row, codes, rows);
+					for(int i = 0; i < rows; i++)
+						if(codes[i] < 0 || codes[i] >= header.dictionaries[j].length)
+							throw new IOException("Codice " + codes[i] + " non valido nella colonna " + header.columnNames[j] + " del file " + file);
+				}
+		
+		return table;
+	}
+	
+	/**
+	 * Legge l'intestazione del file e ne verifica la dimensione.
+	 * @param channel Canale del file, posizionato all'inizio.
+	 * @return Intestazione del file.
+	 * @throws IOException Viene lanciata in caso di errori di lettura o se il file non rispetta il formato.
+	 * @throws EmptySetException Viene lanciata se il file non contiene righe.
+	 */
+	private Header readHeader(FileChannel channel) throws IOException, EmptySetException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		if(in.readInt() != MAGIC)
+			throw new IOException("Il file " + file + " non è un file binario di colonne");
+		
+		long size = channel.size();
+		int numberOfColumns = in.readInt();
+		int numberOfRows = in.readInt();
+		//ogni colonna occupa nell'intestazione almeno la lunghezza del nome e il tipo
+		if(numberOfColumns < 1 || numberOfRows < 0 || numberOfColumns > size / (Integer.BYTES + 1))
+			throw new IOException("Intestazione del file " + file + " non valida");
+		
+		Header header = new Header();
+		header.columnNames = new String[numberOfColumns];
+		header.dictionaries = new String[numberOfColumns][];
+		header.numberOfRows = numberOfRows;
+		header.columnPositions = new long[numberOfColumns];
+		long dataStart = 3 * Integer.BYTES;
+		for(int j = 0; j < numberOfColumns; j++) {
+			header.columnNames[j] = readString(in, size);
+			dataStart += Integer.BYTES + Math.max(0, utf8Length(header.columnNames[j])) + 1;
+			byte type = in.readByte();
+			if(type == STRING) {
+				int numberOfValues = in.readInt();
+				dataStart += Integer.BYTES;
+				//ogni valore del dizionario occupa almeno la propria lunghezza nei byte rimasti
+				if(numberOfValues < 0 || numberOfValues > (size - dataStart) / Integer.BYTES)
+					throw new IOException("Dizionario della colonna " + header.columnNames[j] + " del file " + file + " non valido");
+				header.dictionaries[j] = new String[numberOfValues];
+				for(int code = 0; code < header.dictionaries[j].length; code++) {
+					header.dictionaries[j][code] = readString(in, size);
+					dataStart += Integer.BYTES + Math.max(0, utf8Length(header.dictionaries[j][code]));
+				}
+			}
+			else if(type != NUMERIC)
+				throw new IOException("Tipo della colonna " + header.columnNames[j] + " del file " + file + " non valido");
+		}
+		
+		for(int j = 0; j < numberOfColumns; j++) {
+			header.columnPositions[j] = dataStart + header.dataSize;
+			header.dataSize += (long) numberOfRows * (header.dictionaries[j] == null ? Double.BYTES : Integer.BYTES);
+		}
+		
+		if(channel.size() != dataStart + header.dataSize)
+			throw new IOException("Dimensione del file " + file + " non valida");
+		if(numberOfRows == 0)
+			throw new EmptySetException("EmptySetException: set vuoto");
+		
+		return header;
+	}
+	
+	/**
+	 * Copia in values i valori della colonna numerica che inizia nella posizione position del file.
+	 * @param channel Canale del file.
+	 * @param position Posizione della colonna nel file.
+	 * @param values Array in cui copiare i valori, uno per riga.
+	 * @throws UncheckedIOException Viene lanciata in caso di errori di lettura.
+	 */
+	private static void readNumericColumn(FileChannel channel, long position, double[] values) {
+		int segmentRows = SEGMENT_SIZE / Double.BYTES;
+		for(int row = 0; row < values.length; row += segmentRows) {
+			int rows = Math.min(segmentRows, values.length - row);
+			map(channel, position + (long) row * Double.BYTES, (long) rows * Double.BYTES).asDoubleBuffer().get(values, row, rows);
+		}
+	}
+	
+	/**
+	 * Copia in codes i codici della colonna di stringhe che inizia nella posizione position del file.
+	 * @param channel Canale del file.
+	 * @param position Posizione della colonna nel file.
+	 * @param codes Array in cui copiare i codici, uno per riga.
+	 * @param dictionarySize Numero di valori del dizionario della colonna.
+	 * @param columnName Nome della colonna, riportato nei messaggi di errore.
+	 * @throws UncheckedIOException Viene lanciata in caso di errori di lettura o se un codice non appartiene al dizionario.
+	 */
+	private void readCodedColumn(FileChannel channel, long position, int[] codes, int dictionarySize, String columnName) {
+		int segmentRows = SEGMENT_SIZE / Integer.BYTES;
+		for(int row = 0; row < codes.length; row += segmentRows) {
+			int rows = Math.min(segmentRows, codes.length - row);
+			map(channel, position + (long) row * Integer.BYTES, (long) rows * Integer.BYTES).asIntBuffer().get(codes, row, rows);
+		}
+		
+		for(int code : codes)
+			if(code < 0 || code >= dictionarySize)
+				throw new UncheckedIOException(new IOException("Codice " + code + " non valido nella colonna " + columnName + " del file " + file));
+	}
+	
+	/**
+	 * Mappa in sola lettura la porzione [position, position + size) del file.
+	 * @param channel Canale del file.
+	 * @param position Posizione di inizio.
+	 * @param size Numero di byte (al più SEGMENT_SIZE).
+	 * @return Contenuto mappato.
+	 * @throws UncheckedIOException Viene lanciata in caso di errori di lettura.
+	 */
+	private static ByteBuffer map(FileChannel channel, long position, long size) {
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Scrive table nel file file nel formato di BinaryTableFile.
+	 * @param table Tabella da scrivere.
+	 * @param file Percorso del file.
+	 * @throws IOException
+	 */
+	public static void write(ColumnarTable table, Path file) throws IOException {
+		String[] columnNames = table.getColumnNames();
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(columnNames.length);
+			out.writeInt(table.getNumberOfRows());
+			for(int j = 0; j < columnNames.length; j++) {
+				writeString(out, columnNames[j]);
+				if(table.getNumericColumn(j) != null)
+					out.writeByte(NUMERIC);
+				else {
+					out.writeByte(STRING);
+					String[] dictionary = table.getDictionary(j);
+					out.writeInt(dictionary.length);
+					for(String value : dictionary)
+						writeString(out, value);
+				}
+			}
+			
+			for(int j = 0; j < columnNames.length; j++) {
+				double[] values = table.getNumericColumn(j);
+				int[] codes = table.getCodedColumn(j);
+				for(int i = 0; i < table.getNumberOfRows(); i++)
+					if(values != null)
+						out.writeDouble(values[i]);
+					else
+						out.writeInt(codes[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Legge una stringa (numero di byte, -1 per null, seguito dai byte UTF-8) dall'intestazione del file.
+	 * @param in Stream da cui leggere.
+	 * @param size Dimensione del file, che limita il numero di byte della stringa.
+	 * @return Stringa letta.
+	 * @throws IOException Viene lanciata in caso di errori di lettura o se il numero di byte supera la dimensione del file.
+	 */
+	private String readString(DataInputStream in, long size) throws IOException {
+		int length = in.readInt();
+		if(length < 0)
+			return null;
+		if(length > size)
+			throw new IOException("Stringa di " + length + " byte non valida nell'intestazione del file " + file);
+		
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Scrive la stringa value (numero di byte, -1 per null, seguito dai byte UTF-8).
+	 * @param out Stream su cui scrivere.
+	 * @param value Stringa da scrivere.
+	 * @throws IOException
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if(value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * Restituisce il numero di byte della codifica UTF-8 di value.
+	 * @param value Stringa (null per i valori mancanti).
+	 * @return Numero di byte, -1 per null.
+	 */
+	private static int utf8Length(String value) {
+		return value == null ? -1 : value.getBytes(StandardCharsets.UTF_8).length;
+	}
+}
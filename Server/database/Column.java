@@ -34,7 +34,7 @@ public class Column{
 	
 	/**
 	 * Controlla che il tipo di valori contenuti in una colonna sia numerico o meno.
-	 * @return True se il tipo  numerico, False altrimenti.
+	 * @return True se il tipo è numerico, False altrimenti.
 	 */
 	public boolean isNumber(){
 		return type.equals("number");
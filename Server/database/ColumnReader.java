@@ -0,0 +1,36 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Lettore tipizzato di una colonna di un ResultSet: ad ogni riga decodifica il valore della colonna
+ * e lo accoda al proprio buffer primitivo.
+ */
+abstract class ColumnReader {
+	/**
+	 * Posizione (a partire da 1) della colonna nel ResultSet.
+	 */
+	protected final int columnIndex;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param columnIndex Posizione (a partire da 1) della colonna nel ResultSet.
+	 */
+	ColumnReader(int columnIndex) {
+		this.columnIndex = columnIndex;
+	}
+	
+	/**
+	 * Legge il valore della colonna nella riga corrente di rs.
+	 * @param rs ResultSet posizionato su una riga.
+	 * @throws SQLException
+	 */
+	abstract void read(ResultSet rs) throws SQLException;
+	
+	/**
+	 * Restituisce la massima occupazione di memoria raggiunta dai buffer del lettore.
+	 * @return Memoria in byte.
+	 */
+	abstract long getPeakMemory();
+}
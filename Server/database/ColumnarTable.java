@@ -0,0 +1,142 @@
+package database;
+
+/**
+ * Modella il contenuto di una tabella memorizzato per colonne: le colonne numeriche come array di double,
+ * le colonne di stringhe come array di codici con il relativo dizionario. Riporta inoltre il tempo impiegato
+ * per la lettura e la massima occupazione di memoria dei buffer di lettura.
+ */
+public class ColumnarTable {
+	/**
+	 * Nomi delle colonne, nell'ordine dello schema della tabella.
+	 */
+	private final String[] columnNames;
+	
+	/**
+	 * Numero di righe lette.
+	 */
+	private final int numberOfRows;
+	
+	/**
+	 * Valori delle colonne numeriche (null per le colonne di stringhe).
+	 */
+	private final double[][] numericColumns;
+	
+	/**
+	 * Codici dei valori delle colonne di stringhe (null per le colonne numeriche).
+	 */
+	private final int[][] codedColumns;
+	
+	/**
+	 * Dizionari delle colonne di stringhe: dictionaries[j][c] è il valore con codice c nella colonna j.
+	 */
+	private final String[][] dictionaries;
+	
+	/**
+	 * Tempo impiegato per la lettura, in millisecondi.
+	 */
+	private final long ingestionTime;
+	
+	/**
+	 * Massima occupazione di memoria dei buffer di lettura, in byte.
+	 */
+	private final long peakMemory;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param columnNames Nomi delle colonne.
+	 * @param numberOfRows Numero di righe lette.
+	 * @param numericColumns Valori delle colonne numeriche.
+	 * @param codedColumns Codici dei valori delle colonne di stringhe.
+	 * @param dictionaries Dizionari delle colonne di stringhe.
+	 * @param ingestionTime Tempo impiegato per la lettura, in millisecondi.
+	 * @param peakMemory Massima occupazione di memoria dei buffer di lettura, in byte.
+	 */
+	ColumnarTable(String[] columnNames, int numberOfRows, double[][] numericColumns, int[][] codedColumns, String[][] dictionaries, long ingestionTime, long peakMemory) {
+		this.columnNames = columnNames;
+		this.numberOfRows = numberOfRows;
+		this.numericColumns = numericColumns;
+		this.codedColumns = codedColumns;
+		this.dictionaries = dictionaries;
+		this.ingestionTime = ingestionTime;
+		this.peakMemory = peakMemory;
+	}
+	
+	/**
+	 * Costruttore di classe per le tabelle costruite in memoria, senza lettura (tempo e memoria dei buffer nulli).
+	 * Per ciascuna colonna va indicato l'array numerico oppure i codici con il relativo dizionario.
+	 * @param columnNames Nomi delle colonne.
+	 * @param numberOfRows Numero di righe.
+	 * @param numericColumns Valori delle colonne numeriche (null per le colonne di stringhe).
+	 * @param codedColumns Codici dei valori delle colonne di stringhe (null per le colonne numeriche).
+	 * @param dictionaries Dizionari delle colonne di stringhe (null per le colonne numeriche).
+	 */
+	public ColumnarTable(String[] columnNames, int numberOfRows, double[][] numericColumns, int[][] codedColumns, String[][] dictionaries) {
+		this(columnNames, numberOfRows, numericColumns, codedColumns, dictionaries, 0, 0);
+	}
+	
+	/**
+	 * Restituisce i nomi delle colonne.
+	 * @return Nomi delle colonne, nell'ordine dello schema della tabella.
+	 */
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+	
+	/**
+	 * Restituisce il numero di righe lette.
+	 * @return Numero di righe.
+	 */
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+	
+	/**
+	 * Restituisce i valori della colonna numerica column.
+	 * @param column Indice (a partire da 0) della colonna nello schema della tabella.
+	 * @return Valori della colonna, uno per riga (null se la colonna non è numerica).
+	 */
+	public double[] getNumericColumn(int column) {
+		return numericColumns[column];
+	}
+	
+	/**
+	 * Restituisce i codici dei valori della colonna di stringhe column.
+	 * @param column Indice (a partire da 0) della colonna nello schema della tabella.
+	 * @return Codici dei valori, uno per riga (null se la colonna è numerica).
+	 */
+	public int[] getCodedColumn(int column) {
+		return codedColumns[column];
+	}
+	
+	/**
+	 * Restituisce il dizionario della colonna di stringhe column.
+	 * @param column Indice (a partire da 0) della colonna nello schema della tabella.
+	 * @return Valori distinti della colonna in ordine di codice (null se la colonna è numerica).
+	 */
+	public String[] getDictionary(int column) {
+		return dictionaries[column];
+	}
+	
+	/**
+	 * Restituisce il tempo impiegato per la lettura.
+	 * @return Tempo in millisecondi.
+	 */
+	public long getIngestionTime() {
+		return ingestionTime;
+	}
+	
+	/**
+	 * Restituisce la massima occupazione di memoria dei buffer di lettura.
+	 * @return Memoria in byte.
+	 */
+	public long getPeakMemory() {
+		return peakMemory;
+	}
+	
+	/**
+	 * Restituisce una descrizione della lettura (righe, tempo e memoria).
+	 */
+	public String toString() {
+		return numberOfRows + " righe lette in " + ingestionTime + " ms, picco di memoria dei buffer " + (peakMemory / 1024) + " KB";
+	}
+}
@@ -0,0 +1,343 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool limitato di connessioni verso una base di dati JDBC. Le connessioni restituite al pool restano aperte e
+ * vengono riutilizzate: prima di essere riassegnata una connessione viene validata, mentre le connessioni rimaste
+ * inutilizzate oltre idleTimeout vengono chiuse. Se tutte le connessioni sono in uso, la richiesta di una
+ * connessione attende al più acquireTimeout. Il pool raccoglie alcune metriche d'uso (vedi toString()).
+ * Poiché la base di dati è individuata solo dall'URL JDBC, il pool può essere usato anche con un database embedded.
+ */
+public class ConnectionPool {
+	/**
+	 * Tempo massimo (in secondi) concesso alla validazione di una connessione.
+	 */
+	private static final int VALIDATION_TIMEOUT = 2;
+	
+	/**
+	 * Connessione inutilizzata e istante (System.nanoTime()) in cui è stata restituita al pool.
+	 */
+	private static class IdleConnection {
+		/**
+		 * Connessione inutilizzata.
+		 */
+		private final Connection connection;
+		
+		/**
+		 * Istante in cui la connessione è stata restituita al pool.
+		 */
+		private final long since;
+		
+		/**
+		 * Costruttore di classe.
+		 * @param connection Connessione inutilizzata.
+		 * @param since Istante in cui la connessione è stata restituita al pool.
+		 */
+		IdleConnection(Connection connection, long since) {
+			this.connection = connection;
+			this.since = since;
+		}
+	}
+	
+	/**
+	 * URL JDBC (comprensivo delle credenziali) con cui aprire le connessioni.
+	 */
+	private final String url;
+	
+	/**
+	 * Numero massimo di connessioni aperte contemporaneamente.
+	 */
+	private final int maxSize;
+	
+	/**
+	 * Tempo massimo di attesa (in millisecondi) per ottenere una connessione.
+	 */
+	private final long acquireTimeout;
+	
+	/**
+	 * Tempo (in nanosecondi) oltre il quale una connessione inutilizzata viene chiusa.
+	 */
+	private final long idleTimeout;
+	
+	/**
+	 * Permessi disponibili: uno per ciascuna connessione che può ancora essere assegnata.
+	 */
+	private final Semaphore permits;
+	
+	/**
+	 * Connessioni inutilizzate, dalla più recente alla meno recente.
+	 */
+	private final Deque<IdleConnection> idle = new ArrayDeque<IdleConnection>();
+	
+	/**
+	 * Connessioni attualmente assegnate, confrontate per identità.
+	 */
+	private final Set<Connection> checkedOut = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Connection, Boolean>()));
+	
+	/**
+	 * Numero di connessioni attualmente assegnate.
+	 */
+	private final AtomicInteger active = new AtomicInteger();
+	
+	/**
+	 * Numero di connessioni assegnate dalla creazione del pool.
+	 */
+	private final AtomicLong acquisitions = new AtomicLong();
+	
+	/**
+	 * Numero di richieste non soddisfatte entro acquireTimeout.
+	 */
+	private final AtomicLong timeouts = new AtomicLong();
+	
+	/**
+	 * Numero di connessioni aperte dalla creazione del pool.
+	 */
+	private final AtomicLong created = new AtomicLong();
+	
+	/**
+	 * Numero di connessioni chiuse perché inutilizzate o non più valide.
+	 */
+	private final AtomicLong evicted = new AtomicLong();
+	
+	/**
+	 * Tempo complessivo (in nanosecondi) trascorso in attesa di una connessione.
+	 */
+	private final AtomicLong waitTime = new AtomicLong();
+	
+	/**
+	 * Costruttore di classe.
+	 * @param url URL JDBC (comprensivo delle credenziali) con cui aprire le connessioni.
+	 * @param maxSize Numero massimo di connessioni aperte contemporaneamente.
+	 * @param acquireTimeout Tempo massimo di attesa (in millisecondi) per ottenere una connessione.
+	 * @param idleTimeout Tempo (in millisecondi) oltre il quale una connessione inutilizzata viene chiusa.
+	 */
+	public ConnectionPool(String url, int maxSize, long acquireTimeout, long idleTimeout) {
+		this.url = url;
+		this.maxSize = maxSize;
+		this.acquireTimeout = acquireTimeout;
+		this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+		permits = new Semaphore(maxSize, true);
+	}
+	
+	/**
+	 * Restituisce una connessione valida: riutilizza, se possibile, una connessione inutilizzata, altrimenti ne apre una nuova.
+	 * La connessione va restituita al pool con release().
+	 * @return Connessione alla base di dati.
+	 * @throws DatabaseConnectionException Se non si ottiene una connessione entro acquireTimeout o se l'apertura fallisce.
+	 */
+	public Connection acquire() throws DatabaseConnectionException {
+		long start = System.nanoTime();
+		try {
+			if(!permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+				timeouts.incrementAndGet();
+				throw new DatabaseConnectionException("[!] Nessuna connessione disponibile entro " + acquireTimeout + " ms");
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DatabaseConnectionException("[!] Attesa della connessione interrotta");
+		}
+		
+		try {
+			Connection connection = pollValidConnection();
+			if(connection == null) {
+				connection = DriverManager.getConnection(url);
+				created.incrementAndGet();
+			}
+			
+			checkedOut.add(connection);
+			active.incrementAndGet();
+			acquisitions.incrementAndGet();
+			waitTime.addAndGet(System.nanoTime() - start);
+			return connection;
+		} catch(SQLException e) {
+			permits.release();
+			throw new DatabaseConnectionException(
+				"[!] SQLException: " + e.getMessage() + "\n" + 
+				"[!] SQLState: " + e.getSQLState() + "\n" +
+				"[!] VendorError: " + e.getErrorCode());
+		}
+	}
+	
+	/**
+	 * Restituisce al pool una connessione ottenuta con acquire(). Una connessione può essere restituita una sola volta
+	 * per ciascuna acquisizione: altrimenti comparirebbe più volte tra quelle inutilizzate e verrebbe assegnata
+	 * a più richieste contemporaneamente.
+	 * @param connection Connessione da restituire.
+	 * @throws IllegalArgumentException Se connection non è attualmente assegnata dal pool.
+	 */
+	public void release(Connection connection) {
+		if(!checkedOut.remove(connection))
+			throw new IllegalArgumentException("La connessione non è assegnata dal pool");
+		
+		active.decrementAndGet();
+		synchronized(idle) {
+			idle.push(new IdleConnection(connection, System.nanoTime()));
+		}
+		permits.release();
+		evictIdleConnections();
+	}
+	
+	/**
+	 * Chiude le connessioni rimaste inutilizzate oltre idleTimeout.
+	 */
+	public void evictIdleConnections() {
+		long now = System.nanoTime();
+		while(true) {
+			IdleConnection expired;
+			synchronized(idle) {
+				if(idle.isEmpty() || now - idle.peekLast().since < idleTimeout)
+					return;
+				expired = idle.pollLast();
+			}
+			discard(expired.connection);
+		}
+	}
+	
+	/**
+	 * Chiude tutte le connessioni inutilizzate.
+	 */
+	public void close() {
+		while(true) {
+			IdleConnection connection;
+			synchronized(idle) {
+				connection = idle.poll();
+			}
+			if(connection == null)
+				return;
+			discard(connection.connection);
+		}
+	}
+	
+	/**
+	 * Estrae la connessione inutilizzata più recente che risulta ancora valida, chiudendo quelle non valide o scadute.
+	 * @return Connessione valida, null se non vi sono connessioni inutilizzate.
+	 */
+	private Connection pollValidConnection() {
+		while(true) {
+			IdleConnection candidate;
+			synchronized(idle) {
+				candidate = idle.poll();
+			}
+			if(candidate == null)
+				return null;
+			
+			if(System.nanoTime() - candidate.since < idleTimeout && isValid(candidate.connection))
+				return candidate.connection;
+			discard(candidate.connection);
+		}
+	}
+	
+	/**
+	 * Verifica che una connessione sia ancora utilizzabile.
+	 * @param connection Connessione da verificare.
+	 * @return true se la connessione è valida, false altrimenti.
+	 */
+	private boolean isValid(Connection connection) {
+		try {
+			return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT);
+		} catch(SQLException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Chiude una connessione che esce dal pool.
+	 * @param connection Connessione da chiudere.
+	 */
+	private void discard(Connection connection) {
+		evicted.incrementAndGet();
+		try {
+			connection.close();
+		} catch(SQLException e) {
+			//la connessione viene comunque abbandonata
+		}
+	}
+	
+	/**
+	 * Restituisce il numero massimo di connessioni aperte contemporaneamente.
+	 * @return Dimensione massima del pool.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * Restituisce il numero di connessioni attualmente assegnate.
+	 * @return Connessioni in uso.
+	 */
+	public int getActiveConnections() {
+		return active.get();
+	}
+	
+	/**
+	 * Restituisce il numero di connessioni aperte e inutilizzate.
+	 * @return Connessioni inutilizzate.
+	 */
+	public int getIdleConnections() {
+		synchronized(idle) {
+			return idle.size();
+		}
+	}
+	
+	/**
+	 * Restituisce il numero di connessioni assegnate dalla creazione del pool.
+	 * @return Numero di acquisizioni.
+	 */
+	public long getAcquisitions() {
+		return acquisitions.get();
+	}
+	
+	/**
+	 * Restituisce il numero di richieste non soddisfatte entro il tempo massimo di attesa.
+	 * @return Numero di timeout.
+	 */
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+	
+	/**
+	 * Restituisce il numero di connessioni aperte dalla creazione del pool.
+	 * @return Numero di connessioni create.
+	 */
+	public long getCreatedConnections() {
+		return created.get();
+	}
+	
+	/**
+	 * Restituisce il numero di connessioni chiuse perché inutilizzate o non più valide.
+	 * @return Numero di connessioni rimosse.
+	 */
+	public long getEvictedConnections() {
+		return evicted.get();
+	}
+	
+	/**
+	 * Restituisce il tempo medio di attesa per ottenere una connessione.
+	 * @return Tempo medio in millisecondi.
+	 */
+	public double getAverageWaitTime() {
+		long n = acquisitions.get();
+		return n == 0 ? 0 : waitTime.get() / 1e6 / n;
+	}
+	
+	/**
+	 * Restituisce una descrizione delle metriche d'uso del pool.
+	 */
+	public String toString() {
+		return "connessioni in uso " + getActiveConnections() + "/" + maxSize + ", inutilizzate " + getIdleConnections()
+				+ ", acquisizioni " + getAcquisitions() + ", create " + getCreatedConnections() + ", rimosse " + getEvictedConnections()
+				+ ", timeout " + getTimeouts() + ", attesa media " + String.format("%.2f", getAverageWaitTime()) + " ms";
+	}
+}
@@ -3,76 +3,115 @@ package database;
 import java.sql.*;
 
 /**
- * Realizza l'accesso alla base di dati.
+ * Realizza l'accesso alla base di dati. Le connessioni sono ottenute da un pool condiviso (vedi ConnectionPool),
+ * per cui aprire e chiudere un DbAccess non comporta l'apertura e la chiusura di una connessione fisica.
  */
 public class DbAccess {
 
 	/**
 	 * Nome del driver che permette la connessione al database.
 	 */
-	private final String DRIVER_CLASS_NAME = "com.mysql.cj.jdbc.Driver";
+	private static final String DRIVER_CLASS_NAME = "com.mysql.cj.jdbc.Driver";
 	
 	/**
 	 * Nome del DBMS.
 	 */
-	private final String DBMS = "jdbc:mysql";
+	private static final String DBMS = "jdbc:mysql";
 	
 	/**
 	 * Indirizzo del server.
 	 */
-	private String SERVER = "localhost";
+	private static final String SERVER = "localhost";
 	
 	/**
 	 * Nome della base di dati.
 	 */
-	private final String DATABASE = "MapDB";
+	private static final String DATABASE = "MapDB";
 	
 	/**
 	 * Porta su cui il DBMS MySQL accetta le connessioni.
 	 */
-	private final int PORT = 3306;
+	private static final int PORT = 3306;
 	
 	/**
-	 * Nome dellutente per laccesso alla base di dati.
+	 * Nome dell’utente per l’accesso alla base di dati.
 	 */
-	private final String USER_ID = "MapUser";
+	private static final String USER_ID = "MapUser";
 	
 	/**
-	 * Contiene la password di autenticazione per lutente identificato da USER_ID
+	 * Contiene la password di autenticazione per l’utente identificato da USER_ID
 	 */
-	private final String PASSWORD = "map";
+	private static final String PASSWORD = "map";
+	
+	/**
+	 * Numero massimo di connessioni del pool predefinito.
+	 */
+	private static final int POOL_SIZE = 16;
+	
+	/**
+	 * Tempo massimo di attesa (in millisecondi) per ottenere una connessione dal pool predefinito.
+	 */
+	private static final long ACQUIRE_TIMEOUT = 10000;
+	
+	/**
+	 * Tempo (in millisecondi) oltre il quale il pool predefinito chiude una connessione inutilizzata.
+	 */
+	private static final long IDLE_TIMEOUT = 300000;
+	
+	/**
+	 * Pool condiviso da cui ottenere le connessioni (creato al primo utilizzo se non impostato con setPool()).
+	 */
+	private static ConnectionPool pool;
 	
 	/**
 	 * Gestisce una connessione.
 	 */
 	private Connection conn;
+	
+	/**
+	 * Pool da cui è stata ottenuta conn.
+	 */
+	private ConnectionPool connectionPool;
 
 	/**
-	 * Impartisce al class loader lordine di caricare il driver mysql, inizializza la connessione riferita da conn.
-	 * @throws DatabaseConnectionException Il metodo solleva e propaga una eccezione di tipo DatabaseConnectionException
-	 * nei casi in cui: Il driver non viene trovato, si verifica un errore durante l'istanziazione del driver,
-	 * non  possibile accedere al driver, si verifica una SQL exception.
+	 * Restituisce il pool condiviso, creando al primo utilizzo quello verso il database MySQL predefinito.
+	 * @return Pool di connessioni.
+	 * @throws DatabaseConnectionException Se il driver non viene trovato.
 	 */
-	public void initConnection() throws DatabaseConnectionException {
-		try {
-			Class.forName(DRIVER_CLASS_NAME).newInstance();
+	public static synchronized ConnectionPool getPool() throws DatabaseConnectionException {
+		if(pool == null) {
+			try {
+				Class.forName(DRIVER_CLASS_NAME);
+			} catch(ClassNotFoundException e) {
+				throw new DatabaseConnectionException("[!] Driver not found: " + e.getMessage());
+			}
 			
 			String connectionString = DBMS + "://" + SERVER + ":" + PORT + "/" + DATABASE 
-					+ "?user=" + USER_ID + "&password=" + PASSWORD + "&serverTimezone=UTC";
-			
-			conn = DriverManager.getConnection(connectionString);
-		} catch(ClassNotFoundException e) {
-			throw new DatabaseConnectionException("[!] Driver not found: " + e.getMessage());
-		} catch(InstantiationException e){
-			throw new DatabaseConnectionException("[!] Error during the instantiation : " + e.getMessage());
-		} catch(IllegalAccessException e){
-			throw new DatabaseConnectionException("[!] Cannot access the driver : " + e.getMessage());
-		} catch(SQLException e) {
-		throw new DatabaseConnectionException(
-			"[!] SQLException: " + e.getMessage() + "\n" + 
-			"[!] SQLState: " + e.getSQLState() + "\n" +
-			"[!] VendorError: " + e.getErrorCode());
+					+ "?user=" + USER_ID + "&password=" + PASSWORD + "&serverTimezone=UTC"
+					+ "&useCursorFetch=true"; //le letture con fetch size usano un cursore lato server
+			pool = new ConnectionPool(connectionString, POOL_SIZE, ACQUIRE_TIMEOUT, IDLE_TIMEOUT);
 		}
+		
+		return pool;
+	}
+	
+	/**
+	 * Sostituisce il pool condiviso, ad esempio con uno verso un database embedded.
+	 * @param connectionPool Pool di connessioni da usare.
+	 */
+	public static synchronized void setPool(ConnectionPool connectionPool) {
+		pool = connectionPool;
+	}
+
+	/**
+	 * Ottiene dal pool condiviso la connessione riferita da conn.
+	 * @throws DatabaseConnectionException Il metodo solleva e propaga una eccezione di tipo DatabaseConnectionException
+	 * nei casi in cui: Il driver non viene trovato, non si ottiene una connessione entro il tempo massimo di attesa,
+	 * si verifica una SQL exception.
+	 */
+	public void initConnection() throws DatabaseConnectionException {
+		connectionPool = getPool();
+		conn = connectionPool.acquire();
 	}
 	
 	/**
@@ -84,10 +123,13 @@ public class DbAccess {
 	}
 	
 	/**
-	 * Chiude la connessione conn.
+	 * Restituisce la connessione conn al pool (se ottenuta).
 	 * @throws SQLException
 	 */
 	public void closeConnection() throws SQLException{
-		conn.close();
+		if(conn != null) {
+			connectionPool.release(conn);
+			conn = null;
+		}
 	}
 }
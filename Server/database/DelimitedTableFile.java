@@ -0,0 +1,533 @@
+package database;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+/**
+ * Modella l'insieme di righe contenute in un file di testo delimitato (per esempio CSV, codificato in UTF-8).
+ * La prima riga contiene i nomi delle colonne, le righe vuote vengono ignorate. Una colonna è numerica se tutti i suoi
+ * valori sono numeri decimali (vedi parseNumber()), altrimenti è una colonna di stringhe, nella quale un valore vuoto è considerato mancante (null).
+ * I valori non possono contenere il delimitatore (le virgolette non sono gestite).
+ * <p>
+ * Il file viene mappato in memoria (FileChannel.map) a blocchi di al più CHUNK_SIZE byte che terminano su un fine riga,
+ * elaborati in parallelo in due passate: la prima conta le righe e ricava il tipo delle colonne, la seconda decodifica
+ * i valori numerici direttamente dai byte mappati nelle colonne della tabella, alla posizione data dal numero di righe
+ * dei blocchi precedenti. I dizionari delle colonne di stringhe, costruiti per blocco, vengono infine fusi nell'ordine
+ * dei blocchi, per cui i codici sono assegnati nell'ordine in cui i valori compaiono nel file, come in StringColumnReader.
+ * Per l'apprendimento su disco (vedi spillColumns()) la seconda passata procede invece a gruppi di blocchi, accodati
+ * ai file delle colonne prima di decodificare i successivi.
+ */
+public class DelimitedTableFile extends TableFile {
+	/**
+	 * Dimensione massima, in byte, di un blocco del file (e quindi di una riga).
+	 */
+	static final int CHUNK_SIZE = 8 << 20;
+	
+	/**
+	 * Potenze di 10 rappresentate esattamente come double, usate per la decodifica veloce dei numeri.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	
+	/**
+	 * Massima mantissa rappresentata esattamente come double (2^53).
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	
+	/**
+	 * Delimitatore dei valori di una riga.
+	 */
+	private final byte delimiter;
+	
+	/**
+	 * Blocco del file, composto da righe intere.
+	 */
+	private class Chunk {
+		/**
+		 * Contenuto mappato del blocco.
+		 */
+		private final ByteBuffer buffer;
+		
+		/**
+		 * Posizione del blocco nel file, riportata nei messaggi di errore.
+		 */
+		private final long position;
+		
+		/**
+		 * Numero di righe del blocco.
+		 */
+		private int rows;
+		
+		/**
+		 * Tipo delle colonne nel blocco: numeric[j] vale true se tutti i valori della colonna j sono numeri.
+		 */
+		private boolean[] numeric;
+		
+		/**
+		 * Indice nella tabella della prima riga del blocco.
+		 */
+		private int firstRow;
+		
+		/**
+		 * Lettori delle colonne di stringhe del blocco (null per le colonne numeriche).
+		 */
+		private StringColumnReader[] readers;
+		
+		/**
+		 * Costruttore di classe.
+		 * @param buffer Contenuto mappato del blocco.
+		 * @param position Posizione del blocco nel file.
+		 */
+		private Chunk(ByteBuffer buffer, long position) {
+			this.buffer = buffer;
+			this.position = position;
+		}
+		
+		/**
+		 * Prima passata: conta le righe del blocco e ricava il tipo delle colonne.
+		 * @param numberOfColumns Numero di colonne dell'intestazione.
+		 */
+		private void scan(int numberOfColumns) {
+			numeric = new boolean[numberOfColumns];
+			for(int j = 0; j < numberOfColumns; j++)
+				numeric[j] = true;
+			
+			int[] bounds = new int[numberOfColumns * 2];
+			int begin = 0;
+			while(begin < buffer.limit()) {
+				int end = lineEnd(begin);
+				if(split(begin, end, bounds)) {
+					for(int j = 0; j < numberOfColumns; j++)
+						if(numeric[j] && !isNumber(bounds[2 * j], bounds[2 * j + 1]))
+							numeric[j] = false;
+					rows++;
+				}
+				begin = end + 1;
+			}
+		}
+		
+		/**
+		 * Seconda passata: decodifica i valori numerici nelle colonne numericColumns e codifica quelli delle colonne
+		 * di stringhe con dizionari propri del blocco.
+		 * @param numericColumns Colonne numeriche della tabella (null per le colonne di stringhe).
+		 * @param row Posizione in numericColumns della prima riga del blocco.
+		 */
+		private void parse(double[][] numericColumns, int row) {
+			readers = new StringColumnReader[numericColumns.length];
+			for(int j = 0; j < readers.length; j++)
+				if(numericColumns[j] == null)
+					readers[j] = new StringColumnReader(j + 1, rows);
+			
+			int[] bounds = new int[numericColumns.length * 2];
+			int begin = 0;
+			while(begin < buffer.limit()) {
+				int end = lineEnd(begin);
+				if(split(begin, end, bounds)) {
+					for(int j = 0; j < readers.length; j++)
+						if(readers[j] == null)
+							numericColumns[j][row] = parseNumber(buffer, bounds[2 * j], bounds[2 * j + 1]);
+						else
+							readers[j].add(bounds[2 * j] == bounds[2 * j + 1] ? null : decode(buffer, bounds[2 * j], bounds[2 * j + 1]));
+					row++;
+				}
+				begin = end + 1;
+			}
+		}
+		
+		/**
+		 * Restituisce la posizione del fine riga della riga che inizia in begin.
+		 * @param begin Posizione di inizio della riga nel blocco.
+		 * @return Posizione del carattere '\n' che chiude la riga (o la fine del blocco).
+		 */
+		private int lineEnd(int begin) {
+			int end = begin;
+			while(end < buffer.limit() && buffer.get(end) != '\n')
+				end++;
+			
+			return end;
+		}
+		
+		/**
+		 * Individua i valori della riga [begin, end), escluso l'eventuale '\r' finale.
+		 * @param begin Posizione di inizio della riga nel blocco.
+		 * @param end Posizione del fine riga.
+		 * @param bounds Array in cui memorizzare, per ciascuna colonna j, l'inizio (bounds[2j]) e la fine (bounds[2j+1]) del valore.
+		 * @return false se la riga è vuota, true altrimenti.
+		 * @throws UncheckedIOException Viene lanciata se la riga non contiene tanti valori quante sono le colonne.
+		 */
+		private boolean split(int begin, int end, int[] bounds) {
+			if(end > begin && buffer.get(end - 1) == '\r')
+				end--;
+			if(end == begin)
+				return false;
+			
+			int numberOfColumns = bounds.length / 2;
+			int j = 0;
+			bounds[0] = begin;
+			for(int i = begin; i < end; i++)
+				if(buffer.get(i) == delimiter) {
+					if(j == numberOfColumns - 1)
+						throw malformedLine(begin, numberOfColumns);
+					bounds[2 * j + 1] = i;
+					j++;
+					bounds[2 * j] = i + 1;
+				}
+			if(j != numberOfColumns - 1)
+				throw malformedLine(begin, numberOfColumns);
+			bounds[2 * j + 1] = end;
+			
+			return true;
+		}
+		
+		/**
+		 * Verifica se il valore [begin, end) rappresenta un numero.
+		 * @param begin Posizione di inizio del valore.
+		 * @param end Posizione di fine del valore.
+		 * @return true se il valore può essere letto come double, false altrimenti.
+		 */
+		private boolean isNumber(int begin, int end) {
+			try {
+				parseNumber(buffer, begin, end);
+				return true;
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+		
+		/**
+		 * Costruisce l'eccezione relativa a una riga con un numero di valori errato.
+		 * @param begin Posizione di inizio della riga nel blocco.
+		 * @param numberOfColumns Numero di colonne dell'intestazione.
+		 * @return Eccezione da lanciare.
+		 */
+		private UncheckedIOException malformedLine(int begin, int numberOfColumns) {
+			return new UncheckedIOException(new IOException("Riga alla posizione " + (position + begin) + " del file " + file
+					+ ": attesi " + numberOfColumns + " valori"));
+		}
+	}
+	
+	/**
+	 * Costruttore di classe.
+	 * @param file Percorso del file.
+	 * @param delimiter Delimitatore dei valori di una riga (un carattere ASCII).
+	 * @param pool Pool su cui elaborare i blocchi in parallelo (null per l'elaborazione sequenziale).
+	 */
+	public DelimitedTableFile(Path file, char delimiter, ForkJoinPool pool) {
+		super(file, pool);
+		if(delimiter > 127 || delimiter == '\n' || delimiter == '\r')
+			throw new IllegalArgumentException("Delimitatore non valido: " + (int) delimiter);
+		
+		this.delimiter = (byte) delimiter;
+	}
+	
+	/**
+	 * Legge il file mappandolo in memoria a blocchi elaborati in parallelo.
+	 * @throws IOException Viene lanciata in caso di errori di lettura, se il file non ha l'intestazione, se una riga non ha
+	 * lo stesso numero di valori dell'intestazione o è più lunga di CHUNK_SIZE byte.
+	 * @throws EmptySetException Viene lanciata se il file non contiene righe oltre all'intestazione.
+	 */
+	public ColumnarTable getColumns() throws IOException, EmptySetException {
+		long start = System.nanoTime();
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		String[] columnNames = mapChunks(chunks);
+		int numberOfColumns = columnNames.length;
+		boolean[] numeric = new boolean[numberOfColumns];
+		int numberOfRows = scanChunks(chunks, numeric);
+		
+		double[][] numericColumns = new double[numberOfColumns][];
+		long peakMemory = 0;
+		for(int j = 0; j < numberOfColumns; j++)
+			if(numeric[j]) {
+				numericColumns[j] = new double[numberOfRows];
+				peakMemory += (long) numberOfRows * Double.BYTES;
+			}
+		
+		List<Runnable> tasks = new ArrayList<Runnable>(chunks.size());
+		for(Chunk chunk : chunks)
+			tasks.add(() -> chunk.parse(numericColumns, chunk.firstRow));
+		invokeAll(tasks);
+		
+		int[][] codedColumns = new int[numberOfColumns][];
+		String[][] dictionaries = new String[numberOfColumns][];
+		for(Chunk chunk : chunks)
+			for(int j = 0; j < numberOfColumns; j++)
+				if(!numeric[j])
+					peakMemory += chunk.readers[j].getPeakMemory();
+		
+		tasks.clear();
+		for(int j = 0; j < numberOfColumns; j++)
+			if(!numeric[j]) {
+				int column = j;
+				codedColumns[j] = new int[numberOfRows];
+				peakMemory += (long) numberOfRows * Integer.BYTES;
+				tasks.add(() -> dictionaries[column] = merge(chunks, column, codedColumns[column]));
+			}
+		invokeAll(tasks);
+		
+		return new ColumnarTable(columnNames, numberOfRows, numericColumns, codedColumns, dictionaries, (System.nanoTime() - start) / 1000000, peakMemory);
+	}
+	
+	/**
+	 * Memorizza le colonne su disco (vedi SpilledTable) senza costruirle nello heap: dopo la prima passata i blocchi
+	 * vengono decodificati a gruppi (tanti quanti i thread del pool, elaborati in parallelo) e accodati, nell'ordine
+	 * del file, ai file delle colonne; i dizionari vengono fusi durante la scrittura, per cui i codici sono gli stessi
+	 * di getColumns(). Nello heap restano al più un gruppo di blocchi decodificati.
+	 * @throws IOException Viene lanciata in caso di errori di lettura o scrittura, se il file non ha l'intestazione, se una riga
+	 * non ha lo stesso numero di valori dell'intestazione o è più lunga di CHUNK_SIZE byte.
+	 * @throws EmptySetException Viene lanciata se il file non contiene righe oltre all'intestazione.
+	 */
+	public SpilledTable spillColumns(Path directory) throws IOException, EmptySetException {
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		String[] columnNames = mapChunks(chunks);
+		int numberOfColumns = columnNames.length;
+		boolean[] numeric = new boolean[numberOfColumns];
+		scanChunks(chunks, numeric);
+		
+		SpillWriter writer = new SpillWriter(directory, columnNames, numeric);
+		try {
+			int groupSize = pool == null ? 1 : pool.getParallelism();
+			for(int first = 0; first < chunks.size(); first += groupSize) {
+				List<Chunk> group = chunks.subList(first, Math.min(chunks.size(), first + groupSize));
+				double[][][] numericColumns = new double[group.size()][numberOfColumns][];
+				List<Runnable> tasks = new ArrayList<Runnable>(group.size());
+				for(int c = 0; c < group.size(); c++) {
+					Chunk chunk = group.get(c);
+					double[][] chunkColumns = numericColumns[c];
+					for(int j = 0; j < numberOfColumns; j++)
+						if(numeric[j])
+							chunkColumns[j] = new double[chunk.rows];
+					tasks.add(() -> chunk.parse(chunkColumns, 0));
+				}
+				invokeAll(tasks);
+				
+				for(int c = 0; c < group.size(); c++) {
+					Chunk chunk = group.get(c);
+					for(int j = 0; j < numberOfColumns; j++)
+						if(numeric[j])
+							writer.addNumbers(j, numericColumns[c][j], chunk.rows);
+						else
+							writer.addCodes(j, chunk.readers[j].getCodes(), chunk.rows, chunk.readers[j].getDictionary());
+					chunk.readers = null;
+				}
+			}
+			
+			return writer.finish();
+		} catch (IOException | EmptySetException | RuntimeException e) {
+			writer.discard();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Legge l'intestazione del file e lo mappa in memoria a blocchi di righe intere.
+	 * @param chunks Lista a cui aggiungere i blocchi, nell'ordine del file.
+	 * @return Nomi delle colonne.
+	 * @throws IOException Viene lanciata in caso di errori di lettura, se il file non ha l'intestazione
+	 * o se una riga è più lunga di CHUNK_SIZE byte.
+	 */
+	private String[] mapChunks(List<Chunk> chunks) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, CHUNK_SIZE));
+			int headerEnd = 0;
+			while(headerEnd < first.limit() && first.get(headerEnd) != '\n')
+				headerEnd++;
+			if(headerEnd == first.limit() && size > CHUNK_SIZE)
+				throw new IOException("L'intestazione del file " + file + " è più lunga di " + CHUNK_SIZE + " byte");
+			
+			String header = decode(first, 0, headerEnd > 0 && first.get(headerEnd - 1) == '\r' ? headerEnd - 1 : headerEnd);
+			if(header.isEmpty())
+				throw new IOException("Il file " + file + " non contiene l'intestazione");
+			
+			long begin = headerEnd + 1;
+			while(begin < size) {
+				long length = Math.min(CHUNK_SIZE, size - begin);
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, begin, length);
+				int limit = (int) length;
+				if(begin + length < size) {
+					while(limit > 0 && buffer.get(limit - 1) != '\n')
+						limit--;
+					if(limit == 0)
+						throw new IOException("La riga alla posizione " + begin + " del file " + file + " è più lunga di " + CHUNK_SIZE + " byte");
+				}
+				buffer.limit(limit);
+				chunks.add(new Chunk(buffer, begin));
+				begin += limit;
+			}
+			
+			return header.split(Pattern.quote(String.valueOf((char) delimiter)), -1);
+		}
+	}
+	
+	/**
+	 * Prima passata: conta in parallelo le righe dei blocchi e ricava il tipo delle colonne, quindi assegna a ciascun
+	 * blocco la posizione della sua prima riga.
+	 * @param chunks Blocchi del file.
+	 * @param numeric Array in cui memorizzare il tipo delle colonne: numeric[j] vale true se la colonna j è numerica.
+	 * @return Numero di righe del file.
+	 * @throws IOException Viene lanciata se una riga non ha lo stesso numero di valori dell'intestazione o se il file
+	 * contiene più di Integer.MAX_VALUE righe.
+	 * @throws EmptySetException Viene lanciata se il file non contiene righe oltre all'intestazione.
+	 */
+	private int scanChunks(List<Chunk> chunks, boolean[] numeric) throws IOException, EmptySetException {
+		int numberOfColumns = numeric.length;
+		List<Runnable> tasks = new ArrayList<Runnable>(chunks.size());
+		for(Chunk chunk : chunks)
+			tasks.add(() -> chunk.scan(numberOfColumns));
+		invokeAll(tasks);
+		
+		long numberOfRows = 0;
+		for(int j = 0; j < numberOfColumns; j++)
+			numeric[j] = true;
+		for(Chunk chunk : chunks) {
+			chunk.firstRow = (int) numberOfRows;
+			numberOfRows += chunk.rows;
+			if(numberOfRows > Integer.MAX_VALUE)
+				throw new IOException("Il file " + file + " contiene più di " + Integer.MAX_VALUE + " righe");
+			for(int j = 0; j < numberOfColumns; j++)
+				numeric[j] &= chunk.numeric[j];
+		}
+		
+		if(numberOfRows == 0)
+			throw new EmptySetException("EmptySetException: set vuoto");
+		
+		return (int) numberOfRows;
+	}
+	
+	/**
+	 * Fonde i dizionari della colonna di stringhe column costruiti dai blocchi, nell'ordine dei blocchi, e traduce
+	 * i codici di ciascun blocco in quelli del dizionario complessivo.
+	 * @param chunks Blocchi del file.
+	 * @param column Indice della colonna.
+	 * @param codes Array in cui memorizzare i codici della colonna, uno per riga.
+	 * @return Dizionario complessivo della colonna: valori distinti in ordine di codice.
+	 */
+	private static String[] merge(List<Chunk> chunks, int column, int[] codes) {
+		Map<String, Integer> dictionary = new HashMap<String, Integer>();
+		List<String> values = new ArrayList<String>();
+		
+		for(Chunk chunk : chunks) {
+			String[] chunkDictionary = chunk.readers[column].getDictionary();
+			int[] translation = new int[chunkDictionary.length];
+			for(int code = 0; code < chunkDictionary.length; code++) {
+				Integer global = dictionary.get(chunkDictionary[code]);
+				if(global == null) {
+					global = values.size();
+					dictionary.put(chunkDictionary[code], global);
+					values.add(chunkDictionary[code]);
+				}
+				translation[code] = global;
+			}
+			
+			int[] chunkCodes = chunk.readers[column].getCodes();
+			for(int i = 0; i < chunkCodes.length; i++)
+				codes[chunk.firstRow + i] = translation[chunkCodes[i]];
+			chunk.readers[column] = null;
+		}
+		
+		return values.toArray(new String[values.size()]);
+	}
+	
+	/**
+	 * Decodifica come double il valore [begin, end) di buffer, che deve essere un numero decimale: segno facoltativo,
+	 * cifre con al più un punto decimale ed esponente facoltativo (e o E, segno facoltativo e cifre). Non sono ammessi
+	 * spazi, NaN, Infinity, numeri esadecimali né i suffissi f e d accettati da Double.parseDouble(): tali valori
+	 * rendono la colonna discreta. I numeri con al più 18 cifre significative e un esponente piccolo (la quasi
+	 * totalità dei valori esportati) sono convertiti direttamente dai byte, con lo stesso risultato di
+	 * Double.parseDouble(); gli altri, dopo aver verificato la sintassi, vengono decodificati con Double.parseDouble().
+	 * @param buffer Contenuto del file.
+	 * @param begin Posizione di inizio del valore.
+	 * @param end Posizione di fine del valore.
+	 * @return Valore decodificato.
+	 * @throws NumberFormatException Viene lanciata se il valore non è un numero decimale.
+	 */
+	static double parseNumber(ByteBuffer buffer, int begin, int end) {
+		int i = begin;
+		boolean negative = false;
+		if(i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+		
+		long mantissa = 0;
+		int significantDigits = 0;
+		int exponent = 0;
+		boolean digits = false;
+		boolean fraction = false;
+		boolean exact = true;
+		for(; i < end; i++) {
+			byte b = buffer.get(i);
+			if(b == '.' && !fraction) {
+				fraction = true;
+				continue;
+			}
+			if(b < '0' || b > '9')
+				break;
+			
+			digits = true;
+			if(fraction)
+				exponent--;
+			if(mantissa == 0 && b == '0')
+				continue;
+			if(++significantDigits > 18) {
+				exact = false;
+				continue;
+			}
+			mantissa = mantissa * 10 + (b - '0');
+		}
+		
+		if(digits && i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if(i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+				negativeExponent = buffer.get(i) == '-';
+				i++;
+			}
+			int value = 0;
+			int exponentDigits = 0;
+			for(; i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++, exponentDigits++)
+				if(exponentDigits < 6)
+					value = value * 10 + (buffer.get(i) - '0');
+				else
+					exact = false;
+			if(exponentDigits == 0)
+				throw new NumberFormatException("Esponente mancante: " + decode(buffer, begin, end));
+			exponent += negativeExponent ? -value : value;
+		}
+		
+		if(!digits || i != end)
+			throw new NumberFormatException("Numero non valido: " + decode(buffer, begin, end));
+		if(!exact || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22)
+			return Double.parseDouble(decode(buffer, begin, end));
+		
+		double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+		
+		return negative ? -value : value;
+	}
+	
+	/**
+	 * Decodifica come stringa UTF-8 i byte [begin, end) di buffer.
+	 * @param buffer Contenuto del file.
+	 * @param begin Posizione di inizio.
+	 * @param end Posizione di fine.
+	 * @return Stringa decodificata.
+	 */
+	private static String decode(ByteBuffer buffer, int begin, int end) {
+		byte[] bytes = new byte[end - begin];
+		buffer.get(begin, bytes);
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
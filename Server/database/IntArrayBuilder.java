@@ -0,0 +1,74 @@
+package database;
+
+import java.util.Arrays;
+
+/**
+ * Buffer di int a crescita dinamica, usato per accumulare i valori di una colonna di codici senza boxing.
+ */
+class IntArrayBuilder {
+	/**
+	 * Valori accumulati.
+	 */
+	private int[] values;
+	
+	/**
+	 * Numero di valori accumulati.
+	 */
+	private int size;
+	
+	/**
+	 * Massima occupazione di memoria (in byte) raggiunta dal buffer, compresi i momenti in cui viene ampliato.
+	 */
+	private long peakMemory;
+	
+	/**
+	 * Costruttore di classe. Prealloca il buffer.
+	 * @param initialCapacity Numero di valori da preallocare.
+	 */
+	IntArrayBuilder(int initialCapacity) {
+		values = new int[Math.max(initialCapacity, 16)];
+		peakMemory = (long) values.length * Integer.BYTES;
+	}
+	
+	/**
+	 * Accoda un valore al buffer, ampliandolo se necessario.
+	 * @param value Valore da accodare.
+	 */
+	void add(int value) {
+		if(size == values.length) {
+			int capacity = values.length + (values.length >> 1);
+			peakMemory = Math.max(peakMemory, (long) (values.length + capacity) * Integer.BYTES);
+			values = Arrays.copyOf(values, capacity);
+		}
+		values[size++] = value;
+	}
+	
+	/**
+	 * Restituisce il numero di valori accumulati.
+	 * @return Numero di valori.
+	 */
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Restituisce la massima occupazione di memoria raggiunta dal buffer.
+	 * @return Memoria in byte.
+	 */
+	long getPeakMemory() {
+		return peakMemory;
+	}
+	
+	/**
+	 * Restituisce i valori accumulati in un array di dimensione pari al loro numero
+	 * (lo stesso array del buffer, se già della dimensione corretta).
+	 * @return Array dei valori.
+	 */
+	int[] toArray() {
+		if(size == values.length)
+			return values;
+		
+		peakMemory = Math.max(peakMemory, (long) (values.length + size) * Integer.BYTES);
+		return Arrays.copyOf(values, size);
+	}
+}
@@ -0,0 +1,48 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Lettore di una colonna numerica: i valori sono letti come double e accodati a un DoubleArrayBuilder.
+ */
+class NumericColumnReader extends ColumnReader {
+	/**
+	 * Valori letti.
+	 */
+	private final DoubleArrayBuilder values;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param columnIndex Posizione (a partire da 1) della colonna nel ResultSet.
+	 * @param expectedRows Numero di righe atteso, usato per preallocare il buffer.
+	 */
+	NumericColumnReader(int columnIndex, int expectedRows) {
+		super(columnIndex);
+		values = new DoubleArrayBuilder(expectedRows);
+	}
+	
+	void read(ResultSet rs) throws SQLException {
+		add(rs.getDouble(columnIndex));
+	}
+	
+	/**
+	 * Accoda il valore value.
+	 * @param value Valore della colonna.
+	 */
+	void add(double value) {
+		values.add(value);
+	}
+	
+	long getPeakMemory() {
+		return values.getPeakMemory();
+	}
+	
+	/**
+	 * Restituisce i valori letti.
+	 * @return Array dei valori, uno per riga.
+	 */
+	double[] getValues() {
+		return values.toArray();
+	}
+}
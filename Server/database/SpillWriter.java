@@ -0,0 +1,192 @@
+package database;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scrive le colonne di una tabella in file temporanei, un file per colonna, nel formato di SpilledTable. Le righe arrivano
+ * a blocchi (una colonna alla volta, per lo stesso numero di righe) e ciascun file viene scritto in sequenza attraverso
+ * un buffer di WRITE_BUFFER_SIZE byte, per cui nello heap restano solo i buffer e i dizionari delle colonne di stringhe.
+ * I codici di ciascun blocco, relativi a un dizionario proprio del blocco, vengono tradotti in quelli del dizionario
+ * complessivo, nell'ordine in cui i valori compaiono (come in StringColumnReader).
+ */
+class SpillWriter {
+	/**
+	 * Dimensione, in byte, del buffer di scrittura di ciascuna colonna.
+	 */
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Nomi delle colonne.
+	 */
+	private final String[] columnNames;
+	
+	/**
+	 * File temporanei delle colonne.
+	 */
+	private final Path[] files;
+	
+	/**
+	 * Canali su cui scrivere le colonne.
+	 */
+	private final FileChannel[] channels;
+	
+	/**
+	 * Buffer di scrittura delle colonne.
+	 */
+	private final ByteBuffer[] buffers;
+	
+	/**
+	 * Numero di righe scritte per ciascuna colonna.
+	 */
+	private final long[] rows;
+	
+	/**
+	 * Codici dei valori delle colonne di stringhe (null per le colonne numeriche).
+	 */
+	private final List<Map<String, Integer>> codes = new ArrayList<Map<String, Integer>>();
+	
+	/**
+	 * Valori distinti delle colonne di stringhe in ordine di codice (null per le colonne numeriche).
+	 */
+	private final List<List<String>> values = new ArrayList<List<String>>();
+	
+	/**
+	 * Costruttore di classe. Crea i file temporanei delle colonne nella directory directory.
+	 * @param directory Directory in cui creare i file.
+	 * @param columnNames Nomi delle colonne.
+	 * @param numeric Tipo delle colonne: numeric[j] vale true se la colonna j è numerica.
+	 * @throws IOException
+	 */
+	SpillWriter(Path directory, String[] columnNames, boolean[] numeric) throws IOException {
+		this.columnNames = columnNames;
+		files = new Path[columnNames.length];
+		channels = new FileChannel[columnNames.length];
+		buffers = new ByteBuffer[columnNames.length];
+		rows = new long[columnNames.length];
+		
+		try {
+			for(int j = 0; j < columnNames.length; j++) {
+				files[j] = Files.createTempFile(directory, "spill", ".col");
+				channels[j] = FileChannel.open(files[j], StandardOpenOption.WRITE);
+				buffers[j] = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+				codes.add(numeric[j] ? null : new HashMap<String, Integer>());
+				values.add(numeric[j] ? null : new ArrayList<String>());
+			}
+		} catch (IOException e) {
+			discard();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Accoda alla colonna numerica column i primi count valori di block.
+	 * @param column Indice della colonna.
+	 * @param block Valori da accodare.
+	 * @param count Numero di valori.
+	 * @throws IOException
+	 */
+	void addNumbers(int column, double[] block, int count) throws IOException {
+		ByteBuffer buffer = buffers[column];
+		for(int i = 0; i < count; i++) {
+			if(buffer.remaining() < Double.BYTES)
+				flush(column);
+			buffer.putDouble(block[i]);
+		}
+		rows[column] += count;
+	}
+	
+	/**
+	 * Accoda alla colonna di stringhe column i primi count codici di block, relativi al dizionario dictionary.
+	 * @param column Indice della colonna.
+	 * @param block Codici da accodare.
+	 * @param count Numero di codici.
+	 * @param dictionary Valori distinti del blocco in ordine di codice.
+	 * @throws IOException
+	 */
+	void addCodes(int column, int[] block, int count, String[] dictionary) throws IOException {
+		Map<String, Integer> columnCodes = codes.get(column);
+		List<String> columnValues = values.get(column);
+		int[] translation = new int[dictionary.length];
+		for(int code = 0; code < dictionary.length; code++) {
+			Integer global = columnCodes.get(dictionary[code]);
+			if(global == null) {
+				global = columnValues.size();
+				columnCodes.put(dictionary[code], global);
+				columnValues.add(dictionary[code]);
+			}
+			translation[code] = global;
+		}
+		
+		ByteBuffer buffer = buffers[column];
+		for(int i = 0; i < count; i++) {
+			if(buffer.remaining() < Integer.BYTES)
+				flush(column);
+			buffer.putInt(translation[block[i]]);
+		}
+		rows[column] += count;
+	}
+	
+	/**
+	 * Scrive su file il contenuto del buffer della colonna column.
+	 * @param column Indice della colonna.
+	 * @throws IOException
+	 */
+	private void flush(int column) throws IOException {
+		ByteBuffer buffer = buffers[column];
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channels[column].write(buffer);
+		buffer.clear();
+	}
+	
+	/**
+	 * Completa la scrittura delle colonne e le mappa in memoria.
+	 * @return Tabella memorizzata su disco, che elimina i file delle colonne alla chiusura.
+	 * @throws IOException Viene lanciata in caso di errori di scrittura o se le colonne non hanno lo stesso numero di righe.
+	 * @throws EmptySetException Viene lanciata se non è stata scritta alcuna riga.
+	 */
+	SpilledTable finish() throws IOException, EmptySetException {
+		for(int j = 0; j < columnNames.length; j++) {
+			flush(j);
+			channels[j].close();
+			if(rows[j] != rows[0])
+				throw new IOException("La colonna " + columnNames[j] + " ha " + rows[j] + " righe anziché " + rows[0]);
+		}
+		if(rows[0] > Integer.MAX_VALUE)
+			throw new IOException("La tabella contiene più di " + Integer.MAX_VALUE + " righe");
+		if(rows[0] == 0)
+			throw new EmptySetException("EmptySetException: set vuoto");
+		
+		String[][] dictionaries = new String[columnNames.length][];
+		for(int j = 0; j < columnNames.length; j++)
+			if(values.get(j) != null)
+				dictionaries[j] = values.get(j).toArray(new String[values.get(j).size()]);
+		
+		return new SpilledTable(columnNames, (int) rows[0], dictionaries, files, new long[columnNames.length], files);
+	}
+	
+	/**
+	 * Chiude ed elimina i file delle colonne, in caso di errore durante la scrittura.
+	 */
+	void discard() {
+		for(int j = 0; j < files.length; j++) {
+			try {
+				if(channels[j] != null)
+					channels[j].close();
+				if(files[j] != null)
+					Files.deleteIfExists(files[j]);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
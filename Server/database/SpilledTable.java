@@ -0,0 +1,229 @@
+package database;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Modella il contenuto di una tabella memorizzato per colonne su disco anziché nello heap: ogni colonna occupa una porzione
+ * di un file (un double big-endian per riga per le colonne numeriche, il codice int nel dizionario per quelle di stringhe)
+ * che viene mappata in memoria (FileChannel.map) a segmenti di al più SEGMENT_SIZE byte. Nello heap restano solo
+ * i nomi e i dizionari delle colonne. Le colonne si leggono a blocchi di righe consecutive (vedi getNumbers() e getCodes()),
+ * anche da più thread contemporaneamente.
+ * <p>
+ * Le colonne sono scritte da SpillWriter in file temporanei, eliminati da close(), oppure sono quelle di un file binario
+ * per colonne (vedi BinaryTableFile), mappate sul posto e mai eliminate.
+ */
+public class SpilledTable implements Closeable {
+	/**
+	 * Dimensione massima, in byte, di un segmento di colonna mappato in una sola volta (multiplo della dimensione dei valori).
+	 */
+	static final int SEGMENT_SIZE = 1 << 30;
+	
+	/**
+	 * Nomi delle colonne, nell'ordine dello schema della tabella.
+	 */
+	private final String[] columnNames;
+	
+	/**
+	 * Numero di righe.
+	 */
+	private final int numberOfRows;
+	
+	/**
+	 * Dizionari delle colonne di stringhe (null per le colonne numeriche).
+	 */
+	private final String[][] dictionaries;
+	
+	/**
+	 * Segmenti mappati delle colonne numeriche (null per le colonne di stringhe).
+	 */
+	private final DoubleBuffer[][] numericSegments;
+	
+	/**
+	 * Segmenti mappati delle colonne di stringhe (null per le colonne numeriche).
+	 */
+	private final IntBuffer[][] codedSegments;
+	
+	/**
+	 * File temporanei da eliminare alla chiusura.
+	 */
+	private final Path[] temporaryFiles;
+	
+	/**
+	 * Costruttore di classe. Mappa le colonne, che devono essere già state scritte per intero.
+	 * @param columnNames Nomi delle colonne.
+	 * @param numberOfRows Numero di righe.
+	 * @param dictionaries Dizionari delle colonne di stringhe (null per le colonne numeriche).
+	 * @param columnFiles File che contiene ciascuna colonna.
+	 * @param columnPositions Posizione di ciascuna colonna nel relativo file.
+	 * @param temporaryFiles File temporanei da eliminare alla chiusura.
+	 * @throws IOException
+	 */
+	SpilledTable(String[] columnNames, int numberOfRows, String[][] dictionaries, Path[] columnFiles, long[] columnPositions, Path[] temporaryFiles) throws IOException {
+		this.columnNames = columnNames;
+		this.numberOfRows = numberOfRows;
+		this.dictionaries = dictionaries;
+		this.temporaryFiles = temporaryFiles;
+		numericSegments = new DoubleBuffer[columnNames.length][];
+		codedSegments = new IntBuffer[columnNames.length][];
+		
+		for(int j = 0; j < columnNames.length; j++)
+			try(FileChannel channel = FileChannel.open(columnFiles[j], StandardOpenOption.READ)) {
+				int valueSize = dictionaries[j] == null ? Double.BYTES : Integer.BYTES;
+				long size = (long) numberOfRows * valueSize;
+				ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+				for(int s = 0; s < segments.length; s++) {
+					long position = (long) s * SEGMENT_SIZE;
+					segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, columnPositions[j] + position, Math.min(SEGMENT_SIZE, size - position));
+				}
+				
+				if(dictionaries[j] == null) {
+					numericSegments[j] = new DoubleBuffer[segments.length];
+					for(int s = 0; s < segments.length; s++)
+						numericSegments[j][s] = segments[s].asDoubleBuffer();
+				}
+				else {
+					codedSegments[j] = new IntBuffer[segments.length];
+					for(int s = 0; s < segments.length; s++)
+						codedSegments[j][s] = segments[s].asIntBuffer();
+				}
+			}
+	}
+	
+	/**
+	 * Memorizza su disco, nella directory directory, il contenuto di una tabella già disponibile in memoria.
+	 * @param table Contenuto della tabella memorizzato per colonne.
+	 * @param directory Directory in cui creare i file temporanei delle colonne.
+	 * @return Tabella memorizzata su disco.
+	 * @throws IOException
+	 * @throws EmptySetException Viene lanciata se la tabella non contiene righe.
+	 */
+	public static SpilledTable spill(ColumnarTable table, Path directory) throws IOException, EmptySetException {
+		String[] columnNames = table.getColumnNames();
+		boolean[] numeric = new boolean[columnNames.length];
+		for(int j = 0; j < numeric.length; j++)
+			numeric[j] = table.getNumericColumn(j) != null;
+		
+		SpillWriter writer = new SpillWriter(directory, columnNames, numeric);
+		try {
+			for(int j = 0; j < columnNames.length; j++)
+				if(numeric[j])
+					writer.addNumbers(j, table.getNumericColumn(j), table.getNumberOfRows());
+				else
+					writer.addCodes(j, table.getCodedColumn(j), table.getNumberOfRows(), table.getDictionary(j));
+			
+			return writer.finish();
+		} catch (IOException | EmptySetException | RuntimeException e) {
+			writer.discard();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Restituisce i nomi delle colonne.
+	 * @return Nomi delle colonne, nell'ordine dello schema della tabella.
+	 */
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+	
+	/**
+	 * Restituisce il numero di righe.
+	 * @return Numero di righe.
+	 */
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+	
+	/**
+	 * Indica se la colonna column è numerica.
+	 * @param column Indice (a partire da 0) della colonna nello schema della tabella.
+	 * @return true per le colonne numeriche, false per quelle di stringhe.
+	 */
+	public boolean isNumeric(int column) {
+		return dictionaries[column] == null;
+	}
+	
+	/**
+	 * Restituisce il dizionario della colonna di stringhe column.
+	 * @param column Indice (a partire da 0) della colonna nello schema della tabella.
+	 * @return Valori distinti della colonna in ordine di codice (null se la colonna è numerica).
+	 */
+	public String[] getDictionary(int column) {
+		return dictionaries[column];
+	}
+	
+	/**
+	 * Copia in values i valori delle righe [firstRow, firstRow + count) della colonna numerica column.
+	 * @param column Indice della colonna numerica.
+	 * @param firstRow Indice della prima riga.
+	 * @param values Array in cui copiare i valori, a partire dalla posizione 0.
+	 * @param count Numero di righe da copiare.
+	 */
+	public void getNumbers(int column, int firstRow, double[] values, int count) {
+		DoubleBuffer[] segments = numericSegments[column];
+		int segmentRows = SEGMENT_SIZE / Double.BYTES;
+		for(int copied = 0; copied < count; ) {
+			int row = firstRow + copied;
+			int index = row % segmentRows;
+			int length = Math.min(count - copied, segmentRows - index);
+			segments[row / segmentRows].get(index, values, copied, length);
+			copied += length;
+		}
+	}
+	
+	/**
+	 * Copia in codes i codici delle righe [firstRow, firstRow + count) della colonna di stringhe column.
+	 * @param column Indice della colonna di stringhe.
+	 * @param firstRow Indice della prima riga.
+	 * @param codes Array in cui copiare i codici, a partire dalla posizione 0.
+	 * @param count Numero di righe da copiare.
+	 */
+	public void getCodes(int column, int firstRow, int[] codes, int count) {
+		IntBuffer[] segments = codedSegments[column];
+		int segmentRows = SEGMENT_SIZE / Integer.BYTES;
+		for(int copied = 0; copied < count; ) {
+			int row = firstRow + copied;
+			int index = row % segmentRows;
+			int length = Math.min(count - copied, segmentRows - index);
+			segments[row / segmentRows].get(index, codes, copied, length);
+			copied += length;
+		}
+	}
+	
+	/**
+	 * Restituisce lo spazio occupato su disco dalle colonne.
+	 * @return Numero di byte delle colonne.
+	 */
+	public long getDiskFootprint() {
+		long bytesPerRow = 0;
+		for(int j = 0; j < columnNames.length; j++)
+			bytesPerRow += isNumeric(j) ? Double.BYTES : Integer.BYTES;
+		
+		return bytesPerRow * numberOfRows;
+	}
+	
+	/**
+	 * Elimina i file temporanei delle colonne. La tabella non va più letta: su Linux lo spazio su disco viene
+	 * liberato quando i segmenti mappati sono raccolti dal garbage collector.
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		for(Path file : temporaryFiles)
+			Files.deleteIfExists(file);
+	}
+	
+	/**
+	 * Restituisce una descrizione della tabella (righe e spazio su disco).
+	 */
+	public String toString() {
+		return numberOfRows + " righe su disco, " + (getDiskFootprint() >> 20) + " MB";
+	}
+}
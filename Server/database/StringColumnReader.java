@@ -0,0 +1,77 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lettore di una colonna di stringhe: ciascun valore è codificato con un dizionario costruito durante la lettura
+ * (il codice di un valore è l'ordine in cui il valore è stato incontrato) e viene memorizzato solo il codice.
+ */
+class StringColumnReader extends ColumnReader {
+	/**
+	 * Codici dei valori letti.
+	 */
+	private final IntArrayBuilder codes;
+	
+	/**
+	 * Associa a ciascun valore distinto il relativo codice.
+	 */
+	private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+	
+	/**
+	 * Valori distinti in ordine di codice.
+	 */
+	private final List<String> values = new ArrayList<String>();
+	
+	/**
+	 * Costruttore di classe.
+	 * @param columnIndex Posizione (a partire da 1) della colonna nel ResultSet.
+	 * @param expectedRows Numero di righe atteso, usato per preallocare il buffer.
+	 */
+	StringColumnReader(int columnIndex, int expectedRows) {
+		super(columnIndex);
+		codes = new IntArrayBuilder(expectedRows);
+	}
+	
+	void read(ResultSet rs) throws SQLException {
+		add(rs.getString(columnIndex));
+	}
+	
+	/**
+	 * Codifica il valore value e ne accoda il codice, aggiungendolo al dizionario se non è mai stato incontrato.
+	 * @param value Valore della colonna (null per i valori mancanti).
+	 */
+	void add(String value) {
+		Integer code = dictionary.get(value);
+		if(code == null) {
+			code = values.size();
+			dictionary.put(value, code);
+			values.add(value);
+		}
+		codes.add(code);
+	}
+	
+	long getPeakMemory() {
+		return codes.getPeakMemory();
+	}
+	
+	/**
+	 * Restituisce i codici dei valori letti.
+	 * @return Array dei codici, uno per riga.
+	 */
+	int[] getCodes() {
+		return codes.toArray();
+	}
+	
+	/**
+	 * Restituisce il dizionario dei valori.
+	 * @return Valori distinti in ordine di codice.
+	 */
+	String[] getDictionary() {
+		return values.toArray(new String[values.size()]);
+	}
+}
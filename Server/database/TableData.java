@@ -1,15 +1,14 @@
 package database;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
 
 /**
- * Modella linsieme di righe (Ogni singola riga  rappresentata dalla classe Example) collezionate in una tabella.
+ * Modella l’insieme di righe collezionate in una tabella, lette per colonne (vedi ColumnarTable).
  */
 public class TableData {
 	/**
@@ -17,6 +16,21 @@ public class TableData {
 	 */
 	private DbAccess db;
 	
+	/**
+	 * Numero predefinito di righe da prelevare dal DBMS ad ogni accesso durante la lettura di una tabella.
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 10000;
+	
+	/**
+	 * Capacità iniziale dei buffer delle colonne lette da getColumns(), che crescono durante la lettura.
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	
+	/**
+	 * Numero di righe decodificate nello heap prima di essere accodate ai file delle colonne (vedi spillColumns()).
+	 */
+	private static final int SPILL_BLOCK_SIZE = 1 << 16;
+	
 	/**
 	 * Costruttore di classe, avvalora db.
 	 * @param db Riferimento da associare a db.
@@ -24,22 +38,132 @@ public class TableData {
 	public TableData(DbAccess db) {
 		this.db = db;
 	}
-
+	
+	/**
+	 * Ricava lo schema della tabella con nome table ed esegue una interrogazione per estrarne le tuple,
+	 * lette in streaming con un cursore forward-only che preleva fetchSize righe alla volta. Ogni colonna è
+	 * decodificata da un lettore tipizzato (NumericColumnReader o StringColumnReader) direttamente in un buffer
+	 * primitivo che cresce durante la lettura, senza creare un oggetto per tupla: la tabella viene scandita una sola volta.
+	 * @param table Nome della tabella nel database.
+	 * @param fetchSize Numero di righe da prelevare dal DBMS ad ogni accesso.
+	 * @return Contenuto della tabella memorizzato per colonne.
+	 * @throws SQLException
+	 * @throws EmptySetException
+	 */
+	public ColumnarTable getColumns(String table, int fetchSize) throws SQLException, EmptySetException {
+		long start = System.nanoTime();
+		TableSchema tSchema = new TableSchema(db, table);
+		String query = selectQuery(tSchema, table);
+		ColumnReader[] readers = createReaders(tSchema, INITIAL_CAPACITY);
+		
+		int numberOfRows = 0;
+		try(Statement statement = db.getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			statement.setFetchSize(fetchSize);
+			try(ResultSet rs = statement.executeQuery(query)) {
+				while (rs.next()) {
+					for(ColumnReader reader : readers)
+						reader.read(rs);
+					numberOfRows++;
+				}
+			}
+		}
+		
+		if(numberOfRows == 0)
+			throw new EmptySetException("EmptySetException: set vuoto");
+		
+		String[] columnNames = new String[readers.length];
+		double[][] numericColumns = new double[readers.length][];
+		int[][] codedColumns = new int[readers.length][];
+		String[][] dictionaries = new String[readers.length][];
+		long peakMemory = 0;
+		for(int i = 0; i < readers.length; i++) {
+			columnNames[i] = tSchema.getColumn(i).getColumnName();
+			if(readers[i] instanceof NumericColumnReader)
+				numericColumns[i] = ((NumericColumnReader) readers[i]).getValues();
+			else {
+				codedColumns[i] = ((StringColumnReader) readers[i]).getCodes();
+				dictionaries[i] = ((StringColumnReader) readers[i]).getDictionary();
+			}
+			peakMemory += readers[i].getPeakMemory();
+		}
+		
+		return new ColumnarTable(columnNames, numberOfRows, numericColumns, codedColumns, dictionaries, (System.nanoTime() - start) / 1000000, peakMemory);
+	}
+	
 	/**
-	 * Ricava lo schema della tabella con nome table. Esegue una interrogazione
-	 * per estrarre le tuple distinte da tale tabella. Per ogni tupla del resultset, si crea un oggetto,
-	 * istanza della classe Example, il cui riferimento va incluso nella lista da restituire. In particolare,
-	 * per la tupla corrente nel resultset, si estraggono i valori dei singoli campi (usando getFloat() o
-	 * getString()), e li si aggiungono alloggetto istanza della classe Example che si sta costruendo.
+	 * Ricava lo schema della tabella con nome table e ne legge le tuple in streaming come getColumns(), ma memorizza
+	 * le colonne su disco (vedi SpilledTable) anziché nello heap: le tuple vengono decodificate a blocchi di
+	 * SPILL_BLOCK_SIZE righe, ciascuno accodato ai file delle colonne prima di leggere il successivo, per cui
+	 * la memoria occupata non dipende dal numero di righe della tabella.
 	 * @param table Nome della tabella nel database.
-	 * @return Lista di tuple memorizzate nella tabella.
+	 * @param fetchSize Numero di righe da prelevare dal DBMS ad ogni accesso.
+	 * @param directory Directory in cui creare i file temporanei delle colonne.
+	 * @return Contenuto della tabella memorizzato su disco.
 	 * @throws SQLException
 	 * @throws EmptySetException
+	 * @throws IOException Viene lanciata in caso di errori di scrittura dei file delle colonne.
 	 */
-	public List<Example> getTransazioni(String table) throws SQLException, EmptySetException {
-		LinkedList<Example> transSet = new LinkedList<Example>();
-		Statement statement;
+	public SpilledTable spillColumns(String table, int fetchSize, Path directory) throws SQLException, EmptySetException, IOException {
 		TableSchema tSchema = new TableSchema(db, table);
+		String query = selectQuery(tSchema, table);
+		
+		String[] columnNames = new String[tSchema.getNumberOfAttributes()];
+		boolean[] numeric = new boolean[columnNames.length];
+		for(int i = 0; i < columnNames.length; i++) {
+			columnNames[i] = tSchema.getColumn(i).getColumnName();
+			numeric[i] = tSchema.getColumn(i).isNumber();
+		}
+		
+		SpillWriter writer = new SpillWriter(directory, columnNames, numeric);
+		try {
+			try(Statement statement = db.getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+				statement.setFetchSize(fetchSize);
+				try(ResultSet rs = statement.executeQuery(query)) {
+					ColumnReader[] readers = createReaders(tSchema, SPILL_BLOCK_SIZE);
+					int blockRows = 0;
+					while (rs.next()) {
+						for(ColumnReader reader : readers)
+							reader.read(rs);
+						if(++blockRows == SPILL_BLOCK_SIZE) {
+							spillBlock(writer, readers, blockRows);
+							readers = createReaders(tSchema, SPILL_BLOCK_SIZE);
+							blockRows = 0;
+						}
+					}
+					spillBlock(writer, readers, blockRows);
+				}
+			}
+			
+			return writer.finish();
+		} catch (SQLException | EmptySetException | IOException | RuntimeException e) {
+			writer.discard();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Accoda ai file delle colonne le righe decodificate dai lettori readers.
+	 * @param writer Destinazione delle colonne.
+	 * @param readers Lettori delle colonne.
+	 * @param blockRows Numero di righe decodificate.
+	 * @throws IOException
+	 */
+	private static void spillBlock(SpillWriter writer, ColumnReader[] readers, int blockRows) throws IOException {
+		for(int i = 0; i < readers.length; i++)
+			if(readers[i] instanceof NumericColumnReader)
+				writer.addNumbers(i, ((NumericColumnReader) readers[i]).getValues(), blockRows);
+			else
+				writer.addCodes(i, ((StringColumnReader) readers[i]).getCodes(), blockRows, ((StringColumnReader) readers[i]).getDictionary());
+	}
+	
+	/**
+	 * Costruisce l'interrogazione che estrae tutte le colonne dello schema tSchema della tabella table.
+	 * @param tSchema Schema della tabella.
+	 * @param table Nome della tabella nel database.
+	 * @return Testo dell'interrogazione.
+	 * @throws SQLException Viene lanciata se la tabella non ha colonne.
+	 */
+	private static String selectQuery(TableSchema tSchema, String table) throws SQLException {
 		String query = "select ";
 		
 		for(int i = 0; i < tSchema.getNumberOfAttributes(); i++){
@@ -52,53 +176,77 @@ public class TableData {
 		if(tSchema.getNumberOfAttributes() == 0)
 			throw new SQLException();
 		
-		query += (" FROM " + table);
+		return query + " FROM " + table;
+	}
+	
+	/**
+	 * Crea un lettore tipizzato per ciascuna colonna dello schema tSchema.
+	 * @param tSchema Schema della tabella.
+	 * @param expectedRows Numero di righe atteso, usato come capacità iniziale dei buffer.
+	 * @return Lettori delle colonne, nell'ordine dello schema.
+	 */
+	private static ColumnReader[] createReaders(TableSchema tSchema, int expectedRows) {
+		ColumnReader[] readers = new ColumnReader[tSchema.getNumberOfAttributes()];
+		for(int i = 0; i < readers.length; i++)
+			if(tSchema.getColumn(i).isNumber())
+				readers[i] = new NumericColumnReader(i + 1, expectedRows);
+			else
+				readers[i] = new StringColumnReader(i + 1, expectedRows);
 		
-		statement = db.getConnection().createStatement();
-		ResultSet rs = statement.executeQuery(query);
-		boolean empty = true;
-		while (rs.next()) {
-			empty = false;
-			
-			Example currentTuple = new Example();
-			for(int i = 0; i < tSchema.getNumberOfAttributes(); i++)
-				if(tSchema.getColumn(i).isNumber())
-					currentTuple.add(rs.getDouble(i + 1));
-				else
-					currentTuple.add(rs.getString(i + 1));
-			
-			transSet.add(currentTuple);
+		return readers;
+	}
+	
+	/**
+	 * Calcola un'impronta del contenuto della tabella table, che cambia quando la tabella viene modificata.
+	 * Se il DBMS registra l'istante dell'ultima modifica (information_schema.TABLES.UPDATE_TIME), l'impronta è tale
+	 * istante e non viene letta nessuna tupla; per non ricevere il valore memorizzato in cache da MySQL 8 (fino a
+	 * 24 ore con le impostazioni predefinite) la sessione imposta information_schema_stats_expiry a 0. UPDATE_TIME
+	 * ha però la risoluzione del secondo e InnoDB non lo conserva al riavvio del DBMS: se manca o risale all'ultimo
+	 * secondo (una modifica successiva nello stesso secondo non lo cambierebbe), l'impronta è il risultato di
+	 * CHECKSUM TABLE, che scandisce la tabella. In entrambi i casi due impronte uguali garantiscono che
+	 * la tabella non sia stata modificata tra i due calcoli; impronte diverse non implicano un contenuto diverso
+	 * (ad esempio dopo un riavvio del DBMS). Se il DBMS non fornisce nemmeno il checksum l'impronta è ogni volta diversa.
+	 * @param table Nome della tabella nel database.
+	 * @return Impronta della tabella.
+	 * @throws SQLException
+	 */
+	public String getFingerprint(String table) throws SQLException {
+		try(Statement statement = db.getConnection().createStatement()) {
+			statement.execute("SET SESSION information_schema_stats_expiry = 0");
+		} catch (SQLException e) {
+			//le versioni precedenti a MySQL 8 non hanno la variabile e non memorizzano UPDATE_TIME in cache
 		}
-		rs.close();
-		statement.close();
-		
-		if(empty)
-			throw new EmptySetException("EmptySetException: set vuoto");
 		
+		String updateTime = null;
+		boolean settled = false;
+		try(PreparedStatement statement = db.getConnection().prepareStatement(
+				"SELECT UPDATE_TIME, UPDATE_TIME < NOW() - INTERVAL 1 SECOND FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+			statement.setString(1, table);
+			try(ResultSet rs = statement.executeQuery()) {
+				if(rs.next()) {
+					updateTime = rs.getString(1);
+					settled = rs.getBoolean(2);
+				}
+			}
+		}
 		
-		return transSet;
+		if(updateTime != null && settled)
+			return "modificata@" + updateTime;
+		String checksum = checksum(table);
+		//senza checksum la tabella non è verificabile: un'impronta sempre diversa ne impone la rilettura
+		return checksum != null ? "checksum@" + checksum : "non verificabile@" + System.nanoTime();
 	}
 	
 	/**
-	 * Formula ed esegue una interrogazione SQL per estrarre i valori distinti ordinati di column e popolare
-	 * un insieme da restituire.
+	 * Calcola il checksum del contenuto della tabella table con CHECKSUM TABLE.
 	 * @param table Nome della tabella nel database.
-	 * @param column Nome della colonna nella tabella.
-	 * @return Insieme di valori distinti ordinati in modalit ascendente che lattributo identificato da nome column assume nella tabella identificata dal nome table.
+	 * @return Checksum della tabella (null se il DBMS non lo fornisce).
 	 * @throws SQLException
-	 * @throws DatabaseConnectionException
 	 */
-	public Set<Object> getDistinctColumnValues (String table, Column column) throws SQLException, DatabaseConnectionException {
-		Statement s = db.getConnection().createStatement();
-		
-		String query = "SELECT " + column.getColumnName() + " FROM " + table + ";";
-		ResultSet r = s.executeQuery(query);		
-		
-		Set<Object> columnValues = new TreeSet<Object>();
-		while(r.next())
-			columnValues.add(r.getObject(1));
-		
-		
-		return columnValues;
+	private String checksum(String table) throws SQLException {
+		try(Statement statement = db.getConnection().createStatement();
+				ResultSet rs = statement.executeQuery("CHECKSUM TABLE " + table)) {
+			return rs.next() ? rs.getString(2) : null;
+		}
 	}
 }
@@ -0,0 +1,117 @@
+package database;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Modella l'insieme di righe contenute in un file, lette per colonne (vedi ColumnarTable) mappandone il contenuto
+ * in memoria. Il formato del file è riconosciuto dal contenuto (vedi open()): un file di testo delimitato
+ * (DelimitedTableFile) oppure un file binario memorizzato per colonne (BinaryTableFile).
+ */
+public abstract class TableFile {
+	/**
+	 * Delimitatore predefinito dei valori di una riga dei file di testo.
+	 */
+	public static final char DEFAULT_DELIMITER = ',';
+	
+	/**
+	 * Percorso del file.
+	 */
+	protected final Path file;
+	
+	/**
+	 * Pool su cui leggere il file in parallelo (null per la lettura sequenziale).
+	 */
+	protected final ForkJoinPool pool;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param file Percorso del file.
+	 * @param pool Pool su cui leggere il file in parallelo (null per la lettura sequenziale).
+	 */
+	protected TableFile(Path file, ForkJoinPool pool) {
+		this.file = file;
+		this.pool = pool;
+	}
+	
+	/**
+	 * Restituisce il lettore adatto al formato del file: BinaryTableFile se il file inizia con BinaryTableFile.MAGIC,
+	 * DelimitedTableFile altrimenti.
+	 * @param file Percorso del file.
+	 * @param delimiter Delimitatore dei valori di una riga, se il file è di testo.
+	 * @param pool Pool su cui leggere il file in parallelo (null per la lettura sequenziale).
+	 * @return Lettore del file.
+	 * @throws IOException
+	 */
+	public static TableFile open(Path file, char delimiter, ForkJoinPool pool) throws IOException {
+		int magic;
+		try(DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+			magic = in.readInt();
+		} catch (EOFException e) {
+			magic = 0;
+		}
+		
+		if(magic == BinaryTableFile.MAGIC)
+			return new BinaryTableFile(file, pool);
+		
+		return new DelimitedTableFile(file, delimiter, pool);
+	}
+	
+	/**
+	 * Legge il contenuto del file.
+	 * @return Contenuto del file memorizzato per colonne.
+	 * @throws IOException Viene lanciata in caso di errori di lettura o se il contenuto non rispetta il formato.
+	 * @throws EmptySetException Viene lanciata se il file non contiene righe.
+	 */
+	public abstract ColumnarTable getColumns() throws IOException, EmptySetException;
+	
+	/**
+	 * Legge il contenuto del file memorizzandone le colonne su disco anziché nello heap (vedi SpilledTable).
+	 * @param directory Directory in cui creare gli eventuali file temporanei delle colonne.
+	 * @return Contenuto del file memorizzato su disco per colonne.
+	 * @throws IOException Viene lanciata in caso di errori di lettura o scrittura o se il contenuto non rispetta il formato.
+	 * @throws EmptySetException Viene lanciata se il file non contiene righe.
+	 */
+	public abstract SpilledTable spillColumns(Path directory) throws IOException, EmptySetException;
+	
+	/**
+	 * Calcola un'impronta economica del contenuto del file, composta dalla dimensione e dall'istante dell'ultima modifica.
+	 * Due impronte diverse indicano che il file è cambiato; il contenuto non viene letto.
+	 * @return Impronta del file.
+	 * @throws IOException
+	 */
+	public String getFingerprint() throws IOException {
+		return Files.size(file) + "@" + Files.getLastModifiedTime(file).toMillis();
+	}
+	
+	/**
+	 * Esegue i compiti tasks, in parallelo sul pool se disponibile. Gli errori di lettura dei compiti,
+	 * segnalati con UncheckedIOException, vengono rilanciati come IOException.
+	 * @param tasks Compiti da eseguire.
+	 * @throws IOException Viene lanciata se un compito ha incontrato un errore di lettura.
+	 */
+	protected void invokeAll(List<? extends Runnable> tasks) throws IOException {
+		try {
+			if(pool == null || tasks.size() < 2) {
+				for(Runnable task : tasks)
+					task.run();
+			}
+			else {
+				List<ForkJoinTask<?>> forkJoinTasks = new ArrayList<ForkJoinTask<?>>(tasks.size());
+				for(Runnable task : tasks)
+					forkJoinTasks.add(ForkJoinTask.adapt(task));
+				pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forkJoinTasks)));
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+}
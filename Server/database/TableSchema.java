@@ -39,13 +39,11 @@ public class TableSchema implements Iterable<Column>{
 		
 		Connection con = db.getConnection();
 		DatabaseMetaData meta = con.getMetaData();
-	    ResultSet res = meta.getColumns(null, null, tableName, null);
-		   
-	     while (res.next())
-	    	 if(mapSQL_JAVATypes.containsKey(res.getString("TYPE_NAME")))
-	    		 tableSchema.add(new Column(res.getString("COLUMN_NAME"), mapSQL_JAVATypes.get(res.getString("TYPE_NAME"))));
-	     
-	     res.close();
+		try(ResultSet res = meta.getColumns(null, null, tableName, null)) {
+			while (res.next())
+				if(mapSQL_JAVATypes.containsKey(res.getString("TYPE_NAME")))
+					tableSchema.add(new Column(res.getString("COLUMN_NAME"), mapSQL_JAVATypes.get(res.getString("TYPE_NAME"))));
+		}
 	}
 	
 	/**
@@ -64,8 +62,8 @@ public class TableSchema implements Iterable<Column>{
 	public Column getColumn(int index){
 		return tableSchema.get(index);
 	}
-
-
+	
+	
 	@Override
 	public Iterator<Column> iterator() {
 		return tableSchema.iterator();	
@@ -1,13 +1,33 @@
 package mapServer;
+import java.nio.file.Paths;
+
 import server.MultiServer;
+import server.ServerMode;
+import tree.LearningMode;
 
 /**
- * Lancia il sever su un porta indicata in input.
+ * Lancia il sever su un porta indicata in input. Un secondo argomento opzionale indica il numero
+ * di thread da usare per l'apprendimento parallelo (per default, uno per processore), un terzo la memoria
+ * in MB riservata alla cache dei training set (per default, metà della memoria disponibile), un quarto
+ * la modalità di gestione delle connessioni (threads, nio o virtual_threads, vedi ServerMode), un quinto
+ * la directory da cui i client possono acquisire training set memorizzati su file, un sesto la modalità
+ * di apprendimento degli alberi (sorting, presorted, histogram o level_wise, vedi LearningMode; per default sorting).
  */
 
 public class Main {
 	public static void main(String[] args) {
 		System.out.println("Starting server...");
-		new MultiServer(Integer.valueOf(args[0]));
+		if(args.length > 5)
+			new MultiServer(Integer.valueOf(args[0]), Integer.valueOf(args[1]), Long.valueOf(args[2]) << 20, ServerMode.valueOf(args[3].toUpperCase()), Paths.get(args[4]), LearningMode.valueOf(args[5].toUpperCase()));
+		else if(args.length > 4)
+			new MultiServer(Integer.valueOf(args[0]), Integer.valueOf(args[1]), Long.valueOf(args[2]) << 20, ServerMode.valueOf(args[3].toUpperCase()), Paths.get(args[4]));
+		else if(args.length > 3)
+			new MultiServer(Integer.valueOf(args[0]), Integer.valueOf(args[1]), Long.valueOf(args[2]) << 20, ServerMode.valueOf(args[3].toUpperCase()));
+		else if(args.length > 2)
+			new MultiServer(Integer.valueOf(args[0]), Integer.valueOf(args[1]), Long.valueOf(args[2]) << 20);
+		else if(args.length > 1)
+			new MultiServer(Integer.valueOf(args[0]), Integer.valueOf(args[1]));
+		else
+			new MultiServer(Integer.valueOf(args[0]));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package server;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limita il numero di istruzioni onerose (acquisizione dei training set e apprendimento) eseguite contemporaneamente
+ * dal server: le istruzioni in eccesso attendono in una coda FIFO e, se l'attesa supera un tempo massimo, vengono
+ * rifiutate. Il numero di esecuzioni contemporanee è dimensionato sui processori e sulla memoria disponibili, così
+ * che una raffica di richieste non avvii un numero illimitato di apprendimenti. Tiene traccia della lunghezza della
+ * coda, delle richieste rifiutate e del tempo di attesa di ciascuna istruzione.
+ */
+class AdmissionController {
+	/**
+	 * Memoria stimata necessaria per ciascuna elaborazione ammessa.
+	 */
+	static final long MEMORY_PER_PERMIT = 256L << 20;
+	
+	/**
+	 * Attesa massima predefinita, in millisecondi, prima di rifiutare un'istruzione.
+	 */
+	static final long DEFAULT_TIMEOUT = 60000;
+	
+	/**
+	 * Permessi di esecuzione, assegnati in ordine di arrivo.
+	 */
+	private final Semaphore permits;
+	
+	/**
+	 * Numero massimo di esecuzioni contemporanee.
+	 */
+	private final int maxPermits;
+	
+	/**
+	 * Attesa massima, in millisecondi, prima di rifiutare un'istruzione.
+	 */
+	private final long timeout;
+	
+	/**
+	 * Numero di istruzioni in attesa di un permesso.
+	 */
+	private final AtomicInteger waiting = new AtomicInteger();
+	
+	/**
+	 * Numero di istruzioni rifiutate.
+	 */
+	private final AtomicLong rejected = new AtomicLong();
+	
+	/**
+	 * Statistiche di attesa per istruzione: numero di istruzioni ammesse, attesa complessiva e massima in nanosecondi.
+	 */
+	private final Map<Integer, long[]> waitTimes = new TreeMap<Integer, long[]>();
+	
+	/**
+	 * Costruttore di classe.
+	 * @param maxPermits Numero massimo di esecuzioni contemporanee.
+	 * @param timeout Attesa massima, in millisecondi, prima di rifiutare un'istruzione.
+	 */
+	AdmissionController(int maxPermits, long timeout) {
+		if(maxPermits < 1)
+			throw new IllegalArgumentException("Numero di esecuzioni contemporanee non valido: " + maxPermits);
+		
+		this.maxPermits = maxPermits;
+		this.timeout = timeout;
+		permits = new Semaphore(maxPermits, true);
+	}
+	
+	/**
+	 * Calcola il numero predefinito di esecuzioni contemporanee: uno per processore, senza superare
+	 * la memoria disponibile divisa per MEMORY_PER_PERMIT.
+	 * @return Numero di esecuzioni contemporanee (almeno 1).
+	 */
+	static int defaultPermits() {
+		long byMemory = Runtime.getRuntime().maxMemory() / MEMORY_PER_PERMIT;
+		
+		return (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), byMemory));
+	}
+	
+	/**
+	 * Attende un permesso per eseguire l'istruzione command. Ogni permesso ottenuto va restituito con release().
+	 * @param command Istruzione da eseguire.
+	 * @throws ServerBusyException Se il permesso non si libera entro il tempo massimo di attesa.
+	 */
+	void acquire(int command) throws ServerBusyException {
+		long start = System.nanoTime();
+		boolean admitted;
+		waiting.incrementAndGet();
+		try {
+			admitted = permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			admitted = false;
+		} finally {
+			waiting.decrementAndGet();
+		}
+		
+		if(!admitted) {
+			rejected.incrementAndGet();
+			throw new ServerBusyException("Server occupato: istruzione " + command + " rifiutata dopo " + timeout + " ms di attesa");
+		}
+		
+		long wait = System.nanoTime() - start;
+		synchronized(waitTimes) {
+			long[] stats = waitTimes.computeIfAbsent(command, c -> new long[3]);
+			stats[0]++;
+			stats[1] += wait;
+			stats[2] = Math.max(stats[2], wait);
+		}
+	}
+	
+	/**
+	 * Restituisce un permesso ottenuto con acquire().
+	 */
+	void release() {
+		permits.release();
+	}
+	
+	/**
+	 * Restituisce il numero di istruzioni in attesa di un permesso.
+	 * @return Lunghezza della coda.
+	 */
+	int getQueueDepth() {
+		return waiting.get();
+	}
+	
+	/**
+	 * Restituisce il numero di istruzioni rifiutate.
+	 * @return Numero di istruzioni rifiutate.
+	 */
+	long getRejected() {
+		return rejected.get();
+	}
+	
+	/**
+	 * Restituisce lo stato del controllo di ammissione: esecuzioni in corso, coda, rifiuti e attesa media
+	 * e massima di ciascuna istruzione.
+	 */
+	public String toString() {
+		String report = "in esecuzione " + (maxPermits - permits.availablePermits()) + "/" + maxPermits
+				+ ", in coda " + getQueueDepth() + ", rifiutate " + getRejected();
+		synchronized(waitTimes) {
+			for(Map.Entry<Integer, long[]> entry : waitTimes.entrySet()) {
+				long[] stats = entry.getValue();
+				report += ", istruzione " + entry.getKey() + ": attesa media " + (stats[1] / stats[0] / 1000000)
+						+ " ms, massima " + (stats[2] / 1000000) + " ms su " + stats[0];
+			}
+		}
+		
+		return report;
+	}
+}
@@ -0,0 +1,245 @@
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protocollo binario a frame. Dopo il numero magico MAGIC, inviato dal client e restituito dal server, ogni messaggio
+ * è un frame composto da lunghezza (int, byte successivi), tipo (byte), identificativo della richiesta (int) e contenuto.
+ * Il client apre una richiesta con un frame COMMAND con un nuovo identificativo, seguito dagli eventuali parametri;
+ * tutti i frame della risposta riportano lo stesso identificativo e la risposta termina con un frame END. Il client può
+ * quindi inviare più richieste senza attenderne le risposte, che arrivano nell'ordine delle richieste.
+ * Le stringhe sono codificate come lunghezza (int) seguita dai byte UTF-8; non vengono usati né descrittori di classe
+ * né tabelle di oggetti.
+ * Questa classe definisce il protocollo: i client (ServerConnection di ClientCLI e di ClientGUI) ne ricopiano
+ * le costanti, per cui una modifica del formato va riportata in entrambi.
+ */
+class BinaryProtocol extends SessionProtocol {
+	/**
+	 * Numero magico che seleziona il protocollo ("RTP1").
+	 */
+	static final int MAGIC = 0x52545031;
+	
+	/**
+	 * Frame con un'istruzione (int), che apre una richiesta.
+	 */
+	static final byte COMMAND = 'C';
+	
+	/**
+	 * Frame con una stringa.
+	 */
+	static final byte STRING = 'S';
+	
+	/**
+	 * Frame con un intero.
+	 */
+	static final byte INT = 'I';
+	
+	/**
+	 * Frame con un double.
+	 */
+	static final byte DOUBLE = 'D';
+	
+	/**
+	 * Frame con un array di double (numero di elementi seguito dagli elementi).
+	 */
+	static final byte DOUBLES = 'A';
+	
+	/**
+	 * Frame con un insieme di esempi: numero di esempi e, per ciascuno, numero di valori seguito dalle coppie
+	 * (nome dell'attributo, valore), dove il valore è preceduto dal tipo (DOUBLE o STRING).
+	 */
+	static final byte EXAMPLES = 'X';
+	
+	/**
+	 * Frame che conclude la risposta a una richiesta.
+	 */
+	static final byte END = 'E';
+	
+	/**
+	 * Dimensione dell'intestazione di un frame dopo la lunghezza (tipo e identificativo).
+	 */
+	private static final int HEADER_SIZE = 1 + Integer.BYTES;
+	
+	/**
+	 * Lunghezza massima di un frame ricevuto: una lunghezza maggiore viene rifiutata prima di allocarne il contenuto.
+	 */
+	static final int MAX_FRAME_SIZE = 64 << 20;
+	
+	/**
+	 * Stream dei frame ricevuti.
+	 */
+	private final DataInputStream in;
+	
+	/**
+	 * Stream dei frame inviati, svuotato al termine di ogni risposta e prima di attendere il client.
+	 */
+	private final DataOutputStream out;
+	
+	/**
+	 * Identificativo della richiesta corrente.
+	 */
+	private int requestId;
+	
+	/**
+	 * Costruttore di classe. Conferma al client la scelta del protocollo restituendo il numero magico.
+	 * @param input Stream dei byte inviati dal client, dopo il numero magico.
+	 * @param output Stream dei byte destinati al client.
+	 * @throws IOException
+	 */
+	BinaryProtocol(InputStream input, OutputStream output) throws IOException {
+		in = new DataInputStream(input);
+		out = new DataOutputStream(new BufferedOutputStream(output));
+		out.writeInt(MAGIC);
+		out.flush();
+	}
+	
+	/**
+	 * Legge il prossimo frame, che deve essere di tipo type, e ne restituisce il contenuto.
+	 * @param type Tipo atteso.
+	 * @return Stream del contenuto del frame.
+	 * @throws IOException Se il frame ha una lunghezza non valida (minore dell'intestazione o maggiore di
+	 * MAX_FRAME_SIZE), non è del tipo atteso o non appartiene alla richiesta corrente.
+	 */
+	private DataInputStream readFrame(byte type) throws IOException {
+		out.flush();
+		int length = in.readInt();
+		if(length < HEADER_SIZE || length > MAX_FRAME_SIZE)
+			throw new IOException("Frame di lunghezza non valida: " + length);
+		byte actualType = in.readByte();
+		int id = in.readInt();
+		byte[] payload = new byte[length - HEADER_SIZE];
+		in.readFully(payload);
+		
+		if(actualType != type)
+			throw new IOException("Atteso un frame '" + (char) type + "', ricevuto '" + (char) actualType + "'");
+		if(type == COMMAND)
+			requestId = id;
+		else if(id != requestId)
+			throw new IOException("Frame della richiesta " + id + " ricevuto durante la richiesta " + requestId);
+		
+		return new DataInputStream(new java.io.ByteArrayInputStream(payload));
+	}
+	
+	/**
+	 * Invia un frame di tipo type, relativo alla richiesta corrente, con contenuto payload.
+	 * @param type Tipo del frame.
+	 * @param payload Contenuto del frame.
+	 * @throws IOException
+	 */
+	private void writeFrame(byte type, byte[] payload) throws IOException {
+		out.writeInt(HEADER_SIZE + payload.length);
+		out.writeByte(type);
+		out.writeInt(requestId);
+		out.write(payload);
+	}
+	
+	/**
+	 * Legge una stringa codificata come lunghezza seguita dai byte UTF-8.
+	 * @param in Stream da cui leggere, contenuto di un frame.
+	 * @return Stringa letta.
+	 * @throws IOException Se la lunghezza è negativa o supera i byte rimasti nel frame.
+	 */
+	private static String readUtf8(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0 || length > in.available())
+			throw new IOException("Stringa di lunghezza non valida: " + length);
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	int readCommand() throws IOException {
+		try {
+			return readFrame(COMMAND).readInt();
+		} catch (EOFException e) {
+			throw new EOFException("Connessione chiusa dal client");
+		}
+	}
+	
+	String readString() throws IOException {
+		return readUtf8(readFrame(STRING));
+	}
+	
+	int readInt() throws IOException {
+		return readFrame(INT).readInt();
+	}
+	
+	List<Map<String, Object>> readExamples() throws IOException {
+		DataInputStream payload = readFrame(EXAMPLES);
+		int numberOfExamples = payload.readInt();
+		//ogni esempio occupa almeno il numero dei suoi valori: conteggi maggiori del frame non vengono allocati
+		if(numberOfExamples < 0 || numberOfExamples > payload.available() / Integer.BYTES)
+			throw new IOException("Numero di esempi non valido: " + numberOfExamples);
+		List<Map<String, Object>> examples = new ArrayList<Map<String, Object>>(numberOfExamples);
+		for(int i = 0; i < numberOfExamples; i++) {
+			int numberOfValues = payload.readInt();
+			if(numberOfValues < 0 || numberOfValues > payload.available() / (Integer.BYTES + 1))
+				throw new IOException("Numero di valori non valido: " + numberOfValues);
+			Map<String, Object> example = new HashMap<String, Object>(numberOfValues * 2);
+			for(int j = 0; j < numberOfValues; j++) {
+				String name = readUtf8(payload);
+				byte type = payload.readByte();
+				if(type == DOUBLE)
+					example.put(name, payload.readDouble());
+				else if(type == STRING)
+					example.put(name, readUtf8(payload));
+				else
+					throw new IOException("Tipo di valore non valido: " + type);
+			}
+			examples.add(example);
+		}
+		
+		return examples;
+	}
+	
+	void writeString(String message) throws IOException {
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(HEADER_SIZE + Integer.BYTES + bytes.length);
+		out.writeByte(STRING);
+		out.writeInt(requestId);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	void writeDouble(double value) throws IOException {
+		out.writeInt(HEADER_SIZE + Double.BYTES);
+		out.writeByte(DOUBLE);
+		out.writeInt(requestId);
+		out.writeDouble(value);
+	}
+	
+	void writeDoubles(double[] values) throws IOException {
+		out.writeInt(HEADER_SIZE + Integer.BYTES + values.length * Double.BYTES);
+		out.writeByte(DOUBLES);
+		out.writeInt(requestId);
+		out.writeInt(values.length);
+		for(double value : values)
+			out.writeDouble(value);
+	}
+	
+	void flush() throws IOException {
+		out.flush();
+	}
+	
+	void endResponse() throws IOException {
+		writeFrame(END, new byte[0]);
+		out.flush();
+	}
+	
+	void close() throws IOException {
+		out.close();
+		in.close();
+	}
+}
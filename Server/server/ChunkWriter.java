@@ -0,0 +1,87 @@
+package server;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer che invia al client il testo ricevuto in blocchi di al più CHUNK_SIZE caratteri: ciascun blocco è
+ * preceduto dalla stringa "CHUNK" e viene inviato subito, per cui il client può mostrare il testo mentre
+ * il server lo sta ancora producendo e nessuna delle due parti deve conservarlo per intero.
+ */
+class ChunkWriter extends Writer {
+	/**
+	 * Numero massimo di caratteri di un blocco.
+	 */
+	static final int CHUNK_SIZE = 16 * 1024;
+	
+	/**
+	 * Protocollo con cui inviare i blocchi.
+	 */
+	private final SessionProtocol protocol;
+	
+	/**
+	 * Caratteri del blocco in costruzione.
+	 */
+	private final char[] buffer = new char[CHUNK_SIZE];
+	
+	/**
+	 * Numero di caratteri presenti in buffer.
+	 */
+	private int length;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param protocol Protocollo con cui inviare i blocchi al client.
+	 */
+	ChunkWriter(SessionProtocol protocol) {
+		this.protocol = protocol;
+	}
+	
+	@Override
+	public void write(char[] chars, int offset, int count) throws IOException {
+		while(count > 0) {
+			int n = Math.min(count, CHUNK_SIZE - length);
+			System.arraycopy(chars, offset, buffer, length, n);
+			length += n;
+			offset += n;
+			count -= n;
+			if(length == CHUNK_SIZE)
+				flush();
+		}
+	}
+	
+	@Override
+	public void write(String text, int offset, int count) throws IOException {
+		while(count > 0) {
+			int n = Math.min(count, CHUNK_SIZE - length);
+			text.getChars(offset, offset + n, buffer, length);
+			length += n;
+			offset += n;
+			count -= n;
+			if(length == CHUNK_SIZE)
+				flush();
+		}
+	}
+	
+	/**
+	 * Invia il blocco in costruzione, se non è vuoto.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if(length == 0)
+			return;
+		
+		protocol.writeString("CHUNK");
+		protocol.writeString(new String(buffer, 0, length));
+		protocol.flush();
+		length = 0;
+	}
+	
+	/**
+	 * Invia l'ultimo blocco. Il protocollo resta aperto.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+}
@@ -0,0 +1,214 @@
+package server;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import tree.RegressionTree;
+
+/**
+ * Registro degli alberi di regressione salvati su file (.dmp o file di modello, riconosciuti dal contenuto),
+ * condiviso da tutti i client del server. Ogni file viene
+ * deserializzato una sola volta (chi lo richiede durante il caricamento ne attende l'esito) e lo stesso albero,
+ * usato dai client in sola lettura, viene restituito a tutte le sessioni. Un albero viene ricaricato quando il file
+ * cambia (data di ultima modifica o dimensione diverse). Quando la dimensione complessiva dei file caricati supera
+ * la capacità del registro vengono rimossi gli alberi usati meno di recente.
+ */
+class ModelRegistry {
+	/**
+	 * Capacità predefinita del registro, in byte di file caricati.
+	 */
+	static final long DEFAULT_CAPACITY = 64L << 20;
+	
+	/**
+	 * Voce del registro relativa a un file.
+	 */
+	private static class Entry {
+		/**
+		 * Data di ultima modifica del file al momento del caricamento.
+		 */
+		private final long lastModified;
+		
+		/**
+		 * Dimensione del file al momento del caricamento, usata come stima della memoria occupata dall'albero.
+		 */
+		private final long size;
+		
+		/**
+		 * Albero di regressione, disponibile al termine del caricamento.
+		 */
+		private final CompletableFuture<RegressionTree> model = new CompletableFuture<RegressionTree>();
+		
+		/**
+		 * Costruttore di classe.
+		 * @param file File da cui viene caricato l'albero.
+		 */
+		private Entry(File file) {
+			lastModified = file.lastModified();
+			size = file.length();
+		}
+		
+		/**
+		 * Verifica se il file è cambiato dopo il caricamento.
+		 * @param file File da cui è stato caricato l'albero.
+		 * @return true se il file è stato modificato, false altrimenti.
+		 */
+		private boolean isStale(File file) {
+			return file.lastModified() != lastModified || file.length() != size;
+		}
+	}
+	
+	/**
+	 * Dimensione massima, in byte, dei file i cui alberi sono mantenuti nel registro.
+	 */
+	private final long capacity;
+	
+	/**
+	 * Voci del registro indicizzate per percorso assoluto del file, in ordine di accesso (dalla meno recente).
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	
+	/**
+	 * Dimensione complessiva dei file caricati nel registro.
+	 */
+	private long usedCapacity;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param capacity Dimensione massima, in byte, dei file i cui alberi sono mantenuti nel registro.
+	 */
+	ModelRegistry(long capacity) {
+		if(capacity < 0)
+			throw new IllegalArgumentException("Capacità non valida: " + capacity);
+		
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * Restituisce l'albero di regressione salvato nel file nomeFile, caricandolo solo se non è già presente
+	 * nel registro o se il file è cambiato dopo il caricamento.
+	 * @param nomeFile Nome del file in cui è salvato l'albero.
+	 * @return Albero di regressione salvato in nomeFile.
+	 * @throws FileNotFoundException Se il file non esiste.
+	 * @throws IOException Eccezione lanciata in caso di errori di lettura del file.
+	 * @throws ClassNotFoundException Eccezione lanciata se il file non contiene un albero di regressione valido.
+	 */
+	RegressionTree get(String nomeFile) throws FileNotFoundException, IOException, ClassNotFoundException {
+		File file = new File(nomeFile).getAbsoluteFile();
+		if(!file.isFile())
+			throw new FileNotFoundException(nomeFile);
+		
+		String key = file.getPath();
+		Entry entry;
+		boolean loader = false;
+		
+		synchronized(this) {
+			entry = entries.get(key);
+			if(entry == null || entry.isStale(file)) {
+				if(entry != null)
+					remove(key, entry);
+				entry = new Entry(file);
+				entries.put(key, entry);
+				usedCapacity += entry.size;
+				loader = true;
+			}
+		}
+		
+		if(loader)
+			load(key, entry);
+		
+		try {
+			return entry.model.join();
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if(e.getCause() instanceof ClassNotFoundException)
+				throw (ClassNotFoundException) e.getCause();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Registra l'albero model appena salvato nel file nomeFile, così che le richieste successive
+	 * non debbano rileggerlo.
+	 * @param nomeFile Nome del file in cui è stato salvato l'albero.
+	 * @param model Albero di regressione salvato.
+	 */
+	void put(String nomeFile, RegressionTree model) {
+		File file = new File(nomeFile).getAbsoluteFile();
+		String key = file.getPath();
+		Entry entry = new Entry(file);
+		entry.model.complete(model);
+		
+		synchronized(this) {
+			Entry previous = entries.get(key);
+			if(previous != null)
+				remove(key, previous);
+			entries.put(key, entry);
+			usedCapacity += entry.size;
+			evict();
+		}
+	}
+	
+	/**
+	 * Deserializza l'albero associato alla voce entry. In caso di errore, compresi gli Error come StackOverflowError
+	 * o OutOfMemoryError, la voce viene rimossa, così che la richiesta successiva ritenti il caricamento, e viene
+	 * completata con l'eccezione (un Error viene riportato come IOException), così che nessun client resti in attesa.
+	 * @param key Percorso assoluto del file.
+	 * @param entry Voce da completare.
+	 */
+	private void load(String key, Entry entry) {
+		try {
+			entry.model.complete(RegressionTree.isModello(key) ? RegressionTree.caricaModello(key) : RegressionTree.carica(key));
+		} catch (Throwable e) {
+			synchronized(this) {
+				remove(key, entry);
+			}
+			entry.model.completeExceptionally(e instanceof Error ? new IOException("Caricamento di " + key + " fallito: " + e, e) : e);
+			return;
+		}
+		
+		synchronized(this) {
+			evict();
+		}
+	}
+	
+	/**
+	 * Rimuove gli alberi usati meno di recente finché la dimensione dei file caricati non rientra nella capacità.
+	 * Le voci in corso di caricamento non vengono rimosse.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while(usedCapacity > capacity && it.hasNext()) {
+			Entry entry = it.next().getValue();
+			if(entry.model.isDone()) {
+				usedCapacity -= entry.size;
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Rimuove la voce entry del file key, se è ancora quella presente nel registro.
+	 * @param key Percorso assoluto del file.
+	 * @param entry Voce da rimuovere.
+	 */
+	private void remove(String key, Entry entry) {
+		if(entries.get(key) == entry) {
+			entries.remove(key);
+			usedCapacity -= entry.size;
+		}
+	}
+	
+	/**
+	 * Restituisce una descrizione dello stato del registro.
+	 */
+	public synchronized String toString() {
+		return entries.size() + " alberi, " + (usedCapacity >> 10) + " KB su " + (capacity >> 10) + " KB";
+	}
+}
@@ -3,30 +3,140 @@ package server;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import tree.LearningMode;
+import tree.LearningOptions;
 
 /**
- * Server in grado di gestire pi client contemporaneamente.
+ * Server in grado di gestire più client contemporaneamente.
  */
 public class MultiServer {
 	/**
-	 * Porta dove  in ascolto il server.
+	 * Porta dove è in ascolto il server.
 	 */
 	private int PORT;
 	
 	/**
-	 * Fa partire il server sulla porta port
+	 * Opzioni di apprendimento condivise da tutti i client, incluso il pool usato per l'apprendimento parallelo.
+	 */
+	private final LearningOptions learningOptions;
+	
+	/**
+	 * Cache dei training set condivisa da tutti i client.
+	 */
+	private final TrainingSetCache trainingSets;
+	
+	/**
+	 * Registro degli alberi di regressione salvati, condiviso da tutti i client.
+	 */
+	private final ModelRegistry models = new ModelRegistry(ModelRegistry.DEFAULT_CAPACITY);
+	
+	/**
+	 * Modalità con cui vengono gestite le connessioni dei client.
+	 */
+	private final ServerMode mode;
+	
+	/**
+	 * Controllo di ammissione delle istruzioni 0 e 1 (solo in modalità VIRTUAL_THREADS, altrimenti null).
+	 */
+	private final AdmissionController admission;
+	
+	/**
+	 * Fa partire il server sulla porta port, usando per l'apprendimento un thread per ciascun processore disponibile
+	 * e per la cache dei training set metà della memoria disponibile.
 	 * @param port Porta su cui il server si mette in ascolto.
 	 */
 	public MultiServer(int port) {
+		this(port, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Fa partire il server sulla porta port, usando per la cache dei training set metà della memoria disponibile.
+	 * @param port Porta su cui il server si mette in ascolto.
+	 * @param parallelism Numero di thread con cui valutare in parallelo gli attributi durante l'apprendimento
+	 * (1 per l'apprendimento sequenziale).
+	 */
+	public MultiServer(int port, int parallelism) {
+		this(port, parallelism, Runtime.getRuntime().maxMemory() / 2);
+	}
+	
+	/**
+	 * Fa partire il server sulla porta port, con un thread per ciascuna connessione.
+	 * @param port Porta su cui il server si mette in ascolto.
+	 * @param parallelism Numero di thread con cui valutare in parallelo gli attributi durante l'apprendimento
+	 * (1 per l'apprendimento sequenziale).
+	 * @param cacheBudget Memoria massima, in byte, occupata dai training set condivisi tra i client.
+	 */
+	public MultiServer(int port, int parallelism, long cacheBudget) {
+		this(port, parallelism, cacheBudget, ServerMode.THREADS);
+	}
+	
+	/**
+	 * Fa partire il server sulla porta port
+	 * @param port Porta su cui il server si mette in ascolto.
+	 * @param parallelism Numero di thread con cui valutare in parallelo gli attributi durante l'apprendimento
+	 * (1 per l'apprendimento sequenziale).
+	 * @param cacheBudget Memoria massima, in byte, occupata dai training set condivisi tra i client.
+	 * @param mode Modalità con cui gestire le connessioni dei client.
+	 */
+	public MultiServer(int port, int parallelism, long cacheBudget, ServerMode mode) {
+		this(port, parallelism, cacheBudget, mode, null);
+	}
+	
+	/**
+	 * Fa partire il server sulla porta port, consentendo ai client di acquisire training set dai file di dataDirectory
+	 * (vedi TrainingSetCache.resolve()).
+	 * @param port Porta su cui il server si mette in ascolto.
+	 * @param parallelism Numero di thread con cui valutare in parallelo gli attributi durante l'apprendimento
+	 * (1 per l'apprendimento sequenziale).
+	 * @param cacheBudget Memoria massima, in byte, occupata dai training set condivisi tra i client.
+	 * @param mode Modalità con cui gestire le connessioni dei client.
+	 * @param dataDirectory Directory dei file di dati (null se non è consentito acquisire training set da file).
+	 */
+	public MultiServer(int port, int parallelism, long cacheBudget, ServerMode mode, Path dataDirectory) {
+		this(port, parallelism, cacheBudget, mode, dataDirectory, LearningMode.SORTING);
+	}
+	
+	/**
+	 * Fa partire il server sulla porta port, apprendendo gli alberi di regressione secondo la modalità learningMode
+	 * (vedi LearningMode).
+	 * @param port Porta su cui il server si mette in ascolto.
+	 * @param parallelism Numero di thread con cui valutare in parallelo gli attributi durante l'apprendimento
+	 * (1 per l'apprendimento sequenziale).
+	 * @param cacheBudget Memoria massima, in byte, occupata dai training set condivisi tra i client.
+	 * @param mode Modalità con cui gestire le connessioni dei client.
+	 * @param dataDirectory Directory dei file di dati (null se non è consentito acquisire training set da file).
+	 * @param learningMode Modalità con cui organizzare gli esempi durante l'apprendimento.
+	 */
+	public MultiServer(int port, int parallelism, long cacheBudget, ServerMode mode, Path dataDirectory, LearningMode learningMode) {
 		PORT = port;
+		this.mode = mode;
+		admission = mode == ServerMode.VIRTUAL_THREADS 
+				? new AdmissionController(AdmissionController.defaultPermits(), AdmissionController.DEFAULT_TIMEOUT) : null;
+		trainingSets = new TrainingSetCache(cacheBudget, dataDirectory);
+		learningOptions = new LearningOptions(learningMode, LearningOptions.DEFAULT_NUMBER_OF_BINS,
+				parallelism > 1 ? new ForkJoinPool(parallelism) : null);
 		run();
 	}
 	
 	/**
 	 * Istanzia un oggetto istanza della classe ServerSocket che pone in attesa di richiesta di
 	 * connessioni da parte del client. Ad ogni nuova richiesta di connessione si istanzia ServerOneClient.
+	 * Ciascuna sessione viene eseguita su un thread di piattaforma o, in modalità VIRTUAL_THREADS, su un thread virtuale.
+	 * In modalità NIO le connessioni vengono invece gestite da NioServer.
 	 */
 	private void run() {
+		if(mode == ServerMode.NIO) {
+			try {
+				new NioServer(PORT, learningOptions, trainingSets, models).run();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			return;
+		}
+		
 		ServerSocket serverSocket = null;
 		Socket socket = null;
 		
@@ -39,7 +149,11 @@ public class MultiServer {
 				socket = serverSocket.accept();
 				System.out.println("Connessione con " + socket.getInetAddress() + " stabilita");
 				
-				new ServerOneClient(socket);
+				ServerOneClient client = new ServerOneClient(socket, learningOptions, trainingSets, models, admission);
+				if(mode == ServerMode.VIRTUAL_THREADS)
+					Thread.ofVirtual().start(client);
+				else
+					new Thread(client).start();
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
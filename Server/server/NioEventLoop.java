@@ -0,0 +1,139 @@
+package server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Ciclo di eventi di NioServer: un thread che, attraverso un Selector, esegue l'I/O non bloccante di un insieme
+ * di sessioni (NioSession). Le operazioni richieste da altri thread vengono accodate con execute() ed eseguite
+ * dal ciclo, per cui le SelectionKey sono modificate solo dal thread del ciclo.
+ */
+class NioEventLoop implements Runnable {
+	/**
+	 * Selector su cui sono registrati i canali del ciclo.
+	 */
+	private final Selector selector;
+	
+	/**
+	 * Operazioni da eseguire sul thread del ciclo.
+	 */
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	
+	/**
+	 * Costruttore di classe.
+	 * @throws IOException
+	 */
+	NioEventLoop() throws IOException {
+		selector = Selector.open();
+	}
+	
+	/**
+	 * Accoda task per l'esecuzione sul thread del ciclo e risveglia il ciclo.
+	 * @param task Operazione da eseguire.
+	 */
+	void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+	
+	/**
+	 * Registra sul ciclo il canale di ascolto del server, le cui nuove connessioni vengono passate a server.
+	 * @param serverChannel Canale di ascolto in modalità non bloccante.
+	 * @param server Server a cui passare le connessioni accettate.
+	 */
+	void listen(ServerSocketChannel serverChannel, NioServer server) {
+		execute(() -> {
+			try {
+				serverChannel.register(selector, SelectionKey.OP_ACCEPT, server);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+	
+	/**
+	 * Registra sul ciclo una nuova sessione per la connessione channel.
+	 * @param channel Connessione accettata, in modalità non bloccante.
+	 * @param server Server a cui appartiene la sessione.
+	 */
+	void register(SocketChannel channel, NioServer server) {
+		execute(() -> {
+			try {
+				new NioSession(channel, this, server).register(selector);
+			} catch (IOException e) {
+				System.out.println(e.toString());
+				try {
+					channel.close();
+				} catch (IOException e1) {
+					System.out.println(e1.toString());
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Annulla la registrazione della chiave key e chiude il suo canale; per il canale di una sessione viene anche
+	 * sbloccata un'eventuale lettura in corso (vedi NioSession.closeChannel()).
+	 * @param key Chiave del canale da chiudere.
+	 */
+	private static void close(SelectionKey key) {
+		if(key.attachment() instanceof NioSession) {
+			((NioSession) key.attachment()).closeChannel();
+			return;
+		}
+		
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+			System.out.println(e.toString());
+		}
+	}
+	
+	/**
+	 * Attende gli eventi dei canali registrati e li gestisce, eseguendo tra un'attesa e l'altra le operazioni accodate.
+	 */
+	public void run() {
+		while(true) {
+			try {
+				selector.select();
+				
+				Runnable task;
+				while((task = tasks.poll()) != null)
+					task.run();
+				
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid())
+						continue;
+					
+					try {
+						if(key.isAcceptable())
+							((NioServer) key.attachment()).accept((ServerSocketChannel) key.channel());
+						else {
+							NioSession session = (NioSession) key.attachment();
+							if(key.isReadable())
+								session.onReadable();
+							if(key.isValid() && key.isWritable())
+								session.onWritable();
+						}
+					} catch (RuntimeException e) {
+						//un errore inatteso su un canale non deve fermare il ciclo, che serve anche gli altri canali
+						e.printStackTrace();
+						close(key);
+					}
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
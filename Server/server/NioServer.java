@@ -0,0 +1,156 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import tree.LearningOptions;
+
+/**
+ * Server basato su I/O non bloccante (java.nio): pochi cicli di eventi (NioEventLoop) gestiscono le connessioni
+ * di tutti i client, per cui una sessione inattiva non occupa alcun thread. Quando arrivano i byte di un'istruzione,
+ * la sessione viene inoltrata a un pool limitato di thread che la legge e la esegue (vedi ServerOneClient.readCommand()
+ * ed execute()); l'acquisizione dei training set e l'apprendimento (istruzioni 0 e 1) vengono eseguiti su un pool
+ * separato, così che non ritardino le altre istruzioni. La semantica delle istruzioni resta quella di ServerOneClient.
+ */
+class NioServer {
+	/**
+	 * Numero di cicli di eventi.
+	 */
+	static final int EVENT_LOOPS = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+	
+	/**
+	 * Numero di thread che eseguono le istruzioni diverse da 0 e 1. Le istruzioni possono attendere i byte di
+	 * richieste ricevute in parte (vedi NioSession), per cui il pool è più ampio del numero di processori.
+	 */
+	static final int REQUEST_WORKERS = 4 * Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Numero di thread che eseguono le istruzioni 0 e 1 (ciascun apprendimento può a sua volta usare il pool
+	 * delle opzioni di apprendimento).
+	 */
+	static final int LEARNING_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	
+	/**
+	 * Porta dove è in ascolto il server.
+	 */
+	private final int port;
+	
+	/**
+	 * Opzioni di apprendimento condivise da tutti i client.
+	 */
+	private final LearningOptions learningOptions;
+	
+	/**
+	 * Cache dei training set condivisa da tutti i client.
+	 */
+	private final TrainingSetCache trainingSets;
+	
+	/**
+	 * Registro degli alberi di regressione salvati, condiviso da tutti i client.
+	 */
+	private final ModelRegistry models;
+	
+	/**
+	 * Cicli di eventi tra cui vengono ripartite le connessioni; il primo gestisce anche il canale di ascolto.
+	 */
+	private final NioEventLoop[] loops = new NioEventLoop[EVENT_LOOPS];
+	
+	/**
+	 * Pool che esegue le istruzioni diverse da 0 e 1.
+	 */
+	private final ExecutorService requestPool = Executors.newFixedThreadPool(REQUEST_WORKERS);
+	
+	/**
+	 * Pool che esegue le istruzioni 0 e 1.
+	 */
+	private final ExecutorService learningPool = Executors.newFixedThreadPool(LEARNING_WORKERS);
+	
+	/**
+	 * Ciclo a cui assegnare la prossima connessione (usato solo dal thread del primo ciclo).
+	 */
+	private int nextLoop;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param port Porta su cui il server si mette in ascolto.
+	 * @param learningOptions Opzioni di apprendimento condivise da tutti i client.
+	 * @param trainingSets Cache dei training set condivisa da tutti i client.
+	 * @param models Registro degli alberi di regressione salvati condiviso da tutti i client.
+	 * @throws IOException
+	 */
+	NioServer(int port, LearningOptions learningOptions, TrainingSetCache trainingSets, ModelRegistry models) throws IOException {
+		this.port = port;
+		this.learningOptions = learningOptions;
+		this.trainingSets = trainingSets;
+		this.models = models;
+		for(int i = 0; i < loops.length; i++)
+			loops[i] = new NioEventLoop();
+	}
+	
+	/**
+	 * Apre il canale di ascolto e avvia i cicli di eventi; il primo ciclo viene eseguito dal thread chiamante.
+	 * @throws IOException
+	 */
+	void run() throws IOException {
+		ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		loops[0].listen(serverChannel, this);
+		
+		for(int i = 1; i < loops.length; i++) {
+			Thread thread = new Thread(loops[i], "nio-loop-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		System.out.println("Server started! (NIO, " + loops.length + " cicli di eventi)");
+		loops[0].run();
+	}
+	
+	/**
+	 * Accetta le connessioni in attesa sul canale serverChannel e le ripartisce tra i cicli di eventi.
+	 * @param serverChannel Canale di ascolto.
+	 * @throws IOException
+	 */
+	void accept(ServerSocketChannel serverChannel) throws IOException {
+		SocketChannel channel;
+		while((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			System.out.println("Connessione con " + channel.socket().getInetAddress() + " stabilita");
+			loops[Math.floorMod(nextLoop++, loops.length)].register(channel, this);
+		}
+	}
+	
+	/**
+	 * Crea la sessione applicativa di un client, che legge da input e scrive su output.
+	 * @param peer Descrizione del client.
+	 * @param input Stream dei byte ricevuti dal client.
+	 * @param output Stream dei byte destinati al client.
+	 * @return Sessione del client.
+	 * @throws IOException
+	 */
+	ServerOneClient newClient(String peer, InputStream input, OutputStream output) throws IOException {
+		return new ServerOneClient(peer, input, output, learningOptions, trainingSets, models, null);
+	}
+	
+	/**
+	 * Restituisce il pool che esegue le istruzioni diverse da 0 e 1.
+	 * @return Pool delle istruzioni.
+	 */
+	ExecutorService getRequestPool() {
+		return requestPool;
+	}
+	
+	/**
+	 * Restituisce il pool che esegue le istruzioni 0 e 1.
+	 * @return Pool dell'apprendimento.
+	 */
+	ExecutorService getLearningPool() {
+		return learningPool;
+	}
+}
@@ -0,0 +1,486 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Sessione di un client gestita da NioServer. Il ciclo di eventi legge i byte ricevuti in un buffer (SessionInput) e
+ * invia quelli prodotti dalla sessione (SessionOutput); quando ci sono byte da elaborare e la sessione è inattiva,
+ * la lettura e l'esecuzione della prossima istruzione vengono affidate a un pool di NioServer. Una sessione esegue
+ * una sola istruzione alla volta, nell'ordine di arrivo. Entrambi i buffer sono limitati: oltre MAX_BUFFERED_BYTES
+ * byte ricevuti il ciclo smette di leggere dal canale, mentre chi scrive attende che il ciclo invii i byte accodati.
+ * Un worker del pool attende i byte del client al più IO_TIMEOUT millisecondi, dopodiché la sessione viene chiusa:
+ * un client che invia solo parte di un'istruzione non può trattenere indefinitamente un worker. Le scelte della
+ * predizione interattiva non sono soggette a tale limite, poiché la sessione le attende da inattiva (vedi serve()).
+ */
+class NioSession {
+	/**
+	 * Dimensione del buffer di lettura dal canale.
+	 */
+	private static final int READ_BUFFER_SIZE = 8192;
+	
+	/**
+	 * Numero massimo di byte accodati in ciascuno dei due buffer della sessione.
+	 */
+	static final int MAX_BUFFERED_BYTES = 1 << 20;
+	
+	/**
+	 * Tempo massimo (in millisecondi) per cui una lettura o una scrittura della sessione attende il client.
+	 */
+	static final long IO_TIMEOUT = 60000;
+	
+	/**
+	 * Connessione con il client.
+	 */
+	private final SocketChannel channel;
+	
+	/**
+	 * Ciclo di eventi che gestisce la connessione.
+	 */
+	private final NioEventLoop loop;
+	
+	/**
+	 * Server a cui appartiene la sessione.
+	 */
+	private final NioServer server;
+	
+	/**
+	 * Byte ricevuti dal client e non ancora letti dalla sessione.
+	 */
+	private final SessionInput input = new SessionInput();
+	
+	/**
+	 * Byte prodotti dalla sessione e non ancora inviati al client.
+	 */
+	private final SessionOutput output = new SessionOutput();
+	
+	/**
+	 * Sessione applicativa del client.
+	 */
+	private final ServerOneClient client;
+	
+	/**
+	 * Descrizione del client.
+	 */
+	private final String peer;
+	
+	/**
+	 * Buffer di lettura dal canale, usato solo dal ciclo di eventi.
+	 */
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+	
+	/**
+	 * Chiave di registrazione del canale sul Selector del ciclo.
+	 */
+	private SelectionKey key;
+	
+	/**
+	 * true mentre un'istruzione della sessione è in esecuzione su un pool.
+	 */
+	private boolean busy;
+	
+	/**
+	 * true quando la sessione è terminata: il canale viene chiuso dopo aver inviato i byte rimasti.
+	 */
+	private boolean closing;
+	
+	/**
+	 * Costruttore di classe. Crea la sessione applicativa, il cui protocollo viene scelto all'arrivo dei primi byte.
+	 * @param channel Connessione con il client.
+	 * @param loop Ciclo di eventi che gestisce la connessione.
+	 * @param server Server a cui appartiene la sessione.
+	 * @throws IOException
+	 */
+	NioSession(SocketChannel channel, NioEventLoop loop, NioServer server) throws IOException {
+		this.channel = channel;
+		this.loop = loop;
+		this.server = server;
+		peer = channel.socket().getInetAddress().toString();
+		client = server.newClient(peer, input, output);
+	}
+	
+	/**
+	 * Registra il canale sul Selector del ciclo di eventi (da invocare sul thread del ciclo).
+	 * @param selector Selector del ciclo.
+	 * @throws IOException
+	 */
+	void register(Selector selector) throws IOException {
+		key = channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, this);
+	}
+	
+	/**
+	 * Legge i byte disponibili sul canale e, se la sessione è inattiva, ne avvia l'elaborazione.
+	 * Alla chiusura della connessione da parte del client la sessione viene terminata.
+	 */
+	void onReadable() {
+		try {
+			int n = 0;
+			while(input.available() < MAX_BUFFERED_BYTES && (n = channel.read(readBuffer)) > 0) {
+				input.append(Arrays.copyOf(readBuffer.array(), n));
+				readBuffer.clear();
+			}
+			if(input.suspendIfFull())
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			
+			if(n < 0) {
+				input.close();
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+				synchronized(this) {
+					if(busy)
+						return;
+				}
+				closeChannel();
+				return;
+			}
+		} catch (IOException e) {
+			System.out.println(e.toString());
+			closeChannel();
+			return;
+		}
+		
+		dispatchIfIdle();
+	}
+	
+	/**
+	 * Invia al client i byte in attesa; quando non ce ne sono più smette di attendere la scrivibilità del canale
+	 * e, se la sessione è terminata, chiude il canale.
+	 */
+	void onWritable() {
+		try {
+			if(!output.writeTo(channel))
+				return;
+		} catch (IOException e) {
+			System.out.println(e.toString());
+			closeChannel();
+			return;
+		}
+		
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		synchronized(this) {
+			if(!closing)
+				return;
+		}
+		closeChannel();
+	}
+	
+	/**
+	 * Se la sessione è inattiva e ci sono byte da elaborare, affida la prossima istruzione al pool delle richieste.
+	 */
+	private synchronized void dispatchIfIdle() {
+		if(busy || closing || input.available() == 0)
+			return;
+		
+		busy = true;
+		server.getRequestPool().execute(this::serve);
+	}
+	
+	/**
+	 * Legge la prossima istruzione e la esegue, spostandosi sul pool dell'apprendimento per le istruzioni 0 e 1.
+	 * I primi byte della sessione vengono invece usati per scegliere il protocollo, dopodiché la sessione torna inattiva.
+	 * Durante la predizione interattiva (istruzione 3) la sessione torna inattiva dopo ogni domanda e la scelta del
+	 * client, quando arriva, viene elaborata come una nuova richiesta: l'attesa dell'utente non occupa alcun worker.
+	 */
+	private void serve() {
+		try {
+			if(!client.isNegotiated()) {
+				client.negotiate();
+				idle();
+				return;
+			}
+			
+			if(client.isPredicting()) {
+				client.continuePrediction();
+				idle();
+				return;
+			}
+			
+			int decision = client.readCommand();
+			if(ServerOneClient.isLearningCommand(decision))
+				server.getLearningPool().execute(() -> complete(decision));
+			else if(decision == 3) {
+				client.startPrediction();
+				idle();
+			} else
+				complete(decision);
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			System.out.println(e.toString());
+			terminate();
+		}
+	}
+	
+	/**
+	 * Esegue l'istruzione decision e rende di nuovo inattiva la sessione, avviando l'istruzione successiva se è già arrivata.
+	 * @param decision Istruzione da eseguire.
+	 */
+	private void complete(int decision) {
+		try {
+			if(!client.execute(decision)) {
+				terminate();
+				return;
+			}
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			System.out.println(e.toString());
+			terminate();
+			return;
+		}
+		
+		idle();
+	}
+	
+	/**
+	 * Rende di nuovo inattiva la sessione, avviando l'istruzione successiva se è già arrivata.
+	 */
+	private void idle() {
+		synchronized(this) {
+			busy = false;
+		}
+		if(input.isClosed() && input.available() == 0)
+			terminate();
+		else
+			loop.execute(this::dispatchIfIdle);
+	}
+	
+	/**
+	 * Termina la sessione: il canale viene chiuso dal ciclo di eventi dopo aver inviato i byte rimasti.
+	 */
+	private void terminate() {
+		synchronized(this) {
+			closing = true;
+		}
+		loop.execute(this::enableWrite);
+	}
+	
+	/**
+	 * Chiede al ciclo di eventi di attendere la scrivibilità del canale (da invocare sul thread del ciclo).
+	 */
+	private void enableWrite() {
+		if(key.isValid())
+			key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+	}
+	
+	/**
+	 * Riprende la lettura dal canale sospesa da onReadable() (da invocare sul thread del ciclo).
+	 */
+	private void resumeRead() {
+		if(key.isValid() && !input.isClosed())
+			key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+	}
+	
+	/**
+	 * Chiude il canale e sblocca un'eventuale lettura o scrittura in corso della sessione.
+	 */
+	void closeChannel() {
+		input.close();
+		output.close();
+		key.cancel();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.out.println(e.toString());
+		}
+	}
+	
+	/**
+	 * Stream dei byte ricevuti dal client. La lettura attende l'arrivo di nuovi byte (o la chiusura della connessione)
+	 * al più IO_TIMEOUT millisecondi: poiché la sessione viene avviata solo quando ci sono byte disponibili, l'attesa
+	 * riguarda solo istruzioni ricevute in parte, mai il tempo di risposta dell'utente nella predizione interattiva.
+	 */
+	private class SessionInput extends InputStream {
+		/**
+		 * Blocchi di byte ricevuti e non ancora letti.
+		 */
+		private final ArrayDeque<byte[]> chunks = new ArrayDeque<byte[]>();
+		
+		/**
+		 * Posizione del prossimo byte da leggere nel primo blocco.
+		 */
+		private int offset;
+		
+		/**
+		 * Numero di byte ricevuti e non ancora letti.
+		 */
+		private int available;
+		
+		/**
+		 * true quando la connessione è stata chiusa.
+		 */
+		private boolean closed;
+		
+		/**
+		 * true mentre la lettura dal canale è sospesa perché il buffer è pieno.
+		 */
+		private boolean suspended;
+		
+		/**
+		 * Verifica se il buffer è pieno e in tal caso annota la sospensione della lettura dal canale, che verrà
+		 * ripresa quando la sessione avrà letto metà dei byte accodati.
+		 * @return true se il ciclo deve smettere di leggere dal canale.
+		 */
+		synchronized boolean suspendIfFull() {
+			if(available < MAX_BUFFERED_BYTES)
+				return false;
+			
+			suspended = true;
+			return true;
+		}
+		
+		/**
+		 * Aggiunge un blocco di byte ricevuti.
+		 * @param data Byte ricevuti.
+		 */
+		synchronized void append(byte[] data) {
+			chunks.add(data);
+			available += data.length;
+			notifyAll();
+		}
+		
+		/**
+		 * Verifica se la connessione è stata chiusa.
+		 * @return true se non arriveranno altri byte.
+		 */
+		synchronized boolean isClosed() {
+			return closed;
+		}
+		
+		public synchronized int available() {
+			return available;
+		}
+		
+		public synchronized void close() {
+			closed = true;
+			notifyAll();
+		}
+		
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+		
+		public synchronized int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0)
+				return 0;
+			
+			long deadline = System.nanoTime() + IO_TIMEOUT * 1000000;
+			while(chunks.isEmpty()) {
+				if(closed)
+					return -1;
+				long remaining = (deadline - System.nanoTime()) / 1000000;
+				if(remaining <= 0)
+					throw new SocketTimeoutException("Nessun byte ricevuto entro " + IO_TIMEOUT + " ms");
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+			
+			byte[] head = chunks.peek();
+			int n = Math.min(len, head.length - offset);
+			System.arraycopy(head, offset, b, off, n);
+			offset += n;
+			available -= n;
+			if(offset == head.length) {
+				chunks.poll();
+				offset = 0;
+			}
+			if(suspended && available < MAX_BUFFERED_BYTES / 2) {
+				suspended = false;
+				loop.execute(NioSession.this::resumeRead);
+			}
+			
+			return n;
+		}
+	}
+	
+	/**
+	 * Stream dei byte destinati al client: i byte vengono accodati e inviati dal ciclo di eventi. Quando sono accodati
+	 * MAX_BUFFERED_BYTES byte la scrittura attende (al più IO_TIMEOUT millisecondi) che il ciclo ne invii una parte.
+	 */
+	private class SessionOutput extends OutputStream {
+		/**
+		 * Blocchi di byte non ancora inviati.
+		 */
+		private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+		
+		/**
+		 * Numero di byte accodati e non ancora inviati.
+		 */
+		private int pendingBytes;
+		
+		/**
+		 * true quando la connessione è stata chiusa.
+		 */
+		private boolean closed;
+		
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+		
+		public void write(byte[] b, int off, int len) throws IOException {
+			if(len == 0)
+				return;
+			
+			boolean wasEmpty;
+			synchronized(this) {
+				long deadline = System.nanoTime() + IO_TIMEOUT * 1000000;
+				while(pendingBytes >= MAX_BUFFERED_BYTES && !closed) {
+					long remaining = (deadline - System.nanoTime()) / 1000000;
+					if(remaining <= 0)
+						throw new SocketTimeoutException("Nessun byte inviato entro " + IO_TIMEOUT + " ms");
+					try {
+						wait(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException();
+					}
+				}
+				if(closed)
+					throw new IOException("Connessione chiusa");
+				
+				wasEmpty = pending.isEmpty();
+				pending.add(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+				pendingBytes += len;
+			}
+			if(wasEmpty)
+				loop.execute(NioSession.this::enableWrite);
+		}
+		
+		/**
+		 * Invia sul canale i byte in attesa, finché il canale li accetta.
+		 * @param channel Canale su cui scrivere.
+		 * @return true se tutti i byte sono stati inviati.
+		 * @throws IOException
+		 */
+		synchronized boolean writeTo(SocketChannel channel) throws IOException {
+			while(!pending.isEmpty()) {
+				ByteBuffer head = pending.peek();
+				pendingBytes -= channel.write(head);
+				notifyAll();
+				if(head.hasRemaining())
+					return false;
+				pending.poll();
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * Annota la chiusura della connessione, sbloccando un'eventuale scrittura in attesa.
+		 */
+		public synchronized void close() {
+			closed = true;
+			notifyAll();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protocollo originale: istruzioni e messaggi sono oggetti scambiati con ObjectInputStream e ObjectOutputStream.
+ * Al termine di ogni risposta la tabella degli oggetti già inviati viene azzerata (ObjectOutputStream.reset()),
+ * così che non cresca per tutta la durata della sessione.
+ */
+class ObjectProtocol extends SessionProtocol {
+	/**
+	 * Stream per ricevere istruzioni da parte del client.
+	 */
+	private final ObjectInputStream in;
+	
+	/**
+	 * Stream per inviare messaggi al client.
+	 */
+	private final ObjectOutputStream out;
+	
+	/**
+	 * Costruttore di classe. Scrive l'intestazione dello stream out e legge quella dello stream del client.
+	 * @param input Stream dei byte inviati dal client, a partire dall'intestazione.
+	 * @param output Stream dei byte destinati al client.
+	 * @throws IOException
+	 */
+	ObjectProtocol(InputStream input, OutputStream output) throws IOException {
+		out = new ObjectOutputStream(output);
+		in = new ObjectInputStream(input);
+	}
+	
+	int readCommand() throws IOException, ClassNotFoundException {
+		return (int) in.readObject();
+	}
+	
+	String readString() throws IOException, ClassNotFoundException {
+		return (String) in.readObject();
+	}
+	
+	int readInt() throws IOException, ClassNotFoundException {
+		return (int) in.readObject();
+	}
+	
+	@SuppressWarnings("unchecked")
+	List<Map<String, Object>> readExamples() throws IOException, ClassNotFoundException {
+		return (List<Map<String, Object>>) in.readObject();
+	}
+	
+	/**
+	 * Invia message come oggetto non condiviso, per cui lo stream non ne conserva un riferimento fino al reset
+	 * (rilevante per i blocchi di ChunkWriter, che compongono risposte di grandi dimensioni).
+	 */
+	void writeString(String message) throws IOException {
+		out.writeUnshared(message);
+	}
+	
+	void writeDouble(double value) throws IOException {
+		out.writeObject(value);
+	}
+	
+	void writeDoubles(double[] values) throws IOException {
+		out.writeObject(values);
+	}
+	
+	void flush() throws IOException {
+		out.flush();
+	}
+	
+	void endResponse() throws IOException {
+		out.reset();
+		out.flush();
+	}
+	
+	void close() throws IOException {
+		out.close();
+		in.close();
+	}
+}
@@ -0,0 +1,20 @@
+package server;
+
+/**
+ * Gestisce il caso in cui un'istruzione onerosa non venga ammessa all'esecuzione perché il server
+ * è già impegnato nel numero massimo di elaborazioni contemporanee (vedi AdmissionController).
+ */
+public class ServerBusyException extends Exception {
+	/**
+	 * Default serialVersionUID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Invoca il costruttore della super-classe.
+	 * @param msg Stringa con il messaggio da passare al costruttore della super-classe.
+	 */
+	public ServerBusyException(String msg) {
+		super(msg);
+	}
+}
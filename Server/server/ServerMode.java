@@ -0,0 +1,22 @@
+package server;
+
+/**
+ * Modalità con cui il server gestisce le connessioni dei client.
+ */
+public enum ServerMode {
+	/**
+	 * Un thread (ServerOneClient) per ciascuna connessione, bloccato in lettura per tutta la sessione.
+	 */
+	THREADS,
+	
+	/**
+	 * Pochi thread di I/O non bloccante (vedi NioServer) che inoltrano le istruzioni a pool di thread limitati.
+	 */
+	NIO,
+	
+	/**
+	 * Un thread virtuale per ciascuna connessione; le istruzioni 0 e 1 passano per un controllo di ammissione
+	 * (vedi AdmissionController) che ne limita le esecuzioni contemporanee. Richiede Java 21 (Thread.ofVirtual()).
+	 */
+	VIRTUAL_THREADS
+}
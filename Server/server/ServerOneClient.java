@@ -2,34 +2,49 @@ package server;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.util.List;
+import java.util.Map;
 
 import data.Data;
 import data.TrainingDataException;
+import tree.CompiledTree;
+import tree.LearningOptions;
 import tree.RegressionTree;
 
 /**
  * Ad ogni richiesta del client viene creata un istanza di questa classe. 
- * Estende la classe Thread quindi consente di avere pi thread in esecuzione contemporaneamente. 
+ * Implementa Runnable, per cui ciascuna sessione può essere eseguita su un proprio thread (di piattaforma o virtuale)
+ * e più sessioni sono servite contemporaneamente. 
  */
 
-class ServerOneClient extends Thread{
+class ServerOneClient implements Runnable{
 	/**
-	 * Socket che permette la trasmissione e la ricezione di informazioni.
+	 * Socket che permette la trasmissione e la ricezione di informazioni (null per le sessioni gestite da NioServer).
 	 */
 	private Socket socket;
 	
-	/*
-	 * Stream per ricevere istruzioni da parte del client. 
+	/**
+	 * Descrizione del client usata nei messaggi del server.
+	 */
+	private final String peer;
+	
+	/**
+	 * Stream da cui vengono letti i byte inviati dal client.
 	 */
-	private ObjectInputStream in;
+	private final InputStream input;
 	
 	/**
-	 * Stream per inviare messaggi al server.
+	 * Stream su cui vengono scritti i byte destinati al client.
 	 */
-	private ObjectOutputStream out;
+	private final OutputStream output;
+	
+	/**
+	 * Protocollo con cui ricevere istruzioni dal client e inviargli messaggi, scelto da negotiate() (null fino ad allora).
+	 */
+	private SessionProtocol protocol;
 	
 	/**
 	 * Nome della tabella a partire dal quale viene generato il training set e poi l'albero di regressione.
@@ -47,23 +62,71 @@ class ServerOneClient extends Thread{
 	private RegressionTree regressionTree;
 	
 	/**
-	 * Costruttore di classe. Inizializza gli attributi socket, in e out. Avvia il thread.
+	 * Nodo della forma compilata di regressionTree in cui si trova la predizione interattiva in corso, -1 se nessuna.
+	 */
+	private int predictionNode = -1;
+	
+	/**
+	 * Opzioni con cui apprendere gli alberi di regressione, fissate dal server.
+	 */
+	private final LearningOptions learningOptions;
+	
+	/**
+	 * Cache dei training set condivisa con gli altri client del server.
+	 */
+	private final TrainingSetCache trainingSets;
+	
+	/**
+	 * Registro degli alberi di regressione salvati, condiviso con gli altri client del server.
+	 */
+	private final ModelRegistry models;
+	
+	/**
+	 * Controllo di ammissione delle istruzioni 0 e 1 condiviso dal server (null se le istruzioni non sono limitate).
+	 */
+	private final AdmissionController admission;
+	
+	/**
+	 * Costruttore di classe. Inizializza gli attributi della sessione (il protocollo viene scelto alla ricezione dei primi byte).
+	 * La sessione viene servita eseguendo run() su un thread.
 	 * @param socket Socket attraverso il quale il server conmunica con il client.
+	 * @param learningOptions Opzioni con cui apprendere gli alberi di regressione.
+	 * @param trainingSets Cache dei training set condivisa dal server.
+	 * @param models Registro degli alberi di regressione salvati condiviso dal server.
+	 * @param admission Controllo di ammissione delle istruzioni 0 e 1 (null per non limitarle).
 	 * @throws IOException
 	 */
-	public ServerOneClient(Socket socket) throws IOException{
+	public ServerOneClient(Socket socket, LearningOptions learningOptions, TrainingSetCache trainingSets, ModelRegistry models, AdmissionController admission) throws IOException{
+		this(socket.getInetAddress().toString(), socket.getInputStream(), socket.getOutputStream(), learningOptions, trainingSets, models, admission);
 		this.socket = socket;
-		
-		out = new ObjectOutputStream(socket.getOutputStream());
-		in = new ObjectInputStream(socket.getInputStream());
-		
-		start();
+	}
+	
+	/**
+	 * Costruttore di classe per le sessioni non associate a un thread (vedi NioServer): le istruzioni vengono
+	 * lette ed eseguite su richiesta con negotiate(), readCommand() ed execute().
+	 * @param peer Descrizione del client usata nei messaggi del server.
+	 * @param input Stream da cui leggere i byte inviati dal client.
+	 * @param output Stream su cui scrivere i byte destinati al client.
+	 * @param learningOptions Opzioni con cui apprendere gli alberi di regressione.
+	 * @param trainingSets Cache dei training set condivisa dal server.
+	 * @param models Registro degli alberi di regressione salvati condiviso dal server.
+	 * @param admission Controllo di ammissione delle istruzioni 0 e 1 (null per non limitarle).
+	 * @throws IOException
+	 */
+	ServerOneClient(String peer, InputStream input, OutputStream output, LearningOptions learningOptions, TrainingSetCache trainingSets, ModelRegistry models, AdmissionController admission) throws IOException{
+		this.peer = peer;
+		this.input = input;
+		this.output = output;
+		this.learningOptions = learningOptions;
+		this.trainingSets = trainingSets;
+		this.models = models;
+		this.admission = admission;
 	}
 	
 	/**
 	 * Riceve istruzioni da parte del client. Le istruzioni sono numeri interi che vanno da 0 a 4.
-	 * 0: in base a tableName che indica il nome della tabella, genera un training set relativo ad essa. 
-	 * Invia un "OK" al client se il trainingSet viene acquisito correttamente altrimenti verr inviata un stringa contenente la descrizione dell'eccezione.
+	 * 0: in base a tableName che indica il nome della tabella (o di un file o di un dataset generato, vedi TrainingSetCache.resolve()), genera un training set relativo ad essa. 
+	 * Invia un "OK" al client se il trainingSet viene acquisito correttamente altrimenti verrà inviata un stringa contenente la descrizione dell'eccezione.
 	 * 
 	 * 1: in base al training set acquisito in una fase precedente, viene generato l'albero di regressione.
 	 * 
@@ -75,91 +138,341 @@ class ServerOneClient extends Thread{
 	 * 
 	 * 5: il client richiede informazioni riguardanti la struttura dell'albero.
 	 * 
-	 * in tutti gli altri casi il server chiuder la connessione con il client e non sar pi in grado di ricevere istruzioni da parte di quel client.
+	 * 7: predizione di un insieme di esempi: il client invia una List di Map (nome dell'attributo, valore), una per esempio,
+	 * e riceve "OK", un array con il valore predetto per ciascun esempio e una stringa con il throughput ottenuto.
+	 * 
+	 * 8, 9: come 4 e 5, ma le regole o la struttura dell'albero vengono inviate in blocchi (vedi ChunkWriter) man mano
+	 * che vengono prodotte: il client riceve "CHUNK" seguito da un blocco di testo per ciascun blocco, quindi "OK".
 	 * 
+	 * in tutti gli altri casi il server chiuderà la connessione con il client e non sarà più in grado di ricevere istruzioni da parte di quel client.
+	 * 
+	 * Prima della prima istruzione viene scelto il protocollo della sessione (vedi SessionProtocol).
 	 */
 	public void run(){
 		try {
-			while(true) {
-				int decision = (int) in.readObject();
-			
-				try {
-					switch(decision) {
-					case 0:
-						tableName = (String) in.readObject();
-						trainingSet = dataAcquisition(tableName);
-						out.writeObject("OK");
-						break;
-						
-					case 1:
-						regressionTree = learnTreeFromTrainingSet(trainingSet, tableName);
-						out.writeObject("OK");
-						break;
-						
-					case 2:
-						tableName = (String) in.readObject();
-						regressionTree = RegressionTree.carica(tableName);
-						out.writeObject("OK");
-						break;
-						
-					case 3:
-						regressionTree.predictClass(in, out);
-						break;
-						
-					case 4:
-						out.writeObject(regressionTree.getRules());
-						out.writeObject("OK");
-						break;
-						
-					case 5:
-						out.writeObject(regressionTree.getTree());
-						out.writeObject("OK");
-						break;
-						
-					default:
-						out.close();
-						in.close();
-						System.out.println("Connessione con " + socket.getInetAddress() + " chiusa");
-						socket.close();
-						return;
-					}	
-				} catch (TrainingDataException | UnknownValueException | FileNotFoundException e) {
-					try {
-						out.writeObject(e.toString());
-					} catch (IOException e1) {
-						System.out.println(e1.toString());
-					}
-				}
-			}
+			negotiate();
+			while(execute(readCommand()));
 		} catch (ClassNotFoundException | IOException e) {
 			System.out.println(e.toString());
+			//una richiesta non valida (ad esempio un frame rifiutato) chiude la connessione anziché lasciarla in sospeso
+			if(socket != null)
+				try {
+					socket.close();
+				} catch (IOException e1) {
+					System.out.println(e1.toString());
+				}
+		}
+	}
+	
+	/**
+	 * Sceglie il protocollo della sessione in base ai primi byte inviati dal client (vedi SessionProtocol.negotiate()).
+	 * @throws IOException Se la connessione si chiude prima della scelta o il protocollo non è riconosciuto.
+	 */
+	void negotiate() throws IOException {
+		protocol = SessionProtocol.negotiate(input, output);
+		System.out.println("Protocollo di " + peer + ": " + protocol.getClass().getSimpleName());
+	}
+	
+	/**
+	 * Verifica se il protocollo della sessione è già stato scelto.
+	 * @return true se negotiate() è stato eseguito, false altrimenti.
+	 */
+	boolean isNegotiated() {
+		return protocol != null;
+	}
+	
+	/**
+	 * Legge la prossima istruzione del client.
+	 * @return Istruzione ricevuta.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	int readCommand() throws IOException, ClassNotFoundException {
+		return protocol.readCommand();
+	}
+	
+	/**
+	 * Esegue l'istruzione decision (vedi run()), leggendo gli eventuali parametri, e conclude la risposta.
+	 * Gli errori relativi all'istruzione vengono inviati al client come stringa.
+	 * @param decision Istruzione ricevuta dal client.
+	 * @return false se l'istruzione ha chiuso la connessione, true altrimenti.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	boolean execute(int decision) throws IOException, ClassNotFoundException {
+		try {
+			switch(decision) {
+			case 0:
+				tableName = protocol.readString();
+				admit(decision);
+				try {
+					trainingSet = dataAcquisition(tableName);
+				} finally {
+					dismiss();
+				}
+				protocol.writeString("OK");
+				break;
+				
+			case 1:
+				admit(decision);
+				try {
+					regressionTree = learnTreeFromTrainingSet(trainingSet, tableName);
+				} finally {
+					dismiss();
+				}
+				protocol.writeString("OK");
+				break;
+				
+			case 2:
+				tableName = protocol.readString();
+				regressionTree = models.get(tableName);
+				protocol.writeString("OK");
+				break;
+				
+			case 3:
+				//la predizione conclude da sé la risposta, attendendo qui le scelte del client
+				for(boolean done = startPrediction(); !done; done = continuePrediction());
+				return true;
+				
+			case 4:
+				protocol.writeString(regressionTree.getRules());
+				protocol.writeString("OK");
+				break;
+				
+			case 5:
+				protocol.writeString(regressionTree.getTree());
+				protocol.writeString("OK");
+				break;
+				
+			case 7:
+				predictBatch();
+				break;
+				
+			case 8:
+				writeChunks(true);
+				break;
+				
+			case 9:
+				writeChunks(false);
+				break;
+				
+			default:
+				close();
+				return false;
+			}	
+		} catch (TrainingDataException | UnknownValueException | ServerBusyException | FileNotFoundException e) {
+			protocol.writeString(e.toString());
 		}
+		
+		protocol.endResponse();
+		return true;
 	}
 	
 	/**
-	 * Acquisice un trainingSet da una tabella nel database denominata tableName.
-	 * @param tableName Nome della tabella nel database.
+	 * Verifica se l'istruzione decision richiede l'acquisizione di un training set o l'apprendimento di un albero,
+	 * ovvero un'elaborazione onerosa rispetto alle altre istruzioni.
+	 * @param decision Istruzione ricevuta dal client.
+	 * @return true per le istruzioni 0 e 1, false altrimenti.
+	 */
+	static boolean isLearningCommand(int decision) {
+		return decision == 0 || decision == 1;
+	}
+	
+	/**
+	 * Attende, se il server ne prevede uno, il permesso del controllo di ammissione per eseguire l'istruzione decision.
+	 * @param decision Istruzione da eseguire.
+	 * @throws ServerBusyException Se l'istruzione viene rifiutata.
+	 */
+	private void admit(int decision) throws ServerBusyException {
+		if(admission == null)
+			return;
+		
+		try {
+			admission.acquire(decision);
+		} catch (ServerBusyException e) {
+			System.out.println("Istruzione " + decision + " di " + peer + " rifiutata (" + admission + ")");
+			throw e;
+		}
+		System.out.println("Istruzione " + decision + " di " + peer + " ammessa (" + admission + ")");
+	}
+	
+	/**
+	 * Restituisce il permesso ottenuto con admit().
+	 */
+	private void dismiss() {
+		if(admission != null)
+			admission.release();
+	}
+	
+	/**
+	 * Chiude gli stream e, se presente, il socket della connessione con il client.
+	 * @throws IOException
+	 */
+	private void close() throws IOException {
+		protocol.close();
+		System.out.println("Connessione con " + peer + " chiusa");
+		if(socket != null)
+			socket.close();
+	}
+	
+	/**
+	 * Acquisice un trainingSet dalla sorgente denominata tableName (una tabella del database, un file o un dataset
+	 * generato, vedi TrainingSetCache.resolve()). Il training set è condiviso con gli altri client tramite la cache
+	 * del server e viene riletto solo se la sorgente è cambiata.
+	 * @param tableName Nome del training set.
 	 * @return Il trainingSet relativo alla tabella tableName
 	 * @throws TrainingDataException Eccezione che viene lanciata in caso di errori durante l'acquisizione del trainingSet.
 	 */
 	private Data dataAcquisition(String tableName) throws TrainingDataException{
-		Data trainingSet = null;
-		trainingSet = new Data(tableName);
+		Data trainingSet = trainingSets.get(tableName);
+		System.out.println("Cache dei training set: " + trainingSets);
 		
         return trainingSet;
 	}
 	
 	/**
-	 * A partire da trainingSet genera un albero di regressione.
+	 * Invia le regole (rules = true) o la struttura (rules = false) dell'albero di regressione in blocchi, seguiti da "OK".
+	 * @param rules true per le regole, false per la struttura dell'albero.
+	 * @throws UnknownValueException Se manca un albero di regressione.
+	 * @throws IOException
+	 */
+	private void writeChunks(boolean rules) throws UnknownValueException, IOException {
+		if(regressionTree == null)
+			throw new UnknownValueException("Nessun albero di regressione disponibile");
+		
+		ChunkWriter chunks = new ChunkWriter(protocol);
+		if(rules)
+			regressionTree.writeRules(chunks);
+		else
+			regressionTree.writeTree(chunks);
+		chunks.close();
+		protocol.writeString("OK");
+	}
+	
+	/**
+	 * Avvia la predizione interattiva di un esempio con la forma compilata dell'albero: per ciascun nodo di split
+	 * viene inviato "QUERY" con le informazioni dei test e si attende il ramo scelto (-1 per interrompere), fino a
+	 * raggiungere un nodo fogliare, di cui viene inviato "OK" con il valore predetto. Il metodo non attende le
+	 * risposte del client: ciascuna va passata a continuePrediction() quando arriva, senza occupare un thread nel frattempo.
+	 * @return true se la predizione è conclusa (insieme alla risposta), false se si attende la scelta del client.
+	 * @throws IOException
+	 */
+	boolean startPrediction() throws IOException {
+		predictionNode = 0;
+		return stepPrediction();
+	}
+	
+	/**
+	 * Legge la scelta del client per il nodo di split corrente e prosegue la predizione avviata da startPrediction().
+	 * Una scelta che non corrisponde a nessun ramo conclude la predizione, inviando l'errore al client.
+	 * @return true se la predizione è conclusa (insieme alla risposta), false se si attende un'altra scelta del client.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	boolean continuePrediction() throws IOException, ClassNotFoundException {
+		int answer = protocol.readInt();
+		try {
+			predictionNode = regressionTree.getCompiledTree().getChild(predictionNode, answer);
+		} catch (UnknownValueException e) {
+			protocol.writeString(e.toString());
+			return endPrediction();
+		}
+		
+		if(predictionNode < 0) {
+			protocol.writeString("Exit form prediction phase...");
+			return endPrediction();
+		}
+		return stepPrediction();
+	}
+	
+	/**
+	 * Verifica se la sessione attende la scelta del client per una predizione interattiva.
+	 * @return true se la prossima richiesta del client va passata a continuePrediction(), false altrimenti.
+	 */
+	boolean isPredicting() {
+		return predictionNode >= 0;
+	}
+	
+	/**
+	 * Invia la domanda del nodo di split corrente oppure, se il nodo è fogliare, il valore predetto.
+	 * @return true se la predizione è conclusa, false se si attende la scelta del client.
+	 * @throws IOException
+	 */
+	private boolean stepPrediction() throws IOException {
+		CompiledTree tree = regressionTree.getCompiledTree();
+		String query = tree.getQuery(predictionNode);
+		if(query != null) {
+			protocol.writeString("QUERY");
+			protocol.writeString(query);
+			protocol.flush();
+			return false;
+		}
+		
+		protocol.writeString("OK");
+		protocol.writeDouble(tree.getLeafValue(predictionNode));
+		return endPrediction();
+	}
+	
+	/**
+	 * Conclude la predizione interattiva e la relativa risposta.
+	 * @return true.
+	 * @throws IOException
+	 */
+	private boolean endPrediction() throws IOException {
+		predictionNode = -1;
+		protocol.endResponse();
+		return true;
+	}
+	
+	/**
+	 * Riceve un insieme di esempi, ciascuno descritto da una Map (nome dell'attributo, valore), e
+	 * invia "OK", i valori predetti (uno per esempio, nello stesso ordine) e il throughput ottenuto.
+	 * La predizione usa direttamente la forma compilata dell'albero, senza il dialogo di predictClass().
+	 * @throws UnknownValueException Se manca un albero di regressione o se un esempio contiene un valore non valido.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void predictBatch() throws UnknownValueException, IOException, ClassNotFoundException {
+		List<Map<String, Object>> examples = protocol.readExamples();
+		if(regressionTree == null)
+			throw new UnknownValueException("Nessun albero di regressione disponibile");
+		
+		long start = System.nanoTime();
+		CompiledTree tree = regressionTree.getCompiledTree();
+		double[] predictions = new double[examples.size()];
+		int i = 0;
+		try {
+			for(Map<String, Object> example : examples) {
+				predictions[i] = tree.predict(tree.encode(example));
+				i++;
+			}
+		} catch (UnknownValueException e) {
+			throw new UnknownValueException("Esempio " + i + ": " + e.getMessage());
+		}
+		long elapsed = Math.max(System.nanoTime() - start, 1);
+		String report = predictions.length + " esempi in " + (elapsed / 1000) + " us (" + (long) (predictions.length * 1e9 / elapsed) + " esempi/s)";
+		System.out.println("Predizione batch per " + peer + ": " + report);
+		
+		protocol.writeString("OK");
+		protocol.writeDoubles(predictions);
+		protocol.writeString(report);
+	}
+	
+	/**
+	 * A partire da trainingSet genera un albero di regressione e lo salva nel file tableName.dmp, in cui i caratteri
+	 * diversi da lettere, cifre e . , = - _ (per esempio le barre e i due punti dei nomi di file e di dataset generati,
+	 * vedi TrainingSetCache.resolve()) sono sostituiti da _.
 	 * @param trainingSet TrainingSet da cui viene estratto l'albero di regressione.
-	 * @param tableName Nome della tabella nel database.
+	 * @param tableName Nome del training set.
 	 * @return Un albero di regressione.
 	 * @throws IOException
 	 * @throws FileNotFoundException
 	 */
 	private RegressionTree learnTreeFromTrainingSet(Data trainingSet, String tableName) throws IOException, FileNotFoundException{
-		RegressionTree regressionTree = new RegressionTree(trainingSet);
-        regressionTree.salva(tableName + ".dmp");
+		RegressionTree regressionTree = new RegressionTree(trainingSet, learningOptions);
+		String fileName = tableName.replaceAll("[^\\w.,=-]", "_") + ".dmp";
+        regressionTree.salva(fileName);
+        models.put(fileName, regressionTree);
 		
 		return regressionTree;
 	}
@@ -0,0 +1,116 @@
+package server;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modella il protocollo con cui una sessione scambia messaggi con il client. Il protocollo viene scelto dai primi
+ * byte inviati dal client (vedi negotiate()): l'intestazione di un ObjectOutputStream (0xACED) seleziona il protocollo
+ * originale basato sulla serializzazione Java (ObjectProtocol), il numero magico BinaryProtocol.MAGIC il protocollo
+ * binario a frame (BinaryProtocol). Le istruzioni e i messaggi scambiati sono gli stessi nei due protocolli.
+ */
+abstract class SessionProtocol {
+	/**
+	 * Primi due byte dell'intestazione di un ObjectOutputStream.
+	 */
+	private static final int OBJECT_STREAM_MAGIC = 0xACED;
+	
+	/**
+	 * Legge i primi byte inviati dal client e crea il protocollo corrispondente.
+	 * @param input Stream dei byte inviati dal client.
+	 * @param output Stream dei byte destinati al client.
+	 * @return Protocollo della sessione.
+	 * @throws IOException Se la connessione si chiude prima della scelta o i byte ricevuti non identificano alcun protocollo.
+	 */
+	static SessionProtocol negotiate(InputStream input, OutputStream output) throws IOException {
+		PushbackInputStream pushback = new PushbackInputStream(input, Integer.BYTES);
+		byte[] header = new byte[Integer.BYTES];
+		new DataInputStream(pushback).readFully(header);
+		int magic = ((header[0] & 0xff) << 24) | ((header[1] & 0xff) << 16) | ((header[2] & 0xff) << 8) | (header[3] & 0xff);
+		
+		if(magic >>> 16 == OBJECT_STREAM_MAGIC) {
+			pushback.unread(header);
+			return new ObjectProtocol(pushback, output);
+		}
+		if(magic == BinaryProtocol.MAGIC)
+			return new BinaryProtocol(pushback, output);
+		
+		throw new IOException("Protocollo non riconosciuto: " + Integer.toHexString(magic));
+	}
+	
+	/**
+	 * Legge la prossima istruzione del client.
+	 * @return Istruzione ricevuta.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	abstract int readCommand() throws IOException, ClassNotFoundException;
+	
+	/**
+	 * Legge un parametro di tipo stringa dell'istruzione corrente.
+	 * @return Stringa ricevuta.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	abstract String readString() throws IOException, ClassNotFoundException;
+	
+	/**
+	 * Legge una risposta intera del client (per esempio il ramo scelto durante la predizione).
+	 * @return Intero ricevuto.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	abstract int readInt() throws IOException, ClassNotFoundException;
+	
+	/**
+	 * Legge un insieme di esempi, ciascuno descritto da una Map (nome dell'attributo, valore Double o String).
+	 * @return Esempi ricevuti.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	abstract List<Map<String, Object>> readExamples() throws IOException, ClassNotFoundException;
+	
+	/**
+	 * Invia una stringa al client.
+	 * @param message Stringa da inviare.
+	 * @throws IOException
+	 */
+	abstract void writeString(String message) throws IOException;
+	
+	/**
+	 * Invia un valore numerico al client.
+	 * @param value Valore da inviare.
+	 * @throws IOException
+	 */
+	abstract void writeDouble(double value) throws IOException;
+	
+	/**
+	 * Invia un array di valori numerici al client.
+	 * @param values Valori da inviare.
+	 * @throws IOException
+	 */
+	abstract void writeDoubles(double[] values) throws IOException;
+	
+	/**
+	 * Invia subito al client i messaggi scritti finora, senza concludere la risposta.
+	 * @throws IOException
+	 */
+	abstract void flush() throws IOException;
+	
+	/**
+	 * Conclude la risposta all'istruzione corrente.
+	 * @throws IOException
+	 */
+	abstract void endResponse() throws IOException;
+	
+	/**
+	 * Chiude gli stream della sessione.
+	 * @throws IOException
+	 */
+	abstract void close() throws IOException;
+}
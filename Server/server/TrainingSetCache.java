@@ -0,0 +1,238 @@
+package server;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import data.Data;
+import data.DatasetGenerator;
+import data.FileTableSource;
+import data.JdbcTableSource;
+import data.TableSource;
+import data.TrainingDataException;
+import database.TableFile;
+
+/**
+ * Cache dei training set condivisa da tutti i client del server. Il nome richiesto dal client individua la sorgente
+ * del training set (vedi resolve()): una tabella del database, un file della directory dei dati o un dataset generato.
+ * Ogni sorgente viene acquisita una sola volta
+ * anche se richiesta contemporaneamente da più client (chi arriva durante l'acquisizione ne attende l'esito) e lo
+ * stesso oggetto Data, immutabile, viene condiviso da tutte le sessioni. Una voce viene riacquisita quando
+ * l'impronta della sorgente (vedi TableSource.getFingerprint()) cambia. Quando la memoria occupata supera il budget
+ * vengono rimossi i training set usati meno di recente.
+ */
+class TrainingSetCache {
+	/**
+	 * Prefisso dei nomi che individuano un file della directory dei dati.
+	 */
+	static final String FILE_PREFIX = "file:";
+	
+	/**
+	 * Voce della cache relativa a una tabella.
+	 */
+	private static class Entry {
+		/**
+		 * Impronta della tabella al momento dell'acquisizione.
+		 */
+		private final String fingerprint;
+		
+		/**
+		 * Training set, disponibile al termine dell'acquisizione.
+		 */
+		private final CompletableFuture<Data> trainingSet = new CompletableFuture<Data>();
+		
+		/**
+		 * Memoria stimata occupata dal training set (0 finché l'acquisizione non è terminata).
+		 */
+		private long size;
+		
+		/**
+		 * Costruttore di classe.
+		 * @param fingerprint Impronta della tabella.
+		 */
+		private Entry(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+	}
+	
+	/**
+	 * Memoria massima, in byte, occupata dai training set in cache.
+	 */
+	private final long memoryBudget;
+	
+	/**
+	 * Directory da cui acquisire i training set memorizzati su file (null se non è consentito).
+	 */
+	private final Path dataDirectory;
+	
+	/**
+	 * Voci della cache indicizzate per nome di tabella, in ordine di accesso (dalla meno recente).
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	
+	/**
+	 * Memoria stimata occupata dai training set in cache.
+	 */
+	private long usedMemory;
+	
+	/**
+	 * Costruttore di classe per i server che acquisiscono i training set solo dal database e dal generatore.
+	 * @param memoryBudget Memoria massima, in byte, occupata dai training set in cache.
+	 */
+	TrainingSetCache(long memoryBudget) {
+		this(memoryBudget, null);
+	}
+	
+	/**
+	 * Costruttore di classe.
+	 * @param memoryBudget Memoria massima, in byte, occupata dai training set in cache.
+	 * @param dataDirectory Directory da cui acquisire i training set memorizzati su file (null se non è consentito).
+	 */
+	TrainingSetCache(long memoryBudget, Path dataDirectory) {
+		if(memoryBudget < 0)
+			throw new IllegalArgumentException("Budget di memoria non valido: " + memoryBudget);
+		
+		this.memoryBudget = memoryBudget;
+		this.dataDirectory = dataDirectory == null ? null : dataDirectory.toAbsolutePath().normalize();
+	}
+	
+	/**
+	 * Individua la sorgente del training set denominato name: i nomi che iniziano con DatasetGenerator.PREFIX
+	 * descrivono un dataset generato, quelli che iniziano con FILE_PREFIX un file all'interno della directory dei dati
+	 * (binario per colonne, oppure di testo con valori separati da virgole o, per l'estensione .tsv, da tabulazioni);
+	 * gli altri una tabella del database. Un dataset generato non può occupare più memoria del budget della cache
+	 * (o, se il budget è nullo, di metà della memoria massima della JVM).
+	 * @param name Nome richiesto dal client.
+	 * @return Sorgente del training set.
+	 * @throws TrainingDataException Viene lanciata se name non descrive un dataset valido o un file della directory dei dati.
+	 */
+	TableSource resolve(String name) throws TrainingDataException {
+		if(name.startsWith(DatasetGenerator.PREFIX))
+			return DatasetGenerator.parse(name, memoryBudget > 0 ? memoryBudget : Runtime.getRuntime().maxMemory() / 2);
+		
+		if(name.startsWith(FILE_PREFIX)) {
+			String fileName = name.substring(FILE_PREFIX.length());
+			if(dataDirectory == null)
+				throw new TrainingDataException("Il server non è abilitato alla lettura di file");
+			
+			Path file;
+			try {
+				file = dataDirectory.resolve(fileName).normalize();
+			} catch (InvalidPathException e) {
+				throw new TrainingDataException("Nome di file non valido: '" + fileName + "'");
+			}
+			if(!file.startsWith(dataDirectory))
+				throw new TrainingDataException("Il file '" + fileName + "' non appartiene alla directory dei dati");
+			
+			return new FileTableSource(file, fileName.endsWith(".tsv") ? '\t' : TableFile.DEFAULT_DELIMITER);
+		}
+		
+		return new JdbcTableSource(name);
+	}
+	
+	/**
+	 * Restituisce il training set denominato tableName (vedi resolve()). Se la cache contiene un training set con la stessa
+	 * impronta della sorgente viene restituito quello, altrimenti la sorgente viene acquisita (una sola volta
+	 * per tutti i client che la richiedono nel frattempo).
+	 * @param tableName Nome del training set.
+	 * @return Training set relativo alla tabella tableName.
+	 * @throws TrainingDataException Eccezione lanciata in caso di errori durante l'acquisizione del training set.
+	 */
+	Data get(String tableName) throws TrainingDataException {
+		TableSource source = resolve(tableName);
+		String fingerprint = source.getFingerprint();
+		Entry entry;
+		boolean loader = false;
+		
+		synchronized(this) {
+			entry = entries.get(tableName);
+			if(entry == null || !entry.fingerprint.equals(fingerprint)) {
+				if(entry != null)
+					remove(tableName, entry);
+				entry = new Entry(fingerprint);
+				entries.put(tableName, entry);
+				loader = true;
+			}
+		}
+		
+		if(loader)
+			load(tableName, source, entry);
+		
+		try {
+			return entry.trainingSet.join();
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof TrainingDataException)
+				throw (TrainingDataException) e.getCause();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Acquisisce il training set tableName dalla sorgente source e completa la voce entry. In caso di errore, compresi
+	 * gli Error come OutOfMemoryError, la voce viene rimossa, così che la richiesta successiva ritenti l'acquisizione,
+	 * e viene completata con una TrainingDataException, così che nessun client resti in attesa.
+	 * @param tableName Nome del training set.
+	 * @param source Sorgente del training set.
+	 * @param entry Voce da completare.
+	 */
+	private void load(String tableName, TableSource source, Entry entry) {
+		Data trainingSet;
+		try {
+			trainingSet = new Data(source);
+		} catch (Throwable e) {
+			synchronized(this) {
+				remove(tableName, entry);
+			}
+			entry.trainingSet.completeExceptionally(e instanceof TrainingDataException ? e
+					: new TrainingDataException("Acquisizione del training set '" + tableName + "' fallita: " + e));
+			return;
+		}
+		
+		synchronized(this) {
+			if(entries.get(tableName) == entry) {
+				entry.size = trainingSet.getMemoryFootprint();
+				usedMemory += entry.size;
+				evict();
+			}
+		}
+		entry.trainingSet.complete(trainingSet);
+	}
+	
+	/**
+	 * Rimuove i training set usati meno di recente finché la memoria occupata non rientra nel budget.
+	 * Le voci in corso di acquisizione non vengono rimosse.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while(usedMemory > memoryBudget && it.hasNext()) {
+			Entry entry = it.next().getValue();
+			if(entry.size > 0) {
+				usedMemory -= entry.size;
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Rimuove la voce entry del training set tableName, se è ancora quella presente in cache.
+	 * @param tableName Nome del training set.
+	 * @param entry Voce da rimuovere.
+	 */
+	private void remove(String tableName, Entry entry) {
+		if(entries.get(tableName) == entry) {
+			entries.remove(tableName);
+			usedMemory -= entry.size;
+		}
+	}
+	
+	/**
+	 * Restituisce una descrizione dello stato della cache.
+	 */
+	public synchronized String toString() {
+		return entries.size() + " training set, " + (usedMemory >> 20) + " MB su " + (memoryBudget >> 20) + " MB";
+	}
+}
@@ -0,0 +1,433 @@
+package tree;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import data.Attribute;
+import data.ContinuousAttribute;
+import data.DiscreteAttribute;
+import server.UnknownValueException;
+
+/**
+ * Forma compilata di un albero di regressione, usata da tutte le fasi di predizione. I nodi sono disposti in
+ * ampiezza in array paralleli di tipi primitivi (i figli di ciascun nodo occupano posizioni consecutive) e
+ * non contengono le informazioni usate solo durante l'apprendimento (esempi coperti, varianze, identificativi),
+ * per cui la predizione di un esempio è un ciclo che scorre gli array senza attraversare oggetti.
+ */
+public class CompiledTree {
+	/**
+	 * Attributi indipendenti indicizzati per indice dell'attributo (null per gli attributi non usati dall'albero).
+	 */
+	private final Attribute[] attributes;
+	
+	/**
+	 * Indice dell'attributo su cui è definito lo split di ciascun nodo, -1 per i nodi fogliari.
+	 */
+	private final int[] splitAttribute;
+	
+	/**
+	 * Posizione del primo figlio di ciascun nodo di split.
+	 */
+	private final int[] firstChild;
+	
+	/**
+	 * Numero di figli di ciascun nodo (0 per i nodi fogliari).
+	 */
+	private final int[] numberOfChildren;
+	
+	/**
+	 * Soglia degli split continui: il primo figlio copre i valori minori o uguali, il secondo quelli maggiori.
+	 */
+	private final double[] threshold;
+	
+	/**
+	 * Per i figli di uno split discreto, codice del valore (vedi DiscreteAttribute.getCode()) che individua il ramo.
+	 */
+	private final int[] branchCode;
+	
+	/**
+	 * Valore predetto da ciascun nodo fogliare.
+	 */
+	private final double[] leafValue;
+	
+	/**
+	 * Costruttore di classe. Compila l'albero tree visitandolo in ampiezza.
+	 * @param tree Albero di regressione da compilare.
+	 */
+	CompiledTree(RegressionTree tree) {
+		List<RegressionTree> nodes = breadthFirst(tree);
+		int maxAttributeIndex = -1;
+		for(RegressionTree current : nodes)
+			if(current.getRoot() instanceof SplitNode)
+				maxAttributeIndex = Math.max(maxAttributeIndex, ((SplitNode) current.getRoot()).getAttribute().getIndex());
+		
+		int size = nodes.size();
+		attributes = new Attribute[maxAttributeIndex + 1];
+		splitAttribute = new int[size];
+		firstChild = new int[size];
+		numberOfChildren = new int[size];
+		threshold = new double[size];
+		branchCode = new int[size];
+		leafValue = new double[size];
+		
+		int next = 1;
+		for(int i = 0; i < size; i++) {
+			Node root = nodes.get(i).getRoot();
+			if(root instanceof LeafNode) {
+				splitAttribute[i] = -1;
+				leafValue[i] = ((LeafNode) root).getPredictedClassValue();
+			}
+			else {
+				SplitNode split = (SplitNode) root;
+				Attribute attribute = split.getAttribute();
+				attributes[attribute.getIndex()] = attribute;
+				splitAttribute[i] = attribute.getIndex();
+				firstChild[i] = next;
+				numberOfChildren[i] = split.getNumberOfChildren();
+				if(attribute instanceof ContinuousAttribute)
+					threshold[i] = (Double) split.getSplitInfo(0).getSplitValue();
+				else
+					for(int c = 0; c < numberOfChildren[i]; c++)
+						branchCode[next + c] = ((DiscreteAttribute) attribute).getCode(split.getSplitInfo(c).getSplitValue());
+				next += numberOfChildren[i];
+			}
+		}
+	}
+	
+	/**
+	 * Costruttore di classe. Inizializza l'albero con array già compilati (vedi ModelFile).
+	 * @param attributes Attributi indipendenti indicizzati per indice dell'attributo.
+	 * @param splitAttribute Indice dell'attributo di split di ciascun nodo (-1 per i nodi fogliari).
+	 * @param firstChild Posizione del primo figlio di ciascun nodo.
+	 * @param numberOfChildren Numero di figli di ciascun nodo.
+	 * @param threshold Soglia degli split continui.
+	 * @param branchCode Codice del valore che individua ciascun ramo discreto.
+	 * @param leafValue Valore predetto da ciascun nodo fogliare.
+	 */
+	CompiledTree(Attribute[] attributes, int[] splitAttribute, int[] firstChild, int[] numberOfChildren, double[] threshold, int[] branchCode, double[] leafValue) {
+		this.attributes = attributes;
+		this.splitAttribute = splitAttribute;
+		this.firstChild = firstChild;
+		this.numberOfChildren = numberOfChildren;
+		this.threshold = threshold;
+		this.branchCode = branchCode;
+		this.leafValue = leafValue;
+	}
+	
+	/**
+	 * Restituisce i sotto-alberi di tree (tree compreso) in ordine di visita in ampiezza, che è l'ordine
+	 * in cui i nodi sono disposti negli array.
+	 * @param tree Albero di regressione.
+	 * @return Sotto-alberi di tree in ampiezza.
+	 */
+	static List<RegressionTree> breadthFirst(RegressionTree tree) {
+		List<RegressionTree> nodes = new ArrayList<RegressionTree>();
+		nodes.add(tree);
+		for(int i = 0; i < nodes.size(); i++) {
+			RegressionTree current = nodes.get(i);
+			if(current.getRoot() instanceof SplitNode)
+				for(int c = 0; c < current.getRoot().getNumberOfChildren(); c++)
+					nodes.add(current.getSubtree(c));
+		}
+		
+		return nodes;
+	}
+	
+	/**
+	 * Restituisce gli attributi indipendenti usati dall'albero, indicizzati per indice dell'attributo.
+	 * @return Attributi dell'albero (null per gli attributi non usati).
+	 */
+	Attribute[] getAttributes() {
+		return attributes;
+	}
+	
+	/**
+	 * Restituisce l'indice dell'attributo di split del nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Indice dell'attributo, -1 se il nodo è fogliare.
+	 */
+	int getSplitAttribute(int node) {
+		return splitAttribute[node];
+	}
+	
+	/**
+	 * Restituisce la posizione del primo figlio del nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Posizione del primo figlio.
+	 */
+	int getFirstChild(int node) {
+		return firstChild[node];
+	}
+	
+	/**
+	 * Restituisce il numero di figli del nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Numero di figli (0 per i nodi fogliari).
+	 */
+	int getNumberOfChildren(int node) {
+		return numberOfChildren[node];
+	}
+	
+	/**
+	 * Restituisce la soglia dello split continuo del nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Soglia dello split.
+	 */
+	double getThreshold(int node) {
+		return threshold[node];
+	}
+	
+	/**
+	 * Restituisce il codice del valore che individua il ramo discreto che porta al nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Codice del valore.
+	 */
+	int getBranchCode(int node) {
+		return branchCode[node];
+	}
+	
+	/**
+	 * Restituisce il valore predetto dal nodo fogliare node.
+	 * @param node Posizione del nodo.
+	 * @return Valore predetto.
+	 */
+	public double getLeafValue(int node) {
+		return leafValue[node];
+	}
+	
+	/**
+	 * Restituisce l'operatore e il valore del test che porta dal nodo di split node al suo figlio child,
+	 * nella forma usata da regole e interrogazioni (per esempio "<= 2.5" o "= rosso").
+	 * @param node Nodo di split.
+	 * @param child Indice del figlio (a partire da 0).
+	 * @return Operatore e valore del test.
+	 */
+	String getTest(int node, int child) {
+		Attribute attribute = attributes[splitAttribute[node]];
+		if(attribute instanceof ContinuousAttribute)
+			return (child == 0 ? "<=" : ">") + " " + threshold[node];
+		
+		return "= " + ((DiscreteAttribute) attribute).getValue(branchCode[firstChild[node] + child]);
+	}
+	
+	/**
+	 * Restituisce la condizione che porta dal nodo di split node al suo figlio child, nella forma usata dalle regole
+	 * (per esempio "x <= 2.5" o "colore= rosso").
+	 * @param node Nodo di split.
+	 * @param child Indice del figlio (a partire da 0).
+	 * @return Condizione del ramo.
+	 */
+	private String getCondition(int node, int child) {
+		Attribute attribute = attributes[splitAttribute[node]];
+		
+		return attribute.getName() + (attribute instanceof ContinuousAttribute ? " " : "") + getTest(node, child);
+	}
+	
+	/**
+	 * Scrive su out le regole dell'albero, una per foglia, nello stesso formato di RegressionTree.writeRules().
+	 * @param out Destinazione delle regole.
+	 * @throws IOException Se la scrittura su out fallisce.
+	 */
+	void writeRules(Writer out) throws IOException {
+		out.write("********* RULES **********\n");
+		if(splitAttribute[0] >= 0)
+			writeRules(0, new StringBuilder(), out);
+	}
+	
+	/**
+	 * Scrive su out le regole del sotto-albero con radice node, raggiunto attraverso le condizioni current.
+	 * Il sotto-albero viene percorso in profondità con una pila esplicita, in cui ciascun nodo ricorda il prossimo
+	 * ramo da visitare e la lunghezza di current che lo precede, per cui la profondità dell'albero non incide
+	 * sulla pila delle chiamate.
+	 * @param node Posizione del nodo.
+	 * @param current Condizioni in AND che portano al nodo.
+	 * @param out Destinazione delle regole.
+	 * @throws IOException Se la scrittura su out fallisce.
+	 */
+	private void writeRules(int node, StringBuilder current, Writer out) throws IOException {
+		//per ciascun nodo del percorso: posizione, prossimo ramo da visitare e lunghezza di current che lo precede
+		Deque<int[]> path = new ArrayDeque<int[]>();
+		path.push(new int[] {node, 0, current.length()});
+		while(!path.isEmpty()) {
+			int[] branch = path.peek();
+			int position = branch[0];
+			if(splitAttribute[position] < 0)
+				out.append(current).append(" ==> Class= ").append(String.valueOf(leafValue[position])).append("\n");
+			if(splitAttribute[position] < 0 || branch[1] == numberOfChildren[position]) {
+				path.pop();
+				continue;
+			}
+			
+			int c = branch[1]++;
+			current.setLength(branch[2]);
+			if(branch[2] > 0)
+				current.append(" AND ");
+			current.append(getCondition(position, c));
+			path.push(new int[] {firstChild[position] + c, 0, current.length()});
+		}
+	}
+	
+	/**
+	 * Restituisce il numero di nodi dell'albero.
+	 * @return Numero di nodi.
+	 */
+	public int getNumberOfNodes() {
+		return splitAttribute.length;
+	}
+	
+	/**
+	 * Converte i valori di un esempio nella forma accettata da predict(): i valori continui vengono riportati
+	 * come tali, quelli discreti come codici. Sono considerati solo gli attributi usati dall'albero.
+	 * @param example Valori degli attributi indipendenti dell'esempio (Double o String), indicizzati per indice dell'attributo.
+	 * @return Esempio codificato.
+	 * @throws UnknownValueException Se manca il valore di un attributo usato dall'albero, il valore non è
+	 * del tipo atteso o non appartiene al dominio di un attributo discreto.
+	 */
+	public double[] encode(Object[] example) throws UnknownValueException {
+		double[] encoded = new double[attributes.length];
+		for(int j = 0; j < attributes.length; j++) {
+			if(attributes[j] == null)
+				continue;
+			
+			Object value = j < example.length ? example[j] : null;
+			if(attributes[j] instanceof DiscreteAttribute) {
+				int code = value == null ? -1 : ((DiscreteAttribute) attributes[j]).getCode(value);
+				if(code < 0)
+					throw new UnknownValueException("Valore '" + value + "' non ammesso per l'attributo " + attributes[j]);
+				encoded[j] = code;
+			}
+			else if(value instanceof Number)
+				encoded[j] = ((Number) value).doubleValue();
+			else
+				throw new UnknownValueException("Valore '" + value + "' non numerico per l'attributo " + attributes[j]);
+		}
+		
+		return encoded;
+	}
+	
+	/**
+	 * Converte un esempio descritto per nome degli attributi nella forma accettata da predict()
+	 * (vedi encode(Object[])). I valori di attributi non usati dall'albero vengono ignorati.
+	 * @param example Valori degli attributi indipendenti dell'esempio (Double o String), indicizzati per nome dell'attributo.
+	 * @return Esempio codificato.
+	 * @throws UnknownValueException Vedi encode(Object[]).
+	 */
+	public double[] encode(Map<String, ?> example) throws UnknownValueException {
+		Object[] values = new Object[attributes.length];
+		for(int j = 0; j < attributes.length; j++)
+			if(attributes[j] != null)
+				values[j] = example.get(attributes[j].getName());
+		
+		return encode(values);
+	}
+	
+	/**
+	 * Predice il valore di classe di un esempio codificato con encode().
+	 * @param example Esempio codificato.
+	 * @return Valore predetto.
+	 * @throws UnknownValueException Se il valore di un attributo discreto non corrisponde a nessun ramo dell'albero.
+	 */
+	public double predict(double[] example) throws UnknownValueException {
+		int node = 0;
+		while(splitAttribute[node] >= 0) {
+			double value = example[splitAttribute[node]];
+			if(attributes[splitAttribute[node]] instanceof ContinuousAttribute)
+				node = value <= threshold[node] ? firstChild[node] : firstChild[node] + 1;
+			else
+				node = findBranch(node, (int) value);
+		}
+		
+		return leafValue[node];
+	}
+	
+	/**
+	 * Restituisce il figlio del nodo di split discreto node individuato dal codice code.
+	 * @param node Nodo di split discreto.
+	 * @param code Codice di un valore dell'attributo del nodo.
+	 * @return Posizione del figlio.
+	 * @throws UnknownValueException Se nessun ramo del nodo corrisponde a code.
+	 */
+	private int findBranch(int node, int code) throws UnknownValueException {
+		int end = firstChild[node] + numberOfChildren[node];
+		for(int child = firstChild[node]; child < end; child++)
+			if(branchCode[child] == code)
+				return child;
+		
+		throw new UnknownValueException("Il valore '" + ((DiscreteAttribute) attributes[splitAttribute[node]]).getValue(code) 
+				+ "' dell'attributo " + attributes[splitAttribute[node]] + " non compare nell'albero");
+	}
+	
+	/**
+	 * Concatena le informazioni di ciascun test del nodo di split node (attributo, operatore e valore), nello
+	 * stesso formato di SplitNode.formulateQuery().
+	 * @param node Nodo di split.
+	 * @return Informazioni dei test del nodo concatenate.
+	 */
+	private String formulateQuery(int node) {
+		StringBuilder query = new StringBuilder();
+		for(int c = 0; c < numberOfChildren[node]; c++)
+			query.append(c).append(": ").append(attributes[splitAttribute[node]]).append(getTest(node, c)).append("\n");
+		
+		return query.toString();
+	}
+	
+	/**
+	 * Restituisce le informazioni dei test del nodo node da presentare all'utente durante la predizione interattiva
+	 * (la radice è il nodo 0).
+	 * @param node Posizione del nodo.
+	 * @return Informazioni dei test del nodo, null se il nodo è fogliare.
+	 */
+	public String getQuery(int node) {
+		return splitAttribute[node] < 0 ? null : formulateQuery(node);
+	}
+	
+	/**
+	 * Restituisce il figlio del nodo di split node corrispondente alla scelta answer dell'utente.
+	 * @param node Nodo di split.
+	 * @param answer Ramo scelto dall'utente (a partire da 0), -1 per interrompere la predizione.
+	 * @return Posizione del figlio, -1 se l'utente ha interrotto la predizione.
+	 * @throws UnknownValueException Se la scelta dell'utente non corrisponde a nessun ramo.
+	 */
+	public int getChild(int node, int answer) throws UnknownValueException {
+		if(answer <= -2 || answer >= numberOfChildren[node])
+			throw new UnknownValueException("The answer should be an integer between 0 and " + (numberOfChildren[node] - 1) + "!");
+		
+		return answer == -1 ? -1 : firstChild[node] + answer;
+	}
+	
+	/**
+	 * Guida la predizione interattiva di un esempio: per ciascun nodo di split scrive sullo stream out
+	 * le informazioni dei test e legge dallo stream in il ramo scelto, fino a raggiungere un nodo fogliare,
+	 * di cui scrive il valore predetto. Il protocollo è quello di RegressionTree.predictClass().
+	 * @param in Stream da cui leggere la scelta dell'utente.
+	 * @param out Stream su cui scrivere la relativa predizione.
+	 * @throws UnknownValueException Se la scelta dell'utente non corrisponde a nessun ramo.
+	 */
+	public void predictClass(ObjectInputStream in, ObjectOutputStream out) throws UnknownValueException {
+		try {
+			int node = 0;
+			String query;
+			while((query = getQuery(node)) != null) {
+				out.writeObject("QUERY");
+				out.writeObject(query);
+				node = getChild(node, (int) in.readObject());
+				if(node < 0) {
+					out.writeObject("Exit form prediction phase...");
+					return;
+				}
+			}
+			
+			out.writeObject("OK");
+			out.writeObject(leafValue[node]);
+		} catch (IOException | ClassNotFoundException e) {
+			System.out.println(e.toString());
+		}
+	}
+}
@@ -4,10 +4,9 @@ import data.Attribute;
 import data.*;
 
 import java.io.Serializable;
-import java.util.*;
 
 /**
- * Modella l'entit nodo di split relativo ad un attributo indipendente continuo.
+ * Modella l'entità nodo di split relativo ad un attributo indipendente continuo.
  * */
 class ContinuousNode extends SplitNode implements Serializable {
 
@@ -18,56 +17,98 @@ class ContinuousNode extends SplitNode implements Serializable {
 
 	/**
 	 * Istanzia un oggetto invocando il costruttore della superclasse con il parametro attribute. 
-	 * @param trainingSet Training set complessivo.
+	 * @param trainingSet Vista sul training set complessivo.
 	 * @param beginExampelIndex Indice che indica il primo estremo del sotto-insieme di training.
 	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
 	 * @param attribute Attributo continuo sul quale si definisce lo split.
+	 * @param statistics Statistiche dei valori di classe degli esempi del nodo.
 	 */
-	ContinuousNode(Data trainingSet, int beginExampelIndex, int endExampleIndex, ContinuousAttribute attribute) {
-        super(trainingSet, beginExampelIndex, endExampleIndex, attribute);
+	ContinuousNode(DataView trainingSet, int beginExampelIndex, int endExampleIndex, ContinuousAttribute attribute, NodeStatistics statistics) {
+        super(trainingSet, beginExampelIndex, endExampleIndex, attribute, statistics);
     }
 
+	/**
+	 * Istanzia un oggetto invocando il costruttore della superclasse con l'istogramma degli esempi rispetto ai bin di attribute.
+	 * @param beginExampelIndex Indice che indica il primo estremo del sotto-insieme di training.
+	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
+	 * @param attribute Attributo continuo sul quale si definisce lo split.
+	 * @param bins Discretizzazione di attribute.
+	 * @param histogram Istogramma degli esempi rispetto ai bin di bins.
+	 * @param statistics Statistiche dei valori di classe degli esempi del nodo.
+	 */
+	ContinuousNode(int beginExampelIndex, int endExampleIndex, ContinuousAttribute attribute, QuantizedAttribute bins, Histogram histogram, NodeStatistics statistics) {
+		super(beginExampelIndex, endExampleIndex, attribute, bins, histogram, statistics);
+	}
+
 	/**
 	 * Istanzia oggetti SpliInfo (definita come inner class in Splitnode) con ciascuno dei valori
 	 * continui di attribute relativamente al sotto-insieme di training corrente
 	 * (ossia la porzione di trainingSet compresa tra beginExampelIndex e endExampelIndex)
-	 * quindi popola mapSplit con tali oggetti.
+	 * quindi popola mapSplit con tali oggetti. Gli split candidati vengono valutati con un'unica
+	 * scansione degli esempi (vedi ContinuousSplitEvaluator).
 	 */
-    void setSplitInfo(Data trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute) {
-    	Double currentSplitValue = (Double) trainingSet.getExplanatoryValue(beginExampleIndex, attribute.getIndex());
-    	Double bestInfoVariance = new Double(0);
-        List<SplitInfo> bestMapSplit = null;
+    void setSplitInfo(DataView trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute) {
+    	ContinuousSplitEvaluator evaluator = new ContinuousSplitEvaluator(getStatistics());
+    	double currentSplitValue = trainingSet.getContinuousValue(beginExampleIndex, attribute.getIndex());
+    	evaluator.add(trainingSet.getClassValue(beginExampleIndex));
 
         for(int i = beginExampleIndex + 1; i <= endExampleIndex; i++) {
-        	Double value = (Double) trainingSet.getExplanatoryValue(i, attribute.getIndex());
+        	double value = trainingSet.getContinuousValue(i, attribute.getIndex());
             if(value != currentSplitValue) {
-                double localVariance = new LeafNode(trainingSet, beginExampleIndex,i - 1).getVariance();
-                double candidateSplitVariance = localVariance;
-                localVariance = new LeafNode(trainingSet, i, endExampleIndex).getVariance();
-                candidateSplitVariance += localVariance;
-
-                if(bestMapSplit == null){
-                    bestMapSplit = new ArrayList<SplitInfo>();
-                    bestMapSplit.add(new SplitInfo(currentSplitValue, beginExampleIndex, i - 1, 0, "<="));
-                    bestMapSplit.add(new SplitInfo(currentSplitValue, i, endExampleIndex, 1, ">"));
-                    bestInfoVariance = candidateSplitVariance;
-                }
-                else if(candidateSplitVariance < bestInfoVariance){
-                    bestInfoVariance = candidateSplitVariance;
-                    bestMapSplit.set(0, new SplitInfo(currentSplitValue, beginExampleIndex, i - 1, 0, "<="));
-                    bestMapSplit.set(1, new SplitInfo(currentSplitValue, i, endExampleIndex, 1, ">"));
-                }
+                evaluator.evaluate(currentSplitValue);
                 currentSplitValue = value;
             }
+            evaluator.add(trainingSet.getClassValue(i));
+        }
+
+        //tutti gli esempi hanno lo stesso valore: un unico ramo, il nodo diventerà fogliare
+        if(!evaluator.hasSplit()){
+            mapSplit.add(new SplitInfo(currentSplitValue, beginExampleIndex, endExampleIndex, 0, "<=", getStatistics()));
+            return;
         }
 
-        mapSplit = bestMapSplit;
+        int splitIndex = beginExampleIndex + evaluator.getBestLeftCount();
+        mapSplit.add(new SplitInfo(evaluator.getBestSplitValue(), beginExampleIndex, splitIndex - 1, 0, "<=", evaluator.getBestLeftStatistics()));
+        mapSplit.add(new SplitInfo(evaluator.getBestSplitValue(), splitIndex, endExampleIndex, 1, ">", evaluator.getBestRightStatistics()));
         //rimuovo split inutili (che includono tutti gli esempi nella stessa partizione)
         if((mapSplit.get(1).getBeginindex() == mapSplit.get(1).getEndIndex())){
             mapSplit.remove(1);
         }
     }
 
+	/**
+	 * Valuta gli split candidati a partire dall'istogramma: gli split sono posti tra bin non vuoti consecutivi
+	 * e il valore di split è l'estremo superiore dell'ultimo bin del ramo sinistro, per cui è un valore
+	 * effettivamente assunto dall'attributo nel training set.
+	 */
+	void setSplitInfo(Histogram histogram, QuantizedAttribute bins, int beginExampleIndex, int endExampleIndex) {
+		ContinuousSplitEvaluator evaluator = new ContinuousSplitEvaluator(histogram);
+		int lastBin = -1;
+		
+		for(int bin = 0; bin < histogram.getNumberOfBins(); bin++) {
+			if(histogram.getCount(bin) > 0) {
+				if(lastBin >= 0)
+					evaluator.evaluate(bins.getUpperBound(lastBin));
+				evaluator.add(histogram.getCount(bin), histogram.getSum(bin), histogram.getSumOfSquares(bin));
+				lastBin = bin;
+			}
+		}
+		
+		//tutti gli esempi nello stesso bin: un unico ramo, il nodo diventerà fogliare
+		if(!evaluator.hasSplit()){
+			mapSplit.add(new SplitInfo(bins.getUpperBound(lastBin), beginExampleIndex, endExampleIndex, 0, "<=", getStatistics()));
+			return;
+		}
+		
+		int splitIndex = beginExampleIndex + evaluator.getBestLeftCount();
+		mapSplit.add(new SplitInfo(evaluator.getBestSplitValue(), beginExampleIndex, splitIndex - 1, 0, "<=", evaluator.getBestLeftStatistics()));
+		mapSplit.add(new SplitInfo(evaluator.getBestSplitValue(), splitIndex, endExampleIndex, 1, ">", evaluator.getBestRightStatistics()));
+		//rimuovo split inutili (che includono tutti gli esempi nella stessa partizione)
+		if((mapSplit.get(1).getBeginindex() == mapSplit.get(1).getEndIndex())){
+			mapSplit.remove(1);
+		}
+	}
+
 	/**
 	 * Invoca il metodo della superclasse specializzandolo per i nodi discreti.
 	 */
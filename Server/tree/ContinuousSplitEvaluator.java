@@ -0,0 +1,177 @@
+package tree;
+
+/**
+ * Valuta in un'unica scansione gli split candidati di un nodo rispetto a un attributo continuo.
+ * Gli esempi vengono aggiunti in ordine crescente di valore dell'attributo; prima di ogni nuovo valore
+ * si valuta lo split che separa gli esempi già aggiunti (ramo sinistro) da quelli restanti (ramo destro).
+ * La varianza di ciascun ramo è calcolata dalle somme progressive (numero di esempi, somma e somma dei quadrati
+ * dei valori di classe), senza riscandire gli esempi.
+ */
+class ContinuousSplitEvaluator {
+	/**
+	 * Valore sottratto a ogni valore di classe per limitare gli errori di cancellazione nelle somme dei quadrati.
+	 */
+	private final double shift;
+	
+	/**
+	 * Numero di esempi del nodo.
+	 */
+	private final int count;
+	
+	/**
+	 * Somma dei valori di classe (traslati) del nodo.
+	 */
+	private final double sum;
+	
+	/**
+	 * Somma dei quadrati dei valori di classe (traslati) del nodo.
+	 */
+	private final double sumOfSquares;
+	
+	/**
+	 * Numero di esempi aggiunti al ramo sinistro.
+	 */
+	private int leftCount;
+	
+	/**
+	 * Somma dei valori di classe (traslati) del ramo sinistro.
+	 */
+	private double leftSum;
+	
+	/**
+	 * Somma dei quadrati dei valori di classe (traslati) del ramo sinistro.
+	 */
+	private double leftSumOfSquares;
+	
+	/**
+	 * Numero di esempi del ramo sinistro dello split migliore (0 se non è stato valutato alcuno split).
+	 */
+	private int bestLeftCount;
+	
+	/**
+	 * Valore di split dello split migliore.
+	 */
+	private double bestSplitValue;
+	
+	/**
+	 * Varianza dello split migliore.
+	 */
+	private double bestVariance;
+	
+	/**
+	 * Somma dei valori di classe (traslati) del ramo sinistro dello split migliore.
+	 */
+	private double bestLeftSum;
+	
+	/**
+	 * Somma dei quadrati dei valori di classe (traslati) del ramo sinistro dello split migliore.
+	 */
+	private double bestLeftSumOfSquares;
+	
+	/**
+	 * Inizializza le somme del nodo a partire dalle sue statistiche: i valori di classe sono traslati della media del nodo,
+	 * per cui la somma è nulla e la somma dei quadrati coincide con la varianza del nodo.
+	 * @param statistics Statistiche degli esempi del nodo.
+	 */
+	ContinuousSplitEvaluator(NodeStatistics statistics) {
+		shift = statistics.getMean();
+		count = statistics.getCount();
+		sum = 0;
+		sumOfSquares = statistics.getVariance();
+	}
+	
+	/**
+	 * Inizializza le somme del nodo a partire da quelle di un istogramma, i cui valori di classe sono già traslati.
+	 * In questo caso i rami vanno popolati con add(int, double, double).
+	 * @param histogram Istogramma degli esempi del nodo.
+	 */
+	ContinuousSplitEvaluator(Histogram histogram) {
+		shift = histogram.getShift();
+		count = histogram.getTotalCount();
+		sum = histogram.getTotalSum();
+		sumOfSquares = histogram.getTotalSumOfSquares();
+	}
+	
+	/**
+	 * Aggiunge un esempio al ramo sinistro.
+	 * @param classValue Valore di classe dell'esempio.
+	 */
+	void add(double classValue) {
+		double value = classValue - shift;
+		leftCount++;
+		leftSum += value;
+		leftSumOfSquares += value * value;
+	}
+	
+	/**
+	 * Aggiunge al ramo sinistro un gruppo di esempi (ad esempio un bin di un istogramma).
+	 * @param groupCount Numero di esempi del gruppo.
+	 * @param groupSum Somma dei valori di classe (traslati) del gruppo.
+	 * @param groupSumOfSquares Somma dei quadrati dei valori di classe (traslati) del gruppo.
+	 */
+	void add(int groupCount, double groupSum, double groupSumOfSquares) {
+		leftCount += groupCount;
+		leftSum += groupSum;
+		leftSumOfSquares += groupSumOfSquares;
+	}
+	
+	/**
+	 * Valuta lo split "minore uguale di splitValue" che separa gli esempi aggiunti da quelli restanti
+	 * e lo memorizza se ha varianza strettamente minore dello split migliore.
+	 * @param splitValue Valore dell'attributo che definisce lo split.
+	 */
+	void evaluate(double splitValue) {
+		int rightCount = count - leftCount;
+		double rightSum = sum - leftSum;
+		double variance = (leftSumOfSquares - leftSum * leftSum / leftCount)
+				+ ((sumOfSquares - leftSumOfSquares) - rightSum * rightSum / rightCount);
+		
+		if(bestLeftCount == 0 || variance < bestVariance) {
+			bestLeftCount = leftCount;
+			bestSplitValue = splitValue;
+			bestVariance = variance;
+			bestLeftSum = leftSum;
+			bestLeftSumOfSquares = leftSumOfSquares;
+		}
+	}
+	
+	/**
+	 * Indica se è stato valutato almeno uno split.
+	 * @return true se esiste uno split migliore, false altrimenti.
+	 */
+	boolean hasSplit() {
+		return bestLeftCount > 0;
+	}
+	
+	/**
+	 * Restituisce il numero di esempi del ramo sinistro dello split migliore.
+	 * @return Numero di esempi con valore minore uguale del valore di split.
+	 */
+	int getBestLeftCount() {
+		return bestLeftCount;
+	}
+	
+	/**
+	 * Restituisce il valore di split dello split migliore.
+	 * @return Valore dell'attributo che definisce lo split migliore.
+	 */
+	double getBestSplitValue() {
+		return bestSplitValue;
+	}
+	
+	/**
+	 * Restituisce le statistiche del ramo sinistro dello split migliore.
+	 * @return Statistiche degli esempi con valore minore uguale del valore di split.
+	 */
+	NodeStatistics getBestLeftStatistics() {
+		return NodeStatistics.fromSums(bestLeftCount, bestLeftSum, bestLeftSumOfSquares, shift);
+	}
+	
+	/**
+	 * Restituisce le statistiche del ramo destro dello split migliore.
+	 * @return Statistiche degli esempi con valore maggiore del valore di split.
+	 */
+	NodeStatistics getBestRightStatistics() {
+		return NodeStatistics.fromSums(count - bestLeftCount, sum - bestLeftSum, sumOfSquares - bestLeftSumOfSquares, shift);
+	}
+}
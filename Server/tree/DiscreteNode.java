@@ -1,12 +1,11 @@
 package tree;
 
 import java.io.Serializable;
-import java.util.Iterator;
 
 import data.*;
 
 /**
- * Modella l'entit nodo di split relativo ad un attributo indipendente discreto.
+ * Modella l'entità nodo di split relativo ad un attributo indipendente discreto.
  */
 class DiscreteNode extends SplitNode implements Serializable {
 	/**
@@ -16,13 +15,26 @@ class DiscreteNode extends SplitNode implements Serializable {
 
 	/**
 	 * Istanzia un oggetto invocando il costruttore della superclasse con il parametro attribute. 
-	 * @param trainingSet Training set complessivo.
+	 * @param trainingSet Vista sul training set complessivo.
 	 * @param beginExampelIndex Indice che indica il primo estremo del sotto-insieme di training.
 	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
 	 * @param attribute Attributo discreto sul quale si definisce lo split.
+	 * @param statistics Statistiche dei valori di classe degli esempi del nodo.
 	 */
-	DiscreteNode(Data trainingSet, int beginExampelIndex, int endExampleIndex, DiscreteAttribute attribute) {
-		super(trainingSet, beginExampelIndex, endExampleIndex, attribute);
+	DiscreteNode(DataView trainingSet, int beginExampelIndex, int endExampleIndex, DiscreteAttribute attribute, NodeStatistics statistics) {
+		super(trainingSet, beginExampelIndex, endExampleIndex, attribute, statistics);
+	}
+	
+	/**
+	 * Istanzia un oggetto invocando il costruttore della superclasse con l'istogramma degli esempi rispetto ai valori di attribute.
+	 * @param beginExampelIndex Indice che indica il primo estremo del sotto-insieme di training.
+	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
+	 * @param attribute Attributo discreto sul quale si definisce lo split.
+	 * @param histogram Istogramma con un bin per ciascun codice dei valori di attribute.
+	 * @param statistics Statistiche dei valori di classe degli esempi del nodo.
+	 */
+	DiscreteNode(int beginExampelIndex, int endExampleIndex, DiscreteAttribute attribute, Histogram histogram, NodeStatistics statistics) {
+		super(beginExampelIndex, endExampleIndex, attribute, null, histogram, statistics);
 	}
 	
 	/**
@@ -31,28 +43,56 @@ class DiscreteNode extends SplitNode implements Serializable {
 	 * (ossia la porzione di trainingSet compresa tra beginExampelIndex e endExampelIndex)
 	 * quindi popola mapSplit con tali oggetti.
 	 */
-	void setSplitInfo(Data trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute) {
-		int id = 0;
-		final Iterator<Object> itr = ((DiscreteAttribute) attribute).iterator();
-		
-		int i;
-		for(i = beginExampleIndex; (i <= endExampleIndex) && (trainingSet.getExplanatoryValue(i, attribute.getIndex())).equals(trainingSet.getExplanatoryValue(beginExampleIndex, attribute.getIndex())); i++);
-				
-		mapSplit.add(new SplitInfo(itr.next(), beginExampleIndex, i - 1, id++));
-		
-		if(i - 1 != endExampleIndex)
-			setSplitInfo(trainingSet, i, endExampleIndex, attribute, itr, id);
+	void setSplitInfo(DataView trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute) {
+		setSplitInfo(trainingSet, beginExampleIndex, endExampleIndex, (DiscreteAttribute) attribute, 0);
 	}
 
-	private void setSplitInfo(Data trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute, Iterator<Object> itr, int id) {
+	/**
+	 * Aggiunge a mapSplit lo SplitInfo relativo al valore discreto del primo esempio in [beginExampleIndex, endExampleIndex]
+	 * e procede ricorsivamente sugli esempi restanti. Le statistiche del figlio sono accumulate (come in NodeStatistics.of())
+	 * nella stessa scansione che ne delimita gli esempi, senza scandirli una seconda volta.
+	 * @param trainingSet Vista sul training set complessivo.
+	 * @param beginExampleIndex Indice che indica il primo estremo del sotto-insieme di training.
+	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
+	 * @param attribute Attributo discreto sul quale si definisce lo split.
+	 * @param id Numero del figlio associato allo split.
+	 */
+	private void setSplitInfo(DataView trainingSet, int beginExampleIndex, int endExampleIndex, DiscreteAttribute attribute, int id) {
+		int code = trainingSet.getDiscreteValueCode(beginExampleIndex, attribute.getIndex());
+		
+		double mean = 0;
+		double variance = 0;
 		int i;
-		for(i = beginExampleIndex; (i <= endExampleIndex) && (trainingSet.getExplanatoryValue(i, attribute.getIndex())).equals(trainingSet.getExplanatoryValue(beginExampleIndex, attribute.getIndex())); i++);
+		for(i = beginExampleIndex; (i <= endExampleIndex) && trainingSet.getDiscreteValueCode(i, attribute.getIndex()) == code; i++) {
+			double value = trainingSet.getClassValue(i);
+			double delta = value - mean;
+			mean += delta / (i - beginExampleIndex + 1);
+			variance += delta * (value - mean);
+		}
 
-		mapSplit.add(new SplitInfo(itr.next(), beginExampleIndex, i - 1, id++));
+		mapSplit.add(new SplitInfo(attribute.getValue(code), beginExampleIndex, i - 1, id++, new NodeStatistics(i - beginExampleIndex, mean, variance)));
 
 		if(i - 1 != endExampleIndex)
-			setSplitInfo(trainingSet, i, endExampleIndex, attribute, itr, id);
-
+			setSplitInfo(trainingSet, i, endExampleIndex, attribute, id);
+	}
+	
+	/**
+	 * Istanzia un oggetto SplitInfo per ciascun valore di attribute presente nell'istogramma, in ordine di codice,
+	 * assegnando a ciascuno un intervallo contiguo di ampiezza pari al numero di esempi del valore.
+	 * I bin dell'istogramma coincidono con i codici dei valori, per cui bins non è usato.
+	 */
+	void setSplitInfo(Histogram histogram, QuantizedAttribute bins, int beginExampleIndex, int endExampleIndex) {
+		DiscreteAttribute attribute = (DiscreteAttribute) getAttribute();
+		int begin = beginExampleIndex;
+		int id = 0;
+		
+		for(int code = 0; code < histogram.getNumberOfBins(); code++) {
+			int count = histogram.getCount(code);
+			if(count > 0) {
+				mapSplit.add(new SplitInfo(attribute.getValue(code), begin, begin + count - 1, id++, histogram.getStatistics(code)));
+				begin += count;
+			}
+		}
 	}
 	
 	/**
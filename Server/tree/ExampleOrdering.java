@@ -0,0 +1,79 @@
+package tree;
+
+import data.*;
+
+/**
+ * Organizza gli esempi del training set durante l'apprendimento di un albero: per ciascun attributo
+ * indipendente determina lo split candidato degli esempi di un nodo e, una volta scelto lo split,
+ * riorganizza gli esempi in modo che quelli di ciascun figlio occupino un intervallo contiguo.
+ */
+abstract class ExampleOrdering {
+	
+	/**
+	 * Restituisce l'ordinamento adatto alle opzioni di apprendimento options.
+	 * @param trainingSet Training set complessivo.
+	 * @param options Opzioni di apprendimento.
+	 * @return Ordinamento degli esempi di trainingSet.
+	 */
+	static ExampleOrdering create(Data trainingSet, LearningOptions options) {
+		switch(options.getMode()) {
+		case PRESORTED:
+			return new PresortedOrdering(trainingSet);
+		case HISTOGRAM:
+			return new HistogramOrdering(trainingSet, options.getNumberOfBins());
+		default:
+			return new SortingOrdering(trainingSet);
+		}
+	}
+	
+	/**
+	 * Istanzia lo SplitNode relativo ad attribute a partire da una vista in cui gli esempi [begin, end]
+	 * sono ordinati rispetto ad attribute.
+	 * @param sortedView Vista ordinata rispetto ad attribute nell'intervallo [begin, end].
+	 * @param attribute Attributo indipendente.
+	 * @param begin Indice del primo esempio del nodo.
+	 * @param end Indice dell'ultimo esempio del nodo.
+	 * @param statistics Statistiche dei valori di classe degli esempi del nodo.
+	 * @return Nodo di split relativo ad attribute.
+	 */
+	static SplitNode newSplitNode(DataView sortedView, Attribute attribute, int begin, int end, NodeStatistics statistics) {
+		if(attribute instanceof DiscreteAttribute)
+			return new DiscreteNode(sortedView, begin, end, (DiscreteAttribute) attribute, statistics);
+		
+		return new ContinuousNode(sortedView, begin, end, (ContinuousAttribute) attribute, statistics);
+	}
+	
+	/**
+	 * Determina lo split degli esempi [begin, end] rispetto ad attribute.
+	 * @param attribute Attributo indipendente.
+	 * @param begin Indice del primo esempio del nodo.
+	 * @param end Indice dell'ultimo esempio del nodo.
+	 * @param statistics Statistiche dei valori di classe degli esempi del nodo.
+	 * @return Nodo di split relativo ad attribute.
+	 */
+	abstract SplitNode determineSplitNode(Attribute attribute, int begin, int end, NodeStatistics statistics);
+	
+	/**
+	 * Riorganizza gli esempi [begin, end] in modo che gli esempi di ciascun figlio di splitNode
+	 * occupino l'intervallo indicato dal relativo SplitInfo.
+	 * @param splitNode Nodo di split scelto per gli esempi [begin, end].
+	 * @param begin Indice del primo esempio del nodo.
+	 * @param end Indice dell'ultimo esempio del nodo.
+	 */
+	abstract void split(SplitNode splitNode, int begin, int end);
+	
+	/**
+	 * Segnala che gli esempi [begin, end] formano un nodo fogliare e non verranno ulteriormente ripartiti,
+	 * per cui le eventuali informazioni mantenute per il nodo possono essere rilasciate.
+	 * @param begin Indice del primo esempio del nodo.
+	 * @param end Indice dell'ultimo esempio del nodo.
+	 */
+	void release(int begin, int end) {
+	}
+	
+	/**
+	 * Restituisce una vista su cui calcolare le informazioni dei nodi.
+	 * @return Vista sul training set.
+	 */
+	abstract DataView getView();
+}
@@ -0,0 +1,162 @@
+package tree;
+
+/**
+ * Istogramma dei valori di classe degli esempi di un nodo rispetto ai bin di un attributo indipendente:
+ * per ciascun bin memorizza il numero di esempi, la somma e la somma dei quadrati dei valori di classe.
+ * I valori di classe sono traslati di una quantità comune a tutto l'apprendimento per limitare gli errori
+ * di cancellazione nelle somme dei quadrati.
+ */
+class Histogram {
+	/**
+	 * Traslazione applicata ai valori di classe.
+	 */
+	private final double shift;
+	
+	/**
+	 * Numero di esempi per bin.
+	 */
+	private final int[] count;
+	
+	/**
+	 * Somma dei valori di classe per bin.
+	 */
+	private final double[] sum;
+	
+	/**
+	 * Somma dei quadrati dei valori di classe per bin.
+	 */
+	private final double[] sumOfSquares;
+	
+	/**
+	 * Numero complessivo di esempi.
+	 */
+	private int totalCount;
+	
+	/**
+	 * Somma complessiva dei valori di classe.
+	 */
+	private double totalSum;
+	
+	/**
+	 * Somma complessiva dei quadrati dei valori di classe.
+	 */
+	private double totalSumOfSquares;
+	
+	/**
+	 * Costruttore di classe. Inizializza un istogramma vuoto.
+	 * @param numberOfBins Numero di bin.
+	 * @param shift Traslazione applicata ai valori di classe.
+	 */
+	Histogram(int numberOfBins, double shift) {
+		this.shift = shift;
+		count = new int[numberOfBins];
+		sum = new double[numberOfBins];
+		sumOfSquares = new double[numberOfBins];
+	}
+	
+	/**
+	 * Aggiunge un esempio al bin bin.
+	 * @param bin Bin dell'esempio.
+	 * @param value Valore di classe (traslato) dell'esempio.
+	 */
+	void add(int bin, double value) {
+		double square = value * value;
+		count[bin]++;
+		sum[bin] += value;
+		sumOfSquares[bin] += square;
+		totalCount++;
+		totalSum += value;
+		totalSumOfSquares += square;
+	}
+	
+	/**
+	 * Sottrae bin per bin l'istogramma other, relativo a un sotto-insieme degli esempi di questo istogramma.
+	 * @param other Istogramma da sottrarre.
+	 */
+	void subtract(Histogram other) {
+		for(int i = 0; i < count.length; i++) {
+			count[i] -= other.count[i];
+			sum[i] -= other.sum[i];
+			sumOfSquares[i] -= other.sumOfSquares[i];
+		}
+		totalCount -= other.totalCount;
+		totalSum -= other.totalSum;
+		totalSumOfSquares -= other.totalSumOfSquares;
+	}
+	
+	/**
+	 * Restituisce la traslazione applicata ai valori di classe.
+	 * @return Valore sottratto a ciascun valore di classe.
+	 */
+	double getShift() {
+		return shift;
+	}
+	
+	/**
+	 * Restituisce le statistiche degli esempi del bin bin.
+	 * @param bin Indice del bin.
+	 * @return Statistiche dei valori di classe del bin.
+	 */
+	NodeStatistics getStatistics(int bin) {
+		return NodeStatistics.fromSums(count[bin], sum[bin], sumOfSquares[bin], shift);
+	}
+	
+	/**
+	 * Restituisce il numero di bin.
+	 * @return Numero di bin.
+	 */
+	int getNumberOfBins() {
+		return count.length;
+	}
+	
+	/**
+	 * Restituisce il numero di esempi del bin bin.
+	 * @param bin Indice del bin.
+	 * @return Numero di esempi.
+	 */
+	int getCount(int bin) {
+		return count[bin];
+	}
+	
+	/**
+	 * Restituisce la somma dei valori di classe del bin bin.
+	 * @param bin Indice del bin.
+	 * @return Somma dei valori di classe (traslati).
+	 */
+	double getSum(int bin) {
+		return sum[bin];
+	}
+	
+	/**
+	 * Restituisce la somma dei quadrati dei valori di classe del bin bin.
+	 * @param bin Indice del bin.
+	 * @return Somma dei quadrati dei valori di classe (traslati).
+	 */
+	double getSumOfSquares(int bin) {
+		return sumOfSquares[bin];
+	}
+	
+	/**
+	 * Restituisce il numero complessivo di esempi.
+	 * @return Numero di esempi.
+	 */
+	int getTotalCount() {
+		return totalCount;
+	}
+	
+	/**
+	 * Restituisce la somma complessiva dei valori di classe.
+	 * @return Somma dei valori di classe (traslati).
+	 */
+	double getTotalSum() {
+		return totalSum;
+	}
+	
+	/**
+	 * Restituisce la somma complessiva dei quadrati dei valori di classe.
+	 * @return Somma dei quadrati dei valori di classe (traslati).
+	 */
+	double getTotalSumOfSquares() {
+		return totalSumOfSquares;
+	}
+}
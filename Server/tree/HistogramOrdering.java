@@ -0,0 +1,160 @@
+package tree;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import data.*;
+
+/**
+ * Ordinamento degli esempi basato su istogrammi: ciascun attributo continuo viene discretizzato una sola volta
+ * in bin di quantili (vedi QuantizedAttribute) mentre per gli attributi discreti i bin coincidono con i codici dei valori.
+ * Per ogni nodo si costruisce, per ciascun attributo, l'istogramma dei valori di classe rispetto ai bin e
+ * lo split viene scelto tra i confini dei bin, senza ordinare gli esempi. Quando un nodo viene ripartito,
+ * gli istogrammi dei figli minori sono calcolati scandendone gli esempi mentre quello del figlio più numeroso
+ * è ottenuto sottraendo i primi dall'istogramma del padre.
+ */
+class HistogramOrdering extends ExampleOrdering {
+	/**
+	 * Vista sul training set, ripartita in modo stabile ad ogni split.
+	 */
+	private final DataView view;
+	
+	/**
+	 * Discretizzazione degli attributi continui (null per gli attributi discreti), indicizzata per indice dell'attributo.
+	 */
+	private final QuantizedAttribute[] bins;
+	
+	/**
+	 * Traslazione applicata ai valori di classe negli istogrammi (media dei valori di classe del training set).
+	 */
+	private final double shift;
+	
+	/**
+	 * Istogrammi dei nodi in attesa di essere valutati, indicizzati per indice del primo esempio del nodo.
+	 * Per ciascun nodo vi è un istogramma per attributo, calcolato al più una volta.
+	 */
+	private final Map<Integer, Histogram[]> histograms = new ConcurrentHashMap<Integer, Histogram[]>();
+	
+	/**
+	 * Figlio a cui è assegnato ciascun esempio durante la ripartizione della vista.
+	 */
+	private final int[] childOfExample;
+	
+	/**
+	 * Costruttore di classe. Discretizza gli attributi continui di trainingSet.
+	 * @param trainingSet Training set complessivo.
+	 * @param numberOfBins Numero massimo di bin per attributo continuo.
+	 */
+	HistogramOrdering(Data trainingSet, int numberOfBins) {
+		view = new DataView(trainingSet);
+		bins = new QuantizedAttribute[trainingSet.getNumberOfExplanatoryAttributes()];
+		for(int i = 0; i < bins.length; i++) {
+			Attribute attribute = trainingSet.getExplanatoryAttribute(i);
+			if(attribute instanceof ContinuousAttribute)
+				bins[i] = new QuantizedAttribute(trainingSet, (ContinuousAttribute) attribute, numberOfBins);
+		}
+		
+		double sum = 0;
+		for(int i = 0; i < trainingSet.getNumberOfExamples(); i++)
+			sum += trainingSet.getPrimitiveClassValue(i);
+		shift = sum / trainingSet.getNumberOfExamples();
+		
+		childOfExample = new int[trainingSet.getNumberOfExamples()];
+	}
+	
+	SplitNode determineSplitNode(Attribute attribute, int begin, int end, NodeStatistics statistics) {
+		Histogram[] nodeHistograms = histograms.computeIfAbsent(begin, k -> new Histogram[bins.length]);
+		int index = attribute.getIndex();
+		if(nodeHistograms[index] == null)
+			nodeHistograms[index] = buildHistogram(index, begin, end);
+		
+		if(attribute instanceof DiscreteAttribute)
+			return new DiscreteNode(begin, end, (DiscreteAttribute) attribute, nodeHistograms[index], statistics);
+		
+		return new ContinuousNode(begin, end, (ContinuousAttribute) attribute, bins[index], nodeHistograms[index], statistics);
+	}
+	
+	void split(SplitNode splitNode, int begin, int end) {
+		int numberOfChildren = splitNode.getNumberOfChildren();
+		int index = splitNode.getAttribute().getIndex();
+		
+		if(splitNode instanceof DiscreteNode) {
+			DiscreteAttribute attribute = (DiscreteAttribute) splitNode.getAttribute();
+			int[] childOfCode = new int[attribute.getNumberOfDistinctValues()];
+			for(int i = 0; i < numberOfChildren; i++)
+				childOfCode[attribute.getCode(splitNode.getSplitInfo(i).getSplitValue())] = i;
+			
+			for(int i = begin; i <= end; i++)
+				childOfExample[view.getExampleIndex(i)] = childOfCode[view.getDiscreteValueCode(i, index)];
+		}
+		else {
+			double splitValue = (Double) splitNode.getSplitInfo(0).getSplitValue();
+			for(int i = begin; i <= end; i++)
+				childOfExample[view.getExampleIndex(i)] = view.getContinuousValue(i, index) <= splitValue ? 0 : 1;
+		}
+		view.partition(begin, end, childOfExample, numberOfChildren);
+		
+		//istogrammi dei figli: si scandiscono tutti i figli tranne il più numeroso, ottenuto per sottrazione dal padre
+		Histogram[] parentHistograms = histograms.remove(begin);
+		int largest = 0;
+		for(int i = 1; i < numberOfChildren; i++)
+			if(size(splitNode.getSplitInfo(i)) > size(splitNode.getSplitInfo(largest)))
+				largest = i;
+		
+		for(int i = 0; i < numberOfChildren; i++) {
+			if(i == largest)
+				continue;
+			
+			SplitNode.SplitInfo child = splitNode.getSplitInfo(i);
+			Histogram[] childHistograms = new Histogram[bins.length];
+			for(int a = 0; a < bins.length; a++) {
+				childHistograms[a] = buildHistogram(a, child.getBeginindex(), child.getEndIndex());
+				parentHistograms[a].subtract(childHistograms[a]);
+			}
+			histograms.put(child.getBeginindex(), childHistograms);
+		}
+		histograms.put(splitNode.getSplitInfo(largest).getBeginindex(), parentHistograms);
+	}
+	
+	void release(int begin, int end) {
+		histograms.remove(begin);
+	}
+	
+	DataView getView() {
+		return view;
+	}
+	
+	/**
+	 * Costruisce l'istogramma degli esempi [begin, end] rispetto ai bin dell'attributo attributeIndex.
+	 * @param attributeIndex Indice dell'attributo indipendente.
+	 * @param begin Indice del primo esempio del nodo.
+	 * @param end Indice dell'ultimo esempio del nodo.
+	 * @return Istogramma degli esempi.
+	 */
+	private Histogram buildHistogram(int attributeIndex, int begin, int end) {
+		QuantizedAttribute quantized = bins[attributeIndex];
+		Histogram histogram;
+		
+		if(quantized == null) {
+			histogram = new Histogram(((DiscreteAttribute) view.getExplanatoryAttribute(attributeIndex)).getNumberOfDistinctValues(), shift);
+			for(int i = begin; i <= end; i++)
+				histogram.add(view.getDiscreteValueCode(i, attributeIndex), view.getClassValue(i) - shift);
+		}
+		else {
+			histogram = new Histogram(quantized.getNumberOfBins(), shift);
+			for(int i = begin; i <= end; i++)
+				histogram.add(quantized.getBin(view.getExampleIndex(i)), view.getClassValue(i) - shift);
+		}
+		
+		return histogram;
+	}
+	
+	/**
+	 * Restituisce il numero di esempi coperti da uno split.
+	 * @param splitInfo Informazioni sullo split.
+	 * @return Numero di esempi del figlio.
+	 */
+	private static int size(SplitNode.SplitInfo splitInfo) {
+		return splitInfo.getEndIndex() - splitInfo.getBeginindex() + 1;
+	}
+}
@@ -0,0 +1,82 @@
+package tree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import data.*;
+
+/**
+ * Apprendimento per livelli (vedi LevelWiseLearner) da un training set in memoria, per la modalità
+ * LearningMode.LEVEL_WISE. Gli attributi continui sono discretizzati come in HistogramOrdering (vedi QuantizedAttribute),
+ * per cui l'albero coincide con quello della modalità LearningMode.HISTOGRAM; oltre ai bin degli esempi servono
+ * solo 4 byte per esempio, perché la vista sul training set non viene mai ripartita.
+ */
+class InMemoryLearner extends LevelWiseLearner {
+	/**
+	 * Training set complessivo.
+	 */
+	private final Data trainingSet;
+	
+	/**
+	 * Numero massimo di bin per attributo continuo.
+	 */
+	private final int numberOfBins;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param trainingSet Training set complessivo.
+	 * @param options Opzioni di apprendimento, di cui si usano il numero di bin e il pool.
+	 */
+	InMemoryLearner(Data trainingSet, LearningOptions options) {
+		super(explanatoryAttributes(trainingSet), trainingSet.getNumberOfExamples(), options.getPool());
+		this.trainingSet = trainingSet;
+		numberOfBins = options.getNumberOfBins();
+	}
+	
+	/**
+	 * Restituisce gli attributi indipendenti di trainingSet.
+	 * @param trainingSet Training set complessivo.
+	 * @return Attributi indipendenti, in ordine di indice.
+	 */
+	private static Attribute[] explanatoryAttributes(Data trainingSet) {
+		Attribute[] attributes = new Attribute[trainingSet.getNumberOfExplanatoryAttributes()];
+		for(int a = 0; a < attributes.length; a++)
+			attributes[a] = trainingSet.getExplanatoryAttribute(a);
+		
+		return attributes;
+	}
+	
+	/**
+	 * Discretizza gli attributi continui, in parallelo se è disponibile un pool, e apprende l'albero.
+	 * @return Albero appreso, di cui sono avvalorati la radice e i sotto-alberi.
+	 */
+	RegressionTree learn() {
+		bins = new QuantizedAttribute[attributes.length];
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for(int a = 0; a < attributes.length; a++)
+			if(attributes[a] instanceof ContinuousAttribute) {
+				int attributeIndex = a;
+				tasks.add(() -> bins[attributeIndex] = new QuantizedAttribute(trainingSet, (ContinuousAttribute) attributes[attributeIndex], numberOfBins));
+			}
+		invokeAll(tasks);
+		
+		RegressionTree tree = new RegressionTree();
+		buildLevels(tree);
+		return tree;
+	}
+	
+	void readClassValues(int first, double[] values, int count) {
+		for(int i = 0; i < count; i++)
+			values[i] = trainingSet.getPrimitiveClassValue(first + i);
+	}
+	
+	void readAttributeValues(int attributeIndex, int first, int[] values, int count) {
+		QuantizedAttribute quantized = bins[attributeIndex];
+		if(quantized == null)
+			for(int i = 0; i < count; i++)
+				values[i] = trainingSet.getDiscreteValueCode(first + i, attributeIndex);
+		else
+			for(int i = 0; i < count; i++)
+				values[i] = quantized.getBin(first + i);
+	}
+}
@@ -1,11 +1,9 @@
 package tree;
 
-import data.*;
-
 import java.io.Serializable;
 
 /**
- * Modella l'entit nodo fogliare.
+ * Modella l'entità nodo fogliare.
  */
 class LeafNode extends Node implements Serializable {
 
@@ -21,20 +19,15 @@ class LeafNode extends Node implements Serializable {
 	
 	/**
 	 * Istanzia un oggetto invocando il costruttore della superclasse e avvalora
-	 * l'attributo predictedClassValue (come media dei valori dellattributo di classe che ricadono nella partizione
+	 * l'attributo predictedClassValue (come media dei valori dell’attributo di classe che ricadono nella partizione
 	 * ossia la porzione di trainingSet compresa tra beginExampelIndex e endExampelIndex).
-	 * @param trainingSet Training set complessivo.
 	 * @param beginExampleIndex Indice nel training set del primo esempio coperto.
 	 * @param endExampleIndex Indice nel training set dell'ultimo esempio coperto.
+	 * @param statistics Statistiche dei valori di classe degli esempi coperti.
 	 */
-	LeafNode(Data trainingSet, int beginExampleIndex, int endExampleIndex) {
-		super(trainingSet, beginExampleIndex, endExampleIndex);
-		
-		predictedClassValue = (double) 0;
-		for(int i = beginExampleIndex; i <= endExampleIndex; i++)
-			predictedClassValue += trainingSet.getClassValue(i);
-		
-		predictedClassValue = predictedClassValue / (endExampleIndex - beginExampleIndex + 1);
+	LeafNode(int beginExampleIndex, int endExampleIndex, NodeStatistics statistics) {
+		super(beginExampleIndex, endExampleIndex, statistics);
+		predictedClassValue = statistics.getMean();
 	}
 	
 	/**
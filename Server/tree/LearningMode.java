@@ -0,0 +1,33 @@
+package tree;
+
+/**
+ * Modalità con cui l'albero di regressione organizza gli esempi durante l'apprendimento.
+ */
+public enum LearningMode {
+	/**
+	 * Per ciascun nodo gli esempi vengono ordinati rispetto a ogni attributo indipendente.
+	 */
+	SORTING,
+	
+	/**
+	 * Gli esempi vengono ordinati una sola volta rispetto a ciascun attributo indipendente; ad ogni split
+	 * le liste ordinate vengono ripartite in modo stabile tra i nodi figli (in tempo lineare).
+	 * Richiede una permutazione degli esempi per ogni attributo.
+	 */
+	PRESORTED,
+	
+	/**
+	 * Split approssimati: ciascun attributo continuo viene discretizzato una sola volta in intervalli (bin) di quantili
+	 * e gli split di ogni nodo sono valutati sugli istogrammi dei bin anziché sugli esempi ordinati.
+	 * L'istogramma di un figlio è ottenuto sottraendo dall'istogramma del padre quelli dei fratelli.
+	 */
+	HISTOGRAM,
+	
+	/**
+	 * Split approssimati come in HISTOGRAM, ma l'albero viene costruito un livello alla volta anziché ricorsivamente:
+	 * ad ogni livello una sola scansione sequenziale degli esempi, guidata dal nodo a cui è assegnato ciascun esempio,
+	 * accumula gli istogrammi di tutti i nodi del livello (vedi LevelWiseLearner). Gli esempi non vengono riordinati
+	 * e l'albero appreso coincide con quello di HISTOGRAM.
+	 */
+	LEVEL_WISE
+}
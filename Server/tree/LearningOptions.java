@@ -0,0 +1,124 @@
+package tree;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Modella le opzioni di un processo di apprendimento di un albero di regressione.
+ */
+public class LearningOptions {
+	/**
+	 * Numero di bin predefinito per le modalità LearningMode.HISTOGRAM e LearningMode.LEVEL_WISE.
+	 */
+	public static final int DEFAULT_NUMBER_OF_BINS = 255;
+	
+	/**
+	 * Numero minimo predefinito di esempi di un sotto-albero perché sia appreso come task parallelo.
+	 */
+	public static final int DEFAULT_PARALLEL_SUBTREE_CUTOFF = 10000;
+	
+	/**
+	 * Numero massimo di bin per attributo continuo.
+	 */
+	public static final int MAX_NUMBER_OF_BINS = Short.MAX_VALUE;
+	
+	/**
+	 * Modalità con cui organizzare gli esempi durante l'apprendimento.
+	 */
+	private final LearningMode mode;
+	
+	/**
+	 * Numero di bin di quantili in cui discretizzare ciascun attributo continuo (solo per LearningMode.HISTOGRAM e LearningMode.LEVEL_WISE).
+	 */
+	private final int numberOfBins;
+	
+	/**
+	 * Pool su cui valutare in parallelo gli attributi candidati di ciascun nodo e apprendere
+	 * i sotto-alberi (null per l'apprendimento sequenziale).
+	 */
+	private final ForkJoinPool pool;
+	
+	/**
+	 * Numero minimo di esempi di un sotto-albero perché sia appreso come task parallelo; i sotto-alberi più piccoli
+	 * sono appresi sequenzialmente dal thread che ha appreso il padre.
+	 */
+	private final int parallelSubtreeCutoff;
+	
+	/**
+	 * Costruttore di classe. Usa il numero di bin predefinito.
+	 * @param mode Modalità di apprendimento.
+	 */
+	public LearningOptions(LearningMode mode) {
+		this(mode, DEFAULT_NUMBER_OF_BINS);
+	}
+	
+	/**
+	 * Costruttore di classe.
+	 * @param mode Modalità di apprendimento.
+	 * @param numberOfBins Numero di bin per attributo continuo, compreso tra 2 e MAX_NUMBER_OF_BINS.
+	 * @throws IllegalArgumentException Se numberOfBins non è compreso tra 2 e MAX_NUMBER_OF_BINS.
+	 */
+	public LearningOptions(LearningMode mode, int numberOfBins) {
+		this(mode, numberOfBins, null);
+	}
+	
+	/**
+	 * Costruttore di classe.
+	 * @param mode Modalità di apprendimento.
+	 * @param numberOfBins Numero di bin per attributo continuo, compreso tra 2 e MAX_NUMBER_OF_BINS.
+	 * @param pool Pool su cui apprendere in parallelo (null per l'apprendimento sequenziale).
+	 * @throws IllegalArgumentException Se numberOfBins non è compreso tra 2 e MAX_NUMBER_OF_BINS.
+	 */
+	public LearningOptions(LearningMode mode, int numberOfBins, ForkJoinPool pool) {
+		this(mode, numberOfBins, pool, DEFAULT_PARALLEL_SUBTREE_CUTOFF);
+	}
+	
+	/**
+	 * Costruttore di classe.
+	 * @param mode Modalità di apprendimento.
+	 * @param numberOfBins Numero di bin per attributo continuo, compreso tra 2 e MAX_NUMBER_OF_BINS.
+	 * @param pool Pool su cui apprendere in parallelo (null per l'apprendimento sequenziale).
+	 * @param parallelSubtreeCutoff Numero minimo di esempi di un sotto-albero perché sia appreso come task parallelo.
+	 * @throws IllegalArgumentException Se numberOfBins non è compreso tra 2 e MAX_NUMBER_OF_BINS.
+	 */
+	public LearningOptions(LearningMode mode, int numberOfBins, ForkJoinPool pool, int parallelSubtreeCutoff) {
+		if(numberOfBins < 2 || numberOfBins > MAX_NUMBER_OF_BINS)
+			throw new IllegalArgumentException("Numero di bin non valido: " + numberOfBins);
+		
+		this.mode = mode;
+		this.numberOfBins = numberOfBins;
+		this.pool = pool;
+		this.parallelSubtreeCutoff = parallelSubtreeCutoff;
+	}
+	
+	/**
+	 * Restituisce la modalità di apprendimento.
+	 * @return Modalità di apprendimento.
+	 */
+	public LearningMode getMode() {
+		return mode;
+	}
+	
+	/**
+	 * Restituisce il numero di bin per attributo continuo.
+	 * @return Numero di bin.
+	 */
+	public int getNumberOfBins() {
+		return numberOfBins;
+	}
+	
+	/**
+	 * Restituisce il pool su cui apprendere in parallelo.
+	 * @return Pool di thread, null se l'apprendimento è sequenziale.
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+	
+	/**
+	 * Restituisce il numero minimo di esempi di un sotto-albero perché sia appreso come task parallelo.
+	 * @return Soglia per l'apprendimento parallelo dei sotto-alberi.
+	 */
+	public int getParallelSubtreeCutoff() {
+		return parallelSubtreeCutoff;
+	}
+}
@@ -0,0 +1,448 @@
+package tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import data.*;
+
+/**
+ * Apprendimento per livelli (in ampiezza) di un albero di regressione, con gli split approssimati della modalità
+ * LearningMode.HISTOGRAM. Anziché apprendere ricorsivamente un sotto-albero alla volta, l'albero viene costruito
+ * un livello alla volta: una scansione sequenziale degli esempi, a blocchi di BLOCK_SIZE, assegna ciascun esempio
+ * al figlio del nodo ripartito al livello precedente (l'assegnazione è memorizzata in un array di un int per esempio)
+ * e accumula gli istogrammi di tutti i nodi del livello corrente; lo split di ciascun nodo è poi scelto tra quelli
+ * valutati sugli istogrammi (vedi ContinuousNode e DiscreteNode). Gli esempi non vengono mai riordinati
+ * e la profondità dell'albero non incide sulla pila delle chiamate.
+ * <p>
+ * Come in HistogramOrdering, l'istogramma del figlio più numeroso di ogni nodo è ottenuto sottraendo dall'istogramma
+ * del padre quelli dei fratelli e gli esempi di ciascun nodo vengono accumulati nell'ordine del training set: a parità
+ * di bin l'albero appreso coincide con quello della modalità LearningMode.HISTOGRAM, compresi gli intervalli di esempi
+ * dei nodi (quelli che gli esempi occuperebbero in una vista ripartita in modo stabile ad ogni split).
+ * Se è disponibile un pool, ciascun blocco di esempi viene elaborato con un compito per attributo: ogni istogramma
+ * è aggiornato da un solo compito, nell'ordine degli esempi, per cui l'albero non dipende dal parallelismo.
+ * <p>
+ * Le sottoclassi forniscono gli esempi (in memoria, vedi InMemoryLearner, o su disco, vedi OutOfCoreLearner) e,
+ * prima di buildLevels(), la discretizzazione degli attributi continui.
+ */
+abstract class LevelWiseLearner {
+	/**
+	 * Numero di esempi elaborati alla volta da ciascun attributo.
+	 */
+	static final int BLOCK_SIZE = 1 << 16;
+	
+	/**
+	 * Nodo di un livello dell'albero in costruzione.
+	 */
+	private static class LevelNode {
+		/**
+		 * Sotto-albero di cui il nodo è la radice.
+		 */
+		private final RegressionTree tree;
+		
+		/**
+		 * Indice del primo esempio coperto.
+		 */
+		private final int begin;
+		
+		/**
+		 * Indice dell'ultimo esempio coperto.
+		 */
+		private final int end;
+		
+		/**
+		 * Statistiche dei valori di classe degli esempi coperti.
+		 */
+		private final NodeStatistics statistics;
+		
+		/**
+		 * Indica se gli istogrammi del nodo vanno accumulati durante la scansione del livello (anziché ricavati per sottrazione).
+		 */
+		private boolean scanned;
+		
+		/**
+		 * Istogrammi del nodo, uno per attributo (null se non servono).
+		 */
+		private Histogram[] histograms;
+		
+		/**
+		 * Split scelto per il nodo (null se il nodo è fogliare).
+		 */
+		private SplitNode split;
+		
+		/**
+		 * Posizione nel livello successivo del primo figlio.
+		 */
+		private int firstChild;
+		
+		/**
+		 * Figlio più numeroso, il cui istogramma è ricavato per sottrazione (-1 se i figli sono tutti fogliari).
+		 */
+		private int largestChild = -1;
+		
+		/**
+		 * Per gli split continui, ultimo bin del ramo sinistro.
+		 */
+		private int lastLeftBin;
+		
+		/**
+		 * Per gli split discreti, figlio associato a ciascun codice dell'attributo.
+		 */
+		private int[] childOfCode;
+		
+		/**
+		 * Costruttore di classe.
+		 * @param tree Sotto-albero di cui il nodo è la radice.
+		 * @param begin Indice del primo esempio coperto.
+		 * @param end Indice dell'ultimo esempio coperto.
+		 * @param statistics Statistiche dei valori di classe degli esempi coperti.
+		 */
+		private LevelNode(RegressionTree tree, int begin, int end, NodeStatistics statistics) {
+			this.tree = tree;
+			this.begin = begin;
+			this.end = end;
+			this.statistics = statistics;
+		}
+		
+		/**
+		 * Restituisce il figlio a cui appartiene un esempio del nodo.
+		 * @param value Bin (attributo continuo) o codice (attributo discreto) dell'esempio rispetto all'attributo di split.
+		 * @return Indice del figlio.
+		 */
+		private int childOf(int value) {
+			return childOfCode != null ? childOfCode[value] : (value <= lastLeftBin ? 0 : 1);
+		}
+	}
+	
+	/**
+	 * Attributi indipendenti del training set.
+	 */
+	final Attribute[] attributes;
+	
+	/**
+	 * Numero di esempi del training set.
+	 */
+	final int numberOfExamples;
+	
+	/**
+	 * Pool su cui elaborare gli attributi in parallelo (null per l'elaborazione sequenziale).
+	 */
+	final ForkJoinPool pool;
+	
+	/**
+	 * Discretizzazione degli attributi continui (null per gli attributi discreti), indicizzata per indice dell'attributo;
+	 * va avvalorata dalle sottoclassi prima di buildLevels().
+	 */
+	QuantizedAttribute[] bins;
+	
+	/**
+	 * Traslazione applicata ai valori di classe negli istogrammi (media dei valori di classe del training set).
+	 */
+	private double shift;
+	
+	/**
+	 * Posizione, nel livello corrente (o in quello precedente, prima della scansione), del nodo a cui è assegnato
+	 * ciascun esempio; -1 per gli esempi dei nodi fogliari.
+	 */
+	private int[] nodeOfExample;
+	
+	/**
+	 * Valori di classe del blocco di esempi corrente.
+	 */
+	private double[] classBlock;
+	
+	/**
+	 * Bin o codici degli esempi del blocco corrente, per attributo.
+	 */
+	private int[][] attributeBlocks;
+	
+	/**
+	 * Indica, per ciascun attributo, se il blocco corrente è già stato letto.
+	 */
+	private boolean[] loaded;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param attributes Attributi indipendenti del training set.
+	 * @param numberOfExamples Numero di esempi del training set.
+	 * @param pool Pool su cui elaborare gli attributi in parallelo (null per l'elaborazione sequenziale).
+	 */
+	LevelWiseLearner(Attribute[] attributes, int numberOfExamples, ForkJoinPool pool) {
+		this.attributes = attributes;
+		this.numberOfExamples = numberOfExamples;
+		this.pool = pool;
+	}
+	
+	/**
+	 * Copia in values i valori di classe degli esempi [first, first + count).
+	 * @param first Indice del primo esempio.
+	 * @param values Array in cui copiare i valori.
+	 * @param count Numero di esempi.
+	 */
+	abstract void readClassValues(int first, double[] values, int count);
+	
+	/**
+	 * Copia in values i bin (attributo continuo, vedi bins) o i codici (attributo discreto) dell'attributo
+	 * attributeIndex degli esempi [first, first + count).
+	 * @param attributeIndex Indice dell'attributo.
+	 * @param first Indice del primo esempio.
+	 * @param values Array in cui copiare i bin o i codici.
+	 * @param count Numero di esempi.
+	 */
+	abstract void readAttributeValues(int attributeIndex, int first, int[] values, int count);
+	
+	/**
+	 * Apprende l'albero tree, di cui vengono avvalorati la radice e i sotto-alberi, un livello alla volta.
+	 * @param tree Albero vuoto da apprendere.
+	 */
+	void buildLevels(RegressionTree tree) {
+		int n = numberOfExamples;
+		int numberOfExamplesPerLeaf = RegressionTree.numberOfExamplesPerLeaf(n);
+		
+		//un'unica passata sui valori di classe: traslazione (come in HistogramOrdering) e statistiche della radice (come in NodeStatistics.of())
+		classBlock = new double[BLOCK_SIZE];
+		double sum = 0;
+		double mean = 0;
+		double variance = 0;
+		for(int first = 0; first < n; first += BLOCK_SIZE) {
+			int count = Math.min(BLOCK_SIZE, n - first);
+			readClassValues(first, classBlock, count);
+			for(int i = 0; i < count; i++) {
+				double value = classBlock[i];
+				double delta = value - mean;
+				sum += value;
+				mean += delta / (first + i + 1);
+				variance += delta * (value - mean);
+			}
+		}
+		shift = sum / n;
+		
+		attributeBlocks = new int[attributes.length][BLOCK_SIZE];
+		loaded = new boolean[attributes.length];
+		nodeOfExample = new int[n];
+		
+		LevelNode root = new LevelNode(tree, 0, n - 1, new NodeStatistics(n, mean, variance));
+		root.scanned = true;
+		List<LevelNode> previous = null;
+		List<LevelNode> level = new ArrayList<LevelNode>();
+		level.add(root);
+		while(!level.isEmpty()) {
+			boolean scan = false;
+			for(LevelNode node : level)
+				if(node.scanned) {
+					node.histograms = newHistograms();
+					scan = true;
+				}
+			if(scan)
+				scanLevel(previous, level);
+			
+			if(previous != null)
+				for(LevelNode parent : previous)
+					subtractHistograms(parent, level);
+			
+			List<LevelNode> next = new ArrayList<LevelNode>();
+			for(LevelNode node : level)
+				growNode(node, numberOfExamplesPerLeaf, next);
+			
+			previous = level;
+			level = next;
+		}
+	}
+	
+	/**
+	 * Crea un istogramma vuoto per ciascun attributo.
+	 * @return Istogrammi vuoti, indicizzati per indice dell'attributo.
+	 */
+	private Histogram[] newHistograms() {
+		Histogram[] histograms = new Histogram[attributes.length];
+		for(int a = 0; a < histograms.length; a++)
+			if(bins[a] != null)
+				histograms[a] = new Histogram(bins[a].getNumberOfBins(), shift);
+			else
+				histograms[a] = new Histogram(((DiscreteAttribute) attributes[a]).getNumberOfDistinctValues(), shift);
+		
+		return histograms;
+	}
+	
+	/**
+	 * Scansione di un livello: per ciascun blocco di esempi assegna gli esempi dei nodi ripartiti al livello precedente
+	 * ai rispettivi figli, quindi aggiunge ciascun esempio agli istogrammi del suo nodo, se il nodo ne richiede la scansione.
+	 * @param previous Nodi del livello precedente (null per la radice).
+	 * @param level Nodi del livello corrente.
+	 */
+	private void scanLevel(List<LevelNode> previous, List<LevelNode> level) {
+		int n = numberOfExamples;
+		Histogram[][] targets = new Histogram[level.size()][];
+		for(int k = 0; k < targets.length; k++)
+			if(level.get(k).scanned)
+				targets[k] = level.get(k).histograms;
+		
+		for(int first = 0; first < n; first += BLOCK_SIZE) {
+			int blockFirst = first;
+			int count = Math.min(BLOCK_SIZE, n - first);
+			readClassValues(first, classBlock, count);
+			Arrays.fill(loaded, false);
+			
+			if(previous != null)
+				for(int i = 0; i < count; i++) {
+					int node = nodeOfExample[first + i];
+					if(node < 0)
+						continue;
+					
+					LevelNode parent = previous.get(node);
+					if(parent.split == null)
+						nodeOfExample[first + i] = -1;
+					else {
+						int attributeIndex = parent.split.getAttribute().getIndex();
+						loadBlock(attributeIndex, first, count);
+						nodeOfExample[first + i] = parent.firstChild + parent.childOf(attributeBlocks[attributeIndex][i]);
+					}
+				}
+			
+			List<Runnable> tasks = new ArrayList<Runnable>(attributes.length);
+			for(int a = 0; a < attributes.length; a++) {
+				int attributeIndex = a;
+				tasks.add(() -> accumulate(attributeIndex, blockFirst, count, targets));
+			}
+			invokeAll(tasks);
+		}
+	}
+	
+	/**
+	 * Aggiunge gli esempi [first, first + count) agli istogrammi dell'attributo attributeIndex dei rispettivi nodi.
+	 * @param attributeIndex Indice dell'attributo.
+	 * @param first Indice del primo esempio del blocco.
+	 * @param count Numero di esempi del blocco.
+	 * @param targets Istogrammi di ciascun nodo del livello (null per i nodi che non richiedono la scansione).
+	 */
+	private void accumulate(int attributeIndex, int first, int count, Histogram[][] targets) {
+		loadBlock(attributeIndex, first, count);
+		int[] values = attributeBlocks[attributeIndex];
+		for(int i = 0; i < count; i++) {
+			int node = nodeOfExample[first + i];
+			if(node >= 0 && targets[node] != null)
+				targets[node][attributeIndex].add(values[i], classBlock[i] - shift);
+		}
+	}
+	
+	/**
+	 * Legge, se non è già stato letto, il blocco [first, first + count) dei bin o dei codici dell'attributo attributeIndex.
+	 * @param attributeIndex Indice dell'attributo.
+	 * @param first Indice del primo esempio del blocco.
+	 * @param count Numero di esempi del blocco.
+	 */
+	private void loadBlock(int attributeIndex, int first, int count) {
+		if(!loaded[attributeIndex]) {
+			readAttributeValues(attributeIndex, first, attributeBlocks[attributeIndex], count);
+			loaded[attributeIndex] = true;
+		}
+	}
+	
+	/**
+	 * Ricava l'istogramma del figlio più numeroso di parent sottraendo dall'istogramma di parent quelli dei fratelli,
+	 * accumulati durante la scansione, nell'ordine dei figli (come in HistogramOrdering.split()).
+	 * @param parent Nodo del livello precedente.
+	 * @param level Nodi del livello corrente.
+	 */
+	private void subtractHistograms(LevelNode parent, List<LevelNode> level) {
+		if(parent.largestChild < 0)
+			return;
+		
+		Histogram[] histograms = parent.histograms;
+		for(int i = 0; i < parent.split.getNumberOfChildren(); i++)
+			if(i != parent.largestChild)
+				for(int a = 0; a < histograms.length; a++)
+					histograms[a].subtract(level.get(parent.firstChild + i).histograms[a]);
+		
+		level.get(parent.firstChild + parent.largestChild).histograms = histograms;
+		parent.histograms = null;
+	}
+	
+	/**
+	 * Rende node un nodo fogliare o un nodo di split, con lo split migliore tra quelli valutati sui suoi istogrammi
+	 * (vedi RegressionTree.selectBestSplitNode()); nel secondo caso aggiunge i figli a next.
+	 * @param node Nodo del livello corrente.
+	 * @param numberOfExamplesPerLeaf Numero massimo di esempi di un nodo fogliare.
+	 * @param next Nodi del livello successivo.
+	 */
+	private void growNode(LevelNode node, int numberOfExamplesPerLeaf, List<LevelNode> next) {
+		if(node.end - node.begin + 1 <= numberOfExamplesPerLeaf) {
+			node.tree.setRoot(new LeafNode(node.begin, node.end, node.statistics), null);
+			node.histograms = null;
+			return;
+		}
+		
+		SplitNode[] candidates = new SplitNode[attributes.length];
+		for(int a = 0; a < candidates.length; a++)
+			if(attributes[a] instanceof DiscreteAttribute)
+				candidates[a] = new DiscreteNode(node.begin, node.end, (DiscreteAttribute) attributes[a], node.histograms[a], node.statistics);
+			else
+				candidates[a] = new ContinuousNode(node.begin, node.end, (ContinuousAttribute) attributes[a], bins[a], node.histograms[a], node.statistics);
+		SplitNode split = RegressionTree.selectBestSplitNode(candidates);
+		int numberOfChildren = split.getNumberOfChildren();
+		if(numberOfChildren <= 1) {
+			node.tree.setRoot(new LeafNode(node.begin, node.end, node.statistics), null);
+			node.histograms = null;
+			return;
+		}
+		
+		Attribute attribute = split.getAttribute();
+		if(attribute instanceof DiscreteAttribute) {
+			node.childOfCode = new int[((DiscreteAttribute) attribute).getNumberOfDistinctValues()];
+			for(int i = 0; i < numberOfChildren; i++)
+				node.childOfCode[((DiscreteAttribute) attribute).getCode(split.getSplitInfo(i).getSplitValue())] = i;
+		}
+		else
+			node.lastLeftBin = bins[attribute.getIndex()].getBinOfValue((Double) split.getSplitInfo(0).getSplitValue());
+		
+		int largest = 0;
+		for(int i = 1; i < numberOfChildren; i++)
+			if(size(split.getSplitInfo(i)) > size(split.getSplitInfo(largest)))
+				largest = i;
+		//se il figlio più numeroso è fogliare lo sono anche gli altri: nessun istogramma è necessario
+		boolean open = size(split.getSplitInfo(largest)) > numberOfExamplesPerLeaf;
+		
+		RegressionTree[] children = new RegressionTree[numberOfChildren];
+		node.split = split;
+		node.firstChild = next.size();
+		node.largestChild = open ? largest : -1;
+		if(!open)
+			node.histograms = null;
+		for(int i = 0; i < numberOfChildren; i++) {
+			SplitNode.SplitInfo info = split.getSplitInfo(i);
+			children[i] = new RegressionTree();
+			LevelNode child = new LevelNode(children[i], info.getBeginindex(), info.getEndIndex(), info.getStatistics());
+			child.scanned = open && i != largest;
+			next.add(child);
+		}
+		node.tree.setRoot(split, children);
+	}
+	
+	/**
+	 * Esegue i compiti tasks, in parallelo sul pool se disponibile.
+	 * @param tasks Compiti da eseguire.
+	 */
+	void invokeAll(List<Runnable> tasks) {
+		if(pool == null || tasks.size() < 2) {
+			for(Runnable task : tasks)
+				task.run();
+		}
+		else {
+			List<ForkJoinTask<?>> forkJoinTasks = new ArrayList<ForkJoinTask<?>>(tasks.size());
+			for(Runnable task : tasks)
+				forkJoinTasks.add(ForkJoinTask.adapt(task));
+			pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forkJoinTasks)));
+		}
+	}
+	
+	/**
+	 * Restituisce il numero di esempi coperti da uno split.
+	 * @param splitInfo Informazioni sullo split.
+	 * @return Numero di esempi del figlio.
+	 */
+	private static int size(SplitNode.SplitInfo splitInfo) {
+		return splitInfo.getEndIndex() - splitInfo.getBeginindex() + 1;
+	}
+}
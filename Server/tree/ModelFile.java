@@ -0,0 +1,333 @@
+package tree;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.TreeSet;
+
+import data.Attribute;
+import data.ContinuousAttribute;
+import data.DiscreteAttribute;
+
+/**
+ * Formato binario versionato dei modelli (alberi di regressione compilati), alternativo alla serializzazione
+ * Java dei file .dmp. Il file, in big-endian, è composto da:
+ * 
+ * intestazione: MAGIC (int), VERSION (short), flag (short, bit 0: sezione di riepilogo presente),
+ * numero di nodi n (int), numero di attributi m (int);
+ * 
+ * schema: per ciascuno degli m indici di attributo, il tipo (byte: 0 assente, 1 continuo, 2 discreto) e, se presente,
+ * il nome; per gli attributi discreti segue il dizionario (numero di valori e valori in ordine di codice).
+ * Le stringhe sono memorizzate come lunghezza (int) seguita dai byte UTF-8;
+ * 
+ * nodi: gli array di CompiledTree disposti in ampiezza (splitAttribute, firstChild, numberOfChildren, branchCode
+ * come n int, threshold e leafValue come n double);
+ * 
+ * riepilogo (opzionale): gli array di TreeSummary (firstExample e lastExample come n int, variance e splitVariance
+ * come n double).
+ * 
+ * La lettura mappa il file in memoria (FileChannel.map) e copia ciascuna sezione di nodi in blocco nel relativo
+ * array, senza creare oggetti per nodo.
+ */
+public class ModelFile {
+	/**
+	 * Numero magico all'inizio di ogni file di modello ("RTMF").
+	 */
+	static final int MAGIC = 0x52544D46;
+	
+	/**
+	 * Versione del formato scritta da questa classe.
+	 */
+	static final short VERSION = 1;
+	
+	/**
+	 * Flag che indica la presenza della sezione di riepilogo.
+	 */
+	private static final short HAS_SUMMARY = 1;
+	
+	/**
+	 * Tipo di un indice di attributo non usato dall'albero.
+	 */
+	private static final byte ABSENT = 0;
+	
+	/**
+	 * Tipo di un attributo continuo.
+	 */
+	private static final byte CONTINUOUS = 1;
+	
+	/**
+	 * Tipo di un attributo discreto.
+	 */
+	private static final byte DISCRETE = 2;
+	
+	/**
+	 * La classe offre solo metodi statici.
+	 */
+	private ModelFile() {
+	}
+	
+	/**
+	 * Scrive l'albero tree nel file nomeFile.
+	 * @param tree Albero di regressione da salvare.
+	 * @param nomeFile Nome del file.
+	 * @throws IOException
+	 */
+	static void write(RegressionTree tree, String nomeFile) throws IOException {
+		CompiledTree compiled = tree.getCompiledTree();
+		TreeSummary summary = tree.getSummary();
+		int n = compiled.getNumberOfNodes();
+		Attribute[] attributes = compiled.getAttributes();
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(nomeFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeShort(summary != null ? HAS_SUMMARY : 0);
+			out.writeInt(n);
+			out.writeInt(attributes.length);
+			
+			for(Attribute attribute : attributes) {
+				if(attribute == null) {
+					out.writeByte(ABSENT);
+					continue;
+				}
+				
+				out.writeByte(attribute instanceof DiscreteAttribute ? DISCRETE : CONTINUOUS);
+				writeString(out, attribute.getName());
+				if(attribute instanceof DiscreteAttribute) {
+					DiscreteAttribute discrete = (DiscreteAttribute) attribute;
+					out.writeInt(discrete.getNumberOfDistinctValues());
+					for(int code = 0; code < discrete.getNumberOfDistinctValues(); code++)
+						writeString(out, discrete.getValue(code).toString());
+				}
+			}
+			
+			for(int i = 0; i < n; i++)
+				out.writeInt(compiled.getSplitAttribute(i));
+			for(int i = 0; i < n; i++)
+				out.writeInt(compiled.getFirstChild(i));
+			for(int i = 0; i < n; i++)
+				out.writeInt(compiled.getNumberOfChildren(i));
+			for(int i = 0; i < n; i++)
+				out.writeInt(compiled.getBranchCode(i));
+			for(int i = 0; i < n; i++)
+				out.writeDouble(compiled.getThreshold(i));
+			for(int i = 0; i < n; i++)
+				out.writeDouble(compiled.getLeafValue(i));
+			
+			if(summary != null) {
+				for(int i = 0; i < n; i++)
+					out.writeInt(summary.getFirstExample(i));
+				for(int i = 0; i < n; i++)
+					out.writeInt(summary.getLastExample(i));
+				for(int i = 0; i < n; i++)
+					out.writeDouble(summary.getVariance(i));
+				for(int i = 0; i < n; i++)
+					out.writeDouble(summary.getSplitVariance(i));
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Legge l'albero salvato nel file nomeFile mappandolo in memoria.
+	 * @param nomeFile Nome del file.
+	 * @return Albero di regressione in forma compilata.
+	 * @throws IOException Se il file non può essere letto, non è un file di modello, ha una versione non supportata,
+	 * è troncato o descrive un albero non valido (vedi checkNodes()).
+	 */
+	static RegressionTree read(String nomeFile) throws IOException {
+		MappedByteBuffer buffer;
+		FileChannel channel = FileChannel.open(Paths.get(nomeFile), StandardOpenOption.READ);
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			channel.close();
+		}
+		
+		try {
+			if(buffer.getInt() != MAGIC)
+				throw new IOException("Il file " + nomeFile + " non è un file di modello");
+			short version = buffer.getShort();
+			if(version < 1 || version > VERSION)
+				throw new IOException("Versione " + version + " del formato di " + nomeFile + " non supportata");
+			short flags = buffer.getShort();
+			int n = buffer.getInt();
+			if(n <= 0)
+				throw new IOException("Numero di nodi " + n + " non valido in " + nomeFile);
+			int numberOfAttributes = buffer.getInt();
+			//ogni attributo occupa almeno un byte: un numero maggiore dei byte rimasti indica un file non valido
+			if(numberOfAttributes < 0 || numberOfAttributes > buffer.remaining())
+				throw new IOException("Numero di attributi " + numberOfAttributes + " non valido in " + nomeFile);
+			
+			Attribute[] attributes = new Attribute[numberOfAttributes];
+			for(int j = 0; j < attributes.length; j++) {
+				byte kind = buffer.get();
+				if(kind == CONTINUOUS)
+					attributes[j] = new ContinuousAttribute(readString(buffer, nomeFile), j);
+				else if(kind == DISCRETE) {
+					String name = readString(buffer, nomeFile);
+					Set<Object> values = new TreeSet<Object>();
+					int numberOfValues = buffer.getInt();
+					for(int code = 0; code < numberOfValues; code++)
+						values.add(readString(buffer, nomeFile));
+					attributes[j] = new DiscreteAttribute(name, j, values);
+				}
+				else if(kind != ABSENT)
+					throw new IOException("Tipo di attributo " + kind + " non valido in " + nomeFile);
+			}
+			
+			//sei array di nodi (quattro di int e due di double) devono essere presenti per intero
+			if((long) n * (4 * Integer.BYTES + 2 * Double.BYTES) > buffer.remaining())
+				throw new IOException("Il file " + nomeFile + " è troncato");
+			int[] splitAttribute = readInts(buffer, n);
+			int[] firstChild = readInts(buffer, n);
+			int[] numberOfChildren = readInts(buffer, n);
+			int[] branchCode = readInts(buffer, n);
+			double[] threshold = readDoubles(buffer, n);
+			double[] leafValue = readDoubles(buffer, n);
+			checkNodes(nomeFile, attributes, splitAttribute, firstChild, numberOfChildren);
+			CompiledTree compiled = new CompiledTree(attributes, splitAttribute, firstChild, numberOfChildren, threshold, branchCode, leafValue);
+			TreeSummary summary = null;
+			if((flags & HAS_SUMMARY) != 0)
+				summary = new TreeSummary(readInts(buffer, n), readInts(buffer, n), readDoubles(buffer, n), readDoubles(buffer, n));
+			
+			return new RegressionTree(compiled, summary);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Il file " + nomeFile + " è troncato");
+		}
+	}
+	
+	/**
+	 * Verifica che gli array dei nodi letti dal file nomeFile descrivano un albero disposto in ampiezza: ogni nodo
+	 * fogliare ha attributo di split -1, ogni nodo di split ha un attributo presente nello schema e almeno un figlio
+	 * (almeno due per gli attributi continui) e i suoi figli occupano posizioni comprese tra quella del nodo (esclusa)
+	 * e il numero di nodi. In questo modo la predizione non può accedere a posizioni esterne agli array.
+	 * @param nomeFile Nome del file, riportato nei messaggi di errore.
+	 * @param attributes Attributi indipendenti indicizzati per indice dell'attributo.
+	 * @param splitAttribute Indice dell'attributo di split di ciascun nodo.
+	 * @param firstChild Posizione del primo figlio di ciascun nodo.
+	 * @param numberOfChildren Numero di figli di ciascun nodo.
+	 * @throws IOException Se un nodo non è valido.
+	 */
+	private static void checkNodes(String nomeFile, Attribute[] attributes, int[] splitAttribute, int[] firstChild, int[] numberOfChildren) throws IOException {
+		int n = splitAttribute.length;
+		for(int i = 0; i < n; i++) {
+			if(splitAttribute[i] == -1)
+				continue;
+			
+			int attribute = splitAttribute[i];
+			if(attribute < 0 || attribute >= attributes.length || attributes[attribute] == null)
+				throw new IOException("Attributo di split " + attribute + " del nodo " + i + " non valido in " + nomeFile);
+			int minimumChildren = attributes[attribute] instanceof ContinuousAttribute ? 2 : 1;
+			if(numberOfChildren[i] < minimumChildren || firstChild[i] <= i || firstChild[i] > n - numberOfChildren[i])
+				throw new IOException("Figli del nodo " + i + " non validi in " + nomeFile);
+		}
+	}
+	
+	/**
+	 * Verifica se il file nomeFile è un file di modello, controllandone il numero magico.
+	 * @param nomeFile Nome del file.
+	 * @return true se il file inizia con MAGIC, false altrimenti.
+	 * @throws IOException
+	 */
+	static boolean isModelFile(String nomeFile) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(nomeFile), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+			while(header.hasRemaining() && channel.read(header) >= 0);
+			
+			return !header.hasRemaining() && header.getInt(0) == MAGIC;
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Scrive la stringa s come lunghezza seguita dai byte UTF-8.
+	 * @param out Stream su cui scrivere.
+	 * @param s Stringa da scrivere.
+	 * @throws IOException
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * Legge una stringa scritta da writeString().
+	 * @param buffer Buffer da cui leggere.
+	 * @param nomeFile Nome del file, riportato nei messaggi di errore.
+	 * @return Stringa letta.
+	 * @throws IOException Se la lunghezza della stringa è negativa o supera i byte rimasti.
+	 */
+	private static String readString(ByteBuffer buffer, String nomeFile) throws IOException {
+		int length = buffer.getInt();
+		if(length < 0 || length > buffer.remaining())
+			throw new IOException("Lunghezza di stringa " + length + " non valida in " + nomeFile);
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Copia in blocco n interi dalla posizione corrente di buffer.
+	 * @param buffer Buffer da cui leggere.
+	 * @param n Numero di interi.
+	 * @return Interi letti.
+	 */
+	private static int[] readInts(ByteBuffer buffer, int n) {
+		int[] values = new int[n];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + n * Integer.BYTES);
+		
+		return values;
+	}
+	
+	/**
+	 * Copia in blocco n double dalla posizione corrente di buffer.
+	 * @param buffer Buffer da cui leggere.
+	 * @param n Numero di double.
+	 * @return Double letti.
+	 */
+	private static double[] readDoubles(ByteBuffer buffer, int n) {
+		double[] values = new double[n];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + n * Double.BYTES);
+		
+		return values;
+	}
+	
+	/**
+	 * Converte un albero salvato in un file .dmp (serializzazione Java) nel formato binario.
+	 * Uso: ModelFile file.dmp [file di modello]; per default il file di modello ha lo stesso nome con estensione .rtm.
+	 * @param args Nome del file .dmp ed eventualmente del file di modello da scrivere.
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1) {
+			System.out.println("Uso: ModelFile file.dmp [file.rtm]");
+			return;
+		}
+		
+		String target = args.length > 1 ? args[1] : args[0].replaceFirst("\\.dmp$", "") + ".rtm";
+		RegressionTree tree = RegressionTree.carica(args[0]);
+		write(tree, target);
+		System.out.println(args[0] + " convertito in " + target + " (" + tree.getCompiledTree().getNumberOfNodes() + " nodi)");
+	}
+}
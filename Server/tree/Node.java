@@ -1,11 +1,9 @@
 package tree;
 
-import data.*;
-
 import java.io.Serializable;
 
 /**
- * Modella l'entit nodo (fogliare o intermedio) dell'albero di decisione.
+ * Modella l'entità nodo (fogliare o intermedio) dell'albero di decisione.
  */
 abstract class Node implements Serializable {
 	
@@ -15,14 +13,10 @@ abstract class Node implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
 	/**
-	 * Contatore dei nodi generati nell'albero
-	 */
-	private static int idNodeCount = 0;
-	
-	/**
-	 * Identificativo numerico del nodo
+	 * Identificativo numerico del nodo, assegnato in pre-ordine al termine dell'apprendimento dell'albero
+	 * (per cui non dipende dall'ordine in cui i sotto-alberi vengono appresi).
 	 */
-	private final int idNode;
+	private int idNode;
 	
 	/**
 	 * Indice nel training set del primo esempio coperto dal nodo corrente
@@ -42,28 +36,22 @@ abstract class Node implements Serializable {
 	private double variance;
 	
 	/**
-	 * Avvalora gli attributi primitivi di classe, inclusa la varianza che viene calcolata
-	 * rispetto all'attributo da predire nel sotto-insieme di training coperto dal nodo.
-	 * @param trainingSet Oggetto di classe Data contenente il training set completo.
+	 * Statistiche dei valori di classe degli esempi coperti dal nodo, usate solo durante l'apprendimento.
+	 */
+	private final transient NodeStatistics statistics;
+	
+	/**
+	 * Avvalora gli attributi primitivi di classe, inclusa la varianza rispetto all'attributo da predire
+	 * nel sotto-insieme di training coperto dal nodo, ricavata dalle statistiche del nodo senza riscandire gli esempi.
 	 * @param beginExampleIndex Indice che indica il primo estremo del sotto-insieme di training coperto dal nodo corrente.
 	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training coperto dal nodo corrente.
+	 * @param statistics Statistiche dei valori di classe degli esempi [beginExampleIndex, endExampleIndex].
 	 */
-	Node(Data trainingSet, int beginExampleIndex, int endExampleIndex){
-		Double media = (double) 0;
-		
-		idNode = idNodeCount++;
+	Node(int beginExampleIndex, int endExampleIndex, NodeStatistics statistics){
 		this.beginExampleIndex = beginExampleIndex;
 		this.endExampleIndex = endExampleIndex;
-		
-		/*Calcola la varianza*/
-		for(int i = beginExampleIndex; i <= endExampleIndex; i++)
-			media += trainingSet.getClassValue(i);
-		
-		media = media / (endExampleIndex - beginExampleIndex + 1);	
-
-		for(int i = beginExampleIndex; i <= endExampleIndex; i++)
-			variance += ((trainingSet.getClassValue(i) - media) * (trainingSet.getClassValue(i) - media));
-		/*-------------------*/
+		this.statistics = statistics;
+		variance = statistics.getVariance();
 	}
 	
 	/**
@@ -74,6 +62,14 @@ abstract class Node implements Serializable {
 		return idNode;
 	}
 	
+	/**
+	 * Assegna l'identificativo numerico del nodo.
+	 * @param idNode Identificativo numerico del nodo.
+	 */
+	void setIdNode(int idNode) {
+		this.idNode = idNode;
+	}
+	
 	/**
 	 * Restituisce il valore del membro beginExampleIndex.
 	 * @return Indice del primo esempio del sotto-insieme rispetto al training set complessivo.
@@ -92,12 +88,29 @@ abstract class Node implements Serializable {
 	
 	/**
 	 * Restituisce il valore del membro variance.
-	 * @return Valore della varianza dellattributo da predire rispetto al nodo corrente.
+	 * @return Valore della varianza dell’attributo da predire rispetto al nodo corrente.
 	 */
 	double getVariance() {
 		return variance;
 	}
 	
+	/**
+	 * Restituisce la varianza dell'attributo da predire negli esempi coperti dal nodo
+	 * (a differenza di getVariance(), che per i nodi di split restituisce la varianza dello split).
+	 * @return Valore della varianza dell'attributo da predire rispetto al nodo corrente.
+	 */
+	final double getNodeVariance() {
+		return variance;
+	}
+	
+	/**
+	 * Restituisce le statistiche dei valori di classe degli esempi coperti dal nodo.
+	 * @return Statistiche del nodo (null per i nodi letti da file).
+	 */
+	NodeStatistics getStatistics() {
+		return statistics;
+	}
+	
 	/**
 	 * E' un metodo astratto la cui implementazione riguarda gli split node dai quali
 	 * si possono generare figli, uno per ogni split prodotto. Restituisce il numero di tali nodi figli.
@@ -0,0 +1,95 @@
+package tree;
+
+import data.DataView;
+
+/**
+ * Statistiche dei valori di classe degli esempi coperti da un nodo: numero di esempi, media e
+ * somma degli scarti quadratici dalla media (la varianza dei nodi). Vengono calcolate una sola volta
+ * per la radice e poi ricavate, per ciascun figlio, dalle somme già disponibili durante la valutazione dello split.
+ */
+class NodeStatistics {
+	/**
+	 * Numero di esempi.
+	 */
+	private final int count;
+	
+	/**
+	 * Media dei valori di classe.
+	 */
+	private final double mean;
+	
+	/**
+	 * Somma degli scarti quadratici dei valori di classe dalla media.
+	 */
+	private final double variance;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param count Numero di esempi.
+	 * @param mean Media dei valori di classe.
+	 * @param variance Somma degli scarti quadratici dalla media.
+	 */
+	NodeStatistics(int count, double mean, double variance) {
+		this.count = count;
+		this.mean = mean;
+		this.variance = variance;
+	}
+	
+	/**
+	 * Calcola le statistiche degli esempi [begin, end] di trainingSet con un'unica scansione (algoritmo di Welford).
+	 * @param trainingSet Vista sul training set complessivo.
+	 * @param begin Indice del primo esempio.
+	 * @param end Indice dell'ultimo esempio.
+	 * @return Statistiche degli esempi.
+	 */
+	static NodeStatistics of(DataView trainingSet, int begin, int end) {
+		double mean = 0;
+		double variance = 0;
+		int n = 0;
+		for(int i = begin; i <= end; i++) {
+			double value = trainingSet.getClassValue(i);
+			double delta = value - mean;
+			n++;
+			mean += delta / n;
+			variance += delta * (value - mean);
+		}
+		
+		return new NodeStatistics(n, mean, variance);
+	}
+	
+	/**
+	 * Ricava le statistiche a partire dalle somme dei valori di classe traslati di shift.
+	 * @param count Numero di esempi.
+	 * @param sum Somma dei valori di classe traslati.
+	 * @param sumOfSquares Somma dei quadrati dei valori di classe traslati.
+	 * @param shift Traslazione applicata ai valori di classe.
+	 * @return Statistiche degli esempi.
+	 */
+	static NodeStatistics fromSums(int count, double sum, double sumOfSquares, double shift) {
+		return new NodeStatistics(count, shift + sum / count, Math.max(0, sumOfSquares - sum * sum / count));
+	}
+	
+	/**
+	 * Restituisce il numero di esempi.
+	 * @return Numero di esempi.
+	 */
+	int getCount() {
+		return count;
+	}
+	
+	/**
+	 * Restituisce la media dei valori di classe.
+	 * @return Media dei valori di classe.
+	 */
+	double getMean() {
+		return mean;
+	}
+	
+	/**
+	 * Restituisce la somma degli scarti quadratici dei valori di classe dalla media.
+	 * @return Varianza del nodo.
+	 */
+	double getVariance() {
+		return variance;
+	}
+}
@@ -0,0 +1,221 @@
+package tree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import data.*;
+
+/**
+ * Apprendimento per livelli (vedi LevelWiseLearner) da un training set memorizzato su disco (vedi SpilledData).
+ * Nello heap restano, oltre all'albero, il nodo a cui è assegnato ciascun esempio (4 byte per esempio), gli istogrammi
+ * dei nodi del livello corrente e un blocco di BLOCK_SIZE esempi per attributo.
+ * <p>
+ * Prima dell'apprendimento ciascun attributo continuo viene discretizzato in bin di quantili calcolati su un campione
+ * di al più SAMPLE_SIZE esempi (su tutti gli esempi, se non sono di più, per cui i bin coincidono con quelli
+ * di HistogramOrdering) e il bin di ciascun esempio viene scritto in un file temporaneo, mappato in memoria;
+ * ogni livello richiede quindi una sola scansione sequenziale delle colonne.
+ */
+class OutOfCoreLearner extends LevelWiseLearner {
+	/**
+	 * Numero massimo di esempi del campione da cui si ricavano i bin di un attributo continuo.
+	 */
+	static final int SAMPLE_SIZE = 1 << 20;
+	
+	/**
+	 * Dimensione massima, in byte, di un segmento di un file di bin mappato in una sola volta.
+	 */
+	private static final int SEGMENT_SIZE = 1 << 30;
+	
+	/**
+	 * Training set memorizzato su disco.
+	 */
+	private final SpilledData trainingSet;
+	
+	/**
+	 * Numero massimo di bin per attributo continuo.
+	 */
+	private final int numberOfBins;
+	
+	/**
+	 * Segmenti mappati dei file dei bin degli attributi continui (null per gli attributi discreti).
+	 */
+	private ShortBuffer[][] binSegments;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param trainingSet Training set memorizzato su disco.
+	 * @param options Opzioni di apprendimento, di cui si usano il numero di bin e il pool (la modalità è ignorata).
+	 */
+	OutOfCoreLearner(SpilledData trainingSet, LearningOptions options) {
+		super(explanatoryAttributes(trainingSet), trainingSet.getNumberOfExamples(), options.getPool());
+		this.trainingSet = trainingSet;
+		numberOfBins = options.getNumberOfBins();
+	}
+	
+	/**
+	 * Restituisce gli attributi indipendenti di trainingSet.
+	 * @param trainingSet Training set memorizzato su disco.
+	 * @return Attributi indipendenti, in ordine di indice.
+	 */
+	private static Attribute[] explanatoryAttributes(SpilledData trainingSet) {
+		Attribute[] attributes = new Attribute[trainingSet.getNumberOfExplanatoryAttributes()];
+		for(int a = 0; a < attributes.length; a++)
+			attributes[a] = trainingSet.getExplanatoryAttribute(a);
+		
+		return attributes;
+	}
+	
+	/**
+	 * Apprende l'albero. I file temporanei dei bin vengono eliminati al termine.
+	 * @return Albero appreso, di cui sono avvalorati la radice e i sotto-alberi.
+	 * @throws IOException Viene lanciata in caso di errori di scrittura o lettura dei file temporanei.
+	 * @throws IllegalArgumentException Se il training set non contiene esempi (non si possono ricavare i bin).
+	 */
+	RegressionTree learn() throws IOException {
+		if(numberOfExamples == 0)
+			throw new IllegalArgumentException("Il training set non contiene esempi");
+		
+		Path[] binFiles = new Path[attributes.length];
+		try {
+			quantize(binFiles);
+			RegressionTree tree = new RegressionTree();
+			buildLevels(tree);
+			return tree;
+		} finally {
+			for(Path file : binFiles)
+				if(file != null)
+					Files.deleteIfExists(file);
+		}
+	}
+	
+	/**
+	 * Discretizza gli attributi continui, un compito per attributo: una prima scansione della colonna ne estrae
+	 * il campione (un esempio ogni n / SAMPLE_SIZE) e il valore massimo, da cui si ricavano gli estremi dei bin
+	 * (vedi QuantizedAttribute.computeUpperBounds()); l'ultimo estremo è sempre il massimo della colonna.
+	 * Una seconda scansione scrive il bin di ciascun esempio (uno short) nel file temporaneo dell'attributo.
+	 * @param binFiles Array in cui memorizzare i file temporanei creati, per eliminarli al termine.
+	 * @throws IOException
+	 */
+	private void quantize(Path[] binFiles) throws IOException {
+		bins = new QuantizedAttribute[attributes.length];
+		binSegments = new ShortBuffer[attributes.length][];
+		
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for(int a = 0; a < attributes.length; a++)
+			if(attributes[a] instanceof ContinuousAttribute) {
+				int attributeIndex = a;
+				binFiles[a] = Files.createTempFile(trainingSet.getDirectory(), "bins", ".col");
+				tasks.add(() -> {
+					try {
+						bins[attributeIndex] = new QuantizedAttribute(sampleUpperBounds(attributeIndex));
+						binSegments[attributeIndex] = writeBins(attributeIndex, binFiles[attributeIndex]);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+		try {
+			invokeAll(tasks);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * Ricava gli estremi dei bin dell'attributo continuo attributeIndex da un campione dei suoi valori.
+	 * @param attributeIndex Indice dell'attributo continuo.
+	 * @return Estremi superiori dei bin.
+	 */
+	private double[] sampleUpperBounds(int attributeIndex) {
+		int n = numberOfExamples;
+		int stride = (int) (((long) n + SAMPLE_SIZE - 1) / SAMPLE_SIZE);
+		double[] sample = new double[(n + stride - 1) / stride];
+		double max = Double.NEGATIVE_INFINITY;
+		double[] values = new double[BLOCK_SIZE];
+		
+		int size = 0;
+		for(int first = 0; first < n; first += BLOCK_SIZE) {
+			int count = Math.min(BLOCK_SIZE, n - first);
+			trainingSet.readContinuousValues(attributeIndex, first, values, count);
+			for(int i = 0; i < count; i++) {
+				if((first + i) % stride == 0)
+					sample[size++] = values[i];
+				max = Math.max(max, values[i]);
+			}
+		}
+		Arrays.sort(sample);
+		
+		double[] upperBounds = QuantizedAttribute.computeUpperBounds(sample, numberOfBins);
+		if(upperBounds[upperBounds.length - 1] < max) {
+			upperBounds = Arrays.copyOf(upperBounds, upperBounds.length + 1);
+			upperBounds[upperBounds.length - 1] = max;
+		}
+		
+		return upperBounds;
+	}
+	
+	/**
+	 * Scrive nel file file il bin di ciascun esempio rispetto all'attributo continuo attributeIndex e lo mappa in memoria.
+	 * @param attributeIndex Indice dell'attributo continuo.
+	 * @param file File temporaneo dei bin.
+	 * @return Segmenti mappati del file.
+	 * @throws IOException
+	 */
+	private ShortBuffer[] writeBins(int attributeIndex, Path file) throws IOException {
+		int n = numberOfExamples;
+		QuantizedAttribute quantized = bins[attributeIndex];
+		double[] values = new double[BLOCK_SIZE];
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE * Short.BYTES);
+		
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			for(int first = 0; first < n; first += BLOCK_SIZE) {
+				int count = Math.min(BLOCK_SIZE, n - first);
+				trainingSet.readContinuousValues(attributeIndex, first, values, count);
+				for(int i = 0; i < count; i++)
+					buffer.putShort((short) quantized.getBinOfValue(values[i]));
+				buffer.flip();
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+				buffer.clear();
+			}
+			
+			long size = (long) n * Short.BYTES;
+			ShortBuffer[] segments = new ShortBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for(int s = 0; s < segments.length; s++) {
+				long position = (long) s * SEGMENT_SIZE;
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position)).asShortBuffer();
+			}
+			
+			return segments;
+		}
+	}
+	
+	void readClassValues(int first, double[] values, int count) {
+		trainingSet.readClassValues(first, values, count);
+	}
+	
+	/**
+	 * Legge i codici degli attributi discreti dalle colonne del training set e i bin di quelli continui dai file dei bin.
+	 */
+	void readAttributeValues(int attributeIndex, int first, int[] values, int count) {
+		if(bins[attributeIndex] == null)
+			trainingSet.readDiscreteValueCodes(attributeIndex, first, values, count);
+		else {
+			ShortBuffer[] segments = binSegments[attributeIndex];
+			int segmentExamples = SEGMENT_SIZE / Short.BYTES;
+			for(int i = 0; i < count; i++) {
+				int example = first + i;
+				values[i] = segments[example / segmentExamples].get(example % segmentExamples);
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package tree;
+
+import data.*;
+
+/**
+ * Ordinamento degli esempi basato su liste pre-ordinate (alla SLIQ/SPRINT): gli esempi vengono ordinati una sola volta
+ * rispetto a ciascun attributo indipendente e, ad ogni split, le liste vengono ripartite in modo stabile tra i figli.
+ * Poiché la ripartizione è stabile, in ogni lista gli esempi di un nodo restano ordinati rispetto al relativo attributo.
+ */
+class PresortedOrdering extends ExampleOrdering {
+	/**
+	 * Viste ordinate, una per ciascun attributo indipendente (indicizzate per indice dell'attributo).
+	 */
+	private final DataView[] views;
+	
+	/**
+	 * Figlio a cui è assegnato ciascun esempio durante la ripartizione delle liste.
+	 */
+	private final int[] childOfExample;
+	
+	/**
+	 * Costruttore di classe. Ordina gli esempi di trainingSet rispetto a ciascun attributo indipendente.
+	 * @param trainingSet Training set complessivo.
+	 */
+	PresortedOrdering(Data trainingSet) {
+		views = new DataView[trainingSet.getNumberOfExplanatoryAttributes()];
+		for(int i = 0; i < views.length; i++)
+			views[i] = new DataView(trainingSet, trainingSet.getExplanatoryAttribute(i));
+		
+		childOfExample = new int[trainingSet.getNumberOfExamples()];
+	}
+	
+	SplitNode determineSplitNode(Attribute attribute, int begin, int end, NodeStatistics statistics) {
+		return newSplitNode(views[attribute.getIndex()], attribute, begin, end, statistics);
+	}
+	
+	void split(SplitNode splitNode, int begin, int end) {
+		DataView splitView = views[splitNode.getAttribute().getIndex()];
+		for(int i = 0; i < splitNode.getNumberOfChildren(); i++) {
+			SplitNode.SplitInfo splitInfo = splitNode.getSplitInfo(i);
+			for(int j = splitInfo.getBeginindex(); j <= splitInfo.getEndIndex(); j++)
+				childOfExample[splitView.getExampleIndex(j)] = i;
+		}
+		
+		for(DataView view : views)
+			if(view != splitView)
+				view.partition(begin, end, childOfExample, splitNode.getNumberOfChildren());
+	}
+	
+	DataView getView() {
+		return views[0];
+	}
+}
@@ -0,0 +1,108 @@
+package tree;
+
+import java.util.Arrays;
+
+import data.*;
+
+/**
+ * Discretizzazione di un attributo continuo in bin di quantili. Ogni bin è individuato dal suo estremo superiore,
+ * che è un valore effettivamente assunto dall'attributo nel training set: un esempio appartiene al primo bin
+ * il cui estremo superiore è maggiore uguale del valore dell'attributo.
+ */
+class QuantizedAttribute {
+	/**
+	 * Estremi superiori dei bin, in ordine strettamente crescente.
+	 */
+	private final double[] upperBounds;
+	
+	/**
+	 * Bin di ciascun esempio, indicizzato per indice dell'esempio nel training set.
+	 */
+	private final short[] binOfExample;
+	
+	/**
+	 * Costruttore di classe. Discretizza l'attributo attribute di trainingSet in al più numberOfBins bin
+	 * contenenti approssimativamente lo stesso numero di esempi.
+	 * @param trainingSet Training set complessivo.
+	 * @param attribute Attributo continuo da discretizzare.
+	 * @param numberOfBins Numero massimo di bin.
+	 */
+	QuantizedAttribute(Data trainingSet, ContinuousAttribute attribute, int numberOfBins) {
+		int n = trainingSet.getNumberOfExamples();
+		double[] sorted = new double[n];
+		for(int i = 0; i < n; i++)
+			sorted[i] = trainingSet.getContinuousValue(i, attribute.getIndex());
+		Arrays.sort(sorted);
+		upperBounds = computeUpperBounds(sorted, numberOfBins);
+		
+		binOfExample = new short[n];
+		for(int i = 0; i < n; i++)
+			binOfExample[i] = (short) getBinOfValue(trainingSet.getContinuousValue(i, attribute.getIndex()));
+	}
+	
+	/**
+	 * Costruttore di classe per le discretizzazioni i cui estremi sono calcolati altrove (vedi OutOfCoreLearner).
+	 * I bin degli esempi non sono memorizzati e vanno ricavati dai valori con getBinOfValue().
+	 * @param upperBounds Estremi superiori dei bin, in ordine strettamente crescente.
+	 */
+	QuantizedAttribute(double[] upperBounds) {
+		this.upperBounds = upperBounds;
+		binOfExample = null;
+	}
+	
+	/**
+	 * Ricava gli estremi superiori di al più numberOfBins bin di quantili dai valori ordinati sorted.
+	 * @param sorted Valori dell'attributo, in ordine crescente.
+	 * @param numberOfBins Numero massimo di bin.
+	 * @return Estremi superiori dei bin, in ordine strettamente crescente (l'ultimo è il valore massimo).
+	 */
+	static double[] computeUpperBounds(double[] sorted, int numberOfBins) {
+		int n = sorted.length;
+		double[] bounds = new double[Math.min(numberOfBins, n)];
+		int size = 0;
+		for(int b = 1; b <= numberOfBins; b++) {
+			int quantile = (int) ((long) b * n / numberOfBins) - 1;
+			if(quantile >= 0 && (size == 0 || sorted[quantile] > bounds[size - 1]))
+				bounds[size++] = sorted[quantile];
+		}
+		
+		return Arrays.copyOf(bounds, size);
+	}
+	
+	/**
+	 * Restituisce il numero di bin.
+	 * @return Numero di bin.
+	 */
+	int getNumberOfBins() {
+		return upperBounds.length;
+	}
+	
+	/**
+	 * Restituisce il bin dell'esempio exampleIndex.
+	 * @param exampleIndex Indice dell'esempio nel training set.
+	 * @return Indice del bin.
+	 */
+	int getBin(int exampleIndex) {
+		return binOfExample[exampleIndex];
+	}
+	
+	/**
+	 * Restituisce il bin a cui appartiene il valore value: il primo il cui estremo superiore è maggiore uguale di value.
+	 * @param value Valore dell'attributo, al più uguale all'estremo superiore dell'ultimo bin.
+	 * @return Indice del bin.
+	 */
+	int getBinOfValue(double value) {
+		int bin = Arrays.binarySearch(upperBounds, value);
+		
+		return bin >= 0 ? bin : -bin - 1;
+	}
+	
+	/**
+	 * Restituisce l'estremo superiore del bin bin.
+	 * @param bin Indice del bin.
+	 * @return Valore massimo dell'attributo tra gli esempi del bin.
+	 */
+	double getUpperBound(int bin) {
+		return upperBounds[bin];
+	}
+}
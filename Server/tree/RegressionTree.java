@@ -2,12 +2,14 @@ package tree;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import data.*;
 import server.UnknownValueException;
 
 /**
- * Modella l'entit albero di decisione come insieme di sotto-alberi.
+ * Modella l'entità albero di decisione come insieme di sotto-alberi.
  */
 public class RegressionTree implements Serializable {
 	/**
@@ -21,56 +23,237 @@ public class RegressionTree implements Serializable {
 	private Node root;
 	
 	/**
-	 * Array di sotto-alberi originanti nel nodo root: vi  un elemento nell'array per ogni figlio del nodo
+	 * Array di sotto-alberi originanti nel nodo root: vi è un elemento nell'array per ogni figlio del nodo
 	 */
 	private RegressionTree childTree[];
 	
 	/**
-	 * Istanzia un nuovo albero di regressione.
+	 * Forma compilata dell'albero, usata per la predizione (presente solo sulla radice dell'albero complessivo).
+	 */
+	private transient CompiledTree compiledTree;
+	
+	/**
+	 * Informazioni di apprendimento dei nodi, presenti solo per gli alberi letti da un file di modello
+	 * (vedi ModelFile), che non hanno root e childTree.
+	 */
+	private transient TreeSummary summary;
+	
+	/**
+	 * Istanzia un nuovo albero di regressione. L'apprendimento lavora su viste del training set
+	 * create appositamente, per cui trainingSet non viene modificato e può essere condiviso.
 	 * @param trainingSet TrainingSet a partire dal quale generare l'albero.
 	 */
 	public RegressionTree(Data trainingSet) {
-		learnTree(trainingSet, 0, trainingSet.getNumberOfExamples() - 1, trainingSet.getNumberOfExamples() * 10 / 100);
+		this(trainingSet, LearningMode.SORTING);
 	}
-
+	
+	/**
+	 * Istanzia un nuovo albero di regressione apprendendolo secondo la modalità mode.
+	 * @param trainingSet TrainingSet a partire dal quale generare l'albero.
+	 * @param mode Modalità con cui organizzare gli esempi durante l'apprendimento.
+	 */
+	public RegressionTree(Data trainingSet, LearningMode mode) {
+		this(trainingSet, new LearningOptions(mode));
+	}
+	
+	/**
+	 * Istanzia un nuovo albero di regressione apprendendolo secondo le opzioni options.
+	 * @param trainingSet TrainingSet a partire dal quale generare l'albero.
+	 * @param options Opzioni di apprendimento (modalità, eventuale numero di bin e pool per l'apprendimento parallelo).
+	 */
+	public RegressionTree(Data trainingSet, LearningOptions options) {
+		if(options.getMode() == LearningMode.LEVEL_WISE)
+			adopt(new InMemoryLearner(trainingSet, options).learn());
+		else {
+			ExampleOrdering ordering = ExampleOrdering.create(trainingSet, options);
+			int end = trainingSet.getNumberOfExamples() - 1;
+			int numberOfExamplesPerLeaf = numberOfExamplesPerLeaf(trainingSet.getNumberOfExamples());
+			NodeStatistics statistics = NodeStatistics.of(ordering.getView(), 0, end);
+			
+			RegressionTree learned = new RegressionTree();
+			if(options.getPool() == null)
+				learned.learnTree(ordering, 0, end, numberOfExamplesPerLeaf, statistics, options);
+			else
+				options.getPool().invoke(ForkJoinTask.adapt(() -> learned.learnTree(ordering, 0, end, numberOfExamplesPerLeaf, statistics, options)));
+			adopt(learned);
+		}
+	}
+	
+	/**
+	 * Istanzia un nuovo albero di regressione apprendendolo da un training set memorizzato su disco, un livello
+	 * alla volta (vedi OutOfCoreLearner). Gli split sono quelli approssimati della modalità LearningMode.HISTOGRAM,
+	 * con il numero di bin delle opzioni; la modalità delle opzioni viene ignorata. L'albero appreso è un albero
+	 * ordinario: può essere salvato, descritto e usato per la predizione come gli altri.
+	 * @param trainingSet Training set memorizzato su disco, che non viene modificato.
+	 * @param options Opzioni di apprendimento (numero di bin ed eventuale pool per la scansione parallela degli attributi).
+	 * @throws IOException Viene lanciata in caso di errori nella scrittura o nella lettura dei file temporanei
+	 * dell'apprendimento, creati nella directory del training set.
+	 * @throws IllegalArgumentException Se il training set non contiene esempi.
+	 */
+	public RegressionTree(SpilledData trainingSet, LearningOptions options) throws IOException {
+		adopt(new OutOfCoreLearner(trainingSet, options).learn());
+	}
+	
 	/**
 	 * Istanzia un albero vuoto
 	 */
 	public RegressionTree() {
 	}
-
+	
+	/**
+	 * Istanzia un albero disponibile solo in forma compilata, letto da un file di modello.
+	 * @param compiledTree Albero compilato.
+	 * @param summary Informazioni di apprendimento dei nodi (null se non presenti nel file).
+	 */
+	RegressionTree(CompiledTree compiledTree, TreeSummary summary) {
+		this.compiledTree = compiledTree;
+		this.summary = summary;
+	}
+	
+	/**
+	 * Restituisce il numero massimo di esempi di un nodo fogliare: il 10% degli esempi del training set.
+	 * @param numberOfExamples Numero di esempi del training set.
+	 * @return Numero massimo di esempi di un nodo fogliare.
+	 */
+	static int numberOfExamplesPerLeaf(int numberOfExamples) {
+		return (int) ((long) numberOfExamples * 10 / 100);
+	}
+	
+	/**
+	 * Numera i nodi dell'albero tree appena appreso, lo compila e ne assume la radice, i sotto-alberi e la forma
+	 * compilata. I costruttori apprendono un albero distinto, anziché quello in costruzione, per non esporre this
+	 * (ai LevelWiseLearner, al pool o a CompiledTree) prima di aver concluso l'inizializzazione.
+	 * @param tree Albero appreso.
+	 */
+	private void adopt(RegressionTree tree) {
+		tree.numberNodes();
+		root = tree.root;
+		childTree = tree.childTree;
+		compiledTree = new CompiledTree(tree);
+	}
+	
+	/**
+	 * Avvalora la radice e i sotto-alberi di un albero costruito al di fuori di learnTree() (vedi LevelWiseLearner).
+	 * @param root Radice del sotto-albero.
+	 * @param childTree Sotto-alberi dei figli di root (null se root è un nodo fogliare).
+	 */
+	void setRoot(Node root, RegressionTree[] childTree) {
+		this.root = root;
+		this.childTree = childTree;
+	}
+	
 	/**
 	 * Genera un sotto-albero con il sotto-insieme di input ([begin, end]) istanziando un nodo
 	 * fogliare (isLeaf()) o un nodo di split. Nell'ultimo caso determina il miglior nodo rispetto al sotto-insieme di
 	 * input (determineBestSplitNode()), ed a tale nodo esso associa un sotto-albero avente come radice il nodo
 	 * medesimo (root) e avente un numero di rami pari al numero dei figli determinati dallo split (childTree[]).
-	 * Ricorsivamente per ogni oggetto DecisionTree in childTree[] sar re-invocato il metodo
+	 * Ricorsivamente per ogni oggetto DecisionTree in childTree[] sarà re-invocato il metodo
 	 * learnTree() per l'apprendimento su un insieme ridotto del sotto-insieme attuale (begin... end). Nella
 	 * condizione in cui il nodo di split non origina figli, il nodo diventa fogliare.
-	 * @param trainingSet Training set complessivo.
+	 * @param ordering Ordinamento degli esempi del training set complessivo.
 	 * @param begin Indice nel training set del primo esempio coperto.
 	 * @param end Indice nel training set dell'ultimo esempio coperto.
 	 * @param numberOfExamplesPerLeaf numero max che una foglia deve contenere.
+	 * @param statistics Statistiche dei valori di classe degli esempi [begin, end], ricavate dallo split del padre.
+	 * @param options Opzioni di apprendimento.
 	 */
-	private void learnTree(Data trainingSet, int begin, int end, int numberOfExamplesPerLeaf) {
-		if(isLeaf(begin, end, numberOfExamplesPerLeaf))
-			//determina la classe che compare pi frequentemente nella partizione corrente
-			root = new LeafNode(trainingSet, begin, end);
+	private void learnTree(ExampleOrdering ordering, int begin, int end, int numberOfExamplesPerLeaf, NodeStatistics statistics, LearningOptions options) {
+		if(isLeaf(begin, end, numberOfExamplesPerLeaf)) {
+			//determina la classe che compare più frequentemente nella partizione corrente
+			root = new LeafNode(begin, end, statistics);
+			ordering.release(begin, end);
+		}
 		else /*split node*/{
-			root = determineBestSplitNode(trainingSet, begin, end);
+			root = determineBestSplitNode(ordering, begin, end, statistics, options.getPool());
 			if(root.getNumberOfChildren() > 1){
+				ordering.split((SplitNode) root, begin, end);
 				childTree = new RegressionTree[root.getNumberOfChildren()];
+				//i sotto-alberi coprono intervalli disgiunti: quelli abbastanza grandi vengono appresi in parallelo
+				List<ForkJoinTask<?>> subtrees = new ArrayList<ForkJoinTask<?>>();
 				for(int i = 0; i < root.getNumberOfChildren(); i++){
-					childTree[i] = new RegressionTree();
-					childTree[i].learnTree(trainingSet, ((SplitNode)root).getSplitInfo(i).getBeginindex(), ((SplitNode)root).getSplitInfo(i).getEndIndex(), numberOfExamplesPerLeaf);
+					RegressionTree child = new RegressionTree();
+					SplitNode.SplitInfo split = ((SplitNode)root).getSplitInfo(i);
+					childTree[i] = child;
+					if(options.getPool() != null && split.getEndIndex() - split.getBeginindex() + 1 >= options.getParallelSubtreeCutoff())
+						subtrees.add(ForkJoinTask.adapt(() -> child.learnTree(ordering, split.getBeginindex(), split.getEndIndex(), numberOfExamplesPerLeaf, split.getStatistics(), options)).fork());
+					else
+						child.learnTree(ordering, split.getBeginindex(), split.getEndIndex(), numberOfExamplesPerLeaf, split.getStatistics(), options);
 				}
+				for(ForkJoinTask<?> subtree : subtrees)
+					subtree.join();
+			}
+			else {
+				root = new LeafNode(begin, end, statistics);
+				ordering.release(begin, end);
 			}
-			else root = new LeafNode(trainingSet, begin, end);
 		}
 	}
-
+	
+	/**
+	 * Assegna gli identificativi dei nodi dell'albero in pre-ordine, a partire da 0.
+	 */
+	private void numberNodes() {
+		int idNode = 0;
+		for(RegressionTree subtree : preOrder())
+			subtree.root.setIdNode(idNode++);
+	}
+	
+	/**
+	 * Restituisce i sotto-alberi dell'albero (compreso l'albero stesso) in pre-ordine. La visita usa una pila
+	 * esplicita, per cui la profondità dell'albero non incide sulla pila delle chiamate.
+	 * @return Sotto-alberi in pre-ordine.
+	 */
+	private List<RegressionTree> preOrder() {
+		List<RegressionTree> subtrees = new ArrayList<RegressionTree>();
+		Deque<RegressionTree> pending = new ArrayDeque<RegressionTree>();
+		pending.push(this);
+		while(!pending.isEmpty()) {
+			RegressionTree current = pending.pop();
+			subtrees.add(current);
+			//i figli vengono inseriti in ordine inverso, così da essere estratti nell'ordine dei rami
+			if(current.root instanceof SplitNode)
+				for(int i = current.childTree.length - 1; i >= 0; i--)
+					pending.push(current.childTree[i]);
+		}
+		
+		return subtrees;
+	}
+	
 	/**
-	 * Verifica se il sotto-insieme corrente pu essere coperto da un nodo foglia
+	 * Restituisce il nodo radice del sotto-albero corrente.
+	 * @return Nodo radice.
+	 */
+	Node getRoot() {
+		return root;
+	}
+	
+	/**
+	 * Restituisce il sotto-albero originato dal ramo child del nodo radice.
+	 * @param child Ramo del nodo radice.
+	 * @return Sotto-albero relativo a child.
+	 */
+	RegressionTree getSubtree(int child) {
+		return childTree[child];
+	}
+	
+	/**
+	 * Restituisce la forma compilata dell'albero, usata da tutte le fasi di predizione.
+	 * @return Albero compilato.
+	 */
+	public CompiledTree getCompiledTree() {
+		return compiledTree;
+	}
+	
+	/**
+	 * Restituisce le informazioni di apprendimento dei nodi, ricavandole dai nodi se l'albero non è solo compilato.
+	 * @return Informazioni di apprendimento dei nodi (null se non disponibili).
+	 */
+	TreeSummary getSummary() {
+		return root != null ? new TreeSummary(this) : summary;
+	}
+	
+	/**
+	 * Verifica se il sotto-insieme corrente può essere coperto da un nodo foglia
 	 * controllando che il numero di esempi del training set compresi tra begin e end sia minore uguale di
 	 * numberOfExamplesPerLeaf.
 	 * @param begin Indice nel training set del primo esempio coperto.
@@ -81,38 +264,60 @@ public class RegressionTree implements Serializable {
 	private boolean isLeaf(int begin, int end, int numberOfExamplesPerLeaf) {
 		return (end - begin + 1) <= numberOfExamplesPerLeaf;
 	}
-
+	
 	/**
 	 * Per ciascun attributo indipendente istanzia lo SplitNode associato e seleziona il
 	 * nodo di split con minore varianza tra gli SplitNode istanziati. Restituisce il nodo selezionato.
-	 * @param trainingSet Training set complessivo.
+	 * Se è disponibile un pool, gli SplitNode dei diversi attributi sono istanziati in parallelo; poiché vengono
+	 * comunque confrontati nell'ordine degli attributi, il nodo selezionato è lo stesso dell'esecuzione sequenziale.
+	 * @param ordering Ordinamento degli esempi del training set complessivo.
 	 * @param begin Indice nel training set del primo esempio coperto.
 	 * @param end Indice nel training set dell'ultimo esempio coperto.
+	 * @param statistics Statistiche dei valori di classe degli esempi [begin, end].
+	 * @param pool Pool su cui valutare gli attributi in parallelo (null per la valutazione sequenziale).
 	 * @return Nodo di split migliore per il sotto-insieme di training.
 	 */
-	private SplitNode determineBestSplitNode(Data trainingSet, int begin, int end) {
-		TreeSet <SplitNode> ts = new TreeSet<SplitNode>();
-		SplitNode currentNode;
-
-		for(int i = 0; i < trainingSet.getNumberOfExplanatoryAttributes(); i++) {
-			Attribute a = trainingSet.getExplanatoryAttribute(i);
-			if(a instanceof DiscreteAttribute) {
-				DiscreteAttribute attribute = (DiscreteAttribute) trainingSet.getExplanatoryAttribute(i);
-				currentNode = new DiscreteNode(trainingSet, begin, end, attribute);
-			}
-			else{
-				ContinuousAttribute attribute = (ContinuousAttribute) trainingSet.getExplanatoryAttribute(i);
-				currentNode = new ContinuousNode(trainingSet, begin, end, attribute);
+	private SplitNode determineBestSplitNode(ExampleOrdering ordering, int begin, int end, NodeStatistics statistics, ForkJoinPool pool) {
+		DataView trainingSet = ordering.getView();
+		SplitNode[] candidates = new SplitNode[trainingSet.getNumberOfExplanatoryAttributes()];
+		
+		if(pool == null || candidates.length < 2) {
+			for(int i = 0; i < candidates.length; i++)
+				candidates[i] = ordering.determineSplitNode(trainingSet.getExplanatoryAttribute(i), begin, end, statistics);
+		}
+		else {
+			List<ForkJoinTask<SplitNode>> tasks = new ArrayList<ForkJoinTask<SplitNode>>(candidates.length);
+			for(int i = 0; i < candidates.length; i++) {
+				Attribute attribute = trainingSet.getExplanatoryAttribute(i);
+				tasks.add(ForkJoinTask.adapt(() -> ordering.determineSplitNode(attribute, begin, end, statistics)));
 			}
-
-			ts.add(currentNode);
+			
+			if(ForkJoinTask.inForkJoinPool())
+				ForkJoinTask.invokeAll(tasks);
+			else
+				pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+			
+			for(int i = 0; i < candidates.length; i++)
+				candidates[i] = tasks.get(i).join();
 		}
-
-		trainingSet.sort(ts.first().getAttribute(), begin, end);
-
+		
+		return selectBestSplitNode(candidates);
+	}
+	
+	/**
+	 * Seleziona il nodo di split con minore varianza tra i candidati; a parità di varianza prevale il primo
+	 * nell'ordine degli attributi.
+	 * @param candidates Nodi di split candidati, uno per attributo indipendente.
+	 * @return Nodo di split migliore.
+	 */
+	static SplitNode selectBestSplitNode(SplitNode[] candidates) {
+		TreeSet <SplitNode> ts = new TreeSet<SplitNode>();
+		for(SplitNode candidate : candidates)
+			ts.add(candidate);
+		
 		return ts.first();
 	}
-
+	
 	/**
 	 * Stampa le informazioni dell'intero albero (compresa una intestazione).
 	 */
@@ -127,105 +332,124 @@ public class RegressionTree implements Serializable {
 	 * @return Stringa con informazioni riguardanti la struttura dell'albero.
 	 */
 	public String getTree(){
-		String tree = "********* TREE **********\n";
-		tree += toString() + "\n";
-		tree += "*************************\n";
+		StringWriter tree = new StringWriter();
+		try {
+			writeTree(tree);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 		
-		return tree;
+		return tree.toString();
 	}
-
+	
+	/**
+	 * Scrive su out le informazioni riguardanti la struttura dell'albero, con la stessa intestazione di getTree().
+	 * Le informazioni vengono scritte nodo per nodo, senza costruire la descrizione completa in memoria.
+	 * @param out Destinazione delle informazioni.
+	 * @throws IOException Se la scrittura su out fallisce.
+	 */
+	public void writeTree(Writer out) throws IOException {
+		out.write("********* TREE **********\n");
+		writeStructure(out);
+		out.write("\n");
+		out.write("*************************\n");
+	}
+	
 	/**
 	 * Concatena in una String tutte le informazioni di root-childTree[] correnti
-	 * invocando i relativi metodo toString(): nel caso il root corrente  di split vengono concatenate anche
+	 * invocando i relativi metodo toString(): nel caso il root corrente è di split vengono concatenate anche
 	 * le informazioni dei rami.
 	 */
 	public String toString(){
-		String tree = root.toString() + "\n";
-		
-		if(root instanceof LeafNode) {
-
+		StringWriter tree = new StringWriter();
+		try {
+			writeStructure(tree);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		else //split node
-			for (RegressionTree regressionTree : childTree)
-				tree += regressionTree;
-
-		return tree;
+		
+		return tree.toString();
 	}
-
+	
 	/**
-	 * Scandisce ciascun ramo dell'albero completo dalla radice alla foglia concatenando
-	 * le informazioni dei nodi di split fino al nodo foglia. In particolare per ogni sotto-albero (oggetto
-	 * DecisionTree) in childTree[] concatena le informazioni del nodo root: se  di split discende
-	 * ricorsivamente l'albero per ottenere le informazioni del nodo sottostante (necessario per
-	 * ricostruire le condizioni in AND) di ogni ramo-regola, se  di foglia (leaf) termina
-	 * l'attraversamento restiuendo la regola. 
-	 * @return Una stringa che descrive le regole relative a tutto l'albero di split.
+	 * Scrive su out le informazioni di root-childTree[] correnti (vedi toString()), in pre-ordine.
+	 * @param out Destinazione delle informazioni.
+	 * @throws IOException Se la scrittura su out fallisce.
 	 */
-	private String generateRules() {
-		String rules = "********* RULES **********\n";
+	private void writeStructure(Writer out) throws IOException {
+		if(root == null) {
+			if(summary != null)
+				summary.write(compiledTree, out);
+			else
+				out.write("Struttura dell'albero non disponibile\n");
+			return;
+		}
 		
-		if(root instanceof LeafNode){
-
+		for(RegressionTree subtree : preOrder()) {
+			out.write(subtree.root.toString());
+			out.write("\n");
 		}
-		else {
-			Attribute a = ((SplitNode) root).getAttribute();
-
-			if(a instanceof DiscreteAttribute){
-				Iterator<Object> itr = ((DiscreteAttribute)((SplitNode) root).getAttribute()).iterator();
-				for (RegressionTree regressionTree : childTree) {
-					rules = regressionTree.generateRules(a.getName() + "= " + itr.next(), rules);
-				}
-			}
-			else if(a instanceof ContinuousAttribute){
-				int i = 0;
-				for (RegressionTree regressionTree : childTree) {
-					rules = regressionTree.generateRules(a.getName() + " " + ((SplitNode) root).getSplitInfo(i).getComparator() + " " + ((SplitNode) root).getSplitInfo(i).getSplitValue(), rules);
-					i++;
-				}
-			}
+	}
+	
+	/**
+	 * Scrive su out una regola per ciascun ramo dell'albero completo dalla radice alla foglia, concatenando
+	 * in AND le condizioni dei nodi di split attraversati (vedi writeRules(Writer, StringBuilder)).
+	 * @param out Destinazione delle regole.
+	 * @throws IOException Se la scrittura su out fallisce.
+	 */
+	public void writeRules(Writer out) throws IOException {
+		if(root == null) {
+			compiledTree.writeRules(out);
+			return;
 		}
 		
-		return rules;
+		out.write("********* RULES **********\n");
+		if(root instanceof SplitNode)
+			writeRules(out, new StringBuilder());
 	}
 	
 	/**
-	 * Concatena alle informazioni in current del precedente nodo 
-	 * quelle del nodo root del corrente sotto-albero (oggetto DecisionTree): se il nodo corrente
-	 *  di split il metodo viene invocato ricorsivamente con current e le informazioni del nodo corrente,
-	 * se  fogliare (leaf) restituisce tutte le informazioni concatenate.
-	 * @param current Informazioni del nodo di split del sotto-albero al livello superiore.
-	 * @param currentRules Regole reperite fino al momento dell'esecuzione di questo metodo.
-	 * @return Una stringa con tutte le regole relative all'albero di regressione corrente. 
+	 * Percorre l'albero in profondità con una pila esplicita di sotto-alberi: a ogni passo aggiunge a current
+	 * la condizione del prossimo ramo del sotto-albero in cima alla pila e vi inserisce il relativo figlio;
+	 * raggiunto un nodo foglia (leaf) scrive su out la regola formata dalle condizioni in current. Ogni sotto-albero
+	 * ricorda la lunghezza di current che lo precede, per cui le condizioni comuni a più regole vengono costruite
+	 * una sola volta e la profondità dell'albero non incide sulla pila delle chiamate.
+	 * @param out Destinazione delle regole.
+	 * @param current Condizioni in AND dei nodi di split che portano al sotto-albero corrente.
+	 * @throws IOException Se la scrittura su out fallisce.
 	 */
-	private String generateRules(String current, String currentRules) {
-		if(root instanceof LeafNode)
-			currentRules += current + " ==> Class= " + ((LeafNode) root).getPredictedClassValue() + "\n";
-		else {
-			Attribute currentAttribute = ((SplitNode) root).getAttribute();
-
-			if(currentAttribute instanceof  DiscreteAttribute) {
-				Iterator<Object> itr = ((DiscreteAttribute) currentAttribute).iterator();
-
-				for (RegressionTree regressionTree : childTree) {
-					String x = current;
-					current = x + " AND " + currentAttribute.getName() + "= " + itr.next();
-					currentRules = regressionTree.generateRules(current, currentRules);
-					current = x;
-				}
-			}
-			else if(currentAttribute instanceof ContinuousAttribute){
-				int i = 0;
-				for (RegressionTree regressionTree : childTree) {
-					String x = current;
-					current = x + " AND " + currentAttribute.getName() + " " + ((SplitNode) root).getSplitInfo(i).getComparator() + " " + ((SplitNode) root).getSplitInfo(i).getSplitValue();
-					i++;
-					currentRules = regressionTree.generateRules(current, currentRules);
-					current = x;
-				}
+	private void writeRules(Writer out, StringBuilder current) throws IOException {
+		Deque<RegressionTree> path = new ArrayDeque<RegressionTree>();
+		//per ciascun sotto-albero di path: prossimo ramo da visitare e lunghezza di current che lo precede
+		Deque<int[]> branches = new ArrayDeque<int[]>();
+		path.push(this);
+		branches.push(new int[] {0, current.length()});
+		while(!path.isEmpty()) {
+			RegressionTree subtree = path.peek();
+			int[] branch = branches.peek();
+			if(subtree.root instanceof LeafNode)
+				out.append(current).append(" ==> Class= ").append(String.valueOf(((LeafNode) subtree.root).getPredictedClassValue())).append("\n");
+			if(subtree.root instanceof LeafNode || branch[0] == subtree.childTree.length) {
+				//sotto-albero concluso: si torna al padre
+				path.pop();
+				branches.pop();
+				continue;
 			}
+			
+			SplitNode split = (SplitNode) subtree.root;
+			Attribute currentAttribute = split.getAttribute();
+			SplitNode.SplitInfo info = split.getSplitInfo(branch[0]);
+			current.setLength(branch[1]);
+			if(branch[1] > 0)
+				current.append(" AND ");
+			current.append(currentAttribute.getName());
+			if(currentAttribute instanceof ContinuousAttribute)
+				current.append(" ");
+			current.append(info.getComparator()).append(" ").append(info.getSplitValue());
+			
+			path.push(subtree.childTree[branch[0]++]);
+			branches.push(new int[] {0, current.length()});
 		}
-		
-		return currentRules;
 	}
 	
 	/**
@@ -233,64 +457,61 @@ public class RegressionTree implements Serializable {
 	 * @return Stringa con tutte le regole relative al corrente albero di regressione.
 	 */
 	public String getRules() {
-		return generateRules();
+		StringWriter rules = new StringWriter();
+		try {
+			writeRules(rules);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		return rules.toString();
 	}
 	
 	/**
 	 * Visualizza le informazioni di ciascuno split dell'albero (SplitNode.formulateQuery()) 
 	 * e per il corrispondente attributo acquisisce il valore dell'esempio da predire dallo stream in. 
-	 * Se il nodo root corrente  leaf termina l'acquisizione e scrive sullo stream out la predizione
-	 * per lattributo classe, altrimenti invoca ricorsivamente sul figlio di root in childTree
-	 * individuato dal valore acquisito dallo stream in.
+	 * Raggiunto un nodo foglia termina l'acquisizione e scrive sullo stream out la predizione
+	 * per l’attributo classe. L'albero viene percorso nella sua forma compilata (vedi CompiledTree.predictClass()).
 	 * @param in Stream da cui leggere la scelta dell'utente.
 	 * @param out Stream su cui scrivere la relativa predizione.
 	 * @throws UnknownValueException
 	 */
 	public void predictClass(ObjectInputStream in, ObjectOutputStream out) throws UnknownValueException{
-		try {
-			if(root instanceof LeafNode) {
-				out.writeObject("OK");
-				out.writeObject(((LeafNode) root).getPredictedClassValue());
-			}
-			else {
-				out.writeObject("QUERY");
-				int risp = -1;
-				out.writeObject(((SplitNode)root).formulateQuery());
-				risp = (int) in.readObject();
-				
-				if(risp <= -2 || risp >= root.getNumberOfChildren()) {
-					throw new UnknownValueException("The answer should be an integer between 0 and " + (root.getNumberOfChildren() - 1) + "!");
-				}
-				else if(risp == -1) {
-					out.writeObject("Exit form prediction phase...");
-				}
-				else
-					childTree[risp].predictClass(in, out);
-			}
-		}catch (IOException | ClassNotFoundException e) {
-			System.out.println(e.toString());
-		}
+		compiledTree.predictClass(in, out);
 	}
 	
 	/**
-	 * Serializza l'albero in un file.
+	 * Serializza l'albero in un file. Viene serializzata la forma SerializedTree, con i nodi in pre-ordine in un array,
+	 * anziché i sotto-alberi annidati, che la serializzazione predefinita visiterebbe ricorsivamente. I file salvati
+	 * con i sotto-alberi annidati possono comunque essere caricati (vedi carica()).
 	 * @param nomeFile Nome del file in cui salvare l'albero
 	 * @throws FileNotFoundException
 	 * @throws IOException
 	 */
 	public void salva(String nomeFile) throws FileNotFoundException, IOException {
+		if(root == null)
+			throw new NotSerializableException("L'albero è disponibile solo in forma compilata: usare salvaModello()");
+		
 		FileOutputStream outFile = new FileOutputStream(nomeFile);
 		ObjectOutputStream outStream = new ObjectOutputStream(outFile);
-
+		
 		outStream.writeObject(this);
-
+		
 		outFile.close();
 		outStream.close();
 	}
-
+	
+	/**
+	 * Sostituisce l'albero con la sua forma SerializedTree durante la serializzazione (vedi salva()).
+	 * @return Forma serializzata dell'albero.
+	 */
+	private Object writeReplace() {
+		return new SerializedTree(this);
+	}
+	
 	/**
 	 * Carica un albero di regressione salvato in un file.
-	 * @param nomeFile Nome del file in cui  salvato l'albero.
+	 * @param nomeFile Nome del file in cui è salvato l'albero.
 	 * @return L'albero contenuto nel file.
 	 * @throws FileNotFoundException
 	 * @throws IOException
@@ -299,12 +520,94 @@ public class RegressionTree implements Serializable {
 	public static RegressionTree carica(String nomeFile) throws FileNotFoundException, IOException, ClassNotFoundException {
 		FileInputStream inFile = new FileInputStream(nomeFile);
 		ObjectInputStream inStream = new ObjectInputStream(inFile);
-
+		
 		RegressionTree r = (RegressionTree) inStream.readObject();
 		
 		inFile.close();
 		inStream.close();
-
+		r.compiledTree = new CompiledTree(r);
+		
 		return r;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Salva l'albero nel formato binario dei file di modello (vedi ModelFile).
+	 * @param nomeFile Nome del file in cui salvare l'albero.
+	 * @throws IOException
+	 */
+	public void salvaModello(String nomeFile) throws IOException {
+		ModelFile.write(this, nomeFile);
+	}
+	
+	/**
+	 * Carica un albero salvato nel formato binario dei file di modello, mappando il file in memoria.
+	 * L'albero restituito è disponibile solo in forma compilata.
+	 * @param nomeFile Nome del file in cui è salvato l'albero.
+	 * @return L'albero contenuto nel file.
+	 * @throws IOException
+	 */
+	public static RegressionTree caricaModello(String nomeFile) throws IOException {
+		return ModelFile.read(nomeFile);
+	}
+	
+	/**
+	 * Verifica se il file nomeFile è nel formato binario dei file di modello (altrimenti è un file .dmp).
+	 * @param nomeFile Nome del file.
+	 * @return true se il file è un file di modello, false altrimenti.
+	 * @throws IOException
+	 */
+	public static boolean isModello(String nomeFile) throws IOException {
+		return ModelFile.isModelFile(nomeFile);
+	}
+	
+	/**
+	 * Forma serializzata di un albero di regressione (vedi salva()): i nodi dell'albero in pre-ordine, da cui
+	 * readResolve() ricostruisce i sotto-alberi senza ricorsione.
+	 */
+	private static class SerializedTree implements Serializable {
+		/**
+		 * Default serialVersionUID
+		 */
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * Nodi dell'albero in pre-ordine.
+		 */
+		private final Node[] nodes;
+		
+		/**
+		 * Costruttore di classe. Raccoglie i nodi di tree in pre-ordine.
+		 * @param tree Albero da serializzare.
+		 */
+		SerializedTree(RegressionTree tree) {
+			List<RegressionTree> subtrees = tree.preOrder();
+			nodes = new Node[subtrees.size()];
+			for(int i = 0; i < nodes.length; i++)
+				nodes[i] = subtrees.get(i).root;
+		}
+		
+		/**
+		 * Ricostruisce l'albero dai nodi in pre-ordine: ogni nodo diventa la radice del primo sotto-albero ancora
+		 * vuoto, mentre i sotto-alberi dei figli di un nodo di split vengono inseriti nella pila in ordine inverso.
+		 * @return Albero di regressione (senza forma compilata, aggiunta da carica()).
+		 */
+		private Object readResolve() {
+			RegressionTree tree = new RegressionTree();
+			Deque<RegressionTree> pending = new ArrayDeque<RegressionTree>();
+			pending.push(tree);
+			for(Node node : nodes) {
+				RegressionTree current = pending.pop();
+				current.root = node;
+				if(node instanceof SplitNode) {
+					current.childTree = new RegressionTree[node.getNumberOfChildren()];
+					for(int i = 0; i < current.childTree.length; i++)
+						current.childTree[i] = new RegressionTree();
+					for(int i = current.childTree.length - 1; i >= 0; i--)
+						pending.push(current.childTree[i]);
+				}
+			}
+			
+			return tree;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package tree;
+
+import data.*;
+
+/**
+ * Ordinamento degli esempi basato su un'unica vista: per ogni nodo gli esempi vengono ordinati rispetto a ciascun
+ * attributo su una copia del relativo intervallo (per cui attributi diversi possono essere valutati contemporaneamente)
+ * e, scelto lo split, la vista viene ri-ordinata rispetto all'attributo dello split.
+ */
+class SortingOrdering extends ExampleOrdering {
+	/**
+	 * Vista sul training set.
+	 */
+	private final DataView view;
+	
+	/**
+	 * Costruttore di classe.
+	 * @param trainingSet Training set complessivo.
+	 */
+	SortingOrdering(Data trainingSet) {
+		view = new DataView(trainingSet);
+	}
+	
+	SplitNode determineSplitNode(Attribute attribute, int begin, int end, NodeStatistics statistics) {
+		DataView sortedView = new DataView(view, begin, end);
+		sortedView.sort(attribute, begin, end);
+		
+		return newSplitNode(sortedView, attribute, begin, end, statistics);
+	}
+	
+	void split(SplitNode splitNode, int begin, int end) {
+		view.sort(splitNode.getAttribute(), begin, end);
+	}
+	
+	DataView getView() {
+		return view;
+	}
+}
@@ -6,7 +6,7 @@ import java.util.*;
 import data.*;
 
 /**
- * Modella l'entit nodo di split (continuo o discreto) estendendo la superclasse Node.
+ * Modella l'entità nodo di split (continuo o discreto) estendendo la superclasse Node.
  */
 abstract class SplitNode extends Node implements Comparable<SplitNode>, Serializable {
 	/**
@@ -48,18 +48,25 @@ abstract class SplitNode extends Node implements Comparable<SplitNode>, Serializ
 		 */
 		private String comparator = "=";
 		
+		/**
+		 * Statistiche dei valori di classe degli esempi coperti dallo split, usate solo durante l'apprendimento.
+		 */
+		private final transient NodeStatistics statistics;
+		
 		/**
 		 * Costruttore che avvalora gli attributi di classe per split a valori discreti.
 		 * @param splitValue Valore di un attributo indipendente che definisce lo split
 		 * @param beginIndex Indice nel training set del primo esempio coperto.
 		 * @param endIndex Indice nel training set dell'ultimo esempio coperto.
 		 * @param numberChild Numero di figli generati dal nodo corrente.
+		 * @param statistics Statistiche dei valori di classe degli esempi coperti.
 		 */
-		SplitInfo(Object splitValue, int beginIndex, int endIndex, int numberChild){
+		SplitInfo(Object splitValue, int beginIndex, int endIndex, int numberChild, NodeStatistics statistics){
 			this.splitValue = splitValue;
 			this.beginIndex = beginIndex;
 			this.endIndex = endIndex;
 			this.numberChild = numberChild;
+			this.statistics = statistics;
 		}
 		
 
@@ -70,13 +77,15 @@ abstract class SplitNode extends Node implements Comparable<SplitNode>, Serializ
 		 * @param endIndex Indice nel training set dell'ultimo esempio coperto.
 		 * @param numberChild Numero di figli generati dal nodo corrente.
 		 * @param comparator stringa "minore uguale" o "maggiore".
+		 * @param statistics Statistiche dei valori di classe degli esempi coperti.
 		 */
-		SplitInfo(Object splitValue, int beginIndex, int endIndex, int numberChild, String comparator){
+		SplitInfo(Object splitValue, int beginIndex, int endIndex, int numberChild, String comparator, NodeStatistics statistics){
 			this.splitValue = splitValue;
 			this.beginIndex = beginIndex;
 			this.endIndex = endIndex;
 			this.numberChild = numberChild;
 			this.comparator = comparator;
+			this.statistics = statistics;
 		}
 		
 		/**
@@ -95,6 +104,14 @@ abstract class SplitNode extends Node implements Comparable<SplitNode>, Serializ
 			return endIndex;
 		}
 		
+		/**
+		 * Restituisce le statistiche degli esempi coperti dallo split.
+		 * @return Statistiche dei valori di classe del figlio.
+		 */
+		NodeStatistics getStatistics(){
+			return statistics;
+		}
+		
 		/**
 		 * Restituisce il valore dello split 
 		 * @return Object rappresentante il valore dello split.
@@ -121,7 +138,7 @@ abstract class SplitNode extends Node implements Comparable<SplitNode>, Serializ
 	}
 
 	/**
-	 * Oggetto Attribute che modella l'attributo indipendente sul quale lo split  generato.
+	 * Oggetto Attribute che modella l'attributo indipendente sul quale lo split è generato.
 	 */
 	private final Attribute attribute;
 	
@@ -136,39 +153,72 @@ abstract class SplitNode extends Node implements Comparable<SplitNode>, Serializ
 	private double splitVariance;
 	
 	/**
-	 * Invoca il costruttore della superclasse, ordina i valori dell'attributo
-	 * di input per gli esempi [beginExampleIndex, endExampleIndex] e sfrutta questo
-	 * ordinamento per determinare i possibili split e popolare mapSplit,
-	 * computa la varianza (splitVariance) per l'attributo usato nello split sulla base del partizionamento
-	 * indotto dallo split.
-	 * @param trainingSet Training set complessivo.
+	 * Invoca il costruttore della superclasse, sfrutta l'ordinamento degli esempi
+	 * [beginExampleIndex, endExampleIndex] rispetto all'attributo di input
+	 * per determinare i possibili split e popolare mapSplit,
+	 * computa la varianza (splitVariance) per l'attributo usato nello split come somma delle varianze
+	 * dei figli, ricavate durante la determinazione degli split.
+	 * @param trainingSet Vista sul training set complessivo, ordinata rispetto ad attribute nell'intervallo [beginExampleIndex, endExampleIndex].
 	 * @param beginExampleIndex Indice che indica il primo estremo del sotto-insieme di training.
 	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
 	 * @param attribute Attributo indipendente sul quale si definisce lo split.
+	 * @param statistics Statistiche dei valori di classe degli esempi [beginExampleIndex, endExampleIndex].
 	 */
-	SplitNode(Data trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute){
-			super(trainingSet, beginExampleIndex, endExampleIndex);
+	SplitNode(DataView trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute, NodeStatistics statistics){
+			super(beginExampleIndex, endExampleIndex, statistics);
 			this.attribute = attribute;
-			trainingSet.sort(attribute, beginExampleIndex, endExampleIndex); // order by attribute
 			setSplitInfo(trainingSet, beginExampleIndex, endExampleIndex, attribute);
-						
-			//compute variance
-			splitVariance = 0;
-			for(SplitInfo s: mapSplit){
-				double localVariance = new LeafNode(trainingSet, s.getBeginindex(), s.getEndIndex()).getVariance();
-					
-				splitVariance += (localVariance);
-			}
+			splitVariance = computeSplitVariance();
+	}
+	
+	/**
+	 * Invoca il costruttore della superclasse, determina gli split a partire dall'istogramma degli esempi
+	 * [beginExampleIndex, endExampleIndex] rispetto all'attributo di input per popolare mapSplit
+	 * e computa la varianza (splitVariance) dalle statistiche dei figli ricavate dall'istogramma.
+	 * Gli intervalli degli SplitInfo si riferiscono alla vista dopo la ripartizione degli esempi tra i figli.
+	 * @param beginExampleIndex Indice che indica il primo estremo del sotto-insieme di training.
+	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
+	 * @param attribute Attributo indipendente sul quale si definisce lo split.
+	 * @param bins Discretizzazione di attribute (null se attribute è discreto).
+	 * @param histogram Istogramma degli esempi [beginExampleIndex, endExampleIndex] rispetto ai bin di attribute.
+	 * @param statistics Statistiche dei valori di classe degli esempi [beginExampleIndex, endExampleIndex].
+	 */
+	SplitNode(int beginExampleIndex, int endExampleIndex, Attribute attribute, QuantizedAttribute bins, Histogram histogram, NodeStatistics statistics){
+			super(beginExampleIndex, endExampleIndex, statistics);
+			this.attribute = attribute;
+			setSplitInfo(histogram, bins, beginExampleIndex, endExampleIndex);
+			splitVariance = computeSplitVariance();
+	}
+	
+	/**
+	 * Somma le varianze dei figli individuati dagli split in mapSplit.
+	 * @return Varianza indotta dallo split.
+	 */
+	private double computeSplitVariance(){
+		double variance = 0;
+		for(SplitInfo s: mapSplit)
+			variance += s.getStatistics().getVariance();
+		
+		return variance;
 	}
 	
 	/**
 	 * Metodo abstract per generare le informazioni necessarie per ciascuno degli split candidati (in mapSplit).
-	 * @param trainingSet Training set complessivo.
+	 * @param trainingSet Vista sul training set complessivo.
 	 * @param beginExampleIndex Indice che indica il primo estremo del sotto-insieme di training.
 	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
 	 * @param attribute Attributo indipendente sul quale si definisce lo split.
 	 */
-	abstract void setSplitInfo(Data trainingSet,int beginExampleIndex, int endExampleIndex, Attribute attribute);
+	abstract void setSplitInfo(DataView trainingSet,int beginExampleIndex, int endExampleIndex, Attribute attribute);
+	
+	/**
+	 * Metodo abstract per generare gli split candidati (in mapSplit) a partire da un istogramma.
+	 * @param histogram Istogramma degli esempi del nodo rispetto ai bin dell'attributo.
+	 * @param bins Discretizzazione dell'attributo (null se l'attributo è discreto).
+	 * @param beginExampleIndex Indice che indica il primo estremo del sotto-insieme di training.
+	 * @param endExampleIndex Indice che indica il secondo estremo del sotto-insieme di training.
+	 */
+	abstract void setSplitInfo(Histogram histogram, QuantizedAttribute bins, int beginExampleIndex, int endExampleIndex);
 	
 	/**
 	 * Restituisce l'oggetto per l'attributo usato per lo split 
@@ -206,24 +256,24 @@ abstract class SplitNode extends Node implements Comparable<SplitNode>, Serializ
 	 * @return informazioni (attributo, operatore e valore) di un test concatenate.
 	 */
 	String formulateQuery(){
-		String query = "";
+		StringBuilder query = new StringBuilder();
 		int i = 0;
 		for(SplitInfo s: mapSplit)
-			query+= (i++ + ": " + attribute + s.getComparator() + " " + s.getSplitValue()) + "\n";
+			query.append(i++).append(": ").append(attribute).append(s.getComparator()).append(" ").append(s.getSplitValue()).append("\n");
 		
-		return query;
+		return query.toString();
 	}
 	
 	/**
 	 * Concatena le informazioni di ciascuno test (attributo, esempi coperti, varianza, varianza di Split) in una String finale. 
 	 */
 	public String toString(){
-		String v= "SPLIT: attribute= " +attribute + super.toString()+  " split Variance: " + getVariance();
+		StringBuilder v = new StringBuilder("SPLIT: attribute= ").append(attribute).append(super.toString()).append(" split Variance: ").append(getVariance());
 		
 		for(SplitInfo s: mapSplit)
-			v+= "\t" + s + "\n";
+			v.append("\t").append(s).append("\n");
 		
-		return v;
+		return v.toString();
 	}
 	
 	public int compareTo(SplitNode o) {
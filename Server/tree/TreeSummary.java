@@ -0,0 +1,147 @@
+package tree;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Informazioni di apprendimento dei nodi di un albero compilato (esempi coperti e varianze), disposte negli stessi
+ * array in ampiezza di CompiledTree. Non servono per la predizione: vengono conservate nei file di modello
+ * (vedi ModelFile) solo per poter descrivere la struttura dell'albero (vedi RegressionTree.getTree()).
+ */
+class TreeSummary {
+	/**
+	 * Indice nel training set del primo esempio coperto da ciascun nodo.
+	 */
+	private final int[] firstExample;
+	
+	/**
+	 * Indice nel training set dell'ultimo esempio coperto da ciascun nodo.
+	 */
+	private final int[] lastExample;
+	
+	/**
+	 * Varianza dell'attributo di classe negli esempi coperti da ciascun nodo.
+	 */
+	private final double[] variance;
+	
+	/**
+	 * Varianza dello split di ciascun nodo di split (0 per i nodi fogliari).
+	 */
+	private final double[] splitVariance;
+	
+	/**
+	 * Costruttore di classe. Ricava le informazioni dai nodi di tree, visitati in ampiezza.
+	 * @param tree Albero di regressione appreso o letto da un file .dmp.
+	 */
+	TreeSummary(RegressionTree tree) {
+		List<RegressionTree> nodes = CompiledTree.breadthFirst(tree);
+		int size = nodes.size();
+		firstExample = new int[size];
+		lastExample = new int[size];
+		variance = new double[size];
+		splitVariance = new double[size];
+		for(int i = 0; i < size; i++) {
+			Node root = nodes.get(i).getRoot();
+			firstExample[i] = root.getBeginExampleIndex();
+			lastExample[i] = root.getEndExampleIndex();
+			variance[i] = root.getNodeVariance();
+			if(root instanceof SplitNode)
+				splitVariance[i] = root.getVariance();
+		}
+	}
+	
+	/**
+	 * Costruttore di classe. Inizializza le informazioni con array già letti (vedi ModelFile).
+	 * @param firstExample Indice del primo esempio coperto da ciascun nodo.
+	 * @param lastExample Indice dell'ultimo esempio coperto da ciascun nodo.
+	 * @param variance Varianza dell'attributo di classe in ciascun nodo.
+	 * @param splitVariance Varianza dello split di ciascun nodo.
+	 */
+	TreeSummary(int[] firstExample, int[] lastExample, double[] variance, double[] splitVariance) {
+		this.firstExample = firstExample;
+		this.lastExample = lastExample;
+		this.variance = variance;
+		this.splitVariance = splitVariance;
+	}
+	
+	/**
+	 * Restituisce l'indice del primo esempio coperto dal nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Indice del primo esempio.
+	 */
+	int getFirstExample(int node) {
+		return firstExample[node];
+	}
+	
+	/**
+	 * Restituisce l'indice dell'ultimo esempio coperto dal nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Indice dell'ultimo esempio.
+	 */
+	int getLastExample(int node) {
+		return lastExample[node];
+	}
+	
+	/**
+	 * Restituisce la varianza dell'attributo di classe negli esempi coperti dal nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Varianza del nodo.
+	 */
+	double getVariance(int node) {
+		return variance[node];
+	}
+	
+	/**
+	 * Restituisce la varianza dello split del nodo node.
+	 * @param node Posizione del nodo.
+	 * @return Varianza dello split.
+	 */
+	double getSplitVariance(int node) {
+		return splitVariance[node];
+	}
+	
+	/**
+	 * Scrive su out la struttura dell'albero tree nello stesso formato di RegressionTree.toString(). I nodi vengono
+	 * visitati in pre-ordine con una pila esplicita, per cui la profondità dell'albero non incide sulla pila delle chiamate.
+	 * @param tree Albero compilato a cui si riferiscono le informazioni.
+	 * @param out Destinazione della descrizione dei nodi dell'albero in pre-ordine.
+	 * @throws IOException Se la scrittura su out fallisce.
+	 */
+	void write(CompiledTree tree, Writer out) throws IOException {
+		Deque<Integer> pending = new ArrayDeque<Integer>();
+		pending.push(0);
+		while(!pending.isEmpty()) {
+			int node = pending.pop();
+			write(tree, node, out);
+			//i figli sono contigui negli array e vengono inseriti in ordine inverso, così da essere estratti nell'ordine dei rami
+			if(tree.getSplitAttribute(node) >= 0)
+				for(int c = tree.getNumberOfChildren(node) - 1; c >= 0; c--)
+					pending.push(tree.getFirstChild(node) + c);
+		}
+	}
+	
+	/**
+	 * Scrive su out la descrizione del nodo node di tree, senza quella dei suoi figli.
+	 * @param tree Albero compilato a cui si riferiscono le informazioni.
+	 * @param node Posizione del nodo.
+	 * @param out Destinazione della descrizione del nodo.
+	 * @throws IOException Se la scrittura su out fallisce.
+	 */
+	private void write(CompiledTree tree, int node, Writer out) throws IOException {
+		String examples = "[examples: " + firstExample[node] + "-" + lastExample[node] + "]" + " variance= " + variance[node];
+		if(tree.getSplitAttribute(node) < 0) {
+			out.write("LEAF: class= " + tree.getLeafValue(node) + " " + examples + "\n");
+			return;
+		}
+		
+		out.write("SPLIT: attribute= " + tree.getAttributes()[tree.getSplitAttribute(node)] + examples + " split Variance: " + splitVariance[node]);
+		for(int c = 0; c < tree.getNumberOfChildren(node); c++) {
+			int child = tree.getFirstChild(node) + c;
+			out.write("\t" + "child " + c + " split value" + tree.getTest(node, c) + " [Examples:" + firstExample[child] + "-" + lastExample[child] + "]" + "\n");
+		}
+		out.write("\n");
+	}
+}